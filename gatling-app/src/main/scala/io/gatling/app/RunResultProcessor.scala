@@ -47,10 +47,13 @@ private final class RunResultProcessor(configuration: GatlingConfiguration) {
     }
 
   private def initLogFileReader(runResult: RunResult): Option[LogFileReader] =
-    if (reportsGenerationEnabled || runResult.hasAssertions) {
+    if (reportsGenerationEnabled || snapshotEnabled || runResult.hasAssertions) {
       println("Parsing log file(s)...")
       val logFileReader = new LogFileReader(runResult.runId)(configuration)
       println("Parsing log file(s) done")
+      if (snapshotEnabled) {
+        println(s"Stats snapshot written to ${logFileReader.writeSnapshot().toFile}")
+      }
       Some(logFileReader)
     } else {
       None
@@ -59,6 +62,9 @@ private final class RunResultProcessor(configuration: GatlingConfiguration) {
   private def reportsGenerationEnabled: Boolean =
     configuration.core.directory.reportsOnly.isDefined || (configuration.data.fileDataWriterEnabled && !configuration.charting.noReports)
 
+  private def snapshotEnabled: Boolean =
+    configuration.charting.snapshot && (configuration.core.directory.reportsOnly.isDefined || configuration.data.fileDataWriterEnabled)
+
   private def generateReports(reportsGenerationInputs: ReportsGenerationInputs): Unit = {
     println("Generating reports...")
     val start = System.currentTimeMillis()
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.file.{ Files, Path }
+
+import scala.io.Source
+
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.shared.unstable.util.PathHelper._
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.NameRegistry
+import io.gatling.core.stats.message.MessageEvent
+import io.gatling.core.stats.writer._
+
+import org.openjdk.jmh.annotations.Benchmark
+
+object LogFileParsingBenchmark {
+
+  private val configuration: GatlingConfiguration = GatlingConfiguration.loadForTest()
+  private val charset = configuration.core.charset
+
+  private val RecordCount = 100000
+
+  private val LogFile: Path = {
+    val path = Files.createTempFile("simulation", ".log")
+    path.toFile.deleteOnExit()
+    val writer = new BufferedFileChannelWriter(
+      new RandomAccessFile(path.toFile, "rw").getChannel,
+      charset.newEncoder,
+      ByteBuffer.allocate(configuration.data.file.bufferSize)
+    )
+    val serializer = new TextLogFileSerializer(writer, new NameRegistry)
+    serializer.serializeHeader(Nil, RunMessage("Simulation", "run", 0, "benchmark", "3.5.0"))
+    for (i <- 0 until RecordCount) {
+      val start = 1000L + i
+      i % 10 match {
+        case 0 => serializer.serialize(UserStartMessage("scenario", start))
+        case 9 => serializer.serialize(UserEndMessage("scenario", start + 100))
+        case 5 => serializer.serialize(ResponseMessage("scenario", List("group"), s"request ${i % 20}", start, start + 42, KO, None, Some("status.find.is(200), but actually found 500")))
+        case _ => serializer.serialize(ResponseMessage("scenario", List("group"), s"request ${i % 20}", start, start + 42, OK, None, None))
+      }
+    }
+    serializer.serializeFooter()
+    writer.close()
+    path
+  }
+
+  private val bucketFunction: Long => Int = _.toInt
+
+  private final class ChecksumHandler extends LogRecordHandler {
+
+    var checksum = 0L
+
+    override def onRun(runMessage: RunMessage): Unit = {}
+
+    override def onAssertion(assertion: Assertion): Unit = {}
+
+    override def onUser(scenario: String, event: MessageEvent, timestamp: Long): Unit = checksum += timestamp
+
+    override def onRequest(group: Option[Group], name: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): Unit =
+      checksum += end - start
+
+    override def onGroup(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): Unit =
+      checksum += cumulatedResponseTime
+
+    override def onError(message: String, timestamp: Long): Unit = checksum += timestamp
+  }
+}
+
+class LogFileParsingBenchmark {
+  import LogFileParsingBenchmark._
+
+  // what LogFileReader does when it can't scan raw bytes: decode lines into Strings and split them
+  @Benchmark
+  def testDecodeAndSplit(): Long = {
+    val requestRecordParser = new RequestRecordParser(bucketFunction)
+    val groupRecordParser = new GroupRecordParser(bucketFunction)
+    val source = Source.fromInputStream(LogFile.inputStream)(charset)
+    try {
+      var checksum = 0L
+      source.getLines().foreach { line =>
+        line.split(DataWriterMessageSerializer.Separator) match {
+          case requestRecordParser(record) => checksum += record.responseTime
+          case groupRecordParser(record)   => checksum += record.cumulatedResponseTime
+          case UserRecordParser(record)    => checksum += record.timestamp
+          case ErrorRecordParser(record)   => checksum += record.timestamp
+          case _                           =>
+        }
+      }
+      checksum
+    } finally {
+      source.close()
+    }
+  }
+
+  @Benchmark
+  def testMappedScan(): Long = {
+    val handler = new ChecksumHandler
+    MappedLogFileParser.parse(LogFile, 0, Long.MaxValue, charset, handler)
+    handler.checksum
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats.buffers
+
+import java.util.concurrent.ThreadLocalRandom
+
+import io.gatling.core.config.PercentilesEngine
+
+import org.openjdk.jmh.annotations.Benchmark
+
+object PercentilesBuffersBenchmark {
+
+  private val BucketCount = 1000
+  private val RequestNames = 50
+  private val RecordCount = 200000
+
+  private val Buckets: Array[Int] = Array.tabulate(BucketCount)(_ * 1000)
+
+  // log-normal-ish response times, mostly below 1s with a long tail
+  private val ResponseTimes: Array[Int] = {
+    val random = ThreadLocalRandom.current
+    Array.fill(RecordCount)(math.exp(5 + random.nextGaussian()).toInt)
+  }
+
+  private def fillAndCompute(engine: PercentilesEngine): Long = {
+    val buffers = Array.fill(RequestNames)(new PercentilesBuffers(Buckets, engine))
+    val generalStats = Array.fill(RequestNames)(new GeneralStatsBuffer(BucketCount, engine))
+    for (i <- ResponseTimes.indices) {
+      val responseTime = ResponseTimes(i)
+      buffers(i % RequestNames).update(i % BucketCount, responseTime)
+      generalStats(i % RequestNames).update(responseTime)
+    }
+
+    var checksum = 0L
+    buffers.foreach(_.percentiles.foreach(_.percentiles.foreach(checksum += _.percentile99)))
+    generalStats.foreach(checksum += _.stats.percentile(99))
+    checksum
+  }
+}
+
+/**
+ * Run with -prof gc to compare memory: the buffers are retained until the report gets generated,
+ * so the bytes allocated per operation are a good proxy for the heap they need.
+ */
+class PercentilesBuffersBenchmark {
+  import PercentilesBuffersBenchmark._
+
+  @Benchmark
+  def testTDigest(): Long = fillAndCompute(PercentilesEngine.TDigest)
+
+  @Benchmark
+  def testHdrHistogram(): Long = fillAndCompute(PercentilesEngine.HdrHistogram)
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.inject.open
+
+import java.util.concurrent.{ CountDownLatch, TimeUnit }
+
+import scala.jdk.CollectionConverters._
+
+import io.netty.channel.EventLoop
+import io.netty.channel.nio.NioEventLoopGroup
+import org.HdrHistogram.ConcurrentHistogram
+import org.openjdk.jmh.annotations._
+
+/**
+ * Reported by JMH for every iteration next to the time per operation, as secondary results named after the methods:
+ * how late users got started after their arrival time (arrival time accuracy) and the time the injector spent handing them over (scheduling overhead).
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+class SchedulingCounters {
+
+  private val lateness = new ConcurrentHistogram(3)
+  private var users = 0L
+  private var injectorNanos = 0L
+
+  @Setup(Level.Iteration)
+  def reset(): Unit = {
+    lateness.reset()
+    users = 0
+    injectorNanos = 0
+  }
+
+  private[open] def recordStart(deadline: Long): Unit =
+    lateness.recordValue(math.max(System.nanoTime() - deadline, 0L))
+
+  private[open] def recordInjection(count: Int, nanos: Long): Unit = {
+    users += count
+    injectorNanos += nanos
+  }
+
+  def latenessMeanMicros: Double = lateness.getMean / 1000
+
+  def latenessP99Micros: Double = lateness.getValueAtPercentile(99) / 1000.0
+
+  def injectorNanosPerUser: Double = if (users == 0) 0 else injectorNanos.toDouble / users
+}
+
+/**
+ * Injects one window worth of users at a given arrival rate and waits for all of them to be started.
+ *
+ * The time per operation is the window plus how late the last user got started,
+ * see [[SchedulingCounters]] for the secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class InjectionSchedulingBenchmark {
+
+  private val WindowNanos = TimeUnit.MILLISECONDS.toNanos(100)
+
+  @Param(Array("1000", "20000", "100000"))
+  var usersPerSecond: Int = _
+
+  private var eventLoopGroup: NioEventLoopGroup = _
+  private var eventLoops: Array[EventLoop] = _
+
+  private def usersPerWindow: Int = (usersPerSecond.toLong * WindowNanos / TimeUnit.SECONDS.toNanos(1)).toInt
+
+  @Setup
+  def setup(): Unit = {
+    eventLoopGroup = new NioEventLoopGroup(4)
+    eventLoops = eventLoopGroup.asScala.collect { case eventLoop: EventLoop => eventLoop }.toArray
+  }
+
+  @TearDown
+  def tearDown(): Unit =
+    eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+
+  private def arrivals(start: Long): Array[Long] = {
+    val count = usersPerWindow
+    Array.tabulate(count)(i => start + i * WindowNanos / count)
+  }
+
+  @Benchmark
+  def testPerUserTimers(counters: SchedulingCounters): Unit = {
+    val start = System.nanoTime()
+    val deadlines = arrivals(start)
+    val latch = new CountDownLatch(deadlines.length)
+
+    val schedulingStart = System.nanoTime()
+    deadlines.indices.foreach { i =>
+      val deadline = deadlines(i)
+      // what injecting used to do before arrival queues: one task per user, with a millisecond delay
+      eventLoops(i % eventLoops.length).schedule(
+        (() => {
+          counters.recordStart(deadline)
+          latch.countDown()
+        }): Runnable,
+        (deadline - start) / 1000000,
+        TimeUnit.MILLISECONDS
+      )
+    }
+    counters.recordInjection(deadlines.length, System.nanoTime() - schedulingStart)
+
+    latch.await()
+  }
+
+  @Benchmark
+  def testArrivalQueues(counters: SchedulingCounters): Unit = {
+    val start = System.nanoTime()
+    val deadlines = arrivals(start)
+    val latch = new CountDownLatch(deadlines.length)
+
+    val schedulingStart = System.nanoTime()
+    val pendingArrivals = Array.fill(eventLoops.length)(new PendingArrivals)
+    deadlines.indices.foreach { i =>
+      val deadline = deadlines(i)
+      pendingArrivals(i % eventLoops.length).add(
+        deadline,
+        _ => {
+          counters.recordStart(deadline)
+          latch.countDown()
+        }
+      )
+    }
+    eventLoops.indices.foreach(i => pendingArrivals(i).drainTo(new ArrivalQueue(eventLoops(i))))
+    counters.recordInjection(deadlines.length, System.nanoTime() - schedulingStart)
+
+    latch.await()
+  }
+}
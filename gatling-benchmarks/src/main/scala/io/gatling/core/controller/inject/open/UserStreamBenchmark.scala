@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.inject.open
+
+import java.util.concurrent.TimeUnit
+
+import scala.concurrent.duration._
+
+import io.gatling.commons.util.PushbackIterator
+
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Computes the first one second batch of an open injection profile, either by streaming boxed durations through
+ * the step iterators like UserStream used to, or through the primitive offsets UserStream now uses.
+ *
+ * Run with `-prof gc` to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+class UserStreamBenchmark {
+
+  @Param(Array("ramp", "rampRate", "heaviside"))
+  var step: String = _
+
+  @Param(Array("1000", "100000"))
+  var usersPerSecond: Int = _
+
+  private var steps: List[OpenInjectionStep] = _
+
+  @Setup
+  def setup(): Unit = {
+    val duration = 10.seconds
+    val users = usersPerSecond * duration.toSeconds
+    steps = step match {
+      case "ramp"      => RampOpenInjection(users, duration) :: Nil
+      case "rampRate"  => RampRateOpenInjection(usersPerSecond, usersPerSecond, duration) :: Nil
+      case "heaviside" => HeavisideOpenInjection(users, duration) :: Nil
+      case _           => throw new IllegalArgumentException(s"Unknown step $step")
+    }
+  }
+
+  @Benchmark
+  def testBoxedDurations(blackhole: Blackhole): Unit = {
+    val stream = new PushbackIterator(steps.foldRight(Iterator.empty: Iterator[FiniteDuration])(_.chain(_)))
+    var continue = true
+    while (continue && stream.hasNext) {
+      val startingTime = stream.next()
+      continue = startingTime < 1.second
+      if (continue) {
+        blackhole.consume(startingTime)
+      } else {
+        stream.pushback(startingTime)
+      }
+    }
+  }
+
+  @Benchmark
+  def testPrimitiveOffsets(blackhole: Blackhole): Unit =
+    UserStream(steps).withStream(1.second, 0, 0)(blackhole.consume(_: Long))
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.nio.channels.{ Channels, FileChannel }
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path }
+import java.util.concurrent.{ ForkJoinPool, TimeUnit }
+
+import scala.util.Using
+
+import org.openjdk.jmh.annotations._
+import org.simpleflatmapper.lightningcsv.CsvParser
+
+object SeparatedValuesParserBenchmark {
+  final val Rows = 1000000
+}
+
+/**
+ * Rows per second when loading an eager feeder, with the sequential parser and with the parallel chunked one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(SeparatedValuesParserBenchmark.Rows)
+class SeparatedValuesParserBenchmark {
+
+  import SeparatedValuesParserBenchmark._
+
+  @Param(Array("sequential", "parallel"))
+  var parser: String = _
+
+  private var file: Path = _
+
+  @Setup
+  def setup(): Unit = {
+    file = Files.createTempFile("feeder", ".csv")
+    Using.resource(Files.newBufferedWriter(file, UTF_8)) { writer =>
+      writer.write("id,firstName,lastName,email,address\n")
+      for (i <- 0 until Rows) {
+        writer.write(s"""$i,John$i,Doe$i,john.doe$i@example.com,"$i Main Street, Springfield"\n""")
+      }
+    }
+  }
+
+  @TearDown
+  def tearDown(): Unit =
+    Files.delete(file)
+
+  @Benchmark
+  def testParse(): Int =
+    Using.resource(FileChannel.open(file)) { channel =>
+      val it = parser match {
+        case "sequential" => CsvParser.separator(',').quote('"').iterator(Channels.newReader(channel, UTF_8))
+        case "parallel" =>
+          ParallelSeparatedValuesParser.rows(channel, ',', '"', UTF_8, ForkJoinPool.commonPool, ParallelSeparatedValuesParser.DefaultChunkSize)
+        case _ => throw new IllegalArgumentException(s"Unknown parser $parser")
+      }
+      var count = 0
+      while (it.hasNext) {
+        it.next()
+        count += 1
+      }
+      count
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.session
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+
+/**
+ * Typical session updates on a virtual user holding a few dozens of attributes, with HashMap and CompactAttributes storage.
+ *
+ * Run with `-prof gc` to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+class SessionAttributesBenchmark {
+
+  @Param(Array("hashMap", "compact"))
+  var attributes: String = _
+
+  @Param(Array("30"))
+  var size: Int = _
+
+  private var session: Session = _
+  private var record: Map[String, Any] = _
+  private val tokenSlot = AttributeSlot("token")
+  private val idSlot = AttributeSlot("id")
+  private val attribute0Slot = AttributeSlot("attribute0")
+  private val attribute15Slot = AttributeSlot("attribute15")
+
+  @Setup
+  def setup(): Unit = {
+    val empty: Map[String, Any] = attributes match {
+      case "hashMap" => Map.empty
+      case "compact" => CompactAttributes.Empty
+      case _         => throw new IllegalArgumentException(s"Unknown attributes $attributes")
+    }
+    // written through their slots, like checks and CSV feeders do
+    session = (0 until size).foldLeft(Session("Scenario", 0, empty, Session.NothingOnExit, null)) { (session, i) =>
+      session.set(AttributeSlot(s"attribute$i"), i)
+    }
+    record = (0 until 5).map(i => s"column$i" -> s"value$i").toMap
+  }
+
+  @Benchmark
+  def testFeed(): Session =
+    // a feeder record
+    session.setAll(record)
+
+  @Benchmark
+  def testChecks(): Session =
+    // a couple of check saveAs and a loop counter increment
+    session.set("token", "abc").set("id", 42).set("attribute0", 1)
+
+  @Benchmark
+  def testChecksThroughSlots(): Session =
+    session.set(tokenSlot, "abc").set(idSlot, 42).set(attribute0Slot, 1)
+
+  @Benchmark
+  def testResolve(): Any =
+    // a dynamic lookup by name
+    session.attributes.get("attribute15")
+
+  @Benchmark
+  def testResolveThroughSlot(): Any =
+    // what EL attribute lookups do
+    session.attributeOrElse(attribute15Slot, null)
+}
@@ -20,7 +20,7 @@ import io.gatling.Utils._
 import io.gatling.commons.validation.Validation
 import io.gatling.core.ValidationImplicits
 import io.gatling.core.config.GatlingConfiguration
-import io.gatling.core.session.Session
+import io.gatling.core.session.{ AttributeSlot, CompactAttributes, Session }
 
 import org.openjdk.jmh.annotations.Benchmark
 
@@ -29,14 +29,34 @@ object ElCompilerBenchmark extends ValidationImplicits {
   private implicit val config = GatlingConfiguration.loadForTest()
   private val charset = config.core.charset
 
-  private val Session1 = Session("Scenario", 0, null).set("id", 3)
   private val Template = ElCompiler.compile[String](resourceAsString("sample-el.json", charset))
+  private val Session1 = Session("Scenario", 0, null).set("id", 3)
+  // written through its slot, like checks and CSV feeders do
+  private val CompactSession1 = Session("Scenario", 0, CompactAttributes.Empty, Session.NothingOnExit, null).set(AttributeSlot("id"), 3)
+  private val IdPart = AttributePart("id")
 }
 
+/**
+ * testAttributeByName and testAttributeBySlot compare the lookup attribute parts used to do with the one they do now,
+ * testBasic and testCompactAttributes how much of it shows on a whole template.
+ */
 class ElCompilerBenchmark {
   import ElCompilerBenchmark._
 
   @Benchmark
   def testBasic(): Validation[String] =
     Template(Session1)
+
+  @Benchmark
+  def testCompactAttributes(): Validation[String] =
+    Template(CompactSession1)
+
+  @Benchmark
+  def testAttributeByName(): Validation[Any] =
+    // how attribute parts used to resolve before being resolved into slots
+    CompactSession1("id").validate[Any]
+
+  @Benchmark
+  def testAttributeBySlot(): Validation[Any] =
+    IdPart(CompactSession1)
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client
+
+import java.net.InetSocketAddress
+import java.util.concurrent.{ CountDownLatch, TimeUnit }
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.gatling.http.client.impl.DefaultHttpClient
+import io.gatling.http.client.resolver.InetAddressNameResolver
+import io.gatling.http.client.uri.Uri
+
+import io.netty.bootstrap.ServerBootstrap
+import io.netty.buffer.{ ByteBuf, Unpooled }
+import io.netty.channel.{ Channel, ChannelHandlerContext, ChannelInitializer, SimpleChannelInboundHandler }
+import io.netty.channel.nio.NioEventLoopGroup
+import io.netty.channel.socket.nio.NioServerSocketChannel
+import io.netty.handler.codec.http._
+import org.openjdk.jmh.annotations._
+
+object RequestTimeoutBenchmark {
+  final val ConcurrentRequests = 100
+
+  private val ResponseBody = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("pong".getBytes))
+
+  private class EchoHandler extends SimpleChannelInboundHandler[FullHttpRequest] {
+    override def channelRead0(ctx: ChannelHandlerContext, request: FullHttpRequest): Unit = {
+      val response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, ResponseBody.duplicate())
+      response.headers.set(HttpHeaderNames.CONTENT_LENGTH, ResponseBody.readableBytes)
+      ctx.writeAndFlush(response)
+    }
+  }
+}
+
+/**
+ * Requests per second against a local Netty server, with and without request timeouts, on a single event loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(RequestTimeoutBenchmark.ConcurrentRequests)
+class RequestTimeoutBenchmark {
+
+  import RequestTimeoutBenchmark._
+
+  @Param(Array("0", "60000"))
+  var requestTimeout: Long = _
+
+  private var serverGroup: NioEventLoopGroup = _
+  private var serverChannel: Channel = _
+  private var clientGroup: NioEventLoopGroup = _
+  private var client: DefaultHttpClient = _
+  private var request: Request = _
+
+  @Setup
+  def setup(): Unit = {
+    serverGroup = new NioEventLoopGroup(1)
+    serverChannel = new ServerBootstrap()
+      .group(serverGroup)
+      .channel(classOf[NioServerSocketChannel])
+      .childHandler(new ChannelInitializer[Channel] {
+        override def initChannel(ch: Channel): Unit =
+          ch.pipeline.addLast(new HttpServerCodec, new HttpObjectAggregator(1024), new EchoHandler)
+      })
+      .bind(0)
+      .sync()
+      .channel
+
+    val port = serverChannel.localAddress.asInstanceOf[InetSocketAddress].getPort
+    clientGroup = new NioEventLoopGroup(1)
+    client = new DefaultHttpClient(new HttpClientConfig)
+    request = new RequestBuilder(HttpMethod.GET, Uri.create(s"http://localhost:$port/ping"), InetAddressNameResolver.JAVA_RESOLVER)
+      .setRequestTimeout(requestTimeout)
+      .build()
+  }
+
+  @TearDown
+  def tearDown(): Unit = {
+    client.close()
+    serverChannel.close().sync()
+    clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+  }
+
+  @Benchmark
+  def testRequests(): Unit = {
+    val latch = new CountDownLatch(ConcurrentRequests)
+    val failures = new AtomicInteger
+    val listener = new HttpListener {
+      override def onHttpResponse(status: HttpResponseStatus, headers: HttpHeaders): Unit = {}
+      override def onHttpResponseBodyChunk(chunk: ByteBuf, last: Boolean): Unit =
+        if (last) {
+          latch.countDown()
+        }
+      override def onThrowable(e: Throwable): Unit = {
+        failures.incrementAndGet()
+        latch.countDown()
+      }
+    }
+    val eventLoop = clientGroup.next()
+    for (_ <- 0 until ConcurrentRequests) {
+      client.sendRequest(request, -1, eventLoop, listener, null, null)
+    }
+    latch.await()
+    if (failures.get > 0) {
+      throw new IllegalStateException(s"${failures.get} requests out of $ConcurrentRequests failed")
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.io.EOFException
+import java.nio.ByteBuffer
+import java.nio.channels.ReadableByteChannel
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Path
+
+import scala.collection.mutable
+
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.message.MessageEvent
+import io.gatling.core.stats.writer.{ BinaryRecords, RunMessage }
+
+import boopickle.Default._
+import com.typesafe.scalalogging.StrictLogging
+
+private final class BinaryInput(channel: ReadableByteChannel, bufferSize: Int) {
+
+  private val buffer = ByteBuffer.allocate(bufferSize)
+  buffer.flip()
+
+  private def fill(): Boolean = {
+    buffer.compact()
+    var read = 0
+    while (read == 0) {
+      read = channel.read(buffer)
+    }
+    buffer.flip()
+    read > 0
+  }
+
+  def hasRemaining: Boolean = buffer.hasRemaining || fill()
+
+  def peekByte(): Byte = {
+    if (!buffer.hasRemaining && !fill()) {
+      throw new EOFException
+    }
+    buffer.get(buffer.position())
+  }
+
+  def readByte(): Byte = {
+    if (!buffer.hasRemaining && !fill()) {
+      throw new EOFException
+    }
+    buffer.get()
+  }
+
+  def readVarLong(): Long = {
+    var result = 0L
+    var shift = 0
+    var b = readByte()
+    while ((b & 0x80) != 0) {
+      result |= (b & 0x7FL) << shift
+      shift += 7
+      b = readByte()
+    }
+    result | (b.toLong << shift)
+  }
+
+  def readVarInt(): Int = readVarLong().toInt
+
+  def readZigZagLong(): Long = {
+    val l = readVarLong()
+    (l >>> 1) ^ -(l & 1)
+  }
+
+  def readBytes(length: Int): Array[Byte] = {
+    val bytes = new Array[Byte](length)
+    var offset = 0
+    while (offset < length) {
+      if (!buffer.hasRemaining && !fill()) {
+        throw new EOFException
+      }
+      val chunk = math.min(buffer.remaining, length - offset)
+      buffer.get(bytes, offset, chunk)
+      offset += chunk
+    }
+    bytes
+  }
+
+  def skip(length: Int): Unit = {
+    var remaining = length
+    while (remaining > 0) {
+      if (!buffer.hasRemaining && !fill()) {
+        throw new EOFException
+      }
+      val chunk = math.min(buffer.remaining, remaining)
+      buffer.position(buffer.position() + chunk)
+      remaining -= chunk
+    }
+  }
+
+  def readString(): String = {
+    val length = readVarInt()
+    if (length == 0) {
+      ""
+    } else if (buffer.remaining >= length) {
+      // decode in place
+      val string = new String(buffer.array, buffer.arrayOffset + buffer.position(), length, UTF_8)
+      buffer.position(buffer.position() + length)
+      string
+    } else {
+      new String(readBytes(length), UTF_8)
+    }
+  }
+
+  def skipString(): Unit = skip(readVarInt())
+}
+
+private object BinaryLogFileParser {
+
+  private val BufferSize = 64 * 1024
+
+  private def withParser[T](path: Path, handler: LogRecordHandler)(f: BinaryLogFileParser => T): T = {
+    val channel = LogFileInput.channel(path)
+    try {
+      f(new BinaryLogFileParser(path, new BinaryInput(channel, BufferSize), handler))
+    } finally {
+      channel.close()
+    }
+  }
+
+  def parse(path: Path, handler: LogRecordHandler): Int =
+    withParser(path, handler)(_.parse())
+
+  def parseHeader(path: Path, handler: LogRecordHandler): Unit =
+    withParser(path, handler)(_.parseHeader())
+}
+
+/**
+ * Decodes a binary simulation.log and feeds its records to a [[LogRecordHandler]], without going through Strings for anything but names and messages.
+ */
+private final class BinaryLogFileParser(path: Path, input: BinaryInput, handler: LogRecordHandler) extends StrictLogging {
+
+  import BinaryRecords._
+
+  private var runStart = 0L
+  private val strings = mutable.ArrayBuffer.empty[String]
+  private val groups = mutable.ArrayBuffer[Option[Group]](None)
+
+  private def readTimestamp(): Long = runStart + input.readZigZagLong()
+
+  private def readStatus(flags: Int): Status = if ((flags & KoFlag) != 0) KO else OK
+
+  private def checkMagic(): Unit = {
+    val magic = input.readBytes(Magic.length)
+    require(magic.sameElements(Magic), s"$path is not a binary simulation.log")
+  }
+
+  private def parseRun(): Unit = {
+    val simulationClassName = input.readString()
+    val simulationId = input.readString()
+    runStart = input.readVarLong()
+    val runDescription = input.readString()
+    val gatlingVersion = input.readString()
+    handler.onRun(RunMessage(simulationClassName, simulationId, runStart, runDescription, gatlingVersion))
+  }
+
+  private def parseAssertion(): Unit = {
+    // WARN: don't believe IntelliJ here, this import is absolutely mandatory
+    import io.gatling.commons.stats.assertion.AssertionPicklers._
+    val bytes = input.readBytes(input.readVarInt())
+    handler.onAssertion(Unpickle[Assertion].fromBytes(ByteBuffer.wrap(bytes)))
+  }
+
+  private def parseStringDefinition(): Unit = {
+    val id = input.readVarInt()
+    val string = input.readString()
+    require(id == strings.size, s"Unexpected string definition id $id in $path")
+    strings += string
+  }
+
+  private def parseGroupDefinition(): Unit = {
+    val id = input.readVarInt()
+    val size = input.readVarInt()
+    val hierarchy = List.fill(size)(strings(input.readVarInt()))
+    require(id == groups.size, s"Unexpected group definition id $id in $path")
+    groups += Some(Group(hierarchy))
+  }
+
+  private def parseUser(event: MessageEvent): Unit = {
+    val scenario = strings(input.readVarInt())
+    handler.onUser(scenario, event, readTimestamp())
+  }
+
+  private def parseRequest(): Unit = {
+    val group = groups(input.readVarInt())
+    val name = strings(input.readVarInt())
+    val start = readTimestamp()
+    val end = start + input.readZigZagLong()
+    val flags = input.readByte().toInt
+    val status = readStatus(flags)
+    val errorMessage =
+      if ((flags & MessageFlag) == 0) {
+        None
+      } else if (status == KO) {
+        Some(input.readString())
+      } else {
+        input.skipString()
+        None
+      }
+    handler.onRequest(group, name, start, end, status, errorMessage)
+  }
+
+  private def parseGroup(): Unit = {
+    val group = groups(input.readVarInt()).getOrElse(throw new IllegalArgumentException(s"Group record without group in $path"))
+    val start = readTimestamp()
+    val end = start + input.readZigZagLong()
+    val cumulatedResponseTime = input.readVarInt()
+    val status = readStatus(input.readByte().toInt)
+    handler.onGroup(group, start, end, cumulatedResponseTime, status)
+  }
+
+  private def parseError(): Unit = {
+    val message = input.readString()
+    handler.onError(message, readTimestamp())
+  }
+
+  def parseHeader(): Unit = {
+    checkMagic()
+
+    while (input.hasRemaining && (input.peekByte() == RunTag || input.peekByte() == AssertionTag)) {
+      if (input.readByte() == RunTag) {
+        parseRun()
+      } else {
+        parseAssertion()
+      }
+    }
+  }
+
+  def parse(): Int = {
+    checkMagic()
+
+    var count = 0
+    try {
+      while (input.hasRemaining) {
+        input.readByte() match {
+          case RunTag              => parseRun()
+          case AssertionTag        => parseAssertion()
+          case StringDefinitionTag => parseStringDefinition()
+          case GroupDefinitionTag  => parseGroupDefinition()
+          case UserStartTag        => parseUser(MessageEvent.Start)
+          case UserEndTag          => parseUser(MessageEvent.End)
+          case RequestTag          => parseRequest()
+          case GroupTag            => parseGroup()
+          case ErrorTag            => parseError()
+          case BoundsTag           => input.skip(BoundsFooterLength - 1)
+          case tag                 => throw new IllegalArgumentException(s"Unknown record tag $tag in $path")
+        }
+        count += 1
+      }
+    } catch {
+      case _: EOFException =>
+        // the run crashed while writing the last record
+        logger.warn(s"$path is truncated, ignoring last record")
+    }
+    count
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets.US_ASCII
+import java.nio.file.Path
+
+import io.gatling.core.stats.writer.{ BinaryRecords, DataWriterMessageSerializer, LogFileFormat, RawBoundsRecord }
+
+private final case class LogFileBounds(start: Long, end: Long)
+
+private object LogFileBounds {
+
+  // "BOUNDS" + 2 * (separator + 19 digits) + EOL, rounded up
+  private val TextFooterMaxLength = 64
+
+  /**
+   * Reads the run bounds from the footer the writer adds on clean stop.
+   *
+   * @return None if the run crashed or if the file was written by a version that didn't write footers
+   */
+  def read(path: Path, format: LogFileFormat): Option[LogFileBounds] =
+    format match {
+      case LogFileFormat.Text   => readTextFooter(path)
+      case LogFileFormat.Binary => readBinaryFooter(path)
+    }
+
+  private def readTextFooter(path: Path): Option[LogFileBounds] = {
+    val lines = new String(LogFileInput.tail(path, TextFooterMaxLength), US_ASCII).split("\r?\n")
+    lines.lastOption.map(_.split(DataWriterMessageSerializer.Separator)).collect { case RawBoundsRecord(array) =>
+      LogFileBounds(array(1).toLong, array(2).toLong)
+    }
+  }
+
+  private def readBinaryFooter(path: Path): Option[LogFileBounds] = {
+    val tail = LogFileInput.tail(path, BinaryRecords.Magic.length + BinaryRecords.BoundsFooterLength)
+    if (tail.length < BinaryRecords.Magic.length + BinaryRecords.BoundsFooterLength) {
+      None
+    } else {
+      val footer = ByteBuffer.wrap(tail, BinaryRecords.Magic.length, BinaryRecords.BoundsFooterLength)
+      val tag = footer.get()
+      val start = footer.getLong()
+      val end = footer.getLong()
+      val magic = new Array[Byte](BinaryRecords.Magic.length)
+      footer.get(magic)
+      if (tag == BinaryRecords.BoundsTag && magic.sameElements(BinaryRecords.Magic)) Some(LogFileBounds(start, end)) else None
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.io.{ ByteArrayOutputStream, InputStream }
+import java.nio.ByteBuffer
+import java.nio.channels.{ Channels, FileChannel, ReadableByteChannel }
+import java.nio.file.{ Path, StandardOpenOption }
+import java.util.concurrent.{ CompletableFuture, Executor, ForkJoinPool }
+import java.util.function.Supplier
+
+import io.gatling.commons.shared.unstable.util.PathHelper._
+import io.gatling.core.stats.writer.LogFileCompression
+
+import com.typesafe.scalalogging.StrictLogging
+
+/**
+ * Opens simulation.log files whether they're compressed or not, so parsers don't have to care.
+ */
+private object LogFileInput {
+
+  // blocks decompressed ahead of the parser
+  private val LookAhead = 2 * Runtime.getRuntime.availableProcessors
+
+  def isCompressed(path: Path): Boolean = LogFileCompression.of(path) != LogFileCompression.Uncompressed
+
+  def inputStream(path: Path): InputStream =
+    if (isCompressed(path)) {
+      new DecompressingInputStream(FileChannel.open(path, StandardOpenOption.READ), LookAhead, ForkJoinPool.commonPool)
+    } else {
+      path.inputStream
+    }
+
+  def channel(path: Path): ReadableByteChannel =
+    if (isCompressed(path)) {
+      Channels.newChannel(inputStream(path))
+    } else {
+      FileChannel.open(path, StandardOpenOption.READ)
+    }
+
+  /**
+   * @return the last length bytes of the file content, or less if the content is shorter
+   */
+  def tail(path: Path, length: Int): Array[Byte] = {
+    val channel = FileChannel.open(path, StandardOpenOption.READ)
+    try {
+      LogFileCompression.of(path) match {
+        case LogFileCompression.Uncompressed =>
+          val size = channel.size
+          val tail = ByteBuffer.allocate(math.min(size, length.toLong).toInt)
+          while (tail.hasRemaining && channel.read(tail, size - tail.capacity + tail.position()) >= 0) {}
+          tail.array
+
+        case LogFileCompression.Lz4 =>
+          // only frame headers are read until enough blocks are collected from the end
+          val frames = LogFileCompression.readFrames(channel)
+          var blocks = List.empty[Array[Byte]]
+          var collected = 0
+          val it = frames.reverseIterator
+          while (collected < length && it.hasNext) {
+            val frame = it.next()
+            blocks = LogFileCompression.decompress(LogFileCompression.readCompressed(channel, frame), frame.uncompressedLength) :: blocks
+            collected += frame.uncompressedLength
+          }
+          val content = new ByteArrayOutputStream(collected)
+          blocks.foreach(content.write)
+          content.toByteArray.takeRight(length)
+      }
+    } finally {
+      channel.close()
+    }
+  }
+}
+
+/**
+ * Streams the decompressed content of a compressed simulation.log.
+ *
+ * Compressed frames are read sequentially on the caller thread, but up to lookAhead of them get decompressed concurrently on the executor
+ * while the caller consumes the current block, so decompression scales with the cores instead of slowing the parser down.
+ */
+private final class DecompressingInputStream(channel: FileChannel, lookAhead: Int, executor: Executor) extends InputStream with StrictLogging {
+
+  private val size = channel.size
+  private var nextFramePosition = LogFileCompression.Magic.length.toLong
+  private var exhausted = false
+  private val pending = new java.util.ArrayDeque[CompletableFuture[Array[Byte]]](lookAhead)
+
+  private var block = Array.emptyByteArray
+  private var offset = 0
+
+  private def submitFrames(): Unit =
+    while (!exhausted && pending.size < lookAhead) {
+      LogFileCompression.readFrame(channel, nextFramePosition) match {
+        case Some(frame) =>
+          val compressed = LogFileCompression.readCompressed(channel, frame)
+          pending.add(CompletableFuture.supplyAsync((() => LogFileCompression.decompress(compressed, frame.uncompressedLength)): Supplier[Array[Byte]], executor))
+          nextFramePosition = frame.next
+
+        case _ =>
+          if (nextFramePosition < size) {
+            logger.info(s"Ignoring ${size - nextFramePosition} trailing bytes of truncated compressed simulation.log")
+          }
+          exhausted = true
+      }
+    }
+
+  // returns false on end of stream
+  private def nextBlock(): Boolean = {
+    submitFrames()
+    val next = pending.poll()
+    if (next == null) {
+      false
+    } else {
+      block = next.join()
+      offset = 0
+      true
+    }
+  }
+
+  override def read(): Int = {
+    while (offset == block.length && nextBlock()) {}
+    if (offset == block.length) {
+      -1
+    } else {
+      val b = block(offset) & 0xFF
+      offset += 1
+      b
+    }
+  }
+
+  override def read(b: Array[Byte], off: Int, len: Int): Int =
+    if (len == 0) {
+      0
+    } else {
+      while (offset == block.length && nextBlock()) {}
+      if (offset == block.length) {
+        -1
+      } else {
+        val read = math.min(len, block.length - offset)
+        System.arraycopy(block, offset, b, off, read)
+        offset += read
+        read
+      }
+    }
+
+  override def available(): Int = block.length - offset
+
+  override def close(): Unit = channel.close()
+}
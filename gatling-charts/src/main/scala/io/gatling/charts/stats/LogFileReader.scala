@@ -18,11 +18,15 @@ package io.gatling.charts.stats
 
 import java.io.InputStream
 import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{ Path, StandardOpenOption }
 import java.util.Base64
+import java.util.concurrent.{ Callable, ConcurrentLinkedQueue, ForkJoinPool }
 
 import scala.collection.immutable.ArraySeq
 import scala.collection.mutable
 import scala.io.Source
+import scala.jdk.CollectionConverters._
 
 import io.gatling.charts.stats.buffers.{ CountsBuffer, GeneralStatsBuffer, PercentilesBuffers }
 import io.gatling.commons.shared.unstable.model.stats.{ ErrorStats, GeneralStats, GeneralStatsSource, Group, GroupStatsPath, RequestStatsPath, StatsPath }
@@ -42,47 +46,151 @@ object LogFileReader {
   private val LogStep = 100000
   private val SecMillisecRatio = 1000.0
   private val SimulationFilesNamePattern = """.*\.log"""
+  private val MinTextSplitSize = 8 * 1024 * 1024
 
   private final case class FirstPassData(runStart: Long, runEnd: Long, runMessage: RunMessage, assertions: List[Assertion])
+
+  private sealed abstract class LogFileSplit(val path: Path) extends Product with Serializable
+  private final case class TextSplit(override val path: Path, start: Long, end: Long) extends LogFileSplit(path)
+  private final case class BinarySplit(override val path: Path) extends LogFileSplit(path)
+  // compressed files can't be split on lines, but their blocks get decompressed in parallel
+  private final case class CompressedTextSplit(override val path: Path) extends LogFileSplit(path)
+
+  private def isHeaderLine(line: String): Boolean =
+    line.startsWith(RunRecordHeader.value + DataWriterMessageSerializer.Separator) ||
+      line.startsWith(AssertionRecordHeader.value + DataWriterMessageSerializer.Separator)
+
+  /**
+   * Reads [start, end) of a file with positional reads, so that several splits of the same file can be read concurrently
+   */
+  private final class FileRangeInputStream(channel: FileChannel, start: Long, end: Long) extends InputStream {
+
+    private var position = start
+
+    override def read(): Int = {
+      val b = new Array[Byte](1)
+      if (read(b, 0, 1) == -1) -1 else b(0) & 0xFF
+    }
+
+    override def read(b: Array[Byte], off: Int, len: Int): Int =
+      if (position >= end) {
+        -1
+      } else {
+        val read = channel.read(ByteBuffer.wrap(b, off, math.min(len.toLong, end - position).toInt), position)
+        if (read > 0) {
+          position += read
+        }
+        read
+      }
+
+    override def close(): Unit = channel.close()
+  }
+
+  // offsets of the first byte following each '\n' found at or after every multiple of splitSize
+  private def textSplitOffsets(channel: FileChannel, splitSize: Long): List[Long] = {
+    val size = channel.size
+    val buffer = ByteBuffer.allocate(8 * 1024)
+
+    def nextLineStart(from: Long): Long = {
+      var position = from
+      var found = -1L
+      while (found == -1L && position < size) {
+        buffer.clear()
+        val read = channel.read(buffer, position)
+        var i = 0
+        while (found == -1L && i < read) {
+          if (buffer.get(i) == '\n') {
+            found = position + i + 1
+          }
+          i += 1
+        }
+        position += math.max(read, 0)
+      }
+      if (found == -1L) size else found
+    }
+
+    Iterator
+      .iterate(0L)(offset => nextLineStart(math.max(offset + splitSize, offset + 1) - 1))
+      .takeWhile(_ < size)
+      .toList :+ size
+  }
 }
 
 private[gatling] class LogFileReader(runUuid: String)(implicit configuration: GatlingConfiguration) extends GeneralStatsSource with StrictLogging {
 
   import LogFileReader._
 
-  private val inputFiles = simulationLogDirectory(runUuid, create = false, configuration).files
-    .collect { case file if file.filename.matches(SimulationFilesNamePattern) => file.path }
+  private val runDirectory = simulationLogDirectory(runUuid, create = false, configuration)
 
-  logger.info(s"Collected $inputFiles from $runUuid")
-  require(inputFiles.nonEmpty, "simulation directory doesn't contain any log file.")
+  private val snapshotHeaders: Seq[(Path, SnapshotHeader)] = runDirectory.files
+    .collect { case file if file.filename.endsWith(ResultsSnapshot.Extension) => file.path }
+    .map(path => path -> ResultsSnapshot.readHeader(path))
 
-  private def parseInputFiles[T](f: Iterator[String] => T): T = {
+  // files whose stats are already in a snapshot from the same directory
+  private val coveredFiles: Set[String] = snapshotHeaders.flatMap(_._2.sourceFiles).toSet
 
-    def multipleFileIterator(streams: Seq[InputStream]): Iterator[String] =
-      streams.map(Source.fromInputStream(_)(configuration.core.charset).getLines()).reduce((first, second) => first ++ second)
+  private val snapshots = snapshotHeaders.filterNot { case (path, _) => coveredFiles.contains(path.filename) }
 
-    val streams = inputFiles.map(_.inputStream)
-    try f(multipleFileIterator(streams))
-    finally streams.foreach(_.close)
-  }
+  private val inputFiles = runDirectory.files
+    .collect { case file if file.filename.matches(SimulationFilesNamePattern) && !coveredFiles.contains(file.filename) => file.path }
 
-  private def firstPass(records: Iterator[String]): FirstPassData = {
+  logger.info(s"Collected $inputFiles and snapshots ${snapshots.map(_._1)} from $runUuid")
+  require(inputFiles.nonEmpty || snapshots.nonEmpty, "simulation directory doesn't contain any log file.")
 
-    logger.info("First pass")
+  private val inputFileFormats: Seq[(Path, LogFileFormat)] = inputFiles.map(path => path -> LogFileFormat.of(path))
 
-    var count = 0
+  private val compressedFiles: Set[Path] = inputFiles.filter(LogFileInput.isCompressed).toSet
+
+  private val parallelism = configuration.charting.parallelism
+
+  // text files can only be split and scanned on raw bytes if the charset encodes separators as ASCII
+  private val scannableCharset = MappedLogFileParser.supports(configuration.core.charset)
+
+  private def parseTextInput[T](stream: InputStream)(f: Iterator[String] => T): T =
+    try f(Source.fromInputStream(stream)(configuration.core.charset).getLines())
+    finally stream.close()
+
+  private final class FirstPassHandler extends LogRecordHandler {
 
     var runStart = Long.MaxValue
     var runEnd = Long.MinValue
 
+    val runMessages = mutable.ListBuffer.empty[RunMessage]
+    val assertions = mutable.LinkedHashSet.empty[Assertion]
+
     def updateRunStart(eventStart: Long): Unit =
       runStart = math.min(runStart, eventStart)
 
     def updateRunEnd(eventEnd: Long): Unit =
       runEnd = math.max(runEnd, eventEnd)
 
-    val runMessages = mutable.ListBuffer.empty[RunMessage]
-    val assertions = mutable.LinkedHashSet.empty[Assertion]
+    override def onRun(runMessage: RunMessage): Unit = runMessages += runMessage
+
+    override def onAssertion(assertion: Assertion): Unit = assertions += assertion
+
+    override def onUser(scenario: String, event: MessageEvent, timestamp: Long): Unit =
+      if (event == MessageEvent.Start) {
+        updateRunStart(timestamp)
+      } else {
+        updateRunEnd(timestamp)
+      }
+
+    override def onRequest(group: Option[Group], name: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): Unit = {
+      updateRunStart(start)
+      updateRunEnd(end)
+    }
+
+    override def onGroup(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): Unit = {
+      updateRunStart(start)
+      updateRunEnd(end)
+    }
+
+    override def onError(message: String, timestamp: Long): Unit = {}
+  }
+
+  private def textFirstPass(records: Iterator[String], handler: FirstPassHandler): Int = {
+
+    var count = 0
 
     records.foreach { line =>
       count += 1
@@ -91,23 +199,23 @@ private[gatling] class LogFileReader(runUuid: String)(implicit configuration: Ga
       line.split(DataWriterMessageSerializer.Separator) match {
 
         case RawRequestRecord(array) =>
-          updateRunStart(array(3).toLong)
-          updateRunEnd(array(4).toLong)
+          handler.updateRunStart(array(3).toLong)
+          handler.updateRunEnd(array(4).toLong)
 
         case RawUserRecord(array) =>
           val timestamp = array(3).toLong
           if (array(2) == MessageEvent.Start.name) {
-            updateRunStart(timestamp)
+            handler.updateRunStart(timestamp)
           } else {
-            updateRunEnd(timestamp)
+            handler.updateRunEnd(timestamp)
           }
 
         case RawGroupRecord(array) =>
-          updateRunStart(array(2).toLong)
-          updateRunEnd(array(3).toLong)
+          handler.updateRunStart(array(2).toLong)
+          handler.updateRunEnd(array(3).toLong)
 
         case RawRunRecord(array) =>
-          runMessages += RunMessage(array(1), array(2), array(3).toLong, array(4).trim, array(5).trim)
+          handler.runMessages += RunMessage(array(1), array(2), array(3).toLong, array(4).trim, array(5).trim)
 
         case RawAssertionRecord(array) =>
           val assertion: Assertion = {
@@ -118,25 +226,67 @@ private[gatling] class LogFileReader(runUuid: String)(implicit configuration: Ga
             Unpickle[Assertion].fromBytes(ByteBuffer.wrap(bytes))
           }
 
-          assertions += assertion
+          handler.assertions += assertion
 
-        case RawErrorRecord(_) =>
+        case RawErrorRecord(_)  =>
+        case RawBoundsRecord(_) =>
         case _ =>
           logger.debug(s"Record broken on line $count: $line")
       }
     }
 
-    logger.info(s"First pass done: read $count lines")
+    count
+  }
+
+  private def firstPass(): FirstPassData = {
+
+    logger.info("First pass")
+
+    val handler = new FirstPassHandler
+    val count = inputFileFormats.map { case (path, format) =>
+      LogFileBounds.read(path, format) match {
+        case Some(bounds) =>
+          // cleanly stopped run: only the header has to be read
+          logger.debug(s"Using bounds from $path footer")
+          handler.updateRunStart(bounds.start)
+          handler.updateRunEnd(bounds.end)
+          format match {
+            case LogFileFormat.Text =>
+              parseTextInput(LogFileInput.inputStream(path))(lines => textFirstPass(lines.takeWhile(isHeaderLine), handler))
+            case LogFileFormat.Binary =>
+              BinaryLogFileParser.parseHeader(path, handler)
+              0
+          }
+
+        case _ =>
+          format match {
+            case LogFileFormat.Text if scannableCharset && !compressedFiles(path) =>
+              MappedLogFileParser.parse(path, 0, Long.MaxValue, configuration.core.charset, handler)
+            case LogFileFormat.Text   => parseTextInput(LogFileInput.inputStream(path))(textFirstPass(_, handler))
+            case LogFileFormat.Binary => BinaryLogFileParser.parse(path, handler)
+          }
+      }
+    }.sum
+
+    snapshots.foreach { case (path, header) =>
+      logger.debug(s"Using bounds and header from snapshot $path")
+      handler.updateRunStart(header.runStart)
+      handler.updateRunEnd(header.runEnd)
+      handler.onRun(header.runMessage)
+      header.assertions.foreach(handler.onAssertion)
+    }
+
+    logger.info(s"First pass done: read $count records")
 
     FirstPassData(
-      runStart,
-      runEnd,
-      runMessages.headOption.getOrElse(throw new UnsupportedOperationException(s"Files $inputFiles don't contain any valid run record")),
-      assertions.toList
+      handler.runStart,
+      handler.runEnd,
+      handler.runMessages.headOption.getOrElse(throw new UnsupportedOperationException(s"Files $inputFiles don't contain any valid run record")),
+      handler.assertions.toList
     )
   }
 
-  private val firstPassData = parseInputFiles(firstPass)
+  private val firstPassData = firstPass()
   val runStart: Long = firstPassData.runStart
   val runEnd: Long = firstPassData.runEnd
   val runMessage: RunMessage = firstPassData.runMessage
@@ -151,11 +301,29 @@ private[gatling] class LogFileReader(runUuid: String)(implicit configuration: Ga
   private val buckets = StatsHelper.buckets(0, runEnd - runStart, step)
   private val bucketFunction = StatsHelper.timeToBucketNumber(runStart, step, buckets.length)
 
-  private def secondPass(records: Iterator[String]): ResultsHolder = {
+  private final class SecondPassHandler(resultsHolder: ResultsHolder) extends LogRecordHandler {
+
+    private val requestRecordParser = new RequestRecordParser(bucketFunction)
+    private val groupRecordParser = new GroupRecordParser(bucketFunction)
+
+    override def onRun(runMessage: RunMessage): Unit = {}
+
+    override def onAssertion(assertion: Assertion): Unit = {}
 
-    logger.info("Second pass")
+    override def onUser(scenario: String, event: MessageEvent, timestamp: Long): Unit =
+      resultsHolder.addUserRecord(UserRecord(scenario, event, timestamp))
 
-    val resultsHolder = new ResultsHolder(runStart, runEnd, buckets)
+    override def onRequest(group: Option[Group], name: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): Unit =
+      resultsHolder.addRequestRecord(requestRecordParser.toRequestRecord(group, name, start, end, status, errorMessage))
+
+    override def onGroup(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): Unit =
+      resultsHolder.addGroupRecord(groupRecordParser.toGroupRecord(group, start, end, cumulatedResponseTime, status))
+
+    override def onError(message: String, timestamp: Long): Unit =
+      resultsHolder.addErrorRecord(ErrorRecord(message, timestamp))
+  }
+
+  private def textSecondPass(records: Iterator[String], resultsHolder: ResultsHolder): Int = {
 
     var count = 0
 
@@ -176,14 +344,99 @@ private[gatling] class LogFileReader(runUuid: String)(implicit configuration: Ga
         }
       }
 
+    count
+  }
+
+  private def splits(): Seq[LogFileSplit] =
+    inputFileFormats.flatMap {
+      case (path, LogFileFormat.Text) if compressedFiles(path) => List(CompressedTextSplit(path))
+      case (path, LogFileFormat.Text) if parallelism > 1 && scannableCharset =>
+        val channel = FileChannel.open(path, StandardOpenOption.READ)
+        try {
+          val splitSize = math.max(MinTextSplitSize.toLong, channel.size / parallelism)
+          textSplitOffsets(channel, splitSize).sliding(2).collect { case List(start, end) => TextSplit(path, start, end) }.toList
+        } finally {
+          channel.close()
+        }
+      case (path, LogFileFormat.Text)   => List(TextSplit(path, 0, Long.MaxValue))
+      case (path, LogFileFormat.Binary) => List(BinarySplit(path))
+    }
+
+  private def parseSplit(split: LogFileSplit, resultsHolder: ResultsHolder): Int =
+    split match {
+      case TextSplit(path, start, end) if scannableCharset =>
+        MappedLogFileParser.parse(path, start, end, configuration.core.charset, new SecondPassHandler(resultsHolder))
+      case TextSplit(path, start, end) =>
+        parseTextInput(new FileRangeInputStream(FileChannel.open(path, StandardOpenOption.READ), start, end))(textSecondPass(_, resultsHolder))
+      case CompressedTextSplit(path) =>
+        parseTextInput(LogFileInput.inputStream(path))(textSecondPass(_, resultsHolder))
+      case BinarySplit(path) =>
+        BinaryLogFileParser.parse(path, new SecondPassHandler(resultsHolder))
+    }
+
+  private def secondPass(): ResultsHolder = {
+
+    val allSplits = splits()
+
+    logger.info(s"Second pass with ${allSplits.size} splits and parallelism $parallelism")
+
+    val (count, resultsHolder) =
+      if (parallelism <= 1 || allSplits.sizeIs <= 1) {
+        val resultsHolder = new ResultsHolder(runStart, runEnd, buckets)
+        (allSplits.map(parseSplit(_, resultsHolder)).sum, resultsHolder)
+
+      } else {
+        // one shard per worker thread, merged once all the splits have been parsed
+        val shards = new ConcurrentLinkedQueue[ResultsHolder]
+        val threadShard = ThreadLocal.withInitial[ResultsHolder] { () =>
+          val shard = new ResultsHolder(runStart, runEnd, buckets)
+          shards.add(shard)
+          shard
+        }
+
+        val pool = new ForkJoinPool(parallelism)
+        try {
+          val tasks = allSplits.map(split => (() => parseSplit(split, threadShard.get)): Callable[Int])
+          val count = pool.invokeAll(tasks.asJava).asScala.map(_.get).sum
+
+          val resultsHolder = shards.poll()
+          shards.forEach(resultsHolder.merge(_))
+          (count, resultsHolder)
+        } finally {
+          pool.shutdown()
+        }
+      }
+
+    // snapshots' dandling users have already been ended with the bounds of their own run
+    snapshots.foreach { case (path, _) =>
+      val (header, snapshotHolder) = ResultsSnapshot.read(path)
+      resultsHolder.mergeRebucketed(snapshotHolder, header.step, bucketFunction)
+    }
+
     resultsHolder.endDandlingStartedUser()
 
-    logger.info(s"Second pass: read $count lines")
+    logger.info(s"Second pass: read $count records and ${snapshots.size} snapshots")
 
     resultsHolder
   }
 
-  private val resultsHolder = parseInputFiles(secondPass)
+  private val resultsHolder = secondPass()
+
+  /**
+   * Writes the stats of this run as a snapshot, so they can be merged with other injectors' ones in a single report without reading this run's records again.
+   */
+  def writeSnapshot(): Path = {
+    val path = runDirectory / ResultsSnapshot.FileName
+    val sourceFiles = (inputFiles.map(_.filename) ++ snapshots.flatMap { case (snapshot, header) => snapshot.filename :: header.sourceFiles }).distinct
+      .filterNot(_ == ResultsSnapshot.FileName)
+      .toList
+    ResultsSnapshot.write(
+      path,
+      SnapshotHeader(runMessage, assertions, runStart, runEnd, step, buckets, configuration.charting.percentilesEngine, sourceFiles),
+      resultsHolder
+    )
+    path
+  }
 
   override val statsPaths: List[StatsPath] =
     resultsHolder.groupAndRequestsNameBuffer.map.toList
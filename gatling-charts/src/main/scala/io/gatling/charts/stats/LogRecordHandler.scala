@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.stats.Status
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.message.MessageEvent
+import io.gatling.core.stats.writer.RunMessage
+
+/**
+ * Callbacks for the log file parsers that decode records without going through an intermediate array of strings
+ */
+private trait LogRecordHandler {
+
+  def onRun(runMessage: RunMessage): Unit
+
+  def onAssertion(assertion: Assertion): Unit
+
+  def onUser(scenario: String, event: MessageEvent, timestamp: Long): Unit
+
+  def onRequest(group: Option[Group], name: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): Unit
+
+  def onGroup(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): Unit
+
+  def onError(message: String, timestamp: Long): Unit
+}
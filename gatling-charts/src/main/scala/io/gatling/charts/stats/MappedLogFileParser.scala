@@ -0,0 +1,308 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.nio.{ ByteBuffer, MappedByteBuffer }
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets.US_ASCII
+import java.nio.file.{ Path, StandardOpenOption }
+import java.util.Base64
+
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.message.MessageEvent
+import io.gatling.core.stats.writer._
+
+import boopickle.Default._
+import com.typesafe.scalalogging.StrictLogging
+
+private object MappedLogFileParser {
+
+  // well below the 2GB limit of a MappedByteBuffer, a line can't be longer than this
+  private val DefaultWindowSize = 64 * 1024 * 1024
+  // REQUEST records have the most fields, extra separators are kept in the last field
+  private val MaxFields = 7
+
+  private val RunHeader = RunRecordHeader.value.getBytes(US_ASCII)
+  private val AssertionHeader = AssertionRecordHeader.value.getBytes(US_ASCII)
+  private val RequestHeader = RequestRecordHeader.value.getBytes(US_ASCII)
+  private val UserHeader = UserRecordHeader.value.getBytes(US_ASCII)
+  private val GroupHeader = GroupRecordHeader.value.getBytes(US_ASCII)
+  private val ErrorHeader = ErrorRecordHeader.value.getBytes(US_ASCII)
+  private val BoundsHeader = BoundsRecordHeader.value.getBytes(US_ASCII)
+  private val OkBytes = OK.name.getBytes(US_ASCII)
+  private val KoBytes = KO.name.getBytes(US_ASCII)
+  private val StartBytes = MessageEvent.Start.name.getBytes(US_ASCII)
+  private val EndBytes = MessageEvent.End.name.getBytes(US_ASCII)
+
+  /**
+   * The scanner looks for raw '\t' and '\n' bytes, so it only works with charsets that encode them as single ASCII bytes
+   */
+  def supports(charset: Charset): Boolean =
+    "\t\n".getBytes(charset).sameElements(Array('\t'.toByte, '\n'.toByte))
+
+  /**
+   * Parses the lines of a text simulation.log contained in [start, end)
+   *
+   * @return the number of lines read
+   */
+  def parse(path: Path, start: Long, end: Long, charset: Charset, handler: LogRecordHandler): Int =
+    new MappedLogFileParser(path, charset, handler, DefaultWindowSize).parse(start, end)
+
+  private final class ByteStringCache(charset: Charset) {
+
+    private val MaxSize = 16 * 1024
+    // longer strings, typically error messages, are unlikely to be repeated
+    private val MaxLength = 256
+    private val mask = MaxSize * 2 - 1
+    private val keys = new Array[Array[Byte]](MaxSize * 2)
+    private val values = new Array[String](MaxSize * 2)
+    private val hashes = new Array[Int](MaxSize * 2)
+    private var size = 0
+
+    private def copy(buffer: ByteBuffer, start: Int, length: Int): Array[Byte] = {
+      val bytes = new Array[Byte](length)
+      var i = 0
+      while (i < length) {
+        bytes(i) = buffer.get(start + i)
+        i += 1
+      }
+      bytes
+    }
+
+    private def matches(key: Array[Byte], buffer: ByteBuffer, start: Int, length: Int): Boolean =
+      key.length == length && {
+        var i = 0
+        while (i < length && key(i) == buffer.get(start + i)) {
+          i += 1
+        }
+        i == length
+      }
+
+    def get(buffer: ByteBuffer, start: Int, end: Int): String = {
+      val length = end - start
+      if (length == 0) {
+        ""
+      } else if (length > MaxLength) {
+        new String(copy(buffer, start, length), charset)
+      } else {
+        var hash = 1
+        var i = start
+        while (i < end) {
+          hash = 31 * hash + buffer.get(i)
+          i += 1
+        }
+
+        var slot = hash & mask
+        while (keys(slot) != null && !(hashes(slot) == hash && matches(keys(slot), buffer, start, length))) {
+          slot = (slot + 1) & mask
+        }
+
+        if (keys(slot) != null) {
+          values(slot)
+        } else {
+          val bytes = copy(buffer, start, length)
+          val string = new String(bytes, charset)
+          if (size < MaxSize) {
+            keys(slot) = bytes
+            values(slot) = string
+            hashes(slot) = hash
+            size += 1
+          }
+          string
+        }
+      }
+    }
+  }
+}
+
+/**
+ * Scans a text simulation.log memory mapped by windows, looking for separators on raw bytes.
+ * Numbers are parsed in place and repeated strings (scenarios, groups, requests) are only decoded once.
+ */
+private final class MappedLogFileParser(path: Path, charset: Charset, handler: LogRecordHandler, windowSize: Int) extends StrictLogging {
+
+  import MappedLogFileParser._
+
+  private val strings = new ByteStringCache(charset)
+  private var buffer: MappedByteBuffer = _
+  private val fieldStarts = new Array[Int](MaxFields)
+  private val fieldEnds = new Array[Int](MaxFields)
+  private var fieldCount = 0
+  private var count = 0
+
+  def parse(start: Long, end: Long): Int = {
+    val channel = FileChannel.open(path, StandardOpenOption.READ)
+    try {
+      val limit = math.min(end, channel.size)
+      var windowStart = start
+      while (windowStart < limit) {
+        val windowEnd = math.min(limit, windowStart + windowSize)
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart)
+        val consumed = scanWindow(windowEnd == limit)
+        if (consumed == 0) {
+          throw new IllegalStateException(s"$path contains a line longer than $windowSize bytes at offset $windowStart")
+        }
+        windowStart += consumed
+      }
+      count
+    } finally {
+      buffer = null
+      channel.close()
+    }
+  }
+
+  // returns the number of bytes of the complete lines that were processed
+  private def scanWindow(last: Boolean): Int = {
+    val limit = buffer.limit()
+    var lineStart = 0
+    var fieldStart = 0
+    fieldCount = 0
+
+    var i = 0
+    while (i < limit) {
+      val b = buffer.get(i)
+      if (b == '\t') {
+        addField(fieldStart, i)
+        fieldStart = i + 1
+      } else if (b == '\n') {
+        addField(fieldStart, if (i > fieldStart && buffer.get(i - 1) == '\r') i - 1 else i)
+        onLine(lineStart)
+        lineStart = i + 1
+        fieldStart = lineStart
+        fieldCount = 0
+      }
+      i += 1
+    }
+
+    if (last && lineStart < limit) {
+      // last line without EOL
+      addField(fieldStart, limit)
+      onLine(lineStart)
+      limit
+    } else {
+      lineStart
+    }
+  }
+
+  private def addField(start: Int, end: Int): Unit =
+    if (fieldCount < MaxFields) {
+      fieldStarts(fieldCount) = start
+      fieldEnds(fieldCount) = end
+      fieldCount += 1
+    } else {
+      fieldEnds(MaxFields - 1) = end
+    }
+
+  private def fieldEquals(field: Int, bytes: Array[Byte]): Boolean = {
+    val start = fieldStarts(field)
+    fieldEnds(field) - start == bytes.length && {
+      var i = 0
+      while (i < bytes.length && buffer.get(start + i) == bytes(i)) {
+        i += 1
+      }
+      i == bytes.length
+    }
+  }
+
+  private def string(field: Int): String = strings.get(buffer, fieldStarts(field), fieldEnds(field))
+
+  private def long(field: Int): Long = {
+    var i = fieldStarts(field)
+    val end = fieldEnds(field)
+    val negative = i < end && buffer.get(i) == '-'
+    if (negative) {
+      i += 1
+    }
+    if (i == end) {
+      throw new NumberFormatException(s"Empty number in field $field")
+    }
+    // accumulate negatively so Long.MinValue, used for unmatched incoming messages, doesn't overflow
+    var result = 0L
+    while (i < end) {
+      val digit = buffer.get(i) - '0'
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException(s"Invalid digit in field $field")
+      }
+      result = result * 10 - digit
+      i += 1
+    }
+    if (negative) result else -result
+  }
+
+  private def status(field: Int): Status =
+    if (fieldEquals(field, OkBytes)) {
+      OK
+    } else if (fieldEquals(field, KoBytes)) {
+      KO
+    } else {
+      throw new IllegalArgumentException(s"Invalid status in field $field")
+    }
+
+  private def group(field: Int): Group = GroupRecordParser.parseGroup(string(field))
+
+  private def onLine(lineStart: Int): Unit = {
+    count += 1
+    try {
+      if (fieldEquals(0, RequestHeader) && fieldCount >= 7) {
+        val status = this.status(5)
+        handler.onRequest(
+          if (fieldStarts(1) == fieldEnds(1)) None else Some(group(1)),
+          string(2),
+          long(3),
+          long(4),
+          status,
+          if (status == KO) Some(string(6)) else None
+        )
+      } else if (fieldEquals(0, UserHeader) && fieldCount >= 4) {
+        val event =
+          if (fieldEquals(2, StartBytes)) MessageEvent.Start
+          else if (fieldEquals(2, EndBytes)) MessageEvent.End
+          else throw new IllegalArgumentException("Invalid user event")
+        handler.onUser(string(1), event, long(3))
+      } else if (fieldEquals(0, GroupHeader) && fieldCount >= 6) {
+        handler.onGroup(group(1), long(2), long(3), long(4).toInt, status(5))
+      } else if (fieldEquals(0, ErrorHeader) && fieldCount >= 3) {
+        handler.onError(string(1), long(2))
+      } else if (fieldEquals(0, RunHeader) && fieldCount >= 6) {
+        handler.onRun(RunMessage(string(1), string(2), long(3), string(4).trim, string(5).trim))
+      } else if (fieldEquals(0, AssertionHeader) && fieldCount >= 2) {
+        handler.onAssertion(parseAssertion())
+      } else if (!fieldEquals(0, BoundsHeader)) {
+        logger.debug(s"Record broken on line $count of $path")
+      }
+    } catch {
+      case e: IllegalArgumentException =>
+        // includes NumberFormatException
+        logger.debug(s"Record broken on line $count of $path: ${e.getMessage}")
+    }
+  }
+
+  private def parseAssertion(): Assertion = {
+    // WARN: don't believe IntelliJ here, this import is absolutely mandatory
+    import io.gatling.commons.stats.assertion.AssertionPicklers._
+    val base64 = new Array[Byte](fieldEnds(1) - fieldStarts(1))
+    var i = 0
+    while (i < base64.length) {
+      base64(i) = buffer.get(fieldStarts(1) + i)
+      i += 1
+    }
+    Unpickle[Assertion].fromBytes(ByteBuffer.wrap(Base64.getDecoder.decode(base64)))
+  }
+}
@@ -16,7 +16,7 @@
 
 package io.gatling.charts.stats
 
-import scala.collection.mutable
+import java.util.concurrent.ConcurrentHashMap
 
 import io.gatling.commons.shared.unstable.model.stats.Group
 import io.gatling.commons.stats.{ KO, Status }
@@ -55,6 +55,10 @@ private class RequestRecordParser(bucketFunction: Long => Int) {
     val status = Status.apply(strings(5))
     val errorMessage = if (status == KO) Some(strings(6)) else None
 
+    toRequestRecord(group, request, start, end, status, errorMessage)
+  }
+
+  def toRequestRecord(group: Option[Group], request: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): RequestRecord =
     if (end != Long.MinValue) {
       // regular request
       RequestRecord(group, request, status, start, bucketFunction(start), bucketFunction(end), (end - start).toInt, errorMessage, incoming = false)
@@ -62,14 +66,14 @@ private class RequestRecordParser(bucketFunction: Long => Int) {
       // unmatched incoming event
       RequestRecord(group, request, status, start, bucketFunction(start), bucketFunction(start), 0, errorMessage, incoming = true)
     }
-  }
 }
 
 private object GroupRecordParser {
 
-  val GroupCache = mutable.Map.empty[String, Group]
+  // shared by the threads parsing log files in parallel
+  val GroupCache = new ConcurrentHashMap[String, Group]
 
-  def parseGroup(string: String): Group = GroupCache.getOrElseUpdate(string, Group(string.split(",").toList))
+  def parseGroup(string: String): Group = GroupCache.computeIfAbsent(string, _ => Group(string.split(",").toList))
 }
 
 private class GroupRecordParser(bucketFunction: Long => Int) {
@@ -83,9 +87,11 @@ private class GroupRecordParser(bucketFunction: Long => Int) {
     val end = strings(3).toLong
     val cumulatedResponseTime = strings(4).toInt
     val status = Status.apply(strings(5))
-    val duration = (end - start).toInt
-    GroupRecord(group, duration, cumulatedResponseTime, status, start, bucketFunction(start))
+    toGroupRecord(group, start, end, cumulatedResponseTime, status)
   }
+
+  def toGroupRecord(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): GroupRecord =
+    GroupRecord(group, (end - start).toInt, cumulatedResponseTime, status, start, bucketFunction(start))
 }
 
 private object ErrorRecordParser {
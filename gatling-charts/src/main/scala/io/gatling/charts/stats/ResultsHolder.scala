@@ -24,7 +24,7 @@ import io.gatling.commons.stats.OK
 import io.gatling.core.config.GatlingConfiguration
 
 private class ResultsHolder(val minTimestamp: Long, val maxTimestamp: Long, val buckets: Array[Int])(implicit configuration: GatlingConfiguration)
-    extends GeneralStatsBuffers(math.ceil((maxTimestamp - minTimestamp) / 1000.0).toInt)
+    extends GeneralStatsBuffers(math.ceil((maxTimestamp - minTimestamp) / 1000.0).toInt, configuration.charting.percentilesEngine)
     with Buckets
     with RunTimes
     with NamesBuffers
@@ -36,6 +36,35 @@ private class ResultsHolder(val minTimestamp: Long, val maxTimestamp: Long, val
     with RequestPercentilesBuffers
     with GroupPercentilesBuffers {
 
+  // shards must be merged before dandling users get ended
+  def merge(other: ResultsHolder): Unit = merge(other, identity, identity)
+
+  /**
+   * Merges a holder computed with other bounds and buckets, typically read from another injector's snapshot.
+   * Each of its buckets and seconds lands in the one of this holder where its middle falls.
+   *
+   * @param otherStep the bucket width of other, in millis
+   * @param bucketFunction the bucket function of this holder
+   */
+  def mergeRebucketed(other: ResultsHolder, otherStep: Double, bucketFunction: Long => Int): Unit =
+    merge(
+      other,
+      otherBucket => bucketFunction(other.minTimestamp + (otherBucket * otherStep).round),
+      otherSecond => math.max(0, math.min(((other.minTimestamp + otherSecond * 1000L + 500 - minTimestamp) / 1000).toInt, runDurationInSeconds - 1))
+    )
+
+  private def merge(other: ResultsHolder, bucketMapping: Int => Int, secondMapping: Int => Int): Unit = {
+    mergeGeneralStatsBuffers(other)
+    mergeNamesBuffers(other)
+    mergeRequestsPerSecBuffers(other, bucketMapping)
+    mergeResponseTimeRangeBuffers(other)
+    mergeSessionDeltaPerSecBuffers(other, secondMapping)
+    mergeResponsesPerSecBuffers(other, bucketMapping)
+    mergeErrorsBuffers(other)
+    mergeRequestPercentilesBuffers(other, bucketMapping)
+    mergeGroupPercentilesBuffers(other, bucketMapping)
+  }
+
   def addUserRecord(record: UserRecord): Unit = {
     addSessionBuffers(record)
     addScenarioName(record)
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.io.{ BufferedInputStream, BufferedOutputStream, DataInputStream, DataOutputStream, IOException }
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path }
+import java.util.zip.{ GZIPInputStream, GZIPOutputStream }
+
+import io.gatling.charts.stats.buffers._
+import io.gatling.commons.shared.unstable.model.stats.{ Group, GroupStatsPath, RequestStatsPath, StatsPath }
+import io.gatling.commons.stats.Status
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.config.{ GatlingConfiguration, PercentilesEngine }
+import io.gatling.core.stats.writer.RunMessage
+
+import boopickle.Default._
+
+/**
+ * What a snapshot was computed from.
+ *
+ * @param runStart the start of the run, in millis
+ * @param runEnd the end of the run, in millis
+ * @param step the width of the snapshot buckets, in millis
+ * @param sourceFiles the names of the files the snapshot covers, so they don't get read twice if they're next to it
+ */
+private final case class SnapshotHeader(
+    runMessage: RunMessage,
+    assertions: List[Assertion],
+    runStart: Long,
+    runEnd: Long,
+    step: Double,
+    buckets: Array[Int],
+    engine: PercentilesEngine,
+    sourceFiles: List[String]
+)
+
+/**
+ * A compact and mergeable summary of the stats of a run: the content of a [[ResultsHolder]] once all the records have been read.
+ *
+ * Injectors of a distributed test can each write one, and a single report can then be generated from all of them
+ * without reading any raw record. Snapshots are gzipped and start with a header that can be read on its own.
+ */
+private object ResultsSnapshot {
+
+  val Extension = ".snapshot"
+
+  val FileName: String = "simulation" + Extension
+
+  // can't be mistaken for a simulation.log, even after decompression
+  private val Magic: Array[Byte] = Array[Byte](0, 'G'.toByte, 'L'.toByte, 'S'.toByte, 1)
+
+  private def writeString(out: DataOutputStream, string: String): Unit = {
+    val bytes = string.getBytes(UTF_8)
+    out.writeInt(bytes.length)
+    out.write(bytes)
+  }
+
+  private def readString(in: DataInputStream): String = {
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    new String(bytes, UTF_8)
+  }
+
+  private def writeOption[T](out: DataOutputStream, option: Option[T])(f: T => Unit): Unit = {
+    out.writeBoolean(option.isDefined)
+    option.foreach(f)
+  }
+
+  private def readOption[T](in: DataInputStream)(f: => T): Option[T] =
+    if (in.readBoolean()) Some(f) else None
+
+  private def writeGroup(out: DataOutputStream, group: Group): Unit = {
+    out.writeInt(group.hierarchy.size)
+    group.hierarchy.foreach(writeString(out, _))
+  }
+
+  private def readGroup(in: DataInputStream): Group =
+    Group(List.fill(in.readInt())(readString(in)))
+
+  private def writeBufferKey(out: DataOutputStream, key: BufferKey): Unit = {
+    writeOption(out, key.requestName)(writeString(out, _))
+    writeOption(out, key.group)(writeGroup(out, _))
+    writeOption(out, key.status)(status => writeString(out, status.name))
+  }
+
+  private def readBufferKey(in: DataInputStream): BufferKey =
+    BufferKey(readOption(in)(readString(in)), readOption(in)(readGroup(in)), readOption(in)(Status(readString(in))))
+
+  private def writeMap[K, V](out: DataOutputStream, map: collection.Map[K, V])(f: (K, V) => Unit): Unit = {
+    out.writeInt(map.size)
+    map.foreach { case (key, value) => f(key, value) }
+  }
+
+  private def readMap(in: DataInputStream)(f: => Unit): Unit =
+    for (_ <- 0 until in.readInt()) {
+      f
+    }
+
+  private def writeInts(out: DataOutputStream, ints: Array[Int]): Unit = {
+    out.writeInt(ints.length)
+    ints.foreach(out.writeInt)
+  }
+
+  private def readInts(in: DataInputStream): Array[Int] =
+    Array.fill(in.readInt())(in.readInt())
+
+  private def writeHeader(out: DataOutputStream, header: SnapshotHeader): Unit = {
+    import header._
+    out.write(Magic)
+    writeString(out, runMessage.simulationClassName)
+    writeString(out, runMessage.simulationId)
+    out.writeLong(runMessage.start)
+    writeString(out, runMessage.runDescription)
+    writeString(out, runMessage.gatlingVersion)
+    out.writeInt(assertions.size)
+    assertions.foreach { assertion =>
+      import io.gatling.commons.stats.assertion.AssertionPicklers._
+      val bytes = Pickle.intoBytes(assertion)
+      out.writeInt(bytes.remaining)
+      while (bytes.hasRemaining) {
+        out.writeByte(bytes.get())
+      }
+    }
+    out.writeLong(runStart)
+    out.writeLong(runEnd)
+    out.writeDouble(step)
+    writeInts(out, buckets)
+    writeString(out, engine.name)
+    out.writeInt(sourceFiles.size)
+    sourceFiles.foreach(writeString(out, _))
+  }
+
+  private def readHeader(path: Path, in: DataInputStream): SnapshotHeader = {
+    val magic = new Array[Byte](Magic.length)
+    in.readFully(magic)
+    if (!magic.sameElements(Magic)) {
+      throw new IOException(s"$path is not a stats snapshot")
+    }
+    val runMessage = RunMessage(readString(in), readString(in), in.readLong(), readString(in), readString(in))
+    val assertions = List.fill(in.readInt()) {
+      import io.gatling.commons.stats.assertion.AssertionPicklers._
+      val bytes = new Array[Byte](in.readInt())
+      in.readFully(bytes)
+      Unpickle[Assertion].fromBytes(ByteBuffer.wrap(bytes))
+    }
+    SnapshotHeader(
+      runMessage,
+      assertions,
+      runStart = in.readLong(),
+      runEnd = in.readLong(),
+      step = in.readDouble(),
+      buckets = readInts(in),
+      engine = PercentilesEngine(readString(in)),
+      sourceFiles = List.fill(in.readInt())(readString(in))
+    )
+  }
+
+  private def writeGeneralStatsBuffer(out: DataOutputStream, buffer: GeneralStatsBuffer): Unit = {
+    writeMap(out, buffer.counts) { (time, count) =>
+      out.writeInt(time)
+      out.writeInt(count)
+    }
+    buffer.digest.writeTo(out)
+    out.writeLong(buffer.sumOfSquares)
+    out.writeLong(buffer.sum)
+  }
+
+  private def readGeneralStatsBuffer(in: DataInputStream, buffer: GeneralStatsBuffer, engine: PercentilesEngine): Unit = {
+    readMap(in)(buffer.counts.put(in.readInt(), in.readInt()))
+    buffer.digest.merge(PercentilesDigest.read(engine, in))
+    buffer.sumOfSquares = in.readLong()
+    buffer.sum = in.readLong()
+  }
+
+  private def writeCountsBuffer(out: DataOutputStream, buffer: CountsBuffer): Unit =
+    buffer.counts.foreach { counts =>
+      out.writeInt(counts.oks)
+      out.writeInt(counts.kos)
+    }
+
+  private def readCountsBuffer(in: DataInputStream, buffer: CountsBuffer): Unit =
+    buffer.counts.foreach { counts =>
+      counts.oks = in.readInt()
+      counts.kos = in.readInt()
+    }
+
+  private def writePercentilesBuffers(out: DataOutputStream, buffers: PercentilesBuffers): Unit = {
+    out.writeInt(buffers.digests.count(_.isDefined))
+    buffers.digests.iterator.zipWithIndex.foreach {
+      case (Some(digest), bucketNumber) =>
+        out.writeInt(bucketNumber)
+        digest.writeTo(out)
+      case _ =>
+    }
+  }
+
+  private def readPercentilesBuffers(in: DataInputStream, buffers: PercentilesBuffers, engine: PercentilesEngine): Unit =
+    for (_ <- 0 until in.readInt()) {
+      buffers.digests(in.readInt()) = Some(PercentilesDigest.read(engine, in))
+    }
+
+  def write(path: Path, header: SnapshotHeader, holder: ResultsHolder): Unit = {
+    val out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))))
+    try {
+      writeHeader(out, header)
+
+      for (buffers <- List(holder.requestGeneralStatsBuffers, holder.groupDurationGeneralStatsBuffers, holder.groupCumulatedResponseTimeGeneralStatsBuffers)) {
+        writeMap(out, buffers) { (key, buffer) =>
+          writeBufferKey(out, key)
+          writeGeneralStatsBuffer(out, buffer)
+        }
+      }
+
+      writeMap(out, holder.groupAndRequestsNameBuffer.map) { (statsPath, time) =>
+        statsPath match {
+          case RequestStatsPath(request, group) =>
+            out.writeBoolean(true)
+            writeString(out, request)
+            writeOption(out, group)(writeGroup(out, _))
+          case GroupStatsPath(group) =>
+            out.writeBoolean(false)
+            writeGroup(out, group)
+        }
+        out.writeLong(time)
+      }
+      writeMap(out, holder.scenarioNameBuffer.map) { (scenario, time) =>
+        writeString(out, scenario)
+        out.writeLong(time)
+      }
+
+      for (buffers <- List(holder.requestsPerSecBuffers, holder.responsesPerSecBuffers)) {
+        writeMap(out, buffers) { (key, buffer) =>
+          writeBufferKey(out, key)
+          writeCountsBuffer(out, buffer)
+        }
+      }
+
+      writeMap(out, holder.responseTimeRangeBuffers) { (key, buffer) =>
+        writeBufferKey(out, key)
+        out.writeInt(buffer.low)
+        out.writeInt(buffer.middle)
+        out.writeInt(buffer.high)
+        out.writeInt(buffer.ko)
+      }
+
+      // dandling users have already been ended
+      writeMap(out, holder.sessionDeltaPerSecBuffers) { (scenario, buffer) =>
+        writeOption(out, scenario)(writeString(out, _))
+        writeInts(out, buffer.startCounts)
+        writeInts(out, buffer.endCounts)
+      }
+
+      writeMap(out, holder.errorsBuffers) { (key, errors) =>
+        writeBufferKey(out, key)
+        writeMap(out, errors) { (message, count) =>
+          writeString(out, message)
+          out.writeInt(count)
+        }
+      }
+
+      writeMap(out, holder.responseTimePercentilesBuffers) { (key, buffers) =>
+        writeBufferKey(out, key)
+        writePercentilesBuffers(out, buffers)
+      }
+      writeMap(out, holder.groupPercentilesBuffers) { case (key, (cumulatedResponseTimeBuffers, durationBuffers)) =>
+        writeBufferKey(out, key)
+        writePercentilesBuffers(out, cumulatedResponseTimeBuffers)
+        writePercentilesBuffers(out, durationBuffers)
+      }
+    } finally {
+      out.close()
+    }
+  }
+
+  private def open(path: Path): DataInputStream =
+    new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))
+
+  def readHeader(path: Path): SnapshotHeader = {
+    val in = open(path)
+    try {
+      readHeader(path, in)
+    } finally {
+      in.close()
+    }
+  }
+
+  def read(path: Path)(implicit configuration: GatlingConfiguration): (SnapshotHeader, ResultsHolder) = {
+    val in = open(path)
+    try {
+      val header = readHeader(path, in)
+      val engine = configuration.charting.percentilesEngine
+      if (header.engine != engine) {
+        throw new IllegalArgumentException(
+          s"$path was computed with the ${header.engine.name} percentiles engine, it can't be merged when gatling.charting.percentilesEngine is ${engine.name}"
+        )
+      }
+
+      val holder = new ResultsHolder(header.runStart, header.runEnd, header.buckets)
+
+      readMap(in) {
+        val key = readBufferKey(in)
+        readGeneralStatsBuffer(in, holder.getRequestGeneralStatsBuffers(key.requestName, key.group, key.status), engine)
+      }
+      readMap(in) {
+        val key = readBufferKey(in)
+        readGeneralStatsBuffer(in, holder.getGroupDurationGeneralStatsBuffers(key.group.get, key.status), engine)
+      }
+      readMap(in) {
+        val key = readBufferKey(in)
+        readGeneralStatsBuffer(in, holder.getGroupCumulatedResponseTimeGeneralStatsBuffers(key.group.get, key.status), engine)
+      }
+
+      readMap(in) {
+        val statsPath: StatsPath =
+          if (in.readBoolean()) RequestStatsPath(readString(in), readOption(in)(readGroup(in))) else GroupStatsPath(readGroup(in))
+        holder.groupAndRequestsNameBuffer.update(statsPath, in.readLong())
+      }
+      readMap(in)(holder.scenarioNameBuffer.update(readString(in), in.readLong()))
+
+      readMap(in) {
+        val key = readBufferKey(in)
+        readCountsBuffer(in, holder.getRequestsPerSecBuffer(key.requestName, key.group))
+      }
+      readMap(in) {
+        val key = readBufferKey(in)
+        readCountsBuffer(in, holder.getResponsesPerSecBuffer(key.requestName, key.group))
+      }
+
+      readMap(in) {
+        val key = readBufferKey(in)
+        val buffer = holder.getResponseTimeRangeBuffers(key.requestName, key.group)
+        buffer.low = in.readInt()
+        buffer.middle = in.readInt()
+        buffer.high = in.readInt()
+        buffer.ko = in.readInt()
+      }
+
+      readMap(in) {
+        val buffer = holder.getSessionDeltaPerSecBuffers(readOption(in)(readString(in)))
+        readInts(in).copyToArray(buffer.startCounts)
+        readInts(in).copyToArray(buffer.endCounts)
+      }
+
+      readMap(in) {
+        val key = readBufferKey(in)
+        val errors = holder.getErrorsBuffers(key.requestName, key.group)
+        readMap(in)(errors.put(readString(in), in.readInt()))
+      }
+
+      readMap(in) {
+        val key = readBufferKey(in)
+        readPercentilesBuffers(in, holder.getResponseTimePercentilesBuffers(key.requestName, key.group, key.status.get), engine)
+      }
+      readMap(in) {
+        val key = readBufferKey(in)
+        readPercentilesBuffers(in, holder.getGroupCumulatedResponseTimePercentilesBuffers(key.group.get, key.status.get), engine)
+        readPercentilesBuffers(in, holder.getGroupDurationPercentilesBuffers(key.group.get, key.status.get), engine)
+      }
+
+      (header, holder)
+    } finally {
+      in.close()
+    }
+  }
+}
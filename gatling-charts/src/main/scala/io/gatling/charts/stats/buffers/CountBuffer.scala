@@ -28,6 +28,11 @@ private[stats] class Counts(var oks: Int = 0, var kos: Int = 0) {
   }
 
   def total: Int = oks + kos
+
+  def merge(other: Counts): Unit = {
+    oks += other.oks
+    kos += other.kos
+  }
 }
 
 private[stats] class CountsBuffer(buckets: Array[Int]) {
@@ -37,6 +42,11 @@ private[stats] class CountsBuffer(buckets: Array[Int]) {
     counts(bucketNumber).increment(status)
   }
 
+  def merge(other: CountsBuffer, bucketMapping: Int => Int): Unit =
+    for (i <- other.counts.indices) {
+      counts(bucketMapping(i)).merge(other.counts(i))
+    }
+
   def distribution: Iterable[CountsVsTimePlot] =
     counts.view.zipWithIndex
       .map { case (count, bucketNumber) => new CountsVsTimePlot(buckets(bucketNumber), count.oks, count.kos) }
@@ -33,6 +33,14 @@ private[stats] trait ErrorsBuffers {
     buffer += errorMessage -> (buffer.getOrElseUpdate(errorMessage, 0) + 1)
   }
 
+  def mergeErrorsBuffers(other: ErrorsBuffers): Unit =
+    for ((key, otherBuffer) <- other.errorsBuffers) {
+      val buffer = errorsBuffers.getOrElseUpdate(key, mutable.Map.empty[String, Int])
+      for ((errorMessage, count) <- otherBuffer) {
+        buffer += errorMessage -> (buffer.getOrElse(errorMessage, 0) + count)
+      }
+    }
+
   def updateErrorBuffers(record: RequestRecord): Unit = {
 
     def updateGroupError(errorMessage: String): Unit = {
@@ -21,10 +21,9 @@ import scala.collection.mutable
 import io.gatling.charts.stats.{ GroupRecord, IntVsTimePlot, RequestRecord }
 import io.gatling.commons.shared.unstable.model.stats.{ GeneralStats, Group }
 import io.gatling.commons.stats.Status
+import io.gatling.core.config.PercentilesEngine
 
-import com.tdunning.math.stats.AVLTreeDigest
-
-private[stats] abstract class GeneralStatsBuffers(durationInSec: Long) {
+private[stats] abstract class GeneralStatsBuffers(durationInSec: Long, val percentilesEngine: PercentilesEngine) {
 
   val requestGeneralStatsBuffers = mutable.Map.empty[BufferKey, GeneralStatsBuffer]
   val groupDurationGeneralStatsBuffers = mutable.Map.empty[BufferKey, GeneralStatsBuffer]
@@ -32,13 +31,24 @@ private[stats] abstract class GeneralStatsBuffers(durationInSec: Long) {
   val requestCounts = mutable.Map.empty[BufferKey, (Int, Int)]
 
   def getRequestGeneralStatsBuffers(request: Option[String], group: Option[Group], status: Option[Status]): GeneralStatsBuffer =
-    requestGeneralStatsBuffers.getOrElseUpdate(BufferKey(request, group, status), new GeneralStatsBuffer(durationInSec))
+    requestGeneralStatsBuffers.getOrElseUpdate(BufferKey(request, group, status), new GeneralStatsBuffer(durationInSec, percentilesEngine))
 
   def getGroupDurationGeneralStatsBuffers(group: Group, status: Option[Status]): GeneralStatsBuffer =
-    groupDurationGeneralStatsBuffers.getOrElseUpdate(BufferKey(None, Some(group), status), new GeneralStatsBuffer(durationInSec))
+    groupDurationGeneralStatsBuffers.getOrElseUpdate(BufferKey(None, Some(group), status), new GeneralStatsBuffer(durationInSec, percentilesEngine))
 
   def getGroupCumulatedResponseTimeGeneralStatsBuffers(group: Group, status: Option[Status]): GeneralStatsBuffer =
-    groupCumulatedResponseTimeGeneralStatsBuffers.getOrElseUpdate(BufferKey(None, Some(group), status), new GeneralStatsBuffer(durationInSec))
+    groupCumulatedResponseTimeGeneralStatsBuffers.getOrElseUpdate(BufferKey(None, Some(group), status), new GeneralStatsBuffer(durationInSec, percentilesEngine))
+
+  def mergeGeneralStatsBuffers(other: GeneralStatsBuffers): Unit = {
+    def mergeBuffers(buffers: mutable.Map[BufferKey, GeneralStatsBuffer], otherBuffers: mutable.Map[BufferKey, GeneralStatsBuffer]): Unit =
+      for ((key, otherBuffer) <- otherBuffers) {
+        buffers.getOrElseUpdate(key, new GeneralStatsBuffer(durationInSec, percentilesEngine)).merge(otherBuffer)
+      }
+
+    mergeBuffers(requestGeneralStatsBuffers, other.requestGeneralStatsBuffers)
+    mergeBuffers(groupDurationGeneralStatsBuffers, other.groupDurationGeneralStatsBuffers)
+    mergeBuffers(groupCumulatedResponseTimeGeneralStatsBuffers, other.groupCumulatedResponseTimeGeneralStatsBuffers)
+  }
 
   def updateRequestGeneralStatsBuffers(record: RequestRecord): Unit = {
     import record._
@@ -58,10 +68,10 @@ private[stats] abstract class GeneralStatsBuffers(durationInSec: Long) {
   }
 }
 
-private[stats] class GeneralStatsBuffer(durationInSec: Long) {
+private[stats] class GeneralStatsBuffer(durationInSec: Long, percentilesEngine: PercentilesEngine) {
 
   val counts = mutable.Map.empty[Int, Int]
-  val digest = new AVLTreeDigest(100.0)
+  val digest: PercentilesDigest = PercentilesDigest(percentilesEngine, PercentilesDigest.StatsSignificantDigits)
   var sumOfSquares = 0L
   var sum = 0L
 
@@ -78,13 +88,23 @@ private[stats] class GeneralStatsBuffer(durationInSec: Long) {
     sum += time
   }
 
+  // must happen before stats get computed
+  def merge(other: GeneralStatsBuffer): Unit = {
+    for ((time, count) <- other.counts) {
+      counts.put(time, counts.getOrElse(time, 0) + count)
+    }
+    digest.merge(other.digest)
+    sumOfSquares += other.sumOfSquares
+    sum += other.sum
+  }
+
   lazy val stats: GeneralStats = {
-    val valuesCount = digest.size
+    val valuesCount = digest.count
     if (valuesCount == 0) {
       GeneralStats.NoPlot
 
     } else {
-      val count = digest.size
+      val count = digest.count
       val mean = sum.toDouble / count
       val stdDev = math.sqrt(sumOfSquares.toDouble / count - math.pow(mean, 2))
       val meanRequestsPerSec = valuesCount.toDouble / durationInSec
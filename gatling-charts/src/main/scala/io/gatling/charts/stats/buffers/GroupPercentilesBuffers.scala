@@ -21,14 +21,17 @@ import scala.collection.mutable
 import io.gatling.charts.stats.GroupRecord
 import io.gatling.commons.shared.unstable.model.stats.Group
 import io.gatling.commons.stats.Status
+import io.gatling.core.config.PercentilesEngine
 
 private[stats] trait GroupPercentilesBuffers {
   this: Buckets =>
 
+  def percentilesEngine: PercentilesEngine
+
   val groupPercentilesBuffers = mutable.Map.empty[BufferKey, (PercentilesBuffers, PercentilesBuffers)]
 
   private def percentilesBufferPair(group: Group, status: Status): (PercentilesBuffers, PercentilesBuffers) =
-    groupPercentilesBuffers.getOrElseUpdate(BufferKey(None, Some(group), Some(status)), (new PercentilesBuffers(buckets), new PercentilesBuffers(buckets)))
+    groupPercentilesBuffers.getOrElseUpdate(BufferKey(None, Some(group), Some(status)), (new PercentilesBuffers(buckets, percentilesEngine), new PercentilesBuffers(buckets, percentilesEngine)))
 
   def getGroupCumulatedResponseTimePercentilesBuffers(group: Group, status: Status): PercentilesBuffers =
     percentilesBufferPair(group, status)._1
@@ -36,6 +39,14 @@ private[stats] trait GroupPercentilesBuffers {
   def getGroupDurationPercentilesBuffers(group: Group, status: Status): PercentilesBuffers =
     percentilesBufferPair(group, status)._2
 
+  def mergeGroupPercentilesBuffers(other: GroupPercentilesBuffers, bucketMapping: Int => Int): Unit =
+    for ((key, (otherCumulatedResponseTimePercentilesBuffers, otherDurationPercentilesBuffers)) <- other.groupPercentilesBuffers) {
+      val (cumulatedResponseTimePercentilesBuffers, durationPercentilesBuffers) =
+        groupPercentilesBuffers.getOrElseUpdate(key, (new PercentilesBuffers(buckets, percentilesEngine), new PercentilesBuffers(buckets, percentilesEngine)))
+      cumulatedResponseTimePercentilesBuffers.merge(otherCumulatedResponseTimePercentilesBuffers, bucketMapping)
+      durationPercentilesBuffers.merge(otherDurationPercentilesBuffers, bucketMapping)
+    }
+
   def updateGroupPercentilesBuffers(record: GroupRecord): Unit = {
     import record._
     val (cumulatedResponseTimePercentilesBuffers, durationPercentilesBuffers) = percentilesBufferPair(group, status)
@@ -30,11 +30,21 @@ private[stats] trait NamesBuffers {
 
     def update(name: A, time: Long): Unit =
       map += (name -> (time min map.getOrElse(name, Long.MaxValue)))
+
+    def merge(other: NamesBuffers#NameBuffer[A]): Unit =
+      for ((name, time) <- other.map) {
+        update(name, time)
+      }
   }
 
   val groupAndRequestsNameBuffer: NameBuffer[StatsPath] = new NameBuffer[StatsPath]
   val scenarioNameBuffer: NameBuffer[String] = new NameBuffer[String]
 
+  def mergeNamesBuffers(other: NamesBuffers): Unit = {
+    groupAndRequestsNameBuffer.merge(other.groupAndRequestsNameBuffer)
+    scenarioNameBuffer.merge(other.scenarioNameBuffer)
+  }
+
   def addScenarioName(record: UserRecord): Unit =
     if (record.event == MessageEvent.Start) {
       scenarioNameBuffer.update(record.scenario, record.timestamp)
@@ -17,24 +17,34 @@
 package io.gatling.charts.stats.buffers
 
 import io.gatling.charts.stats.{ Percentiles, PercentilesVsTimePlot }
+import io.gatling.core.config.PercentilesEngine
 
-import com.tdunning.math.stats.{ AVLTreeDigest, TDigest }
+private[stats] class PercentilesBuffers(buckets: Array[Int], engine: PercentilesEngine) {
 
-private[stats] class PercentilesBuffers(buckets: Array[Int]) {
-
-  val digests: Array[Option[TDigest]] = Array.fill(buckets.length)(None)
+  val digests: Array[Option[PercentilesDigest]] = Array.fill(buckets.length)(None)
 
   def update(bucketNumber: Int, value: Int): Unit = {
 
     digests(bucketNumber) match {
       case Some(digest) => digest.add(value)
       case None =>
-        val digest = new AVLTreeDigest(100.0)
+        val digest = PercentilesDigest(engine, PercentilesDigest.ChartSignificantDigits)
         digest.add(value)
         digests(bucketNumber) = Some(digest)
     }
   }
 
+  // other's digests might be reused, it must be discarded afterwards
+  def merge(other: PercentilesBuffers, bucketMapping: Int => Int): Unit =
+    for (otherBucketNumber <- other.digests.indices) {
+      val bucketNumber = bucketMapping(otherBucketNumber)
+      (digests(bucketNumber), other.digests(otherBucketNumber)) match {
+        case (Some(digest), Some(otherDigest)) => digest.merge(otherDigest)
+        case (None, otherDigest)               => digests(bucketNumber) = otherDigest
+        case _                                 =>
+      }
+    }
+
   def percentiles: Iterable[PercentilesVsTimePlot] =
     digests.view.zipWithIndex
       .map { case (digestO, bucketNumber) =>
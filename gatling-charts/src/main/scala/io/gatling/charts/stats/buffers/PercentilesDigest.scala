@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats.buffers
+
+import java.io.{ DataInput, DataOutput }
+import java.nio.ByteBuffer
+
+import io.gatling.core.config.PercentilesEngine
+
+import com.tdunning.math.stats.{ AVLTreeDigest, TDigest }
+import org.HdrHistogram.IntCountsHistogram
+
+private[stats] object PercentilesDigest {
+
+  // per time bucket percentiles only drive charts, 1% precision keeps each histogram tiny
+  val ChartSignificantDigits = 2
+
+  // global stats are displayed in the tables and checked by assertions
+  val StatsSignificantDigits = 3
+
+  def apply(engine: PercentilesEngine, significantDigits: Int): PercentilesDigest =
+    engine match {
+      case PercentilesEngine.TDigest      => new TDigestPercentilesDigest
+      case PercentilesEngine.HdrHistogram => new HdrHistogramPercentilesDigest(new IntCountsHistogram(significantDigits), Int.MaxValue, Int.MinValue)
+    }
+
+  /**
+   * Reads a digest written with [[PercentilesDigest.writeTo]] by the same engine.
+   */
+  def read(engine: PercentilesEngine, in: DataInput): PercentilesDigest = {
+    def readBytes(): ByteBuffer = {
+      val bytes = new Array[Byte](in.readInt())
+      in.readFully(bytes)
+      ByteBuffer.wrap(bytes)
+    }
+
+    engine match {
+      case PercentilesEngine.TDigest => new TDigestPercentilesDigest(AVLTreeDigest.fromBytes(readBytes()))
+      case PercentilesEngine.HdrHistogram =>
+        val min = in.readInt()
+        val max = in.readInt()
+        val histogram = IntCountsHistogram.decodeFromCompressedByteBuffer(readBytes(), 0)
+        histogram.setAutoResize(true)
+        new HdrHistogramPercentilesDigest(histogram, min, max)
+    }
+  }
+
+  private[buffers] def writeBytes(out: DataOutput, buffer: ByteBuffer): Unit = {
+    out.writeInt(buffer.remaining)
+    out.write(buffer.array, buffer.arrayOffset + buffer.position(), buffer.remaining)
+  }
+}
+
+/**
+ * Records response times and computes their percentiles. All the digests merged together must come from the same engine.
+ */
+private[stats] sealed trait PercentilesDigest {
+
+  def add(value: Int): Unit
+
+  def merge(other: PercentilesDigest): Unit
+
+  def count: Long
+
+  /**
+   * @param quantile between 0 and 1, 0 being the min and 1 the max
+   */
+  def quantile(quantile: Double): Double
+
+  def writeTo(out: DataOutput): Unit
+}
+
+private final class TDigestPercentilesDigest(private val digest: TDigest) extends PercentilesDigest {
+
+  def this() = this(new AVLTreeDigest(100.0))
+
+  override def add(value: Int): Unit = digest.add(value)
+
+  override def merge(other: PercentilesDigest): Unit = other match {
+    case o: TDigestPercentilesDigest => digest.add(o.digest)
+    case _                           => throw new IllegalArgumentException(s"Can't merge $other into a t-digest")
+  }
+
+  override def count: Long = digest.size
+
+  override def quantile(quantile: Double): Double = digest.quantile(quantile)
+
+  override def writeTo(out: DataOutput): Unit = {
+    val buffer = ByteBuffer.allocate(digest.smallByteSize)
+    digest.asSmallBytes(buffer)
+    buffer.flip()
+    PercentilesDigest.writeBytes(out, buffer)
+  }
+}
+
+/**
+ * Values get recorded with significantDigits of precision,
+ * so memory grows with the log of the largest value instead of with the number of distinct values.
+ */
+private final class HdrHistogramPercentilesDigest(
+    // auto resizing
+    private val histogram: IntCountsHistogram,
+    // histogram min and max are only equivalent values
+    private var min: Int,
+    private var max: Int
+) extends PercentilesDigest {
+
+  override def add(value: Int): Unit = {
+    // negative times only come from clock drifts and can't be recorded
+    histogram.recordValue(math.max(value, 0).toLong)
+    min = math.min(min, value)
+    max = math.max(max, value)
+  }
+
+  override def merge(other: PercentilesDigest): Unit = other match {
+    case o: HdrHistogramPercentilesDigest =>
+      histogram.add(o.histogram)
+      min = math.min(min, o.min)
+      max = math.max(max, o.max)
+    case _ => throw new IllegalArgumentException(s"Can't merge $other into a HdrHistogram")
+  }
+
+  override def count: Long = histogram.getTotalCount
+
+  override def quantile(quantile: Double): Double =
+    if (histogram.getTotalCount == 0) {
+      Double.NaN
+    } else if (quantile <= 0) {
+      min.toDouble
+    } else if (quantile >= 1) {
+      max.toDouble
+    } else {
+      math.max(min.toLong, math.min(max.toLong, histogram.getValueAtPercentile(quantile * 100))).toDouble
+    }
+
+  override def writeTo(out: DataOutput): Unit = {
+    out.writeInt(min)
+    out.writeInt(max)
+    val buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity)
+    histogram.encodeIntoCompressedByteBuffer(buffer)
+    buffer.flip()
+    PercentilesDigest.writeBytes(out, buffer)
+  }
+}
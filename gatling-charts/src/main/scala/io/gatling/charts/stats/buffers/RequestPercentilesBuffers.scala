@@ -21,14 +21,22 @@ import scala.collection.mutable
 import io.gatling.charts.stats.RequestRecord
 import io.gatling.commons.shared.unstable.model.stats.Group
 import io.gatling.commons.stats.Status
+import io.gatling.core.config.PercentilesEngine
 
 private[stats] trait RequestPercentilesBuffers {
   this: Buckets =>
 
+  def percentilesEngine: PercentilesEngine
+
   val responseTimePercentilesBuffers = mutable.Map.empty[BufferKey, PercentilesBuffers]
 
   def getResponseTimePercentilesBuffers(requestName: Option[String], group: Option[Group], status: Status): PercentilesBuffers =
-    responseTimePercentilesBuffers.getOrElseUpdate(BufferKey(requestName, group, Some(status)), new PercentilesBuffers(buckets))
+    responseTimePercentilesBuffers.getOrElseUpdate(BufferKey(requestName, group, Some(status)), new PercentilesBuffers(buckets, percentilesEngine))
+
+  def mergeRequestPercentilesBuffers(other: RequestPercentilesBuffers, bucketMapping: Int => Int): Unit =
+    for ((key, otherBuffers) <- other.responseTimePercentilesBuffers) {
+      responseTimePercentilesBuffers.getOrElseUpdate(key, new PercentilesBuffers(buckets, percentilesEngine)).merge(otherBuffers, bucketMapping)
+    }
 
   private def updateRequestPercentilesBuffers(
       requestName: Option[String],
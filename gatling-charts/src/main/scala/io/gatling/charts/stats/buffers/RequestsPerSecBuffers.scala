@@ -29,6 +29,11 @@ private[stats] trait RequestsPerSecBuffers {
   def getRequestsPerSecBuffer(requestName: Option[String], group: Option[Group]): CountsBuffer =
     requestsPerSecBuffers.getOrElseUpdate(BufferKey(requestName, group, None), new CountsBuffer(buckets))
 
+  def mergeRequestsPerSecBuffers(other: RequestsPerSecBuffers, bucketMapping: Int => Int): Unit =
+    for ((key, otherBuffer) <- other.requestsPerSecBuffers) {
+      requestsPerSecBuffers.getOrElseUpdate(key, new CountsBuffer(buckets)).merge(otherBuffer, bucketMapping)
+    }
+
   def updateRequestsPerSecBuffers(record: RequestRecord): Unit = {
     getRequestsPerSecBuffer(Some(record.name), record.group).update(record.startBucket, record.status)
 
@@ -30,6 +30,11 @@ private[stats] trait ResponseTimeRangeBuffers {
   def getResponseTimeRangeBuffers(requestName: Option[String], group: Option[Group])(implicit configuration: GatlingConfiguration): ResponseTimeRangeBuffer =
     responseTimeRangeBuffers.getOrElseUpdate(BufferKey(requestName, group, None), new ResponseTimeRangeBuffer)
 
+  def mergeResponseTimeRangeBuffers(other: ResponseTimeRangeBuffers)(implicit configuration: GatlingConfiguration): Unit =
+    for ((key, otherBuffer) <- other.responseTimeRangeBuffers) {
+      responseTimeRangeBuffers.getOrElseUpdate(key, new ResponseTimeRangeBuffer).merge(otherBuffer)
+    }
+
   def updateResponseTimeRangeBuffer(record: RequestRecord)(implicit configuration: GatlingConfiguration): Unit = {
     import record._
     getResponseTimeRangeBuffers(Some(name), group).update(responseTime, status)
@@ -53,5 +58,12 @@ private[stats] trait ResponseTimeRangeBuffers {
       else if (time > configuration.charting.indicators.higherBound) high += 1
       else middle += 1
     }
+
+    def merge(other: ResponseTimeRangeBuffers#ResponseTimeRangeBuffer): Unit = {
+      low += other.low
+      middle += other.middle
+      high += other.high
+      ko += other.ko
+    }
   }
 }
@@ -29,6 +29,11 @@ private[stats] trait ResponsesPerSecBuffers {
   def getResponsesPerSecBuffer(requestName: Option[String], group: Option[Group]): CountsBuffer =
     responsesPerSecBuffers.getOrElseUpdate(BufferKey(requestName, group, None), new CountsBuffer(buckets))
 
+  def mergeResponsesPerSecBuffers(other: ResponsesPerSecBuffers, bucketMapping: Int => Int): Unit =
+    for ((key, otherBuffer) <- other.responsesPerSecBuffers) {
+      responsesPerSecBuffers.getOrElseUpdate(key, new CountsBuffer(buckets)).merge(otherBuffer, bucketMapping)
+    }
+
   def updateResponsesPerSecBuffers(record: RequestRecord): Unit = {
     getResponsesPerSecBuffer(Some(record.name), record.group).update(record.endBucket, record.status)
 
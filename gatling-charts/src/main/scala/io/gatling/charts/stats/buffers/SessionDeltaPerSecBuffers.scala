@@ -31,8 +31,8 @@ private[stats] final case class SessionDeltas(starts: Int, ends: Int)
 
 private[stats] class SessionDeltaBuffer(minTimestamp: Long, maxTimestamp: Long, buckets: Array[Int], runDurationInSeconds: Int) {
 
-  private val startCounts: Array[Int] = Array.fill(runDurationInSeconds)(0)
-  private val endCounts: Array[Int] = Array.fill(runDurationInSeconds)(0)
+  val startCounts: Array[Int] = Array.fill(runDurationInSeconds)(0)
+  val endCounts: Array[Int] = Array.fill(runDurationInSeconds)(0)
 
   def addStart(second: Int): Unit = startCounts(second) += 1
 
@@ -40,6 +40,13 @@ private[stats] class SessionDeltaBuffer(minTimestamp: Long, maxTimestamp: Long,
 
   def endDandling(): Unit = addEnd(runDurationInSeconds - 1)
 
+  def merge(other: SessionDeltaBuffer, secondMapping: Int => Int): Unit =
+    for (otherSecond <- other.startCounts.indices) {
+      val second = secondMapping(otherSecond)
+      startCounts(second) += other.startCounts(otherSecond)
+      endCounts(second) += other.endCounts(otherSecond)
+    }
+
   private val bucketWidthInMillis = ((maxTimestamp - minTimestamp) / buckets.length).toInt
   private def secondToBucket(second: Int): Int = math.min(second * 1000 / bucketWidthInMillis, buckets.length - 1)
 
@@ -69,9 +76,9 @@ private[stats] class SessionDeltaBuffer(minTimestamp: Long, maxTimestamp: Long,
 private[stats] trait SessionDeltaPerSecBuffers {
   this: Buckets with RunTimes =>
 
-  private val sessionDeltaPerSecBuffers = mutable.Map.empty[Option[String], SessionDeltaBuffer]
+  val sessionDeltaPerSecBuffers = mutable.Map.empty[Option[String], SessionDeltaBuffer]
   private val userCountByScenario = mutable.Map.empty[String, LongAdder]
-  private val runDurationInSeconds = math.ceil((maxTimestamp - minTimestamp) / 1000.0).toInt
+  val runDurationInSeconds: Int = math.ceil((maxTimestamp - minTimestamp) / 1000.0).toInt
 
   def getSessionDeltaPerSecBuffers(scenarioName: Option[String]): SessionDeltaBuffer =
     sessionDeltaPerSecBuffers.getOrElseUpdate(scenarioName, new SessionDeltaBuffer(minTimestamp, maxTimestamp, buckets, runDurationInSeconds))
@@ -88,6 +95,16 @@ private[stats] trait SessionDeltaPerSecBuffers {
     (millisOffset / 1000).toInt - includeRightBorderCorrection
   }
 
+  // must happen before ending dandling users
+  def mergeSessionDeltaPerSecBuffers(other: SessionDeltaPerSecBuffers, secondMapping: Int => Int): Unit = {
+    for ((scenarioName, otherBuffer) <- other.sessionDeltaPerSecBuffers) {
+      getSessionDeltaPerSecBuffers(scenarioName).merge(otherBuffer, secondMapping)
+    }
+    for ((scenario, otherCount) <- other.userCountByScenario) {
+      userCountByScenario.getOrElseUpdate(scenario, new LongAdder).add(otherCount.sum())
+    }
+  }
+
   def addSessionBuffers(record: UserRecord): Unit = {
     record.event match {
       case MessageEvent.Start =>
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.result.reader
+
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path }
+
+import io.gatling.BaseSpec
+import io.gatling.charts.stats.LogFileReader
+import io.gatling.commons.shared.unstable.model.stats.{ Group, GroupStatsPath, RequestStatsPath }
+import io.gatling.commons.stats.{ KO, OK }
+import io.gatling.core.ConfigKeys
+import io.gatling.core.config.{ GatlingConfiguration, GatlingPropertiesBuilder }
+import io.gatling.core.stats.NameRegistry
+import io.gatling.core.stats.writer._
+
+class BinaryLogFileReaderSpec extends BaseSpec {
+
+  private val RunStart = 1406822067250L
+
+  private def writeLog(resultsDirectory: Path, fileName: String, format: LogFileFormat, footer: Boolean, compression: LogFileCompression)(
+      messages: Seq[LoadEventMessage]
+  ): Unit = {
+    val runDirectory = Files.createDirectories(resultsDirectory.resolve("run_binary"))
+    val channel = new RandomAccessFile(runDirectory.resolve(fileName).toFile, "rw").getChannel
+    // tiny buffer so that records get split across flushes, or across compressed frames
+    val writer = new BufferedFileChannelWriter(UTF_8.newEncoder, new SyncChannelOutput(channel, ByteBuffer.allocate(64), FsyncPolicy.OnClose, compression))
+    val serializer = LogFileSerializer(writer, format, new NameRegistry)
+    serializer.serializeHeader(Nil, RunMessage("MySimulation", "run1", RunStart, "interesting test run", "2.0"))
+    messages.foreach(serializer.serialize)
+    if (footer) {
+      serializer.serializeFooter()
+    }
+    writer.close()
+  }
+
+  private def withReader(messages: LoadEventMessage*)(f: LogFileReader => Any): Unit =
+    withReaderOnFiles(parallelism = 1, ("simulation.log", LogFileFormat.Binary, false, messages))(f)
+
+  private def withReaderOnFiles(parallelism: Int, files: (String, LogFileFormat, Boolean, Seq[LoadEventMessage])*)(f: LogFileReader => Any): Unit =
+    withReaderOnCompressedFiles(parallelism, LogFileCompression.Uncompressed, files: _*)(f)
+
+  private def withReaderOnCompressedFiles(parallelism: Int, compression: LogFileCompression, files: (String, LogFileFormat, Boolean, Seq[LoadEventMessage])*)(
+      f: LogFileReader => Any
+  ): Unit = {
+    val resultsDirectory = Files.createTempDirectory("binary-log")
+    files.foreach { case (fileName, format, footer, messages) => writeLog(resultsDirectory, fileName, format, footer, compression)(messages) }
+    implicit val configuration: GatlingConfiguration =
+      GatlingConfiguration.loadForTest(
+        new GatlingPropertiesBuilder().resultsDirectory(resultsDirectory.toString).build += (ConfigKeys.charting.Parallelism -> parallelism)
+      )
+    f(new LogFileReader("run_binary"))
+  }
+
+  private val knownStatsMessages = Seq(
+    UserStartMessage("testScenario", 1000),
+    ResponseMessage("testScenario", Nil, "Test Request", 1000, 3000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 1000, 10000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 2000, 6000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 3000, 7000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 4000, 8000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 5000, 10000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 5000, 10000, OK, None, None),
+    ResponseMessage("testScenario", Nil, "Test Request", 7000, 14000, OK, None, None),
+    UserEndMessage("testScenario", 7000)
+  )
+
+  "LogFileReader" should "compute the same stats from a binary log as from the equivalent text one" in {
+    withReader(knownStatsMessages: _*) { reader =>
+      reader.runMessage.simulationId shouldBe "run1"
+      reader.runMessage.runDescription shouldBe "interesting test run"
+      reader.scenarioNames shouldBe List("testScenario")
+      reader.requestNames shouldBe List("Test Request")
+      reader.requestGeneralStats(None, None, None).min shouldBe 2000
+      reader.requestGeneralStats(None, None, None).max shouldBe 9000
+      reader.requestGeneralStats(None, None, None).count shouldBe 8
+    }
+  }
+
+  it should "resolve dictionary encoded groups and keep error messages of failed requests" in {
+    val groups = List("root", "child, with comma")
+    withReader(
+      UserStartMessage("scn", RunStart + 10),
+      ResponseMessage("scn", groups, "req1", RunStart + 20, RunStart + 120, KO, Some("500"), Some("boom\twith tab")),
+      ResponseMessage("scn", groups, "req1", RunStart + 30, RunStart + 80, OK, Some("200"), Some("ignored")),
+      GroupMessage("scn", groups, RunStart + 15, RunStart + 200, 150, KO),
+      ErrorMessage("crash", RunStart + 300),
+      UserEndMessage("scn", RunStart + 400)
+    ) { reader =>
+      val group = Group(groups)
+      reader.statsPaths should contain(GroupStatsPath(group))
+      reader.statsPaths should contain(RequestStatsPath("req1", Some(group)))
+      reader.requestGeneralStats(Some("req1"), Some(group), Some(KO)).count shouldBe 1
+      reader.requestGeneralStats(Some("req1"), Some(group), Some(OK)).max shouldBe 50
+      reader.groupCumulatedResponseTimeGeneralStats(group, None).max shouldBe 150
+      reader.errors(Some("req1"), Some(group)).map(_.message) shouldBe Seq("boom\twith tab")
+      reader.runEnd shouldBe RunStart + 400
+    }
+  }
+
+  it should "use the bounds written in the footers of cleanly stopped runs" in {
+    withReaderOnFiles(
+      parallelism = 1,
+      ("simulation.log", LogFileFormat.Binary, true, knownStatsMessages),
+      ("simulation-2.log", LogFileFormat.Text, true, Seq(UserStartMessage("otherScenario", 500), UserEndMessage("otherScenario", 600)))
+    ) { reader =>
+      reader.runStart shouldBe 500
+      reader.runEnd shouldBe 14000
+      reader.requestGeneralStats(None, None, None).count shouldBe 8
+    }
+  }
+
+  it should "compute the same stats when reading text and binary files in parallel" in {
+    val files = Seq(
+      ("simulation-1.log", LogFileFormat.Binary, true, knownStatsMessages.take(5)),
+      ("simulation-2.log", LogFileFormat.Text, false, knownStatsMessages.drop(5)),
+      ("simulation-3.log", LogFileFormat.Text, true, knownStatsMessages.take(3))
+    )
+
+    def stats(reader: LogFileReader) = {
+      val general = reader.requestGeneralStats(None, None, None)
+      (general.count, general.min, general.max, general.mean, reader.numberOfActiveSessionsPerSecond(None).map(_.value), reader.runStart, reader.runEnd)
+    }
+
+    var sequential: Any = null
+    withReaderOnFiles(parallelism = 1, files: _*)(reader => sequential = stats(reader))
+    withReaderOnFiles(parallelism = 4, files: _*)(reader => stats(reader) shouldBe sequential)
+  }
+
+  it should "compute the same stats when reading lz4 compressed files" in {
+    val files = Seq(
+      ("simulation-1.log", LogFileFormat.Binary, true, knownStatsMessages.take(5)),
+      ("simulation-2.log", LogFileFormat.Text, false, knownStatsMessages.drop(5)),
+      ("simulation-3.log", LogFileFormat.Text, true, knownStatsMessages.take(3)),
+      ("simulation-4.log", LogFileFormat.Binary, false, knownStatsMessages.drop(3))
+    )
+
+    def stats(reader: LogFileReader) = {
+      val general = reader.requestGeneralStats(None, None, None)
+      (general.count, general.min, general.max, general.mean, reader.numberOfActiveSessionsPerSecond(None).map(_.value), reader.runStart, reader.runEnd)
+    }
+
+    var uncompressed: Any = null
+    withReaderOnFiles(parallelism = 1, files: _*)(reader => uncompressed = stats(reader))
+    withReaderOnCompressedFiles(parallelism = 1, LogFileCompression.Lz4, files: _*) { reader =>
+      reader.runMessage.simulationId shouldBe "run1"
+      stats(reader) shouldBe uncompressed
+    }
+    withReaderOnCompressedFiles(parallelism = 4, LogFileCompression.Lz4, files: _*)(reader => stats(reader) shouldBe uncompressed)
+  }
+}
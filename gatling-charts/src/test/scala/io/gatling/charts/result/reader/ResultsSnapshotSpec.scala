@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.result.reader
+
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path }
+
+import io.gatling.BaseSpec
+import io.gatling.charts.stats.LogFileReader
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.stats.{ KO, OK }
+import io.gatling.core.ConfigKeys
+import io.gatling.core.config.{ GatlingConfiguration, GatlingPropertiesBuilder }
+import io.gatling.core.stats.NameRegistry
+import io.gatling.core.stats.writer._
+
+class ResultsSnapshotSpec extends BaseSpec {
+
+  private val RunStart = 1406822067250L
+
+  private def writeLog(runDirectory: Path, fileName: String)(messages: LoadEventMessage*): Unit = {
+    Files.createDirectories(runDirectory)
+    val channel = new RandomAccessFile(runDirectory.resolve(fileName).toFile, "rw").getChannel
+    val writer = new BufferedFileChannelWriter(channel, UTF_8.newEncoder, ByteBuffer.allocate(1024))
+    val serializer = LogFileSerializer(writer, LogFileFormat.Text, new NameRegistry)
+    serializer.serializeHeader(Nil, RunMessage("MySimulation", "run1", RunStart, "distributed run", "3.5.0"))
+    messages.foreach(serializer.serialize)
+    serializer.serializeFooter()
+    writer.close()
+  }
+
+  private def configuration(resultsDirectory: Path, percentilesEngine: String): GatlingConfiguration =
+    GatlingConfiguration.loadForTest(
+      new GatlingPropertiesBuilder().resultsDirectory(resultsDirectory.toString).build += (ConfigKeys.charting.PercentilesEngine -> percentilesEngine)
+    )
+
+  private val groups = List("root")
+
+  private val injector1 = Seq(
+    UserStartMessage("scn", RunStart + 10),
+    ResponseMessage("scn", groups, "req1", RunStart + 20, RunStart + 120, OK, None, None),
+    ResponseMessage("scn", Nil, "req2", RunStart + 1500, RunStart + 1530, KO, None, Some("boom")),
+    GroupMessage("scn", groups, RunStart + 15, RunStart + 200, 100, OK),
+    UserEndMessage("scn", RunStart + 3000)
+  )
+
+  private val injector2 = Seq(
+    UserStartMessage("scn", RunStart + 500),
+    UserStartMessage("other", RunStart + 600),
+    ResponseMessage("scn", groups, "req1", RunStart + 700, RunStart + 1400, OK, None, None),
+    ResponseMessage("scn", Nil, "req2", RunStart + 2000, RunStart + 2050, KO, None, Some("boom")),
+    ResponseMessage("other", Nil, "req2", RunStart + 4000, RunStart + 4010, OK, None, None),
+    GroupMessage("scn", groups, RunStart + 650, RunStart + 1500, 700, KO),
+    UserEndMessage("scn", RunStart + 2500),
+    UserEndMessage("other", RunStart + 5000)
+  )
+
+  private def stats(reader: LogFileReader) = {
+    val group = Group(groups)
+    val all = reader.requestGeneralStats(None, None, None)
+    (
+      reader.runStart,
+      reader.runEnd,
+      reader.scenarioNames,
+      reader.statsPaths,
+      (all.count, all.min, all.max, all.mean),
+      reader.requestGeneralStats(Some("req2"), None, Some(KO)).count,
+      reader.groupCumulatedResponseTimeGeneralStats(group, None).max,
+      reader.errors(None, None).map(error => (error.message, error.count)),
+      reader.numberOfRequestInResponseTimeRange(None, None),
+      reader.numberOfRequestsPerSecond(None, None).map(_.total).sum,
+      reader.numberOfActiveSessionsPerSecond(None).map(_.value).max
+    )
+  }
+
+  private def mergedAndConcatenatedStats(percentilesEngine: String) = {
+    val resultsDirectory = Files.createTempDirectory("snapshots")
+    writeLog(resultsDirectory.resolve("injector1"), "simulation.log")(injector1: _*)
+    writeLog(resultsDirectory.resolve("injector2"), "simulation.log")(injector2: _*)
+    writeLog(resultsDirectory.resolve("concatenated"), "simulation-1.log")(injector1: _*)
+    writeLog(resultsDirectory.resolve("concatenated"), "simulation-2.log")(injector2: _*)
+
+    implicit val config: GatlingConfiguration = configuration(resultsDirectory, percentilesEngine)
+    val merged = Files.createDirectories(resultsDirectory.resolve("merged"))
+    for (injector <- Seq("injector1", "injector2")) {
+      val snapshot = new LogFileReader(injector).writeSnapshot()
+      Files.copy(snapshot, merged.resolve(s"$injector.snapshot"))
+    }
+
+    (stats(new LogFileReader("merged")), stats(new LogFileReader("concatenated")))
+  }
+
+  "LogFileReader" should "compute the same stats from merged snapshots as from the concatenated logs" in {
+    val (merged, concatenated) = mergedAndConcatenatedStats("tdigest")
+    merged shouldBe concatenated
+  }
+
+  it should "merge snapshots computed with the hdrhistogram percentiles engine" in {
+    val (merged, concatenated) = mergedAndConcatenatedStats("hdrhistogram")
+    merged shouldBe concatenated
+  }
+
+  it should "not count a log file twice when its snapshot is next to it" in {
+    val resultsDirectory = Files.createTempDirectory("snapshots")
+    writeLog(resultsDirectory.resolve("run"), "simulation.log")(injector1: _*)
+    implicit val config: GatlingConfiguration = configuration(resultsDirectory, "tdigest")
+
+    val fromLog = new LogFileReader("run")
+    fromLog.writeSnapshot()
+    val fromSnapshot = new LogFileReader("run")
+
+    stats(fromSnapshot) shouldBe stats(fromLog)
+  }
+
+  it should "refuse to merge snapshots computed with another percentiles engine" in {
+    val resultsDirectory = Files.createTempDirectory("snapshots")
+    writeLog(resultsDirectory.resolve("run"), "simulation.log")(injector1: _*)
+    new LogFileReader("run")(configuration(resultsDirectory, "tdigest")).writeSnapshot()
+
+    an[IllegalArgumentException] should be thrownBy new LogFileReader("run")(configuration(resultsDirectory, "hdrhistogram"))
+  }
+}
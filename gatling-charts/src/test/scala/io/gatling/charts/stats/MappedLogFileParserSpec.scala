@@ -0,0 +1,100 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats
+
+import java.nio.charset.StandardCharsets.{ UTF_16, UTF_8 }
+import java.nio.file.Files
+
+import scala.collection.mutable
+
+import io.gatling.BaseSpec
+import io.gatling.commons.shared.unstable.model.stats.Group
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.message.MessageEvent
+import io.gatling.core.stats.writer.RunMessage
+
+class MappedLogFileParserSpec extends BaseSpec {
+
+  private final class RecordingHandler extends LogRecordHandler {
+
+    val records = mutable.ListBuffer.empty[Any]
+
+    override def onRun(runMessage: RunMessage): Unit = records += runMessage
+
+    override def onAssertion(assertion: Assertion): Unit = records += assertion
+
+    override def onUser(scenario: String, event: MessageEvent, timestamp: Long): Unit = records += ((scenario, event, timestamp))
+
+    override def onRequest(group: Option[Group], name: String, start: Long, end: Long, status: Status, errorMessage: Option[String]): Unit =
+      records += ((group, name, start, end, status, errorMessage))
+
+    override def onGroup(group: Group, start: Long, end: Long, cumulatedResponseTime: Int, status: Status): Unit =
+      records += ((group, start, end, cumulatedResponseTime, status))
+
+    override def onError(message: String, timestamp: Long): Unit = records += ((message, timestamp))
+  }
+
+  private val content = Seq(
+    "RUN\tMySimulation\trun1\t1000\t \t3.5.0",
+    "USER\tscénario\tSTART\t1000",
+    "REQUEST\t\trequest\t1000\t1042\tOK\t ",
+    "REQUEST\troot,child\trequest\t1010\t1100\tKO\tboom\r",
+    "REQUEST\t\tincoming\t1020\t-9223372036854775808\tOK\t ",
+    "REQUEST\t\tbroken\tnot_a_number\t1100\tOK\t ",
+    "GROUP\troot,child\t1005\t1200\t90\tKO",
+    "ERROR\tcrash\t1300",
+    "BOUNDS\t1000\t1400",
+    "USER\tscénario\tEND\t1400"
+  ).mkString("\n")
+
+  private val expected = Seq(
+    RunMessage("MySimulation", "run1", 1000, "", "3.5.0"),
+    ("scénario", MessageEvent.Start, 1000L),
+    (None, "request", 1000L, 1042L, OK, None),
+    (Some(Group(List("root", "child"))), "request", 1010L, 1100L, KO, Some("boom")),
+    (None, "incoming", 1020L, Long.MinValue, OK, None),
+    (Group(List("root", "child")), 1005L, 1200L, 90, KO),
+    ("crash", 1300L),
+    ("scénario", MessageEvent.End, 1400L)
+  )
+
+  private def parse(windowSize: Int): (Int, Seq[Any]) = {
+    val path = Files.createTempFile("simulation", ".log")
+    try {
+      Files.write(path, content.getBytes(UTF_8))
+      val handler = new RecordingHandler
+      val count = new MappedLogFileParser(path, UTF_8, handler, windowSize).parse(0, Long.MaxValue)
+      (count, handler.records.toList)
+    } finally {
+      Files.delete(path)
+    }
+  }
+
+  "MappedLogFileParser" should "decode text records without splitting lines into Strings" in {
+    parse(windowSize = 1024) shouldBe ((10, expected))
+  }
+
+  it should "carry lines over when they cross mapping windows" in {
+    parse(windowSize = 64) shouldBe ((10, expected))
+  }
+
+  it should "only support charsets encoding separators as single ASCII bytes" in {
+    MappedLogFileParser.supports(UTF_8) shouldBe true
+    MappedLogFileParser.supports(UTF_16) shouldBe false
+  }
+}
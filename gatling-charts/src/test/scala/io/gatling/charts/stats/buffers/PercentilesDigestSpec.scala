@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.charts.stats.buffers
+
+import io.gatling.BaseSpec
+import io.gatling.core.config.PercentilesEngine
+
+class PercentilesDigestSpec extends BaseSpec {
+
+  private def digest(values: Seq[Int]): PercentilesDigest = {
+    val digest = PercentilesDigest(PercentilesEngine.HdrHistogram, PercentilesDigest.StatsSignificantDigits)
+    values.foreach(digest.add)
+    digest
+  }
+
+  "HdrHistogramPercentilesDigest" should "return exact min and max" in {
+    val hdr = digest(Seq(123457, 3, 98765, 42))
+    hdr.count shouldBe 4
+    hdr.quantile(0) shouldBe 3
+    hdr.quantile(1) shouldBe 123457
+  }
+
+  it should "compute percentiles within its precision" in {
+    val hdr = digest(1 to 10000)
+    hdr.quantile(0.5) shouldBe 5000.0 +- 5
+    hdr.quantile(0.99) shouldBe 9900.0 +- 10
+  }
+
+  it should "give the same results once merged as when recording everything in a single digest" in {
+    val values = (1 to 5000).map(i => (i * 7919) % 30000)
+    val (left, right) = values.splitAt(1234)
+    val merged = digest(left)
+    merged.merge(digest(right))
+    val single = digest(values)
+
+    merged.count shouldBe single.count
+    for (quantile <- Seq(0, 0.25, 0.5, 0.95, 0.99, 1)) {
+      merged.quantile(quantile) shouldBe single.quantile(quantile)
+    }
+  }
+
+  it should "not fail on negative values" in {
+    val hdr = digest(Seq(-5, 10))
+    hdr.quantile(0) shouldBe -5
+    hdr.count shouldBe 2
+  }
+
+  "GeneralStatsBuffer" should "compute the same exact stats whatever the percentiles engine" in {
+    def stats(engine: PercentilesEngine) = {
+      val buffer = new GeneralStatsBuffer(10, engine)
+      (1 to 1000).foreach(buffer.update)
+      val stats = buffer.stats
+      (stats.min, stats.max, stats.count, stats.mean, stats.stdDev)
+    }
+
+    stats(PercentilesEngine.HdrHistogram) shouldBe stats(PercentilesEngine.TDigest)
+  }
+
+  "PercentilesEngine" should "be parsed from its name" in {
+    PercentilesEngine("tdigest") shouldBe PercentilesEngine.TDigest
+    PercentilesEngine("hdrhistogram") shouldBe PercentilesEngine.HdrHistogram
+    an[IllegalArgumentException] should be thrownBy PercentilesEngine("exact")
+  }
+}
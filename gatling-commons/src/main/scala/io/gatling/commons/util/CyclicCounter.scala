@@ -25,7 +25,8 @@ sealed trait CyclicCounter {
 object CyclicCounter {
   final class ThreadSafe(max: Int) extends CyclicCounter {
     private val counter = new AtomicInteger
-    def nextVal: Int = counter.getAndIncrement % max
+    // wraps around instead of overflowing
+    def nextVal: Int = counter.getAndUpdate(current => if (current + 1 == max) 0 else current + 1)
   }
 
   final class NonThreadSafe(max: Int) extends CyclicCounter {
@@ -29,6 +29,7 @@ object ConfigKeys {
     val PebbleFileBodiesCacheMaxCapacity = "gatling.core.pebbleFileBodiesCacheMaxCapacity"
     val FeederAdaptiveLoadModeThreshold = "gatling.core.feederAdaptiveLoadModeThreshold"
     val ShutdownTimeout = "gatling.core.shutdownTimeout"
+    val CompactSessionAttributes = "gatling.core.compactSessionAttributes"
 
     object extract {
       object regex {
@@ -52,6 +53,10 @@ object ConfigKeys {
       val ReportsOnly = "gatling.core.directory.reportsOnly"
       val Results = "gatling.core.directory.results"
     }
+    object throttling {
+      val BacklogSize = "gatling.core.throttling.backlogSize"
+      val Overflow = "gatling.core.throttling.overflow"
+    }
   }
 
   object socket {
@@ -76,6 +81,7 @@ object ConfigKeys {
     val EnabledCipherSuites = "gatling.ssl.enabledCipherSuites"
     val SessionCacheSize = "gatling.ssl.sessionCacheSize"
     val SessionTimeout = "gatling.ssl.sessionTimeout"
+    val SessionResumption = "gatling.ssl.sessionResumption"
     val EnableSni = "gatling.ssl.enableSni"
 
     object keyStore {
@@ -97,6 +103,9 @@ object ConfigKeys {
     val NoReports = "gatling.charting.noReports"
     val MaxPlotPerSeries = "gatling.charting.maxPlotPerSeries"
     val UseGroupDurationMetric = "gatling.charting.useGroupDurationMetric"
+    val Parallelism = "gatling.charting.parallelism"
+    val PercentilesEngine = "gatling.charting.percentilesEngine"
+    val Snapshot = "gatling.charting.snapshot"
 
     object indicators {
       val LowerBound = "gatling.charting.indicators.lowerBound"
@@ -115,6 +124,7 @@ object ConfigKeys {
     val WarmUpUrl = "gatling.http.warmUpUrl"
     val EnableGA = "gatling.http.enableGA"
     val PooledConnectionIdleTimeout = "gatling.http.pooledConnectionIdleTimeout"
+    val MaxConnectionsPerRemote = "gatling.http.maxConnectionsPerRemote"
     val RequestTimeout = "gatling.http.requestTimeout"
     val EnableHostnameVerification = "gatling.http.enableHostnameVerification"
 
@@ -140,10 +150,19 @@ object ConfigKeys {
 
     object file {
       val BufferSize = "gatling.data.file.bufferSize"
+      val Format = "gatling.data.file.format"
+      val WriteBuffers = "gatling.data.file.writeBuffers"
+      val Fsync = "gatling.data.file.fsync"
+      val Compression = "gatling.data.file.compression"
     }
     object leak {
       val NoActivityTimeout = "gatling.data.leak.noActivityTimeout"
     }
+    object ringBuffer {
+      val Enabled = "gatling.data.ringBuffer.enabled"
+      val Size = "gatling.data.ringBuffer.size"
+      val DrainPeriod = "gatling.data.ringBuffer.drainPeriod"
+    }
     object console {
       val Light = "gatling.data.console.light"
       val WritePeriod = "gatling.data.console.writePeriod"
@@ -157,5 +176,11 @@ object ConfigKeys {
       val BufferSize = "gatling.data.graphite.bufferSize"
       val WritePeriod = "gatling.data.graphite.writePeriod"
     }
+    object metrics {
+      val BindAddress = "gatling.data.metrics.bindAddress"
+      val Port = "gatling.data.metrics.port"
+      val Window = "gatling.data.metrics.window"
+      val WritePeriod = "gatling.data.metrics.writePeriod"
+    }
   }
 }
@@ -17,6 +17,9 @@
 package io.gatling.core.action
 
 import io.gatling.commons.util.Clock
+import io.gatling.commons.validation._
+import io.gatling.core.controller.ControllerCommand
+import io.gatling.core.feeder.ConcurrentFeeder
 import io.gatling.core.session.{ Expression, Session }
 import io.gatling.core.stats.StatsEngine
 
@@ -30,3 +33,26 @@ class Feed(feedActor: ActorRef, number: Expression[Int], val statsEngine: StatsE
     number(session).map(num => feedActor ! FeedMessage(session, num, next))
   }
 }
+
+/**
+ * Pulls a ConcurrentFeeder directly on the virtual user's event loop, instead of going back and forth to a FeedActor
+ */
+class InlineFeed(
+    feeder: ConcurrentFeeder[Any],
+    override val name: String,
+    number: Expression[Int],
+    controller: ActorRef,
+    val statsEngine: StatsEngine,
+    val clock: Clock,
+    val next: Action
+) extends ExitableAction {
+
+  override def execute(session: Session): Unit = recover(session) {
+    number(session).map { num =>
+      FeedActor.pollNewAttributes(feeder, num) match {
+        case Success(newAttributes) => next ! session.setAll(newAttributes)
+        case Failure(message)       => controller ! ControllerCommand.Crash(new IllegalStateException(message))
+      }
+    }
+  }
+}
@@ -30,11 +30,8 @@ import akka.actor.{ ActorRef, Props }
 
 object FeedActor {
   def props[T](feeder: Feeder[T], controller: ActorRef): Props = Props(new FeedActor(feeder, controller))
-}
-
-class FeedActor[T](val feeder: Feeder[T], controller: ActorRef) extends BaseActor {
 
-  private def pollNewAttributes(numberOfRecords: Int): Validation[Record[T]] =
+  private[action] def pollNewAttributes[T](feeder: Feeder[T], numberOfRecords: Int): Validation[Record[T]] =
     try {
       (numberOfRecords: @switch) match {
         case 1 =>
@@ -53,9 +50,12 @@ class FeedActor[T](val feeder: Feeder[T], controller: ActorRef) extends BaseActo
       case _: NoSuchElementException => "Feeder is now empty, stopping engine".failure
       case NonFatal(e)               => s"Feeder crashed: ${e.detailedMessage}".failure
     }
+}
+
+class FeedActor[T](val feeder: Feeder[T], controller: ActorRef) extends BaseActor {
 
   def receive: Receive = { case FeedMessage(session, number, next) =>
-    pollNewAttributes(number) match {
+    FeedActor.pollNewAttributes(feeder, number) match {
       case Success(newAttributes) => next ! session.setAll(newAttributes)
       case Failure(message)       => controller ! ControllerCommand.Crash(new IllegalStateException(message))
     }
@@ -20,8 +20,8 @@ import java.{ util => ju }
 
 import scala.jdk.CollectionConverters._
 
-import io.gatling.core.action.{ Action, Feed, FeedActor }
-import io.gatling.core.feeder.FeederBuilder
+import io.gatling.core.action.{ Action, Feed, FeedActor, InlineFeed }
+import io.gatling.core.feeder.{ ConcurrentFeeder, FeederBuilder }
 import io.gatling.core.session.Expression
 import io.gatling.core.structure.ScenarioContext
 import io.gatling.core.util.NameGen
@@ -29,18 +29,27 @@ import io.gatling.core.util.NameGen
 import akka.actor.ActorRef
 
 object FeedBuilder {
-  private val Instances = new ju.IdentityHashMap[FeederBuilder, ActorRef].asScala
+  // feeders are shared by all the feed steps built from the same FeederBuilder:
+  // concurrent ones are pulled inline, the others are owned by a FeedActor
+  private val Instances = new ju.IdentityHashMap[FeederBuilder, Either[ConcurrentFeeder[Any], ActorRef]].asScala
 }
 
 class FeedBuilder(feederBuilder: FeederBuilder, number: Expression[Int]) extends ActionBuilder with NameGen {
 
-  private def newFeedActor(ctx: ScenarioContext): ActorRef = {
-    val props = FeedActor.props(feederBuilder(), ctx.coreComponents.controller)
-    ctx.coreComponents.actorSystem.actorOf(props, genName("feed"))
-  }
-
-  override def build(ctx: ScenarioContext, next: Action): Action = {
-    val feedActor = FeedBuilder.Instances.getOrElseUpdate(feederBuilder, newFeedActor(ctx))
-    new Feed(feedActor, number, ctx.coreComponents.statsEngine, ctx.coreComponents.clock, next)
-  }
+  private def newFeeder(ctx: ScenarioContext): Either[ConcurrentFeeder[Any], ActorRef] =
+    feederBuilder() match {
+      // closeable feeders still go through the FeedActor that closes them on stop
+      case concurrentFeeder: ConcurrentFeeder[Any] @unchecked if !concurrentFeeder.isInstanceOf[AutoCloseable] => Left(concurrentFeeder)
+      case feeder =>
+        val props = FeedActor.props(feeder, ctx.coreComponents.controller)
+        Right(ctx.coreComponents.actorSystem.actorOf(props, genName("feed")))
+    }
+
+  override def build(ctx: ScenarioContext, next: Action): Action =
+    FeedBuilder.Instances.getOrElseUpdate(feederBuilder, newFeeder(ctx)) match {
+      case Left(concurrentFeeder) =>
+        new InlineFeed(concurrentFeeder, genName("feed"), number, ctx.coreComponents.controller, ctx.coreComponents.statsEngine, ctx.coreComponents.clock, next)
+      case Right(feedActor) =>
+        new Feed(feedActor, number, ctx.coreComponents.statsEngine, ctx.coreComponents.clock, next)
+    }
 }
@@ -21,7 +21,7 @@ import java.{ util => ju }
 import scala.annotation.tailrec
 
 import io.gatling.commons.validation._
-import io.gatling.core.session.{ Expression, Session }
+import io.gatling.core.session.{ AttributeSlot, Expression, Session }
 
 object Check {
 
@@ -78,6 +78,9 @@ final class CheckBase[R, P, X](
     val saveAs: Option[String]
 ) extends Check[R] {
 
+  // resolved once, so that saving into the session goes through the slot, see CompactAttributes
+  private val saveAsSlot = saveAs.map(AttributeSlot(_)).orNull
+
   def check(response: R, session: Session, preparedCache: Check.PreparedCache): Validation[CheckResult] = {
 
     def unbuiltName: String = customName.getOrElse("Check")
@@ -95,23 +98,36 @@ final class CheckBase[R, P, X](
       prepared <- memoizedPrepared.mapError(message => s"${builtName(extractor, validator)} preparation crashed: $message")
       actual <- extractor(prepared).mapError(message => s"${builtName(extractor, validator)} extraction crashed: $message")
       matched <- validator(actual, displayActualValue).mapError(message => s"${builtName(extractor, validator)}, $message")
-    } yield new CheckResult(matched, saveAs)
+    } yield CheckResult.saveAsSlot(matched, saveAsSlot)
   }
 }
 
 object CheckResult {
 
   val NoopCheckResultSuccess: Validation[CheckResult] = new CheckResult(None, None).success
+
+  /**
+   * @param saveAs the slot the check resolved its saveAs name into when it was built, null if it doesn't save
+   */
+  private[check] def saveAsSlot(extractedValue: Option[Any], saveAs: AttributeSlot): CheckResult =
+    if (saveAs == null) {
+      new CheckResult(extractedValue, None)
+    } else {
+      val result = new CheckResult(extractedValue, Some(saveAs.name))
+      result.saveAsSlot = saveAs
+      result
+    }
 }
 
 final case class CheckResult(extractedValue: Option[Any], saveAs: Option[String]) {
 
-  def update(session: Session): Session = {
-    val maybeUpdatedSession =
-      for {
-        s <- saveAs
-        v <- extractedValue
-      } yield session.set(s, v)
-    maybeUpdatedSession.getOrElse(session)
-  }
+  // only set by checks that resolved it when built, so that saving doesn't hash the name
+  private var saveAsSlot: AttributeSlot = _
+
+  def update(session: Session): Session =
+    extractedValue match {
+      case Some(v) if saveAsSlot != null => session.set(saveAsSlot, v)
+      case Some(v)                       => saveAs.fold(session)(session.set(_, v))
+      case _                             => session
+    }
 }
@@ -120,6 +120,7 @@ object GatlingConfiguration extends StrictLogging {
       pebbleFileBodiesCacheMaxCapacity = config.getLong(core.PebbleFileBodiesCacheMaxCapacity),
       feederAdaptiveLoadModeThreshold = config.getLong(core.FeederAdaptiveLoadModeThreshold) * 1048576,
       shutdownTimeout = config.getLong(core.ShutdownTimeout),
+      compactSessionAttributes = config.getBoolean(core.CompactSessionAttributes),
       extract = new ExtractConfiguration(
         regex = new RegexConfiguration(
           cacheMaxCapacity = config.getLong(core.extract.regex.CacheMaxCapacity)
@@ -140,6 +141,10 @@ object GatlingConfiguration extends StrictLogging {
         binaries = config.getString(core.directory.Binaries).trimToOption.map(Paths.get(_)),
         reportsOnly = config.getString(core.directory.ReportsOnly).trimToOption,
         results = Paths.get(config.getString(core.directory.Results))
+      ),
+      throttling = new ThrottlingConfiguration(
+        backlogSize = config.getInt(core.throttling.BacklogSize),
+        overflow = ThrottleOverflowPolicy(config.getString(core.throttling.Overflow).trim)
       )
     )
 
@@ -181,6 +186,7 @@ object GatlingConfiguration extends StrictLogging {
       enabledCipherSuites = config.getStringList(ssl.EnabledCipherSuites).asScala.toList,
       sessionCacheSize = config.getInt(ssl.SessionCacheSize),
       sessionTimeout = config.getInt(ssl.SessionTimeout).seconds,
+      sessionResumption = SslSessionResumption(config.getString(ssl.SessionResumption).trim),
       enableSni = config.getBoolean(ssl.EnableSni),
       keyManagerFactory = {
         val storeType = config.getString(ssl.keyStore.Type).trimToOption
@@ -211,6 +217,12 @@ object GatlingConfiguration extends StrictLogging {
       noReports = config.getBoolean(charting.NoReports),
       maxPlotsPerSeries = config.getInt(charting.MaxPlotPerSeries),
       useGroupDurationMetric = config.getBoolean(charting.UseGroupDurationMetric),
+      parallelism = config.getInt(charting.Parallelism) match {
+        case 0           => Runtime.getRuntime.availableProcessors
+        case parallelism => parallelism
+      },
+      percentilesEngine = PercentilesEngine(config.getString(charting.PercentilesEngine).trim),
+      snapshot = config.getBoolean(charting.Snapshot),
       indicators = new IndicatorsConfiguration(
         lowerBound = config.getInt(charting.indicators.LowerBound),
         higherBound = config.getInt(charting.indicators.HigherBound),
@@ -230,6 +242,7 @@ object GatlingConfiguration extends StrictLogging {
       enableGA = config.getBoolean(http.EnableGA),
       requestTimeout = config.getInt(http.RequestTimeout).millis,
       pooledConnectionIdleTimeout = config.getInt(http.PooledConnectionIdleTimeout).millis,
+      maxConnectionsPerRemote = config.getInt(http.MaxConnectionsPerRemote),
       enableHostnameVerification = {
         val enable = config.getBoolean(http.EnableHostnameVerification)
         if (!enable) {
@@ -268,11 +281,20 @@ object GatlingConfiguration extends StrictLogging {
         writePeriod = config.getInt(data.console.WritePeriod).seconds
       ),
       file = new FileDataWriterConfiguration(
-        bufferSize = config.getInt(data.file.BufferSize)
+        bufferSize = config.getInt(data.file.BufferSize),
+        format = LogFileFormat(config.getString(data.file.Format).trim),
+        writeBuffers = config.getInt(data.file.WriteBuffers),
+        fsync = FsyncPolicy(config.getString(data.file.Fsync).trim),
+        compression = LogFileCompression(config.getString(data.file.Compression).trim)
       ),
       leak = new LeakDataWriterConfiguration(
         noActivityTimeout = config.getInt(data.leak.NoActivityTimeout).seconds
       ),
+      ringBuffer = new RingBufferConfiguration(
+        enabled = config.getBoolean(data.ringBuffer.Enabled),
+        size = config.getInt(data.ringBuffer.Size),
+        drainPeriod = config.getInt(data.ringBuffer.DrainPeriod).millis
+      ),
       graphite = new GraphiteDataWriterConfiguration(
         light = config.getBoolean(data.graphite.Light),
         host = config.getString(data.graphite.Host),
@@ -281,6 +303,12 @@ object GatlingConfiguration extends StrictLogging {
         rootPathPrefix = config.getString(data.graphite.RootPathPrefix),
         bufferSize = config.getInt(data.graphite.BufferSize),
         writePeriod = config.getInt(data.graphite.WritePeriod).seconds
+      ),
+      metrics = new MetricsDataWriterConfiguration(
+        bindAddress = config.getString(data.metrics.BindAddress),
+        port = config.getInt(data.metrics.Port),
+        window = config.getInt(data.metrics.Window).seconds,
+        writePeriod = config.getInt(data.metrics.WritePeriod).seconds
       )
     )
 
@@ -309,12 +337,14 @@ final class CoreConfiguration(
     val simulationClass: Option[String],
     val extract: ExtractConfiguration,
     val directory: DirectoryConfiguration,
+    val throttling: ThrottlingConfiguration,
     val elFileBodiesCacheMaxCapacity: Long,
     val rawFileBodiesCacheMaxCapacity: Long,
     val rawFileBodiesInMemoryMaxSize: Long,
     val pebbleFileBodiesCacheMaxCapacity: Long,
     val feederAdaptiveLoadModeThreshold: Long,
-    val shutdownTimeout: Long
+    val shutdownTimeout: Long,
+    val compactSessionAttributes: Boolean
 ) {
   val charset: Charset = Charset.forName(encoding)
 }
@@ -350,6 +380,11 @@ final class DirectoryConfiguration(
     val results: Path
 )
 
+final class ThrottlingConfiguration(
+    val backlogSize: Int,
+    val overflow: ThrottleOverflowPolicy
+)
+
 final class SocketConfiguration(
     val connectTimeout: FiniteDuration,
     val tcpNoDelay: Boolean,
@@ -366,6 +401,7 @@ final class SslConfiguration(
     val enabledCipherSuites: List[String],
     val sessionCacheSize: Int,
     val sessionTimeout: FiniteDuration,
+    val sessionResumption: SslSessionResumption,
     val enableSni: Boolean,
     val keyManagerFactory: Option[KeyManagerFactory],
     val trustManagerFactory: Option[TrustManagerFactory]
@@ -381,6 +417,9 @@ final class ChartingConfiguration(
     val noReports: Boolean,
     val maxPlotsPerSeries: Int,
     val useGroupDurationMetric: Boolean,
+    val parallelism: Int,
+    val percentilesEngine: PercentilesEngine,
+    val snapshot: Boolean,
     val indicators: IndicatorsConfiguration
 )
 
@@ -400,6 +439,7 @@ final class HttpConfiguration(
     val warmUpUrl: Option[String],
     val enableGA: Boolean,
     val pooledConnectionIdleTimeout: FiniteDuration,
+    val maxConnectionsPerRemote: Int,
     val requestTimeout: FiniteDuration,
     val enableHostnameVerification: Boolean,
     val dns: DnsConfiguration
@@ -425,20 +465,32 @@ final class DataConfiguration(
     val dataWriters: Seq[DataWriterType],
     val file: FileDataWriterConfiguration,
     val leak: LeakDataWriterConfiguration,
+    val ringBuffer: RingBufferConfiguration,
     val console: ConsoleDataWriterConfiguration,
-    val graphite: GraphiteDataWriterConfiguration
+    val graphite: GraphiteDataWriterConfiguration,
+    val metrics: MetricsDataWriterConfiguration
 ) {
   def fileDataWriterEnabled: Boolean = dataWriters.contains(DataWriterType.File)
 }
 
 final class FileDataWriterConfiguration(
-    val bufferSize: Int
+    val bufferSize: Int,
+    val format: LogFileFormat,
+    val writeBuffers: Int,
+    val fsync: FsyncPolicy,
+    val compression: LogFileCompression
 )
 
 final class LeakDataWriterConfiguration(
     val noActivityTimeout: FiniteDuration
 )
 
+final class RingBufferConfiguration(
+    val enabled: Boolean,
+    val size: Int,
+    val drainPeriod: FiniteDuration
+)
+
 final class ConsoleDataWriterConfiguration(
     val light: Boolean,
     val writePeriod: FiniteDuration
@@ -454,6 +506,13 @@ final class GraphiteDataWriterConfiguration(
     val writePeriod: FiniteDuration
 )
 
+final class MetricsDataWriterConfiguration(
+    val bindAddress: String,
+    val port: Int,
+    val window: FiniteDuration,
+    val writePeriod: FiniteDuration
+)
+
 final class GatlingConfiguration(
     val core: CoreConfiguration,
     val socket: SocketConfiguration,
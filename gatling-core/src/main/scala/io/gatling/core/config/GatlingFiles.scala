@@ -38,7 +38,8 @@ object GatlingFiles {
   def resourcesDirectory(configuration: GatlingConfiguration): Path = resolvePath(configuration.core.directory.resources)
   def binariesDirectory(configuration: GatlingConfiguration): Path =
     configuration.core.directory.binaries.map(path => resolvePath(path)).getOrElse(GatlingHome / "target" / "test-classes")
-  def resultDirectory(runUuid: String, configuration: GatlingConfiguration): Path = resolvePath(configuration.core.directory.results) / runUuid
+  def resultsDirectory(configuration: GatlingConfiguration): Path = resolvePath(configuration.core.directory.results)
+  def resultDirectory(runUuid: String, configuration: GatlingConfiguration): Path = resultsDirectory(configuration) / runUuid
 
   def simulationLogDirectory(runUuid: String, create: Boolean, configuration: GatlingConfiguration): Path = {
     val dir = resultDirectory(runUuid, configuration)
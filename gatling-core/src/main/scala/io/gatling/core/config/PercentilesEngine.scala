@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.config
+
+object PercentilesEngine {
+  def apply(name: String): PercentilesEngine = name match {
+    case TDigest.name      => TDigest
+    case HdrHistogram.name => HdrHistogram
+    case _                 => throw new IllegalArgumentException(s"Unsupported percentiles engine: '$name'")
+  }
+
+  /**
+   * Approximate percentiles, memory grows with the number of distinct values up to the digest compression
+   */
+  case object TDigest extends PercentilesEngine("tdigest")
+
+  /**
+   * Percentiles with a bounded relative error and exact min and max, memory only depends on the largest value
+   */
+  case object HdrHistogram extends PercentilesEngine("hdrhistogram")
+}
+
+sealed abstract class PercentilesEngine(val name: String)
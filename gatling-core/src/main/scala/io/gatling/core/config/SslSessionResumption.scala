@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.config
+
+object SslSessionResumption {
+  def apply(name: String): SslSessionResumption = name match {
+    case PerUser.name => PerUser
+    case Shared.name  => Shared
+    case _            => throw new IllegalArgumentException(s"Unsupported TLS session resumption policy: '$name'")
+  }
+
+  /**
+   * Every virtual user has its own TLS session cache, like distinct browsers would
+   */
+  case object PerUser extends SslSessionResumption("perUser")
+
+  /**
+   * Virtual users without a perUserKeyManagerFactory share one TLS session cache, so they resume each other's sessions
+   */
+  case object Shared extends SslSessionResumption("shared")
+}
+
+sealed abstract class SslSessionResumption(val name: String)
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.config
+
+object ThrottleOverflowPolicy {
+  def apply(name: String): ThrottleOverflowPolicy = name match {
+    case Stop.name   => Stop
+    case Bypass.name => Bypass
+    case _           => throw new IllegalArgumentException(s"Unsupported throttle overflow policy: '$name'")
+  }
+
+  /**
+   * Crash the simulation, as the throttle can't keep up with the injection profile
+   */
+  case object Stop extends ThrottleOverflowPolicy("stop")
+
+  /**
+   * Send the overflowing requests right away, the throughput going over the throttle for the time the backlog is full
+   */
+  case object Bypass extends ThrottleOverflowPolicy("bypass")
+}
+
+sealed abstract class ThrottleOverflowPolicy(val name: String)
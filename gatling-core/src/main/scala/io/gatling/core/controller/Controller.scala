@@ -86,6 +86,7 @@ class Controller(statsEngine: StatsEngine, injector: ActorRef, throttler: Option
   }
 
   private def stopGracefully(startedData: StartedData, exception: Option[Exception]): State = {
+    throttler.foreach(_.logSummary())
     statsEngine.stop(self, exception)
     goto(WaitingForResourcesToStop) using EndData(startedData.initData, exception)
   }
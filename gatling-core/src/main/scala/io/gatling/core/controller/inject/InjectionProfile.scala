@@ -19,6 +19,7 @@ package io.gatling.core.controller.inject
 import java.util.concurrent.atomic.AtomicLong
 
 import io.gatling.commons.util.Clock
+import io.gatling.core.controller.inject.open.Arrivals
 import io.gatling.core.scenario.Scenario
 import io.gatling.core.stats.StatsEngine
 
@@ -38,6 +39,7 @@ trait InjectionProfile {
       userIdGen: AtomicLong,
       startTime: Long,
       eventLoopGroup: EventLoopGroup,
+      arrivals: Arrivals,
       statsEngine: StatsEngine,
       clock: Clock
   ): Workload
@@ -22,7 +22,7 @@ import scala.concurrent.duration._
 
 import io.gatling.commons.util.Clock
 import io.gatling.core.controller.ControllerCommand.InjectorStopped
-import io.gatling.core.controller.inject.open.OpenWorkload
+import io.gatling.core.controller.inject.open.{ Arrivals, OpenWorkload }
 import io.gatling.core.scenario.{ Scenario, Scenarios }
 import io.gatling.core.stats.StatsEngine
 import io.gatling.core.stats.writer.UserEndMessage
@@ -56,11 +56,13 @@ private[inject] class Injector(eventLoopGroup: EventLoopGroup, statsEngine: Stat
   startWith(WaitingToStart, NoData)
 
   private val userIdGen = new AtomicLong
+  // shared by all the open workloads, so each event loop has a single arrival timer
+  private val arrivals = new Arrivals(eventLoopGroup)
 
   private def buildWorkloads(scenarios: List[Scenario]): Map[String, Workload] = {
     val startTime = clock.nowMillis
     scenarios.map { scenario =>
-      scenario.name -> scenario.injectionProfile.workload(scenario, userIdGen, startTime, eventLoopGroup, statsEngine, clock)
+      scenario.name -> scenario.injectionProfile.workload(scenario, userIdGen, startTime, eventLoopGroup, arrivals, statsEngine, clock)
     }.toMap
   }
 
@@ -74,6 +76,7 @@ private[inject] class Injector(eventLoopGroup: EventLoopGroup, statsEngine: Stat
       case workload: OpenWorkload if firstBatch => workload.injectBatch(TickPeriod * 2) // inject 1 second ahead
       case workload                             => workload.injectBatch(TickPeriod)
     }
+    arrivals.flush()
 
     newlyInProgressWorkloads.values.foreach { workload =>
       if (workload.isEmpty) {
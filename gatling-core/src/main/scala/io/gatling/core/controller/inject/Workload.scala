@@ -19,7 +19,7 @@ package io.gatling.core.controller.inject
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
 
-import scala.concurrent.duration.{ Duration, FiniteDuration }
+import scala.concurrent.duration.FiniteDuration
 
 import io.gatling.commons.util.Clock
 import io.gatling.core.scenario.Scenario
@@ -42,14 +42,14 @@ abstract class Workload(
   private var stopped = 0
   private var allScheduled = false
 
-  private def incrementScheduledUsers(): Unit = scheduled += 1
+  protected def incrementScheduledUsers(): Unit = scheduled += 1
 
   protected def setAllScheduled(): Unit = allScheduled = true
 
   protected def incrementStoppedUsers(): Unit = stopped += 1
 
-  private def startUser(userId: Long, eventLoop: EventLoop): Unit = {
-    val rawSession = Session(scenario.name, userId, scenario.onExit, eventLoop)
+  protected def startUser(userId: Long, eventLoop: EventLoop): Unit = {
+    val rawSession = Session(scenario.name, userId, scenario.emptyAttributes, scenario.onExit, eventLoop)
     val session = scenario.onStart(rawSession)
     val timestamp = clock.nowMillis
     scenario.entry ! session
@@ -57,15 +57,18 @@ abstract class Workload(
     statsEngine.logUserStart(scenario.name, timestamp)
   }
 
-  protected def injectUser(delay: FiniteDuration): Unit = {
+  /**
+   * @param delayNanos the delay in nanoseconds before the user starts
+   */
+  protected def injectUser(delayNanos: Long): Unit = {
     incrementScheduledUsers()
     val userId = userIdGen.incrementAndGet()
     val eventLoop = eventLoopGroup.next()
     if (!eventLoop.isShutdown) {
-      if (delay <= Duration.Zero) {
+      if (delayNanos <= 0) {
         eventLoop.execute(() => startUser(userId, eventLoop))
       } else {
-        eventLoop.schedule((() => startUser(userId, eventLoop)): Runnable, delay.toMillis, TimeUnit.MILLISECONDS)
+        eventLoop.schedule((() => startUser(userId, eventLoop)): Runnable, delayNanos, TimeUnit.NANOSECONDS)
       }
     }
   }
@@ -22,6 +22,7 @@ import scala.concurrent.duration.Duration
 
 import io.gatling.commons.util.Clock
 import io.gatling.core.controller.inject.{ InjectionProfile, Workload }
+import io.gatling.core.controller.inject.open.Arrivals
 import io.gatling.core.scenario.Scenario
 import io.gatling.core.stats.StatsEngine
 
@@ -37,6 +38,7 @@ final class ClosedInjectionProfile(steps: Iterable[ClosedInjectionStep]) extends
       userIdGen: AtomicLong,
       startTime: Long,
       eventLoopGroup: EventLoopGroup,
+      arrivals: Arrivals,
       statsEngine: StatsEngine,
       clock: Clock
   ): Workload =
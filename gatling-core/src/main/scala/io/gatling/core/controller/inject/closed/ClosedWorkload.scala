@@ -16,6 +16,7 @@
 
 package io.gatling.core.controller.inject.closed
 
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
 
 import scala.concurrent.duration._
@@ -68,7 +69,7 @@ class ClosedWorkload(
           for {
             (number, millis) <- Shard.shards(missingUsers, batchWindow.toMillis.toInt).zipWithIndex
             if number > 0
-          } (0 until number.toInt).foreach(_ => injectUser(millis.milliseconds))
+          } (0 until number.toInt).foreach(_ => injectUser(TimeUnit.MILLISECONDS.toNanos(millis.toLong)))
         }
 
       case _ => setAllScheduled()
@@ -80,7 +81,7 @@ class ClosedWorkload(
     incrementStoppedUsers()
     if (getConcurrentUsers < _thisBatchTarget && !isAllUsersScheduled) {
       // start a new user
-      injectUser(Duration.Zero)
+      injectUser(0L)
     }
   }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.inject.open
+
+import java.{ util => ju }
+import java.util.concurrent.TimeUnit
+
+import scala.jdk.CollectionConverters._
+
+import io.netty.channel.{ EventLoop, EventLoopGroup }
+import io.netty.util.concurrent.ScheduledFuture
+
+/**
+ * Arrival times, as System.nanoTime deadlines, and what to start at these times, collected by the Injector for one event loop during a batch.
+ *
+ * Only used from the Injector.
+ */
+private[open] final class PendingArrivals {
+
+  private var deadlines = new Array[Long](16)
+  private var starts = new Array[EventLoop => Unit](16)
+  private var size = 0
+
+  def add(deadline: Long, start: EventLoop => Unit): Unit = {
+    if (size == deadlines.length) {
+      deadlines = ju.Arrays.copyOf(deadlines, size * 2)
+      starts = ju.Arrays.copyOf(starts, size * 2)
+    }
+    deadlines(size) = deadline
+    starts(size) = start
+    size += 1
+  }
+
+  def isEmpty: Boolean = size == 0
+
+  def drainTo(queue: ArrivalQueue): Unit = {
+    queue.offer(ju.Arrays.copyOf(deadlines, size), ju.Arrays.copyOf(starts, size))
+    ju.Arrays.fill(starts.asInstanceOf[Array[AnyRef]], 0, size, null)
+    size = 0
+  }
+}
+
+/**
+ * The arrivals of all the open workloads, spread round robin over the event loops, just like eventLoopGroup.next() does,
+ * so that each event loop only ever has a single arrival timer, whatever the number of scenarios.
+ *
+ * Owned by the Injector: workloads [[add]] arrivals while injecting a batch, then the Injector [[flush]]es them,
+ * handing each event loop all its arrivals at once.
+ */
+final class Arrivals private[inject] (eventLoopGroup: EventLoopGroup) {
+
+  private lazy val queues: Array[ArrivalQueue] =
+    eventLoopGroup.asScala.collect { case eventLoop: EventLoop => new ArrivalQueue(eventLoop) }.toArray
+  private lazy val pendingArrivals: Array[PendingArrivals] = Array.fill(queues.length)(new PendingArrivals)
+  private var nextQueue = 0
+  private var hasPendingArrivals = false
+
+  private[inject] def add(deadline: Long, start: EventLoop => Unit): Unit = {
+    pendingArrivals(nextQueue).add(deadline, start)
+    nextQueue = (nextQueue + 1) % pendingArrivals.length
+    hasPendingArrivals = true
+  }
+
+  private[inject] def flush(): Unit =
+    if (hasPendingArrivals) {
+      queues.indices.foreach { i =>
+        if (!pendingArrivals(i).isEmpty) {
+          pendingArrivals(i).drainTo(queues(i))
+        }
+      }
+      hasPendingArrivals = false
+    }
+}
+
+/**
+ * Releases users on an event loop at their arrival times, with a single timer instead of one scheduled task per user.
+ *
+ * Batches are handed over from the Injector with [[offer]], everything else only ever runs on the event loop.
+ * Arrivals of distinct scenarios, or of a child scenario starting while its parent's next second is already queued, don't come in order,
+ * so they're kept in a binary min-heap of deadlines and the timer is armed for its root.
+ */
+private[inject] final class ArrivalQueue(eventLoop: EventLoop) extends Runnable {
+
+  private var deadlines = new Array[Long](64)
+  private var starts = new Array[EventLoop => Unit](64)
+  private var size = 0
+  private var timer: ScheduledFuture[_] = _
+  private var timerDeadline = 0L
+
+  def offer(deadlines: Array[Long], starts: Array[EventLoop => Unit]): Unit =
+    if (!eventLoop.isShutdown) {
+      eventLoop.execute(() => enqueue(deadlines, starts))
+    }
+
+  def pending: Int = size
+
+  private def enqueue(newDeadlines: Array[Long], newStarts: Array[EventLoop => Unit]): Unit = {
+    if (size + newDeadlines.length > deadlines.length) {
+      val capacity = math.max(deadlines.length * 2, size + newDeadlines.length)
+      deadlines = ju.Arrays.copyOf(deadlines, capacity)
+      starts = ju.Arrays.copyOf(starts, capacity)
+    }
+    var i = 0
+    while (i < newDeadlines.length) {
+      push(newDeadlines(i), newStarts(i))
+      i += 1
+    }
+
+    if (timer == null) {
+      run()
+    } else if (deadlines(0) - timerDeadline < 0) {
+      // an earlier arrival than the one the timer was armed for
+      timer.cancel(false)
+      run()
+    }
+  }
+
+  private def push(deadline: Long, start: EventLoop => Unit): Unit = {
+    var i = size
+    size += 1
+    var searching = true
+    while (searching && i > 0) {
+      val parent = (i - 1) >>> 1
+      if (deadlines(parent) - deadline > 0) {
+        deadlines(i) = deadlines(parent)
+        starts(i) = starts(parent)
+        i = parent
+      } else {
+        searching = false
+      }
+    }
+    deadlines(i) = deadline
+    starts(i) = start
+  }
+
+  // removes the root
+  private def pop(): Unit = {
+    size -= 1
+    val deadline = deadlines(size)
+    val start = starts(size)
+    starts(size) = null
+    if (size > 0) {
+      var i = 0
+      var searching = true
+      while (searching) {
+        val left = 2 * i + 1
+        if (left >= size) {
+          searching = false
+        } else {
+          val right = left + 1
+          val child = if (right < size && deadlines(right) - deadlines(left) < 0) right else left
+          if (deadlines(child) - deadline < 0) {
+            deadlines(i) = deadlines(child)
+            starts(i) = starts(child)
+            i = child
+          } else {
+            searching = false
+          }
+        }
+      }
+      deadlines(i) = deadline
+      starts(i) = start
+    }
+  }
+
+  override def run(): Unit = {
+    timer = null
+    val now = System.nanoTime()
+    while (size > 0 && deadlines(0) - now <= 0) {
+      val start = starts(0)
+      pop()
+      start(eventLoop)
+    }
+
+    if (size > 0 && !eventLoop.isShuttingDown) {
+      timerDeadline = deadlines(0)
+      timer = eventLoop.schedule(this, timerDeadline - now, TimeUnit.NANOSECONDS)
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.inject.open
+
+import scala.collection.AbstractIterator
+import scala.concurrent.duration._
+
+/**
+ * Primitive iterator over the offsets, in nanoseconds from the beginning of an injection step, of the users it injects.
+ * Offsets are sorted and computing them doesn't allocate, so a whole batch can be generated without boxing.
+ */
+private[inject] abstract class InjectionOffsets {
+
+  def hasNext: Boolean
+
+  def nextNanos(): Long
+
+  def toIterator: Iterator[FiniteDuration] = {
+    val self = this
+    new AbstractIterator[FiniteDuration] {
+      override def hasNext: Boolean = self.hasNext
+      override def next(): FiniteDuration = {
+        if (!self.hasNext) throw new NoSuchElementException
+        self.nextNanos().nanoseconds
+      }
+    }
+  }
+}
+
+private[inject] object InjectionOffsets {
+
+  private[open] val NanosPerSecond: Long = 1000000000L
+
+  val Empty: InjectionOffsets = new InjectionOffsets {
+    override def hasNext: Boolean = false
+    override def nextNanos(): Long = throw new NoSuchElementException
+  }
+
+  def count(offsets: InjectionOffsets): Long = {
+    var count = 0L
+    while (offsets.hasNext) {
+      offsets.nextNanos()
+      count += 1
+    }
+    count
+  }
+}
+
+/**
+ * Users injected at the same offset
+ */
+private[open] final class AtOnceInjectionOffsets(users: Long) extends InjectionOffsets {
+
+  private var remaining = users
+
+  override def hasNext: Boolean = remaining > 0
+
+  override def nextNanos(): Long = {
+    if (remaining <= 0) throw new NoSuchElementException
+    remaining -= 1
+    0L
+  }
+}
+
+/**
+ * Users spread evenly over each second, given the closed form cumulative number of users injected
+ * before the beginning of any second.
+ *
+ * @param durationInSeconds the number of seconds to inject users over
+ */
+private[open] abstract class PerSecondInjectionOffsets(durationInSeconds: Int) extends InjectionOffsets {
+
+  import InjectionOffsets.NanosPerSecond
+
+  private var second = -1
+  private var secondUsers = 0L
+  private var index = 0L
+
+  /**
+   * @param second a second in [0, durationInSeconds]
+   * @return the number of users injected before this second, must be non decreasing
+   */
+  protected def usersBefore(second: Int): Long
+
+  override def hasNext: Boolean = {
+    while (index == secondUsers && second < durationInSeconds - 1) {
+      second += 1
+      secondUsers = usersBefore(second + 1) - usersBefore(second)
+      index = 0
+    }
+    index < secondUsers
+  }
+
+  override def nextNanos(): Long = {
+    if (!hasNext) throw new NoSuchElementException
+    // j-th user of n in this second goes in nanosecond floor(j * 10^9 / n)
+    val nanos = second * NanosPerSecond + index * NanosPerSecond / secondUsers
+    index += 1
+    nanos
+  }
+}
+
+/**
+ * Offsets of a sequence of steps, each step's offsets being shifted by the cumulated duration of the previous ones.
+ */
+private[open] final class ChainedInjectionOffsets(steps: Iterable[OpenInjectionStep]) extends InjectionOffsets {
+
+  private val remainingSteps = steps.iterator
+  private var current: InjectionOffsets = InjectionOffsets.Empty
+  private var currentStepStart = 0L
+  private var nextStepStart = 0L
+
+  override def hasNext: Boolean = {
+    while (!current.hasNext && remainingSteps.hasNext) {
+      val step = remainingSteps.next()
+      current = step.offsets
+      currentStepStart = nextStepStart
+      nextStepStart += step.duration.toNanos
+    }
+    current.hasNext
+  }
+
+  override def nextNanos(): Long = {
+    if (!hasNext) throw new NoSuchElementException
+    currentStepStart + current.nextNanos()
+  }
+}
@@ -42,6 +42,7 @@ final class OpenInjectionProfile(val steps: Iterable[OpenInjectionStep]) extends
       userIdGen: AtomicLong,
       startTime: Long,
       eventLoopGroup: EventLoopGroup,
+      arrivals: Arrivals,
       statsEngine: StatsEngine,
       clock: Clock
   ): Workload =
@@ -53,6 +54,7 @@ final class OpenInjectionProfile(val steps: Iterable[OpenInjectionStep]) extends
       userIdGen,
       startTime,
       eventLoopGroup,
+      arrivals,
       statsEngine,
       clock
     )
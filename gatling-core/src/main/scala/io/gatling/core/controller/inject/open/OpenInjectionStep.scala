@@ -18,18 +18,21 @@ package io.gatling.core.controller.inject.open
 
 import java.util.Random
 
-import scala.collection.AbstractIterator
 import scala.concurrent.duration._
 import scala.math.abs
 
-import io.gatling.core.util.Shard
-
 sealed trait OpenInjectionStep extends Product with Serializable {
 
+  /**
+   * Offsets, in nanoseconds from the beginning of this step, of the users it injects
+   */
+  private[inject] def offsets: InjectionOffsets
+
   /**
    * Iterator of time deltas in between any injected user and the beginning of the simulation
    */
-  private[inject] def chain(iterator: Iterator[FiniteDuration]): Iterator[FiniteDuration]
+  private[inject] final def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+    offsets.toIterator ++ chained.map(_ + duration)
 
   /**
    * Number of users to inject
@@ -39,59 +42,6 @@ sealed trait OpenInjectionStep extends Product with Serializable {
   private[inject] def duration: FiniteDuration
 }
 
-abstract class InjectionIterator(durationInSeconds: Int) extends AbstractIterator[FiniteDuration] {
-
-  private var thisSecond: Int = -1
-  private var thisSecondIterator: Iterator[FiniteDuration] = Iterator.empty
-  private var finished = finishedAfterMovingToNextBatch()
-
-  protected def thisSecondUsers(thisSecondParam: Int): Int
-
-  // only called if !finished
-  private def finishedAfterMovingToNextBatch(): Boolean = {
-    var result: Option[Boolean] = None
-    do {
-      thisSecond += 1
-
-      if (thisSecond == durationInSeconds) {
-        thisSecondIterator = Iterator.empty
-        result = Some(true)
-
-      } else {
-        val users = thisSecondUsers(thisSecond)
-
-        if (users > 0) {
-          thisSecondIterator = Shard
-            .shards(users, 1000)
-            .zipWithIndex
-            .flatMap { case (millisUsers, millis) =>
-              if (millisUsers > 0)
-                Iterator.fill(millisUsers.toInt)((thisSecond * 1000 + millis).milliseconds)
-              else
-                Iterator.empty
-            }
-          result = Some(false)
-        }
-      }
-    } while (!thisSecondIterator.hasNext && result.isEmpty)
-    result.getOrElse(true)
-  }
-
-  override def hasNext: Boolean =
-    if (thisSecondIterator.hasNext) {
-      true
-    } else if (finished) {
-      false
-    } else {
-      finished = finishedAfterMovingToNextBatch()
-      !finished
-    }
-
-  override def next(): FiniteDuration = thisSecondIterator.next()
-
-  override def toString(): String = "non-printable iterator"
-}
-
 /**
  * Ramp a given number of users over a given duration
  */
@@ -100,19 +50,20 @@ final case class RampOpenInjection private[inject] (users: Long, duration: Finit
   require(users >= 0, s"users ($users) must be >= 0")
   require(duration >= Duration.Zero, s"duration ($duration) must be >= 0")
 
-  override def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+  override private[inject] def offsets: InjectionOffsets =
     if (users == 0) {
-      NothingForOpenInjection(duration).chain(chained)
+      InjectionOffsets.Empty
 
     } else if (duration == Duration.Zero) {
-      AtOnceOpenInjection(users).chain(chained)
+      new AtOnceInjectionOffsets(users)
 
     } else {
       val durationInSeconds = duration.toSeconds.toInt
 
-      new InjectionIterator(durationInSeconds) {
-        override protected def thisSecondUsers(thisSecondParam: Int): Int = Shard.shard(users, thisSecondParam, durationInSeconds).length
-      } ++ chained.map(_ + duration)
+      new PerSecondInjectionOffsets(durationInSeconds) {
+        // ceil(users * second / durationInSeconds)
+        override protected def usersBefore(second: Int): Long = (users * second + durationInSeconds - 1) / durationInSeconds
+      }
     }
 }
 
@@ -129,11 +80,11 @@ final case class ConstantRateOpenInjection private[inject] (rate: Double, durati
 
   def randomized: OpenInjectionStep = PoissonOpenInjection(duration, rate, rate)
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+  override private[inject] def offsets: InjectionOffsets =
     if (rate == 0) {
-      NothingForOpenInjection(duration).chain(chained)
+      InjectionOffsets.Empty
     } else {
-      RampOpenInjection(users, duration).chain(chained)
+      RampOpenInjection(users, duration).offsets
     }
 }
 
@@ -144,12 +95,7 @@ final case class NothingForOpenInjection private[inject] (duration: FiniteDurati
 
   require(duration >= Duration.Zero, s"duration ($duration) must be >= 0")
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
-    if (duration == Duration.Zero) {
-      chained
-    } else {
-      chained.map(_ + duration)
-    }
+  override private[inject] def offsets: InjectionOffsets = InjectionOffsets.Empty
 
   override private[inject] val users: Long = 0
 }
@@ -161,23 +107,7 @@ final case class AtOnceOpenInjection private[inject] (users: Long) extends OpenI
 
   require(users >= 0, s"users ($users) must be >= 0")
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
-    if (users == 0) {
-      chained
-    } else {
-      new AbstractIterator[FiniteDuration] {
-
-        private var i: Long = 0L
-
-        override def hasNext: Boolean = i < users
-
-        override def next(): FiniteDuration = {
-          if (!hasNext) throw new NoSuchElementException
-          i += 1
-          Duration.Zero
-        }
-      } ++ chained
-    }
+  override private[inject] def offsets: InjectionOffsets = new AtOnceInjectionOffsets(users)
 
   override private[inject] def duration: FiniteDuration = Duration.Zero
 }
@@ -197,24 +127,23 @@ final case class RampRateOpenInjection private[inject] (startRate: Double, endRa
 
   def randomized: OpenInjectionStep = PoissonOpenInjection(duration, startRate, endRate)
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+  override private[inject] def offsets: InjectionOffsets =
     if (startRate == 0 && endRate == 0) {
-      NothingForOpenInjection(duration).chain(chained)
+      InjectionOffsets.Empty
 
     } else {
       val durationInSeconds = duration.toSeconds.toInt
-      val a = (BigDecimal(endRate) - startRate) / (2 * durationInSeconds)
-      var pendingFraction = BigDecimal(0.0)
-
-      new InjectionIterator(durationInSeconds) {
+      val a = (endRate - startRate) / (2 * durationInSeconds)
 
-        override protected def thisSecondUsers(thisSecondParam: Int): Int = {
-          val thisSecondUsersBigDecimal = a * (2 * thisSecondParam + 1) + startRate + pendingFraction
-          val thisSecondUsersIntValue = thisSecondUsersBigDecimal.setScale(10, BigDecimal.RoundingMode.HALF_UP).intValue
-          pendingFraction = thisSecondUsersBigDecimal - thisSecondUsersIntValue
-          thisSecondUsersIntValue
-        }
-      } ++ chained.map(_ + duration)
+      new PerSecondInjectionOffsets(durationInSeconds) {
+        // users injected over [0, t] = startRate * t + a * t², rounded down with some tolerance for floating point errors
+        override protected def usersBefore(second: Int): Long =
+          if (second == durationInSeconds) {
+            users
+          } else {
+            math.min(math.floor(second * (startRate + a * second) + 1e-9).toLong, users)
+          }
+      }
     }
 }
 
@@ -234,12 +163,12 @@ final case class HeavisideOpenInjection private[inject] (private[inject] val use
   require(users >= 0, s"users ($users) must be >= 0")
   require(duration >= Duration.Zero, s"Duration ($duration) must be >= 0")
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+  override private[inject] def offsets: InjectionOffsets =
     if (users == 0) {
-      NothingForOpenInjection(duration).chain(chained)
+      InjectionOffsets.Empty
 
     } else if (duration == Duration.Zero) {
-      AtOnceOpenInjection(users).chain(chained)
+      new AtOnceInjectionOffsets(users)
 
     } else {
       def heavisideInv(u: Long): Double = {
@@ -249,21 +178,21 @@ final case class HeavisideOpenInjection private[inject] (private[inject] val use
 
       val t0 = abs(heavisideInv(1))
       val d = t0 * 2
-      val k = duration.toMillis / d
+      val k = duration.toNanos / d
 
-      new AbstractIterator[FiniteDuration] {
+      new InjectionOffsets {
 
         private var i: Long = 0L
 
         override def hasNext: Boolean = i < users
 
-        override def next(): FiniteDuration = {
+        override def nextNanos(): Long = {
           if (!hasNext) throw new NoSuchElementException
           i += 1
           val t = heavisideInv(i)
-          (k * (t + t0)).toLong.milliseconds
+          (k * (t + t0)).toLong
         }
-      } ++ chained.map(_ + duration)
+      }
     }
 }
 
@@ -292,11 +221,11 @@ final case class PoissonOpenInjection private[inject] (duration: FiniteDuration,
   require(duration >= Duration.Zero, s"duration ($duration) must be > 0")
   require(!((startRate > 0 || endRate > 0) && duration == Duration.Zero), s"can't inject non 0 rates ($startRate, $endRate) for a 0 duration")
 
-  override private[inject] val users: Long = chain(Iterator.empty).size
+  override private[inject] val users: Long = InjectionOffsets.count(offsets)
 
-  override private[inject] def chain(chained: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
+  override private[inject] def offsets: InjectionOffsets =
     if (startRate == 0 && endRate == 0) {
-      NothingForOpenInjection(duration).chain(chained)
+      InjectionOffsets.Empty
 
     } else {
       val durationSecs = duration.toSeconds
@@ -309,14 +238,31 @@ final case class PoissonOpenInjection private[inject] (duration: FiniteDuration,
         rand.nextDouble() < actualLambda / maxLambda
       }
 
-      val rawIntervals = Iterator.continually(-math.log(rand.nextDouble()) / maxLambda)
+      new InjectionOffsets {
+
+        // rolling sum of the random intervals, in seconds
+        private var t = 0.0
+        private var pending = false
+        private var exhausted = false
+
+        override def hasNext: Boolean = {
+          while (!pending && !exhausted) {
+            t += -math.log(rand.nextDouble()) / maxLambda
+            if (t >= durationSecs) {
+              exhausted = true
+            } else {
+              pending = shouldKeep(t)
+            }
+          }
+          pending
+        }
 
-      rawIntervals
-        .scanLeft(0.0)(_ + _) // Rolling sum
-        .drop(1) // Throw away first value of 0.0. It is not random, but a quirk of using scanLeft
-        .takeWhile(_ < durationSecs)
-        .filter(shouldKeep)
-        .map(_.seconds) ++ chained.map(_ + duration)
+        override def nextNanos(): Long = {
+          if (!hasNext) throw new NoSuchElementException
+          pending = false
+          (t * InjectionOffsets.NanosPerSecond).toLong
+        }
+      }
     }
 }
 
@@ -365,8 +311,8 @@ final case class IncreasingUsersPerSecCompositeStep private[inject] (
     CompositeOpenInjectionStep(injectionSteps)
   }
 
-  override private[inject] def chain(iterator: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
-    composite.chain(iterator)
+  override private[inject] def offsets: InjectionOffsets =
+    composite.offsets
 
   override private[inject] def users: Long =
     composite.users
@@ -374,10 +320,8 @@ final case class IncreasingUsersPerSecCompositeStep private[inject] (
 
 private[inject] final case class CompositeOpenInjectionStep private[inject] (steps: List[OpenInjectionStep]) extends OpenInjectionStep {
 
-  override private[inject] def chain(iterator: Iterator[FiniteDuration]): Iterator[FiniteDuration] =
-    steps.foldRight(iterator) { case (injectionStep, acc) =>
-      injectionStep.chain(acc)
-    }
+  override private[inject] def offsets: InjectionOffsets =
+    new ChainedInjectionOffsets(steps)
 
   override private[inject] def users: Long = steps.map(_.users).sum
 
@@ -26,7 +26,7 @@ import io.gatling.core.scenario.Scenario
 import io.gatling.core.stats.StatsEngine
 import io.gatling.core.stats.writer.UserEndMessage
 
-import io.netty.channel.EventLoopGroup
+import io.netty.channel.{ EventLoop, EventLoopGroup }
 
 class OpenWorkload(
     stream: UserStream,
@@ -36,12 +36,27 @@ class OpenWorkload(
     userIdGen: AtomicLong,
     startTime: Long,
     eventLoopGroup: EventLoopGroup,
+    arrivals: Arrivals,
     statsEngine: StatsEngine,
     clock: Clock
 ) extends Workload(scenario, userIdGen, eventLoopGroup, statsEngine, clock) {
 
+  private var batchNanos = 0L
+  private val injectUserFunction: Long => Unit = injectUser
+  private val startArrivedUser: EventLoop => Unit = eventLoop => startUser(userIdGen.incrementAndGet(), eventLoop)
+
+  override protected def injectUser(delayNanos: Long): Unit = {
+    incrementScheduledUsers()
+    arrivals.add(batchNanos + delayNanos, startArrivedUser)
+  }
+
+  /**
+   * Arrivals are only handed over to the event loops once the Injector is done injecting the batches of all the workloads.
+   */
   override def injectBatch(batchWindow: FiniteDuration): Unit = {
-    val result = stream.withStream(batchWindow, clock.nowMillis, startTime)(injectUser)
+    val injectTime = clock.nowMillis
+    batchNanos = System.nanoTime()
+    val result = stream.withStream(batchWindow, injectTime, startTime)(injectUserFunction)
     if (!isEmpty) {
       logger.debug(s"Injecting ${result.count} users in scenario ${scenario.name}, continue=${result.continue}")
     }
@@ -16,9 +16,9 @@
 
 package io.gatling.core.controller.inject.open
 
-import scala.concurrent.duration._
+import java.util.concurrent.TimeUnit
 
-import io.gatling.commons.util.PushbackIterator
+import scala.concurrent.duration._
 
 private[inject] object UserStreamBatchResult {
   val Empty = UserStreamBatchResult(0, continue = false)
@@ -27,30 +27,41 @@ private[inject] object UserStreamBatchResult {
 private[inject] final case class UserStreamBatchResult(count: Long, continue: Boolean)
 
 object UserStream {
-  def apply(steps: Iterable[OpenInjectionStep]): UserStream = {
-    val users = steps.foldRight(Iterator.empty: Iterator[FiniteDuration]) { (step, iterator) =>
-      step.chain(iterator)
-    }
-    new UserStream(users)
-  }
+  def apply(steps: Iterable[OpenInjectionStep]): UserStream =
+    new UserStream(new ChainedInjectionOffsets(steps))
 }
 
-private[inject] class UserStream(users: Iterator[FiniteDuration]) {
+private[inject] class UserStream(users: InjectionOffsets) {
+
+  // one element pushback, primitive so that streaming users doesn't box
+  private var pushedBack = false
+  private var pushedBackOffset = 0L
 
-  private val stream: PushbackIterator[FiniteDuration] = new PushbackIterator(users)
+  private def hasNext: Boolean = pushedBack || users.hasNext
+
+  private def next(): Long =
+    if (pushedBack) {
+      pushedBack = false
+      pushedBackOffset
+    } else {
+      users.nextNanos()
+    }
 
-  def withStream(batchWindow: FiniteDuration, injectTime: Long, startTime: Long)(f: FiniteDuration => Unit): UserStreamBatchResult =
-    if (stream.hasNext) {
-      val batchTimeOffset = (injectTime - startTime).millis
-      val nextBatchTimeOffset = batchTimeOffset + batchWindow
+  /**
+   * @param f called with the delay in nanoseconds of every user starting before the end of this batch
+   */
+  def withStream(batchWindow: FiniteDuration, injectTime: Long, startTime: Long)(f: Long => Unit): UserStreamBatchResult =
+    if (hasNext) {
+      val batchTimeOffset = TimeUnit.MILLISECONDS.toNanos(injectTime - startTime)
+      val nextBatchTimeOffset = batchTimeOffset + batchWindow.toNanos
 
       var continue = true
       var streamNonEmpty = true
       var count = 0L
 
       while (streamNonEmpty && continue) {
-        val startingTime = stream.next()
-        streamNonEmpty = stream.hasNext
+        val startingTime = next()
+        streamNonEmpty = hasNext
         val delay = startingTime - batchTimeOffset
         continue = startingTime < nextBatchTimeOffset
 
@@ -59,7 +70,8 @@ private[inject] class UserStream(users: Iterator[FiniteDuration]) {
           f(delay)
         } else {
           streamNonEmpty = true
-          stream.pushback(startingTime)
+          pushedBack = true
+          pushedBackOffset = startingTime
         }
       }
 
@@ -16,54 +16,203 @@
 
 package io.gatling.core.controller.throttle
 
+import java.lang.System.nanoTime
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger, AtomicLong }
+
+import scala.annotation.tailrec
+import scala.jdk.CollectionConverters._
+
+import io.gatling.commons.util.Collections._
+import io.gatling.core.config.{ ThrottleOverflowPolicy, ThrottlingConfiguration }
+import io.gatling.core.controller.{ Controller, ControllerCommand }
 import io.gatling.core.scenario.SimulationParams
 
 import akka.actor.{ ActorRef, ActorSystem, Props }
+import com.typesafe.scalalogging.StrictLogging
+import io.netty.channel.EventLoop
 
 final case class Throttles(global: Option[Throttle], perScenario: Map[String, Throttle]) {
 
-  def limitReached(scenario: String): Boolean =
-    global.map(_.limitReached) match {
-      case Some(true) => true
-      case _          => perScenario.collectFirst { case (`scenario`, throttle) => throttle.limitReached }.getOrElse(false)
+  /**
+   * Take a permit from both the global and the scenario throttles, or from none of them.
+   */
+  def tryAcquire(scenario: String): Boolean =
+    global match {
+      case Some(globalThrottle) =>
+        globalThrottle.tryAcquire() && {
+          val acquired = tryAcquirePerScenario(scenario)
+          if (!acquired) {
+            globalThrottle.release()
+          }
+          acquired
+        }
+      case _ => tryAcquirePerScenario(scenario)
     }
 
-  def increment(scenario: String): Unit = {
-    global.foreach(_.increment())
-    perScenario.get(scenario).foreach(_.increment())
+  private def tryAcquirePerScenario(scenario: String): Boolean =
+    perScenario.get(scenario) match {
+      case Some(throttle) => throttle.tryAcquire()
+      case _              => true
+    }
+
+  val requestStep: Double = {
+    val globalLimit = global.map(_.limit).getOrElse(Int.MaxValue)
+    val perScenarioLimit =
+      if (perScenario.isEmpty)
+        Int.MaxValue
+      else
+        perScenario.values.sumBy(_.limit)
+    val limit = math.min(globalLimit, perScenarioLimit)
+
+    1000.0 / limit
   }
 }
 
+/**
+ * Permits for one second, shared by all the event loops.
+ */
 class Throttle(val limit: Int) {
 
-  private var count: Int = 0
+  private val count = new AtomicInteger
+
+  @tailrec
+  final def tryAcquire(): Boolean = {
+    val current = count.get
+    if (current >= limit) {
+      false
+    } else if (count.compareAndSet(current, current + 1)) {
+      true
+    } else {
+      tryAcquire()
+    }
+  }
+
+  def release(): Unit = count.decrementAndGet()
 
-  def increment(): Unit = count += 1
+  def limitReached: Boolean = count.get >= limit
 
-  def limitReached: Boolean = count >= limit
+  override def toString = s"Throttle(limit=$limit, count=${count.get})"
+}
+
+/**
+ * The permits of the current second, and the pacing of the requests they let through.
+ */
+private[throttle] final class ThrottleWindow(val throttles: Throttles, tickNanos: Long) {
 
-  override def toString = s"Throttle(limit=$limit, count=$count)"
+  private val sent = new AtomicInteger
+
+  /**
+   * @return the delay, in milliseconds, after which the next request should be sent so they are spread over the second
+   */
+  def nextDelay(): Long = {
+    val index = sent.getAndIncrement()
+    if (index == 0) {
+      0L
+    } else {
+      (throttles.requestStep * index).toLong - (nanoTime - tickNanos) / 1000000
+    }
+  }
 }
 
 object Throttler {
 
-  private val ThrottlerActorName = "gatling-throttler"
   private val ThrottlerControllerActorName = "gatling-throttler-controller"
 
-  def newThrottler(system: ActorSystem, simulationParams: SimulationParams): Option[Throttler] =
+  def newThrottler(system: ActorSystem, simulationParams: SimulationParams, configuration: ThrottlingConfiguration): Option[Throttler] =
     if (simulationParams.throttlings.isEmpty) {
       None
     } else {
-      val throttler = system.actorOf(Props(new ThrottlerActor), ThrottlerActorName)
-      val throttlerController = system.actorOf(Props(new ThrottlerController(throttler, simulationParams.throttlings)), ThrottlerControllerActorName)
-      Some(new Throttler(throttlerController, throttler))
+      val shards = new ThrottlerShards(system, configuration)
+      val throttlerController = system.actorOf(Props(new ThrottlerController(shards, simulationParams.throttlings)), ThrottlerControllerActorName)
+      Some(new Throttler(throttlerController, shards))
     }
 }
 
-class Throttler(throttlerController: ActorRef, throttlerActor: ActorRef) {
+class Throttler(throttlerController: ActorRef, shards: ThrottlerShards) extends StrictLogging {
 
   def start(): Unit = throttlerController ! ThrottlerControllerCommand.Start
 
-  def throttle(scenarioName: String, action: () => Unit): Unit =
-    throttlerActor ! ThrottledRequest(scenarioName, action)
+  def throttle(scenarioName: String, eventLoop: EventLoop, action: () => Unit): Unit =
+    shards.throttle(scenarioName, eventLoop, action)
+
+  /**
+   * @return the number of requests currently held back, summed over all the event loops
+   */
+  def backlogDepth: Int = shards.backlogDepth
+
+  /**
+   * @return the number of requests that found their event loop's backlog full
+   */
+  def overflowCount: Long = shards.overflowCount
+
+  /**
+   * Log how much the throttle held requests back, as a warning if some of them overflowed.
+   */
+  def logSummary(): Unit =
+    if (shards.overflowCount > 0) {
+      logger.warn(shards.summary)
+    } else {
+      logger.info(shards.summary)
+    }
+}
+
+/**
+ * Throttled requests never go through a central actor: each event loop takes permits from atomic per second buckets
+ * that the [[ThrottlerController]] refills on every tick, and holds back the requests that didn't get one in its own bounded backlog
+ * until the next tick.
+ */
+private[throttle] final class ThrottlerShards(system: ActorSystem, configuration: ThrottlingConfiguration) extends StrictLogging {
+
+  private val shards = new ConcurrentHashMap[EventLoop, ThrottlerShard]
+  private val overflowed = new AtomicLong
+  private val crashed = new AtomicBoolean
+  @volatile private var window: ThrottleWindow = _
+  // only updated on ticks, from the ThrottlerController
+  @volatile private var _maxBacklogDepth = 0
+
+  def throttle(scenarioName: String, eventLoop: EventLoop, action: () => Unit): Unit =
+    shards.computeIfAbsent(eventLoop, new ThrottlerShard(_, this, configuration.backlogSize)).offer(ThrottledRequest(scenarioName, action))
+
+  def backlogDepth: Int = shards.values.asScala.sumBy(_.depth)
+
+  def overflowCount: Long = overflowed.get
+
+  /**
+   * @return the highest backlog depth, summed over all the event loops, seen on a tick, ie when backlogs are about to be drained
+   */
+  def maxBacklogDepth: Int = _maxBacklogDepth
+
+  def summary: String =
+    s"Throttler held back up to $maxBacklogDepth requests, $overflowCount requests overflowed backlogs of ${configuration.backlogSize} requests per event loop"
+
+  def currentWindow: ThrottleWindow = window
+
+  def refill(throttles: Throttles): Unit = {
+    val depth = backlogDepth
+    _maxBacklogDepth = math.max(_maxBacklogDepth, depth)
+    window = new ThrottleWindow(throttles, nanoTime)
+    shards.values.forEach(_.drainLater())
+    logger.debug(s"Refilled $throttles, $depth requests held back, $overflowCount overflowed")
+  }
+
+  def overflow(request: ThrottledRequest): Unit = {
+    val overflowCount = overflowed.incrementAndGet()
+    configuration.overflow match {
+      case ThrottleOverflowPolicy.Stop =>
+        if (crashed.compareAndSet(false, true)) {
+          Controller.controllerSelection(system) ! ControllerCommand.Crash(
+            new IllegalStateException(
+              s"Throttler backlog reached ${configuration.backlogSize} requests, the throttle can't keep up with the injection profile"
+            )
+          )
+        }
+
+      case ThrottleOverflowPolicy.Bypass =>
+        if (overflowCount == 1) {
+          logger.warn(s"Throttler backlog reached ${configuration.backlogSize} requests, sending overflowing requests without throttling")
+        }
+        request.request()
+    }
+  }
 }
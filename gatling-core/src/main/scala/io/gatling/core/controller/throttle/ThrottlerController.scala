@@ -18,8 +18,6 @@ package io.gatling.core.controller.throttle
 
 import scala.concurrent.duration._
 
-import akka.actor.ActorRef
-
 sealed trait ThrottlerControllerCommand
 
 object ThrottlerControllerCommand {
@@ -29,7 +27,7 @@ object ThrottlerControllerCommand {
   case object Tick extends ThrottlerControllerCommand
 }
 
-private[throttle] class ThrottlerController(throttler: ActorRef, defaults: Throttlings) extends ThrottlerControllerFSM {
+private[throttle] class ThrottlerController(throttler: ThrottlerShards, defaults: Throttlings) extends ThrottlerControllerFSM {
 
   import ThrottlerControllerCommand._
   import ThrottlerControllerData._
@@ -42,7 +40,7 @@ private[throttle] class ThrottlerController(throttler: ActorRef, defaults: Throt
       perScenario = throttlings.perScenario.view.mapValues(p => new Throttle(p.limit(tick))).to(Map)
     )
 
-    throttler ! throttles
+    throttler.refill(throttles)
   }
 
   startWith(WaitingToStart, NoData)
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.throttle
+
+import java.{ util => ju }
+import java.util.concurrent.TimeUnit
+
+import io.netty.channel.EventLoop
+
+private[throttle] final case class ThrottledRequest(scenarioName: String, request: () => Unit)
+
+/**
+ * The throttled requests of one event loop. Only ever touched from this event loop, except for the backlog depth.
+ */
+private[throttle] final class ThrottlerShard(eventLoop: EventLoop, throttler: ThrottlerShards, backlogSize: Int) {
+
+  private val backlog = new ju.ArrayDeque[ThrottledRequest]
+  @volatile private var backlogDepth = 0
+
+  private val drainTask: Runnable = () => drain()
+
+  def depth: Int = backlogDepth
+
+  def offer(request: ThrottledRequest): Unit =
+    if (eventLoop.inEventLoop) {
+      offer0(request)
+    } else {
+      eventLoop.execute(() => offer0(request))
+    }
+
+  def drainLater(): Unit = eventLoop.execute(drainTask)
+
+  private def offer0(request: ThrottledRequest): Unit = {
+    // backlogged requests go first, so that new ones can't take the permits of a refilled window ahead of them
+    if (!backlog.isEmpty) {
+      drain()
+    }
+    if (!backlog.isEmpty || !trySend(throttler.currentWindow, request)) {
+      if (backlog.size < backlogSize) {
+        backlog.addLast(request)
+        backlogDepth = backlog.size
+      } else {
+        throttler.overflow(request)
+      }
+    }
+  }
+
+  private def trySend(window: ThrottleWindow, request: ThrottledRequest): Boolean =
+    window != null && window.throttles.tryAcquire(request.scenarioName) && {
+      val delay = window.nextDelay()
+      if (delay <= 0) {
+        request.request()
+      } else {
+        eventLoop.schedule((() => request.request()): Runnable, delay, TimeUnit.MILLISECONDS)
+      }
+      true
+    }
+
+  private def drain(): Unit = {
+    val window = throttler.currentWindow
+    // requests that can't get a permit for their scenario must not hold back the ones of other scenarios
+    var remaining = backlog.size
+    while (remaining > 0 && window != null && !window.throttles.global.exists(_.limitReached)) {
+      val request = backlog.pollFirst()
+      if (!trySend(window, request)) {
+        backlog.addLast(request)
+      }
+      remaining -= 1
+    }
+    backlogDepth = backlog.size
+  }
+}
@@ -19,9 +19,14 @@ package io.gatling.core.feeder
 import scala.collection.AbstractIterator
 import scala.collection.immutable.{ AbstractMap, HashMap, Map }
 
+import io.gatling.core.session.{ AttributeSlot, SlottedAttributes }
+
 private[feeder] object ArrayBasedMap {
   def apply[K, V](keys: Array[K], values: Array[V]): ArrayBasedMap[K, V] =
     new ArrayBasedMap(keys, values, math.min(keys.length, values.length))
+
+  def apply(headers: Array[String], slots: Array[AttributeSlot], values: Array[String]): ArrayBasedMap[String, String] =
+    new SlottedArrayBasedMap(headers, slots, values)
 }
 
 private[feeder] class ArrayBasedMap[K, +V](keys: Array[K], values: Array[V], override val size: Int)
@@ -59,3 +64,17 @@ private[feeder] class ArrayBasedMap[K, +V](keys: Array[K], values: Array[V], ove
 
   override def removed(key: K): Map[K, V] = HashMap.empty[K, V] ++ this - key
 }
+
+/**
+ * Feeder record whose headers were resolved into attribute slots once for the whole source.
+ */
+private[feeder] final class SlottedArrayBasedMap(headers: Array[String], slots: Array[AttributeSlot], values: Array[String])
+    extends ArrayBasedMap[String, String](headers, values, math.min(headers.length, values.length))
+    with SlottedAttributes {
+
+  override def attributeSlots: Array[AttributeSlot] = slots
+
+  override def attributeValues: Array[_ <: AnyRef] = values
+
+  override def attributeCount: Int = size
+}
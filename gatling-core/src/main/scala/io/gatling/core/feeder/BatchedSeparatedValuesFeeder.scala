@@ -19,6 +19,7 @@ package io.gatling.core.feeder
 import java.io.File
 import java.nio.channels.{ FileChannel, ReadableByteChannel }
 import java.nio.charset.Charset
+import java.util.concurrent.ThreadLocalRandom
 
 import io.gatling.commons.util.Arrays
 
@@ -31,7 +32,8 @@ object BatchedSeparatedValuesFeeder {
       conversion: Option[Record[String] => Record[Any]],
       strategy: FeederStrategy,
       bufferSize: Int,
-      charset: Charset
+      charset: Charset,
+      persistIndex: Boolean
   ): Feeder[Any] = {
 
     val streamer: ReadableByteChannel => Feeder[String] = SeparatedValuesParser.stream(separator, quoteChar, charset)
@@ -41,10 +43,26 @@ object BatchedSeparatedValuesFeeder {
       () => FileChannel.open(path)
     }
 
+    // random access needs an index of the records' offsets, which is built with a raw bytes scan
+    def index: Option[SeparatedValuesIndex] =
+      if (ParallelSeparatedValuesParser.supports(charset, quoteChar, separator)) {
+        Some(SeparatedValuesIndex.open(file, separator, quoteChar, charset, persistIndex))
+      } else {
+        None
+      }
+
     val rawFeeder = strategy match {
-      case Queue    => new QueueBatchedSeparatedValuesFeeder(channelFactory, streamer)
-      case Random   => new RandomBatchedSeparatedValuesFeeder(channelFactory, streamer, bufferSize)
-      case Shuffle  => new ShuffleBatchedSeparatedValuesFeeder(channelFactory, streamer, bufferSize)
+      case Queue => new QueueBatchedSeparatedValuesFeeder(channelFactory, streamer)
+      case Random =>
+        index match {
+          case Some(idx) => new RandomIndexedSeparatedValuesFeeder(idx)
+          case _         => new RandomBatchedSeparatedValuesFeeder(channelFactory, streamer, bufferSize)
+        }
+      case Shuffle =>
+        index match {
+          case Some(idx) => new ShuffleIndexedSeparatedValuesFeeder(idx)
+          case _         => new ShuffleBatchedSeparatedValuesFeeder(channelFactory, streamer, bufferSize)
+        }
       case Circular => new CircularBatchedSeparatedValuesFeeder(channelFactory, streamer)
     }
 
@@ -165,3 +183,38 @@ class CircularBatchedSeparatedValuesFeeder(channelFactory: () => ReadableByteCha
     feeder.next()
   }
 }
+
+/**
+ * Uniformly random records over the whole file, read from the index.
+ */
+private[feeder] final class RandomIndexedSeparatedValuesFeeder(index: SeparatedValuesIndex) extends CloseableFeeder[String] {
+
+  override def hasNext: Boolean = index.length > 0
+
+  override def next(): Record[String] = {
+    if (index.length == 0) throw new NoSuchElementException
+    index(ThreadLocalRandom.current.nextInt(index.length))
+  }
+
+  override def close(): Unit = index.close()
+}
+
+/**
+ * Every record once, in an order shuffled over the whole file, at the cost of 4 more bytes per record.
+ */
+private[feeder] final class ShuffleIndexedSeparatedValuesFeeder(index: SeparatedValuesIndex) extends CloseableFeeder[String] {
+
+  private val permutation = Arrays.shuffle(Array.range(0, index.length))
+  private var i = 0
+
+  override def hasNext: Boolean = i < permutation.length
+
+  override def next(): Record[String] = {
+    if (!hasNext) throw new NoSuchElementException
+    val record = index(permutation(i))
+    i += 1
+    record
+  }
+
+  override def close(): Unit = index.close()
+}
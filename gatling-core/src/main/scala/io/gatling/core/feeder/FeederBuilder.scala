@@ -38,6 +38,12 @@ trait FileBasedFeederBuilder[T] extends FeederBuilderBase[T] {
 trait BatchableFeederBuilder[T] extends FileBasedFeederBuilder[T] {
   override type F <: BatchableFeederBuilder[T]
   def eager: BatchableFeederBuilder[T]
+
+  /**
+   * Load eagerly, but keep the records packed as bytes instead of one Map per row, and only materialize them when they're fed.
+   * Meant for large files that would otherwise take too much heap. Non file based sources are loaded eagerly.
+   */
+  def packed: BatchableFeederBuilder[T]
   def batch: BatchableFeederBuilder[T] = batch(Batch.DefaultBufferSize)
   def batch(bufferSize: Int): BatchableFeederBuilder[T]
 }
@@ -75,6 +81,7 @@ final case class SourceFeederBuilder[T](
   override def unzip: F = this.modify(_.options.unzip).setTo(true)
 
   override def eager: F = this.modify(_.options.loadingMode).setTo(Eager)
+  override def packed: F = this.modify(_.options.loadingMode).setTo(Packed)
   override def batch(bufferSize: Int): F = this.modify(_.options.loadingMode).setTo(Batch(bufferSize))
   override def shard: F = this.modify(_.options.shard).setTo(true)
 
@@ -83,6 +90,7 @@ final case class SourceFeederBuilder[T](
 
 private[feeder] trait FeederLoadingMode
 private[feeder] case object Eager extends FeederLoadingMode
+private[feeder] case object Packed extends FeederLoadingMode
 private[feeder] object Batch {
   val DefaultBufferSize: Int = 2000
 }
@@ -108,14 +108,22 @@ final class SeparatedValuesFeederSource(resource: Resource, separator: Char, quo
 
     def applyBatch(res: Resource): Feeder[Any] = {
       val charset = configuration.core.charset
+      // unzipped files are temporary, their index wouldn't be reused
+      val persistIndex = !options.unzip
       options.loadingMode match {
         case Batch(bufferSize) =>
-          BatchedSeparatedValuesFeeder(res.file, separator, quoteChar, options.conversion, options.strategy, bufferSize, charset)
+          BatchedSeparatedValuesFeeder(res.file, separator, quoteChar, options.conversion, options.strategy, bufferSize, charset, persistIndex)
         case Adaptive if res.file.length > configuration.core.feederAdaptiveLoadModeThreshold =>
-          BatchedSeparatedValuesFeeder(res.file, separator, quoteChar, options.conversion, options.strategy, Batch.DefaultBufferSize, charset)
+          BatchedSeparatedValuesFeeder(res.file, separator, quoteChar, options.conversion, options.strategy, Batch.DefaultBufferSize, charset, persistIndex)
+        case Packed =>
+          val records = Using.resource(FileChannel.open(res.file.toPath)) { channel =>
+            SeparatedValuesParser.packed(separator, quoteChar, charset)(channel)
+          }
+
+          InMemoryFeeder(records, options.conversion, options.strategy)
         case _ =>
           val records = Using.resource(FileChannel.open(res.file.toPath)) { channel =>
-            SeparatedValuesParser.stream(separator, quoteChar, charset)(channel).toVector
+            SeparatedValuesParser.eager(separator, quoteChar, charset)(channel)
           }
 
           InMemoryFeeder(records, options.conversion, options.strategy)
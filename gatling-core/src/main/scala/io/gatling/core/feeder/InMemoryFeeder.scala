@@ -17,22 +17,103 @@
 package io.gatling.core.feeder
 
 import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicInteger
 
-import io.gatling.commons.util.CircularIterator
+import scala.collection.AbstractIterator
+import scala.collection.immutable.AbstractSeq
+
+import io.gatling.commons.util.CyclicCounter
 
 object InMemoryFeeder {
 
   def apply[T](records: IndexedSeq[Record[T]], conversion: Option[Record[T] => Record[Any]], strategy: FeederStrategy): Feeder[Any] = {
     val convertedRecords = conversion match {
-      case Some(f) => records.map(f)
-      case _       => records
+      // converting packed records upfront would materialize all of them
+      case Some(f) if records.isInstanceOf[PackedRecords] => new ConvertedRecords(records, f)
+      case Some(f)                                         => records.map(f)
+      case _                                               => records
     }
 
     strategy match {
-      case Queue    => convertedRecords.iterator
-      case Random   => Iterator.continually(convertedRecords(ThreadLocalRandom.current.nextInt(records.length)))
-      case Shuffle  => scala.util.Random.shuffle(convertedRecords).iterator
-      case Circular => CircularIterator(convertedRecords, threadSafe = false)
+      case Queue    => new QueueInMemoryFeeder(convertedRecords)
+      case Random   => new RandomInMemoryFeeder(convertedRecords)
+      case Shuffle  => new QueueInMemoryFeeder(new ShuffledRecords(convertedRecords))
+      case Circular => new CircularInMemoryFeeder(convertedRecords)
+    }
+  }
+}
+
+/**
+ * Applies the conversion when a record is fed.
+ */
+private final class ConvertedRecords[T](records: IndexedSeq[Record[T]], f: Record[T] => Record[Any])
+    extends AbstractSeq[Record[Any]]
+    with IndexedSeq[Record[Any]] {
+
+  override def length: Int = records.length
+
+  override def apply(i: Int): Record[Any] = f(records(i))
+}
+
+/**
+ * Shuffles the indices of the records rather than the records themselves, so they don't have to be materialized.
+ */
+private final class ShuffledRecords[T](records: IndexedSeq[Record[T]]) extends AbstractSeq[Record[T]] with IndexedSeq[Record[T]] {
+
+  private val permutation: Array[Int] = {
+    val indices = Array.range(0, records.length)
+    val random = ThreadLocalRandom.current
+    // Fisher-Yates
+    var i = indices.length - 1
+    while (i > 0) {
+      val j = random.nextInt(i + 1)
+      val tmp = indices(i)
+      indices(i) = indices(j)
+      indices(j) = tmp
+      i -= 1
     }
+    indices
+  }
+
+  override def length: Int = records.length
+
+  override def apply(i: Int): Record[T] = records(permutation(i))
+}
+
+/**
+ * Hands every record once, in order, records being claimed with an atomic index.
+ */
+private final class QueueInMemoryFeeder[T](records: IndexedSeq[Record[T]]) extends AbstractIterator[Record[T]] with ConcurrentFeeder[T] {
+
+  private val index = new AtomicInteger
+
+  override def hasNext: Boolean = index.get < records.length
+
+  override def next(): Record[T] = {
+    val i = index.getAndIncrement()
+    if (i >= records.length || i < 0) throw new NoSuchElementException
+    records(i)
+  }
+}
+
+private final class RandomInMemoryFeeder[T](records: IndexedSeq[Record[T]]) extends AbstractIterator[Record[T]] with ConcurrentFeeder[T] {
+
+  override def hasNext: Boolean = records.nonEmpty
+
+  override def next(): Record[T] = {
+    if (records.isEmpty) throw new NoSuchElementException
+    records(ThreadLocalRandom.current.nextInt(records.length))
+  }
+}
+
+private final class CircularInMemoryFeeder[T](records: IndexedSeq[Record[T]]) extends AbstractIterator[Record[T]] with ConcurrentFeeder[T] {
+
+  private val counter = new CyclicCounter.ThreadSafe(records.length)
+
+  override def hasNext: Boolean = records.nonEmpty
+
+  override def next(): Record[T] = {
+    if (records.isEmpty) throw new NoSuchElementException
+    records(counter.nextVal)
   }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.{ Arrays => JArrays }
+
+import scala.collection.immutable.{ AbstractSeq, IndexedSeq }
+import scala.collection.mutable.ArrayBuffer
+
+private[feeder] object PackedRecords {
+
+  // rows per chunk, so that locating a row is a shift and a mask
+  private val ChunkShift = 16
+  private val ChunkRows = 1 << ChunkShift
+  private val ChunkMask = ChunkRows - 1
+
+  /**
+   * @param bytes the UTF-8 encoded values of the chunk's rows, one after the other
+   * @param valueEnds the end offset in bytes of every value
+   * @param rowStarts the index in valueEnds of every row's first value, plus the total number of values
+   */
+  private[feeder] final class Chunk(val bytes: Array[Byte], val valueEnds: Array[Int], val rowStarts: Array[Int])
+
+  final class Builder(headers: Array[String]) {
+
+    private val chunks = ArrayBuffer.empty[Chunk]
+    private var size = 0
+
+    private var bytes = new Array[Byte](64 * 1024)
+    private var bytesSize = 0
+    private var valueEnds = new Array[Int](1024)
+    private var valuesSize = 0
+    private var rowStarts = new Array[Int](ChunkRows + 1)
+    private var chunkRows = 0
+
+    /**
+     * @param values the row's values, like for ArrayBasedMap the ones past the headers are dropped
+     */
+    def add(values: Array[String]): Unit = {
+      rowStarts(chunkRows) = valuesSize
+      val length = math.min(headers.length, values.length)
+      var i = 0
+      while (i < length) {
+        val encoded = values(i).getBytes(UTF_8)
+        if (bytesSize + encoded.length > bytes.length) {
+          val newLength = math.max(bytes.length.toLong * 2, bytesSize.toLong + encoded.length)
+          require(newLength <= Int.MaxValue - 8, s"Feeder rows ${size - chunkRows} to $size weigh more than 2GB")
+          bytes = JArrays.copyOf(bytes, newLength.toInt)
+        }
+        System.arraycopy(encoded, 0, bytes, bytesSize, encoded.length)
+        bytesSize += encoded.length
+        if (valuesSize == valueEnds.length) {
+          valueEnds = JArrays.copyOf(valueEnds, valuesSize * 2)
+        }
+        valueEnds(valuesSize) = bytesSize
+        valuesSize += 1
+        i += 1
+      }
+      chunkRows += 1
+      size += 1
+      if (chunkRows == ChunkRows) {
+        flushChunk()
+      }
+    }
+
+    private def flushChunk(): Unit = {
+      rowStarts(chunkRows) = valuesSize
+      chunks += new Chunk(JArrays.copyOf(bytes, bytesSize), JArrays.copyOf(valueEnds, valuesSize), JArrays.copyOf(rowStarts, chunkRows + 1))
+      bytesSize = 0
+      valuesSize = 0
+      chunkRows = 0
+    }
+
+    def result(): PackedRecords = {
+      if (chunkRows > 0) {
+        flushChunk()
+      }
+      // release the work buffers
+      bytes = null
+      valueEnds = null
+      rowStarts = null
+      new PackedRecords(headers, chunks.toArray, size)
+    }
+  }
+}
+
+/**
+ * Eagerly loaded feeder records that don't keep a Map and String objects per row.
+ * Values are packed as UTF-8 bytes in large arrays, along with their offsets, and the header is shared by all rows.
+ * Records are only materialized when they're fed.
+ */
+private[feeder] final class PackedRecords private (headers: Array[String], chunks: Array[PackedRecords.Chunk], override val length: Int)
+    extends AbstractSeq[Record[String]]
+    with IndexedSeq[Record[String]] {
+
+  import PackedRecords._
+
+  private val slots = SeparatedValuesParser.slots(headers)
+
+  override def apply(i: Int): Record[String] = {
+    if (i < 0 || i >= length) throw new IndexOutOfBoundsException(s"$i is out of bounds (min 0, max ${length - 1})")
+    val chunk = chunks(i >>> ChunkShift)
+    val row = i & ChunkMask
+    val firstValue = chunk.rowStarts(row)
+    val values = new Array[String](chunk.rowStarts(row + 1) - firstValue)
+    var j = 0
+    while (j < values.length) {
+      val valueIndex = firstValue + j
+      val start = if (valueIndex == 0) 0 else chunk.valueEnds(valueIndex - 1)
+      values(j) = new String(chunk.bytes, start, chunk.valueEnds(valueIndex) - start, UTF_8)
+      j += 1
+    }
+    ArrayBasedMap(headers, slots, values)
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.io.CharArrayReader
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.{ Charset, StandardCharsets }
+import java.util.{ ArrayDeque => JArrayDeque, Iterator => JIterator }
+import java.util.concurrent.{ Callable, ForkJoinPool, ForkJoinTask }
+
+import scala.collection.mutable.ArrayBuffer
+
+import org.simpleflatmapper.lightningcsv.CsvParser
+
+/**
+ * Parses a memory mapped file by chunks of a few MB on a fork-join pool.
+ *
+ * Chunks are split on line feeds that are outside of quotes, so every chunk starts with a new record.
+ * Splitting works on raw bytes, hence only for charsets where those characters are always encoded as a single byte that can't be part of another character.
+ * Rows are returned in the file order, and only a few chunks are parsed ahead so the whole file never sits in memory as Strings.
+ */
+private[feeder] object ParallelSeparatedValuesParser {
+
+  private[feeder] val DefaultChunkSize: Int = 8 * 1024 * 1024
+
+  private val LineFeed: Byte = '\n'
+
+  private val SupportedCharsets = Set(StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1)
+
+  def supports(charset: Charset, quoteChar: Char, columnSeparator: Char): Boolean =
+    SupportedCharsets.contains(charset) && quoteChar < 0x80 && columnSeparator < 0x80
+
+  /**
+   * @return the rows of the file, headers included
+   */
+  def rows(
+      channel: FileChannel,
+      columnSeparator: Char,
+      quoteChar: Char,
+      charset: Charset,
+      pool: ForkJoinPool,
+      chunkSize: Int
+  ): JIterator[Array[String]] =
+    new ChunkedRowsIterator(channel, CsvParser.separator(columnSeparator).quote(quoteChar), quoteChar.toByte, charset, pool, chunkSize)
+
+  private final class ChunkedRowsIterator(
+      channel: FileChannel,
+      parser: CsvParser.DSL,
+      quote: Byte,
+      charset: Charset,
+      pool: ForkJoinPool,
+      chunkSize: Int
+  ) extends JIterator[Array[String]] {
+
+    private val fileSize = channel.size
+    private var position = skipUtf8Bom()
+    private val pendingChunks = new JArrayDeque[ForkJoinTask[Array[Array[String]]]]
+    private val maxPendingChunks = pool.getParallelism * 2
+    private var currentChunk: Array[Array[String]] = Array.empty
+    private var currentRow = 0
+
+    submitChunks()
+
+    private def skipUtf8Bom(): Long =
+      if (fileSize >= 3) {
+        val head = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3)
+        if (
+          head.get(0) == Utf8BomSkipReadableByteChannel.Utf8BomByte1 &&
+          head.get(1) == Utf8BomSkipReadableByteChannel.Utf8BomByte2 &&
+          head.get(2) == Utf8BomSkipReadableByteChannel.Utf8BomByte3
+        ) 3 else 0
+      } else {
+        0
+      }
+
+    // index of the byte right after the first line feed outside of quotes past chunkSize, or the buffer's limit
+    private def chunkEnd(buffer: ByteBuffer): Int = {
+      var inQuotes = false
+      var end = -1
+      var i = 0
+      while (end < 0 && i < buffer.limit()) {
+        val b = buffer.get(i)
+        if (b == quote) {
+          // escaped quotes toggle twice
+          inQuotes = !inQuotes
+        } else if (b == LineFeed && !inQuotes && i >= chunkSize) {
+          end = i + 1
+        }
+        i += 1
+      }
+      if (end < 0) buffer.limit() else end
+    }
+
+    private def submitChunks(): Unit =
+      while (position < fileSize && pendingChunks.size < maxPendingChunks) {
+        val length = math.min(fileSize - position, Int.MaxValue.toLong)
+        val buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+        val end = chunkEnd(buffer)
+        require(end < length || position + length == fileSize, s"Couldn't find a record boundary in the 2GB after offset $position")
+        val chunk = buffer
+        chunk.limit(end)
+        pendingChunks.add(pool.submit(new Callable[Array[Array[String]]] {
+          override def call(): Array[Array[String]] = parse(chunk)
+        }))
+        position += end
+      }
+
+    private def parse(chunk: ByteBuffer): Array[Array[String]] = {
+      val chars = charset.newDecoder.decode(chunk)
+      val it = parser.iterator(new CharArrayReader(chars.array, chars.arrayOffset + chars.position, chars.remaining))
+      val rows = ArrayBuffer.empty[Array[String]]
+      while (it.hasNext) {
+        rows += it.next()
+      }
+      rows.toArray
+    }
+
+    override def hasNext: Boolean = {
+      while (currentRow == currentChunk.length && !pendingChunks.isEmpty) {
+        currentChunk = pendingChunks.poll().join()
+        currentRow = 0
+        submitChunks()
+      }
+      currentRow < currentChunk.length
+    }
+
+    override def next(): Array[String] = {
+      if (!hasNext) throw new NoSuchElementException
+      val row = currentChunk(currentRow)
+      currentChunk(currentRow) = null
+      currentRow += 1
+      row
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.util.concurrent.ArrayBlockingQueue
+
+import scala.util.control.NonFatal
+
+import com.typesafe.scalalogging.StrictLogging
+
+object PrefetchingFeeder {
+
+  /**
+   * A remote source of records, only ever used from the prefetching thread.
+   */
+  trait Source[T] extends AutoCloseable {
+
+    /**
+     * Fetch the next page of records.
+     *
+     * @param push to be called with every fetched record, blocks when enough records are prefetched
+     * @return false once the source is exhausted
+     */
+    def fetch(push: Record[T] => Unit): Boolean
+  }
+
+  private object Poison
+}
+
+/**
+ * Fetches records from a background thread into a bounded queue, so that feeding only waits when the source can't keep up.
+ *
+ * Fetching starts as soon as the feeder is created, and closing interrupts it wherever it is, even in the middle of a page:
+ * records fetched but never fed are dropped, sources that consume what they fetch must document it.
+ *
+ * @param name the name of the source, for the thread name and error messages
+ * @param capacity the maximum number of records fetched ahead
+ */
+final class PrefetchingFeeder[T](name: String, capacity: Int, source: PrefetchingFeeder.Source[T]) extends CloseableFeeder[T] with StrictLogging {
+
+  import PrefetchingFeeder._
+
+  // records, then Poison once the source is exhausted
+  private val prefetched = new ArrayBlockingQueue[AnyRef](capacity + 1)
+  @volatile private var failure: Throwable = _
+  @volatile private var closed = false
+  private var nextRecord: AnyRef = _
+
+  private val fetchThread = new Thread(() => fetchLoop(), s"gatling-feeder-$name")
+  fetchThread.setDaemon(true)
+  fetchThread.start()
+
+  private def fetchLoop(): Unit =
+    try {
+      val push: Record[T] => Unit = prefetched.put
+      while (!closed && source.fetch(push)) {}
+      prefetched.put(Poison)
+    } catch {
+      case _: InterruptedException => // closed
+      case NonFatal(e) =>
+        logger.error(s"Failed to fetch records from $name", e)
+        failure = e
+        prefetched.put(Poison)
+    } finally {
+      try {
+        source.close()
+      } catch {
+        case NonFatal(e) => logger.info(s"Failed to close $name", e)
+      }
+    }
+
+  override def hasNext: Boolean = {
+    if (nextRecord == null) {
+      nextRecord = prefetched.take()
+    }
+    if ((nextRecord eq Poison) && failure != null) {
+      throw new IllegalStateException(s"Failed to fetch records from $name", failure)
+    }
+    nextRecord ne Poison
+  }
+
+  override def next(): Record[T] = {
+    if (!hasNext) throw new NoSuchElementException
+    val record = nextRecord.asInstanceOf[Record[T]]
+    nextRecord = null
+    record
+  }
+
+  override def close(): Unit = {
+    closed = true
+    fetchThread.interrupt()
+  }
+}
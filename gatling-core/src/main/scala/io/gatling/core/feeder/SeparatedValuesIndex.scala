@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.io._
+import java.nio.{ ByteBuffer, MappedByteBuffer }
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.file.{ Files, StandardCopyOption }
+import java.util.{ Arrays => JArrays }
+
+import scala.util.Using
+import scala.util.control.NonFatal
+
+import org.simpleflatmapper.lightningcsv.CsvParser
+
+import com.typesafe.scalalogging.LazyLogging
+
+private[feeder] object SeparatedValuesIndex extends LazyLogging {
+
+  private val Magic = 0x4761746c // "Gatl"
+  private val Version = 1
+
+  // mapped segments overlap, so that records crossing a segment boundary can still be read from a single one
+  private val SegmentShift = 30
+  private val SegmentSize = 1L << SegmentShift
+  private val SegmentOverlap = 1024 * 1024
+
+  private val LineFeed: Byte = '\n'
+  private val CarriageReturn: Byte = '\r'
+
+  def indexFile(file: File): File = new File(file.getParentFile, s"${file.getName}.idx")
+
+  /**
+   * @param persist if the index should be stored next to the file, and reused as long as the file isn't modified
+   */
+  def open(file: File, separator: Char, quoteChar: Char, charset: Charset, persist: Boolean): SeparatedValuesIndex = {
+    val offsets =
+      if (persist) {
+        read(file, quoteChar).getOrElse {
+          val built = build(file, quoteChar)
+          write(file, quoteChar, built)
+          built
+        }
+      } else {
+        build(file, quoteChar)
+      }
+
+    new SeparatedValuesIndex(FileChannel.open(file.toPath), offsets, CsvParser.separator(separator).quote(quoteChar), charset)
+  }
+
+  /**
+   * Scans the file once for the line feeds outside of quotes.
+   *
+   * @return the start offsets of the header and of every non blank record, followed by the file size
+   */
+  private[feeder] def build(file: File, quoteChar: Char): Array[Long] = {
+    val quote = quoteChar.toByte
+    var offsets = new Array[Long](1024)
+    var size = 0
+
+    def add(offset: Long): Unit = {
+      if (size == offsets.length) {
+        offsets = JArrays.copyOf(offsets, size * 2)
+      }
+      offsets(size) = offset
+      size += 1
+    }
+
+    Using.resource(FileChannel.open(file.toPath)) { channel =>
+      val buffer = ByteBuffer.allocate(64 * 1024)
+      var position = 0L
+      var recordStart = 0L
+      var blankRecord = true
+      var inQuotes = false
+
+      while (channel.read(buffer) >= 0) {
+        buffer.flip()
+        while (buffer.hasRemaining) {
+          val b = buffer.get()
+          if (position < 3 && recordStart == position && isBomByte(position, b)) {
+            // UTF-8 BOM
+            recordStart += 1
+          } else if (b == quote) {
+            // escaped quotes toggle twice
+            inQuotes = !inQuotes
+            blankRecord = false
+          } else if (b == LineFeed && !inQuotes) {
+            if (!blankRecord) {
+              add(recordStart)
+            }
+            recordStart = position + 1
+            blankRecord = true
+          } else if (b != CarriageReturn) {
+            blankRecord = false
+          }
+          position += 1
+        }
+        buffer.clear()
+      }
+
+      if (!blankRecord) {
+        add(recordStart)
+      }
+      require(size > 0, "Feeder source is empty")
+      add(position)
+    }
+
+    JArrays.copyOf(offsets, size)
+  }
+
+  private def isBomByte(position: Long, b: Byte): Boolean =
+    position match {
+      case 0 => b == Utf8BomSkipReadableByteChannel.Utf8BomByte1
+      case 1 => b == Utf8BomSkipReadableByteChannel.Utf8BomByte2
+      case _ => b == Utf8BomSkipReadableByteChannel.Utf8BomByte3
+    }
+
+  private def read(file: File, quoteChar: Char): Option[Array[Long]] = {
+    val index = indexFile(file)
+    if (index.exists) {
+      try {
+        Using.resource(new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) { is =>
+          if (
+            is.readInt() == Magic &&
+            is.readInt() == Version &&
+            is.readLong() == file.length &&
+            is.readLong() == file.lastModified &&
+            is.readChar() == quoteChar
+          ) {
+            val offsets = new Array[Long](is.readInt())
+            for (i <- offsets.indices) {
+              offsets(i) = is.readLong()
+            }
+            Some(offsets)
+          } else {
+            logger.debug(s"Index ${index.getAbsolutePath} is stale, rebuilding it")
+            None
+          }
+        }
+      } catch {
+        case NonFatal(e) =>
+          logger.debug(s"Couldn't read index ${index.getAbsolutePath}, rebuilding it", e)
+          None
+      }
+    } else {
+      None
+    }
+  }
+
+  private def write(file: File, quoteChar: Char, offsets: Array[Long]): Unit = {
+    val index = indexFile(file)
+    var tmp: File = null
+    try {
+      tmp = File.createTempFile(index.getName, ".tmp", file.getParentFile)
+      Using.resource(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) { os =>
+        os.writeInt(Magic)
+        os.writeInt(Version)
+        os.writeLong(file.length)
+        os.writeLong(file.lastModified)
+        os.writeChar(quoteChar)
+        os.writeInt(offsets.length)
+        offsets.foreach(os.writeLong)
+      }
+      Files.move(tmp.toPath, index.toPath, StandardCopyOption.REPLACE_EXISTING): Unit
+    } catch {
+      case NonFatal(e) =>
+        // eg read only directory, the index will simply be rebuilt next time
+        logger.debug(s"Couldn't write index ${index.getAbsolutePath}", e)
+        if (tmp != null) {
+          tmp.delete(): Unit
+        }
+    }
+  }
+}
+
+/**
+ * Random access to the records of a separated values file, based on the offsets of its records.
+ * Memory usage is 8 bytes per record, records being read from the memory mapped file.
+ *
+ * Not thread safe.
+ */
+private[feeder] final class SeparatedValuesIndex(channel: FileChannel, offsets: Array[Long], parser: CsvParser.DSL, charset: Charset) extends Closeable {
+
+  import SeparatedValuesIndex._
+
+  private val segments = new Array[MappedByteBuffer]((((channel.size - 1) >> SegmentShift) + 1).toInt)
+
+  val headers: Array[String] = {
+    val it = parser.iterator(new StringReader(new String(bytes(offsets(0), offsets(1)), charset)))
+    SeparatedValuesParser.readHeaders(it)
+  }
+
+  private val slots = SeparatedValuesParser.slots(headers)
+
+  def length: Int = offsets.length - 2
+
+  private def segment(i: Int): MappedByteBuffer = {
+    var segment = segments(i)
+    if (segment == null) {
+      val start = i * SegmentSize
+      segment = channel.map(FileChannel.MapMode.READ_ONLY, start, math.min(channel.size - start, SegmentSize + SegmentOverlap))
+      segments(i) = segment
+    }
+    segment
+  }
+
+  private def bytes(start: Long, end: Long): Array[Byte] = {
+    val length = end - start
+    require(length <= Int.MaxValue, s"Record at offset $start is larger than 2GB")
+    val bytes = new Array[Byte](length.toInt)
+    val segmentStart = start & (SegmentSize - 1)
+    if (segmentStart + length <= SegmentSize + SegmentOverlap) {
+      val buffer = segment((start >> SegmentShift).toInt).duplicate()
+      buffer.position(segmentStart.toInt)
+      buffer.get(bytes): Unit
+    } else {
+      // huge record crossing the segment boundary
+      val buffer = ByteBuffer.wrap(bytes)
+      while (buffer.hasRemaining) {
+        channel.read(buffer, start + buffer.position): Unit
+      }
+    }
+    bytes
+  }
+
+  def apply(i: Int): Record[String] = {
+    if (i < 0 || i >= length) throw new IndexOutOfBoundsException(s"$i is out of bounds (min 0, max ${length - 1})")
+    // the record's bytes might end with blank lines, only the first row matters
+    val it = parser.iterator(new StringReader(new String(bytes(offsets(i + 1), offsets(i + 2)), charset)))
+    ArrayBasedMap(headers, slots, it.next())
+  }
+
+  override def close(): Unit = channel.close()
+}
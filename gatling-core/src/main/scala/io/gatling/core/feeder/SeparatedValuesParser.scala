@@ -16,11 +16,15 @@
 
 package io.gatling.core.feeder
 
-import java.nio.channels.{ Channels, ReadableByteChannel }
+import java.nio.channels.{ Channels, FileChannel, ReadableByteChannel }
 import java.nio.charset.Charset
+import java.{ util => ju }
+import java.util.concurrent.ForkJoinPool
 
 import scala.jdk.CollectionConverters._
 
+import io.gatling.core.session.AttributeSlot
+
 import org.simpleflatmapper.lightningcsv.CsvParser
 
 object SeparatedValuesParser {
@@ -31,7 +35,20 @@ object SeparatedValuesParser {
   val SemicolonSeparator: Char = ';'
   val TabulationSeparator: Char = '\t'
 
-  def stream(columnSeparator: Char, quoteChar: Char, charset: Charset): ReadableByteChannel => Feeder[String] = {
+  private[feeder] def readHeaders(it: ju.Iterator[Array[String]]): Array[String] = {
+    require(it.hasNext, "Feeder source is empty")
+    val headers = it.next().map(_.trim)
+    require(headers.nonEmpty, "CSV sources must have a non empty first line containing the headers")
+    headers.foreach { header =>
+      require(header.nonEmpty, "CSV headers can't be empty")
+    }
+    headers
+  }
+
+  // resolved once per source, so that feeding writes records through their slots, see CompactAttributes
+  private[feeder] def slots(headers: Array[String]): Array[AttributeSlot] = headers.map(AttributeSlot(_))
+
+  private def rows(columnSeparator: Char, quoteChar: Char, charset: Charset): ReadableByteChannel => (Array[String], ju.Iterator[Array[String]]) = {
     val parser = CsvParser
       .separator(columnSeparator)
       .quote(quoteChar)
@@ -39,15 +56,62 @@ object SeparatedValuesParser {
     channel => {
       val reader = Channels.newReader(new Utf8BomSkipReadableByteChannel(channel), charset.newDecoder, -1)
       val it = parser.iterator(reader)
+      (readHeaders(it), it)
+    }
+  }
+
+  // files big enough to be split in a few chunks are parsed in parallel
+  private def fileRows(columnSeparator: Char, quoteChar: Char, charset: Charset): FileChannel => (Array[String], ju.Iterator[Array[String]]) = {
+    val sequentialRows = rows(columnSeparator, quoteChar, charset)
 
-      require(it.hasNext, "Feeder source is empty")
-      val headers = it.next().map(_.trim)
-      require(headers.nonEmpty, "CSV sources must have a non empty first line containing the headers")
-      headers.foreach { header =>
-        require(header.nonEmpty, "CSV headers can't be empty")
+    channel =>
+      if (
+        channel.size > ParallelSeparatedValuesParser.DefaultChunkSize * 2L &&
+        ParallelSeparatedValuesParser.supports(charset, quoteChar, columnSeparator)
+      ) {
+        val it =
+          ParallelSeparatedValuesParser.rows(channel, columnSeparator, quoteChar, charset, ForkJoinPool.commonPool, ParallelSeparatedValuesParser.DefaultChunkSize)
+        (readHeaders(it), it)
+      } else {
+        sequentialRows(channel)
       }
+  }
+
+  private def isEmptyRow(row: Array[String]): Boolean = row.length == 1 && row(0).isEmpty
+
+  def stream(columnSeparator: Char, quoteChar: Char, charset: Charset): ReadableByteChannel => Feeder[String] = {
+    val rowsReader = rows(columnSeparator, quoteChar, charset)
 
-      it.asScala.collect { case row if !(row.length == 1 && row(0).isEmpty) => ArrayBasedMap(headers, row) }
+    channel => {
+      val (headers, it) = rowsReader(channel)
+      val headerSlots = slots(headers)
+      it.asScala.collect { case row if !isEmptyRow(row) => ArrayBasedMap(headers, headerSlots, row) }
+    }
+  }
+
+  private[feeder] def eager(columnSeparator: Char, quoteChar: Char, charset: Charset): FileChannel => IndexedSeq[Record[String]] = {
+    val rowsReader = fileRows(columnSeparator, quoteChar, charset)
+
+    channel => {
+      val (headers, it) = rowsReader(channel)
+      val headerSlots = slots(headers)
+      it.asScala.collect { case row if !isEmptyRow(row) => ArrayBasedMap(headers, headerSlots, row) }.toVector
+    }
+  }
+
+  private[feeder] def packed(columnSeparator: Char, quoteChar: Char, charset: Charset): FileChannel => PackedRecords = {
+    val rowsReader = fileRows(columnSeparator, quoteChar, charset)
+
+    channel => {
+      val (headers, it) = rowsReader(channel)
+      val builder = new PackedRecords.Builder(headers)
+      while (it.hasNext) {
+        val row = it.next()
+        if (!isEmptyRow(row)) {
+          builder.add(row)
+        }
+      }
+      builder.result()
     }
   }
 }
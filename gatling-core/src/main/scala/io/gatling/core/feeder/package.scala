@@ -24,5 +24,11 @@ package object feeder {
 
   trait CloseableFeeder[T] extends Feeder[T] with AutoCloseable
 
+  /**
+   * A Feeder whose next can be called from concurrent threads.
+   * Feed steps pull such feeders inline on the virtual users' event loops instead of going through a FeedActor.
+   */
+  trait ConcurrentFeeder[T] extends Feeder[T]
+
   type FeederBuilder = () => Feeder[Any]
 }
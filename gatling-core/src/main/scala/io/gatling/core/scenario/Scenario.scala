@@ -26,6 +26,7 @@ final class Scenario(
     val entry: Action,
     val onStart: Session => Session,
     val onExit: Session => Unit,
+    val emptyAttributes: Map[String, Any],
     var injectionProfile: InjectionProfile,
     val ctx: ScenarioContext,
     val children: Iterable[Scenario]
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.session
+
+import io.gatling.core.stats.Interner
+
+/**
+ * Attribute names known when the simulation is built (EL expressions, checks' saveAs, feeders' columns) get a JVM wide slot,
+ * so that CompactAttributes can find their values by slot index instead of hashing their names.
+ * Each session only holds the slots it has values for, so the number of registered names doesn't make sessions bigger.
+ * Names only known at runtime are never registered and fall back to hashing.
+ */
+object AttributeSlot {
+
+  private val slots = new Interner[String]
+
+  def apply(name: String): AttributeSlot = {
+    val index = slots.id(name)
+    new AttributeSlot(slots.value(index), index)
+  }
+}
+
+final class AttributeSlot private (val name: String, val index: Int) {
+
+  override def toString: String = s"AttributeSlot($name, $index)"
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.session
+
+import scala.collection.AbstractIterator
+import scala.collection.immutable.AbstractMap
+
+object CompactAttributes {
+
+  private val MinCapacity = 8
+
+  private val NoSlots = new Array[AttributeSlot](0)
+
+  val Empty: CompactAttributes = new CompactAttributes(NoSlots, new Array[AnyRef](0), new Array[AnyRef](MinCapacity * 2), 0)
+
+  def apply(attributes: IterableOnce[(String, Any)]): CompactAttributes =
+    Empty.concat(attributes)
+
+  private def hash(key: String): Int = {
+    val h = key.hashCode
+    h ^ (h >>> 16)
+  }
+
+  // smallest power of 2 holding size entries with a load factor of at most 3/4
+  private def capacityFor(size: Int): Int = {
+    var capacity = MinCapacity
+    while (size * 4 > capacity * 3) {
+      capacity *= 2
+    }
+    capacity
+  }
+
+  // position of the slot if present, otherwise -(position where to insert it) - 1
+  private def slotPosition(slots: Array[AttributeSlot], index: Int): Int = {
+    var low = 0
+    var high = slots.length - 1
+    var result = -1
+    while (result < 0 && low <= high) {
+      val mid = (low + high) >>> 1
+      val midIndex = slots(mid).index
+      if (midIndex < index) {
+        low = mid + 1
+      } else if (midIndex > index) {
+        high = mid - 1
+      } else {
+        result = mid
+      }
+    }
+    if (result >= 0) result else -low - 1
+  }
+
+  // position of the slot named key if present, -1 otherwise, String caching its hash code
+  private def namedSlotPosition(slots: Array[AttributeSlot], key: String): Int = {
+    val h = key.hashCode
+    var i = 0
+    var result = -1
+    while (result < 0 && i < slots.length) {
+      val name = slots(i).name
+      if ((name eq key) || (name.hashCode == h && name == key)) {
+        result = i
+      }
+      i += 1
+    }
+    result
+  }
+
+  // slot of the key if present, otherwise -(empty slot where to insert it) - 1
+  private def tableSlot(table: Array[AnyRef], key: String): Int = {
+    val mask = (table.length >> 1) - 1
+    var i = hash(key) & mask
+    var result = 0
+    var searching = true
+    while (searching) {
+      val k = table(i << 1)
+      if (k == null) {
+        result = -i - 1
+        searching = false
+      } else if ((k eq key) || k == key) {
+        result = i
+        searching = false
+      } else {
+        i = (i + 1) & mask
+      }
+    }
+    result
+  }
+
+  // backward shift deletion, so that lookups never need tombstones
+  private def deleteTableSlot(table: Array[AnyRef], slot: Int): Unit = {
+    val mask = (table.length >> 1) - 1
+    var hole = slot
+    var i = (hole + 1) & mask
+    var k = table(i << 1)
+    while (k != null) {
+      val home = hash(k.asInstanceOf[String]) & mask
+      // move the entry into the hole unless its home slot is cyclically in (hole, i]
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        table(hole << 1) = k
+        table((hole << 1) + 1) = table((i << 1) + 1)
+        hole = i
+      }
+      i = (i + 1) & mask
+      k = table(i << 1)
+    }
+    table(hole << 1) = null
+    table((hole << 1) + 1) = null
+  }
+
+  /**
+   * Works on private copies of the arrays, so that a batch of updates only copies them once.
+   */
+  private final class Builder(from: CompactAttributes) {
+
+    private var slots: Array[AttributeSlot] = from.slots
+    private var slotValues: Array[AnyRef] = from.slotValues
+    private var slotValuesOwned = false
+    private var table: Array[AnyRef] = from.table
+    private var tableOwned = false
+    private var tableSize: Int = from.tableSize
+
+    def size: Int = slots.length + tableSize
+
+    private def rehash(capacity: Int): Unit = {
+      val newTable = new Array[AnyRef](capacity * 2)
+      var i = 0
+      while (i < table.length) {
+        val k = table(i)
+        if (k != null) {
+          val j = -tableSlot(newTable, k.asInstanceOf[String]) - 1
+          newTable(j << 1) = k
+          newTable((j << 1) + 1) = table(i + 1)
+        }
+        i += 2
+      }
+      table = newTable
+      tableOwned = true
+    }
+
+    private def ownTable(): Unit =
+      if (!tableOwned) {
+        table = table.clone()
+        tableOwned = true
+      }
+
+    private def ownSlotValues(): Unit =
+      if (!slotValuesOwned) {
+        slotValues = slotValues.clone()
+        slotValuesOwned = true
+      }
+
+    // slot arrays are resized on insertion and removal, so that they only hold this session's entries
+    private def insertSlot(position: Int, slot: AttributeSlot, value: Any): Unit = {
+      val newSlots = new Array[AttributeSlot](slots.length + 1)
+      val newSlotValues = new Array[AnyRef](slots.length + 1)
+      System.arraycopy(slots, 0, newSlots, 0, position)
+      System.arraycopy(slotValues, 0, newSlotValues, 0, position)
+      newSlots(position) = slot
+      newSlotValues(position) = value.asInstanceOf[AnyRef]
+      System.arraycopy(slots, position, newSlots, position + 1, slots.length - position)
+      System.arraycopy(slotValues, position, newSlotValues, position + 1, slots.length - position)
+      slots = newSlots
+      slotValues = newSlotValues
+      slotValuesOwned = true
+    }
+
+    private def deleteSlot(position: Int): Unit = {
+      val newSlots = new Array[AttributeSlot](slots.length - 1)
+      val newSlotValues = new Array[AnyRef](slots.length - 1)
+      System.arraycopy(slots, 0, newSlots, 0, position)
+      System.arraycopy(slotValues, 0, newSlotValues, 0, position)
+      System.arraycopy(slots, position + 1, newSlots, position, slots.length - position - 1)
+      System.arraycopy(slotValues, position + 1, newSlotValues, position, slots.length - position - 1)
+      slots = newSlots
+      slotValues = newSlotValues
+      slotValuesOwned = true
+    }
+
+    private def removeFromTable(key: String): Boolean =
+      tableSize > 0 && {
+        val i = tableSlot(table, key)
+        i >= 0 && {
+          ownTable()
+          deleteTableSlot(table, i)
+          tableSize -= 1
+          true
+        }
+      }
+
+    def put(slot: AttributeSlot, value: Any): Unit = {
+      val position = slotPosition(slots, slot.index)
+      if (position >= 0) {
+        ownSlotValues()
+        slotValues(position) = value.asInstanceOf[AnyRef]
+      } else {
+        // the name may have been stored by name before
+        removeFromTable(slot.name)
+        insertSlot(-position - 1, slot, value)
+      }
+    }
+
+    def put(key: String, value: Any): Unit = {
+      val i = tableSlot(table, key)
+      if (i >= 0) {
+        ownTable()
+        table((i << 1) + 1) = value.asInstanceOf[AnyRef]
+      } else {
+        val position = namedSlotPosition(slots, key)
+        if (position >= 0) {
+          ownSlotValues()
+          slotValues(position) = value.asInstanceOf[AnyRef]
+        } else {
+          val capacity = capacityFor(tableSize + 1)
+          val j =
+            if (capacity * 2 == table.length) {
+              ownTable()
+              -i - 1
+            } else {
+              rehash(capacity)
+              -tableSlot(table, key) - 1
+            }
+          table(j << 1) = key
+          table((j << 1) + 1) = value.asInstanceOf[AnyRef]
+          tableSize += 1
+        }
+      }
+    }
+
+    def remove(key: String): Unit =
+      if (!removeFromTable(key)) {
+        val position = namedSlotPosition(slots, key)
+        if (position >= 0) {
+          deleteSlot(position)
+        }
+      }
+
+    def result(): CompactAttributes =
+      if (size == 0) Empty else new CompactAttributes(slots, slotValues, table, tableSize)
+  }
+}
+
+/**
+ * Immutable attributes map tuned for the virtual users' sessions: a few dozens of string keys, updated a few times per request.
+ *
+ * Values written through an [[AttributeSlot]] live in arrays sorted by slot index, holding only this session's slotted entries,
+ * so that pre-resolved reads and writes are a binary search over a few ints instead of hashing and comparing names.
+ * Values written by name live in an open addressing table with linear probing, keys and values interleaved.
+ * A name lives in one of them only: lookups by name probe the table first, then compare the slots' names.
+ * An update copies those arrays at most once, instead of allocating an entry tuple, a path of trie nodes and a wrapper like a HashMap does.
+ * Arrays are never mutated once shared, so instances can be passed around like any other immutable Map.
+ *
+ * @param slots the slots of the entries written through one, sorted by index
+ * @param slotValues the values of those entries, in the same order
+ * @param table the interleaved keys and values of the entries written by name, whose length is twice a power of 2, null keys denoting empty slots
+ * @param tableSize the number of entries in table
+ */
+final class CompactAttributes private (
+    private val slots: Array[AttributeSlot],
+    private val slotValues: Array[AnyRef],
+    private val table: Array[AnyRef],
+    private val tableSize: Int
+) extends AbstractMap[String, Any] {
+
+  import CompactAttributes._
+
+  override val size: Int = slots.length + tableSize
+
+  private def tableValueIndex(key: String): Int =
+    if (tableSize == 0) {
+      -1
+    } else {
+      val i = tableSlot(table, key)
+      if (i >= 0) (i << 1) + 1 else -1
+    }
+
+  override def knownSize: Int = size
+
+  override def isEmpty: Boolean = size == 0
+
+  override def get(key: String): Option[Any] = {
+    val i = tableValueIndex(key)
+    if (i >= 0) {
+      Some(table(i))
+    } else {
+      val position = namedSlotPosition(slots, key)
+      if (position >= 0) Some(slotValues(position)) else None
+    }
+  }
+
+  override def contains(key: String): Boolean =
+    tableValueIndex(key) >= 0 || namedSlotPosition(slots, key) >= 0
+
+  override def getOrElse[V1 >: Any](key: String, default: => V1): V1 = {
+    val i = tableValueIndex(key)
+    if (i >= 0) {
+      table(i)
+    } else {
+      val position = namedSlotPosition(slots, key)
+      if (position >= 0) slotValues(position) else default
+    }
+  }
+
+  override def apply(key: String): Any = getOrElse(key, default(key))
+
+  /**
+   * Lookup of an attribute whose name was resolved when the simulation was built.
+   */
+  def valueOrElse(slot: AttributeSlot, default: Any): Any = {
+    val position = slotPosition(slots, slot.index)
+    if (position >= 0) {
+      slotValues(position)
+    } else {
+      // the attribute may have been written by name
+      val i = tableValueIndex(slot.name)
+      if (i >= 0) table(i) else default
+    }
+  }
+
+  def updatedSlot(slot: AttributeSlot, value: Any): CompactAttributes = {
+    val position = slotPosition(slots, slot.index)
+    if (position >= 0 && (slotValues(position) eq value.asInstanceOf[AnyRef])) {
+      this
+    } else {
+      val builder = new Builder(this)
+      builder.put(slot, value)
+      builder.result()
+    }
+  }
+
+  /**
+   * Batch of updates through slots, like a feeder record whose column names were resolved when the simulation was built.
+   */
+  def concatSlots(newSlots: Array[AttributeSlot], values: Array[_ <: AnyRef], length: Int): CompactAttributes =
+    if (length == 0) {
+      this
+    } else {
+      val builder = new Builder(this)
+      var i = 0
+      while (i < length) {
+        builder.put(newSlots(i), values(i))
+        i += 1
+      }
+      builder.result()
+    }
+
+  override def updated[V1 >: Any](key: String, value: V1): CompactAttributes = {
+    val unchanged = {
+      val i = tableValueIndex(key)
+      if (i >= 0) {
+        table(i) eq value.asInstanceOf[AnyRef]
+      } else {
+        val position = namedSlotPosition(slots, key)
+        position >= 0 && (slotValues(position) eq value.asInstanceOf[AnyRef])
+      }
+    }
+
+    if (unchanged) {
+      this
+    } else {
+      val builder = new Builder(this)
+      builder.put(key, value)
+      builder.result()
+    }
+  }
+
+  override def removed(key: String): CompactAttributes =
+    if (!contains(key)) {
+      this
+    } else {
+      val builder = new Builder(this)
+      builder.remove(key)
+      builder.result()
+    }
+
+  override def concat[V1 >: Any](suffix: IterableOnce[(String, V1)]): CompactAttributes = {
+    val it = suffix.iterator
+    if (!it.hasNext) {
+      this
+    } else {
+      val builder = new Builder(this)
+      while (it.hasNext) {
+        val (key, value) = it.next()
+        builder.put(key, value)
+      }
+      builder.result()
+    }
+  }
+
+  override def filter(pred: ((String, Any)) => Boolean): CompactAttributes =
+    filterImpl(pred, isFlipped = false)
+
+  override def filterNot(pred: ((String, Any)) => Boolean): CompactAttributes =
+    filterImpl(pred, isFlipped = true)
+
+  private def filterImpl(pred: ((String, Any)) => Boolean, isFlipped: Boolean): CompactAttributes = {
+    val builder = new Builder(Empty)
+    var i = 0
+    while (i < slots.length) {
+      if (pred((slots(i).name, slotValues(i))) != isFlipped) {
+        builder.put(slots(i), slotValues(i))
+      }
+      i += 1
+    }
+    i = 0
+    while (i < table.length) {
+      val k = table(i)
+      if (k != null && pred((k.asInstanceOf[String], table(i + 1))) != isFlipped) {
+        builder.put(k.asInstanceOf[String], table(i + 1))
+      }
+      i += 2
+    }
+    if (builder.size == size) this else builder.result()
+  }
+
+  override def foreachEntry[U](f: (String, Any) => U): Unit = {
+    var i = 0
+    while (i < slots.length) {
+      f(slots(i).name, slotValues(i))
+      i += 1
+    }
+    if (tableSize > 0) {
+      i = 0
+      while (i < table.length) {
+        val k = table(i)
+        if (k != null) {
+          f(k.asInstanceOf[String], table(i + 1))
+        }
+        i += 2
+      }
+    }
+  }
+
+  override def foreach[U](f: ((String, Any)) => U): Unit =
+    foreachEntry((key, value) => f((key, value)))
+
+  override def iterator: Iterator[(String, Any)] =
+    new AbstractIterator[(String, Any)] {
+      // slots first, then the table, offset by the slots' length
+      private var i = nextIndex(0)
+
+      private def nextIndex(from: Int): Int =
+        if (from < slots.length) {
+          from
+        } else {
+          var k = from - slots.length
+          while (k < table.length && table(k) == null) {
+            k += 2
+          }
+          slots.length + k
+        }
+
+      override def hasNext: Boolean = i < slots.length + table.length
+
+      override def next(): (String, Any) = {
+        if (!hasNext) throw new NoSuchElementException
+        if (i < slots.length) {
+          val entry = (slots(i).name, slotValues(i))
+          i = nextIndex(i + 1)
+          entry
+        } else {
+          val k = i - slots.length
+          val entry = (table(k).asInstanceOf[String], table(k + 1))
+          i = nextIndex(i + 2)
+          entry
+        }
+      }
+    }
+
+  override protected[this] def className: String = "CompactAttributes"
+}
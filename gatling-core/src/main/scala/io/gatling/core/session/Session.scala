@@ -68,11 +68,20 @@ object Session {
       userId: Long,
       onExit: Session => Unit,
       eventLoop: EventLoop
+  ): Session =
+    apply(scenario, userId, Map.empty, onExit, eventLoop)
+
+  private[core] def apply(
+      scenario: String,
+      userId: Long,
+      attributes: Map[String, Any],
+      onExit: Session => Unit,
+      eventLoop: EventLoop
   ): Session =
     Session(
       scenario = scenario,
       userId = userId,
-      attributes = Map.empty,
+      attributes = attributes,
       baseStatus = OK,
       blockStack = Nil,
       onExit = onExit,
@@ -107,30 +116,52 @@ final case class Session(
 
   def apply(name: String): SessionAttribute = SessionAttribute(this, name)
   def setAll(newAttributes: (String, Any)*): Session = setAll(newAttributes.toIterable)
-  def setAll(newAttributes: Iterable[(String, Any)]): Session = copy(attributes = attributes ++ newAttributes)
-  def set(key: String, value: Any): Session = copy(attributes = attributes + (key -> value))
+  def setAll(newAttributes: Iterable[(String, Any)]): Session =
+    attributes match {
+      case compact: CompactAttributes =>
+        newAttributes match {
+          case slotted: SlottedAttributes => copy(attributes = compact.concatSlots(slotted.attributeSlots, slotted.attributeValues, slotted.attributeCount))
+          case _                          => copy(attributes = compact ++ newAttributes)
+        }
+      case _ => copy(attributes = attributes ++ newAttributes)
+    }
+  def set(key: String, value: Any): Session = copy(attributes = attributes.updated(key, value))
+  private[gatling] def set(slot: AttributeSlot, value: Any): Session =
+    attributes match {
+      case compact: CompactAttributes => copy(attributes = compact.updatedSlot(slot, value))
+      case _                          => set(slot.name, value)
+    }
   def remove(key: String): Session = if (contains(key)) copy(attributes = attributes - key) else this
   def removeAll(keys: String*): Session = keys.foldLeft(this)(_ remove _)
   def contains(attributeKey: String): Boolean = attributes.contains(attributeKey)
 
+  /**
+   * @return the value of the attribute whose name was resolved into a slot when building the simulation, or default if undefined
+   */
+  private[gatling] def attributeOrElse(slot: AttributeSlot, default: Any): Any =
+    attributes match {
+      case compact: CompactAttributes => compact.valueOrElse(slot, default)
+      case _                          => attributes.getOrElse(slot.name, default)
+    }
+
   def reset: Session = {
     val newAttributes =
       if (blockStack.isEmpty) {
         // not in a block
-        attributes.view.filterKeys(_.startsWith(SessionPrivateAttributes.PrivateAttributePrefix))
+        attributes.filter { case (key, _) => key.startsWith(SessionPrivateAttributes.PrivateAttributePrefix) }
       } else {
         val counterNames: Set[String] = blockStack.view.collect { case counterBlock: CounterBlock => counterBlock.counterName }.to(Set)
         if (counterNames.isEmpty) {
           // no counter based blocks (only groups)
-          attributes.view.filterKeys(_.startsWith(SessionPrivateAttributes.PrivateAttributePrefix))
+          attributes.filter { case (key, _) => key.startsWith(SessionPrivateAttributes.PrivateAttributePrefix) }
         } else {
           val timestampNames: Set[String] = counterNames.map(timestampName)
-          attributes.view.filterKeys(key =>
+          attributes.filter { case (key, _) =>
             counterNames.contains(key) || timestampNames.contains(key) || key.startsWith(SessionPrivateAttributes.PrivateAttributePrefix)
-          )
+          }
         }
       }
-    copy(attributes = newAttributes.to(Map))
+    copy(attributes = newAttributes)
   }
 
   def loopCounterValue(counterName: String): Int = attributes(counterName).asInstanceOf[Int]
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.session
+
+/**
+ * Batch of attributes whose names were resolved into slots when building the simulation, like feeders' records,
+ * so that setting them into compact attributes doesn't hash their names.
+ */
+private[gatling] trait SlottedAttributes {
+
+  def attributeSlots: Array[AttributeSlot]
+
+  def attributeValues: Array[_ <: AnyRef]
+
+  def attributeCount: Int
+}
@@ -54,8 +54,16 @@ final case class StaticPart(string: String) extends ElPart[String] {
   def apply(session: Session): Validation[String] = string.success
 }
 
+private object UndefinedAttribute
+
 final case class AttributePart(name: String) extends ElPart[Any] {
-  def apply(session: Session): Validation[Any] = session(name).validate[Any]
+  private val slot = AttributeSlot(name)
+
+  def apply(session: Session): Validation[Any] =
+    session.attributeOrElse(slot, UndefinedAttribute) match {
+      case UndefinedAttribute => ElMessages.undefinedSessionAttribute(name)
+      case value              => TypeHelper.validate[Any](name, value)
+    }
 }
 
 final case class SizePart(seqPart: ElPart[Any], name: String) extends ElPart[Int] {
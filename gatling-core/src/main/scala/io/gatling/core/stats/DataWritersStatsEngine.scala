@@ -47,6 +47,7 @@ object DataWritersStatsEngine {
         case DataWriterType.Console  => "io.gatling.core.stats.writer.ConsoleDataWriter"
         case DataWriterType.File     => "io.gatling.core.stats.writer.LogFileDataWriter"
         case DataWriterType.Graphite => "io.gatling.graphite.GraphiteDataWriter"
+        case DataWriterType.Metrics  => "io.gatling.metrics.MetricsDataWriter"
       }
       .map { className =>
         val clazz = Class.forName(className).asInstanceOf[Class[Actor]]
@@ -58,10 +59,16 @@ object DataWritersStatsEngine {
     val dataWriterInitMessage = Init(
       simulationParams.assertions,
       runMessage,
-      allPopulationBuilders.map(pb => ShortScenarioDescription(pb.scenarioBuilder.name, pb.injectionProfile.totalUserCount))
+      allPopulationBuilders.map(pb => ShortScenarioDescription(pb.scenarioBuilder.name, pb.injectionProfile.totalUserCount)),
+      new NameRegistry,
+      new TlsHandshakeCounters
     )
 
-    new DataWritersStatsEngine(dataWriterInitMessage, dataWriters, system, clock)
+    if (configuration.data.ringBuffer.enabled) {
+      new RingBufferStatsEngine(dataWriterInitMessage, dataWriters, system, clock, configuration.data.ringBuffer)
+    } else {
+      new DataWritersStatsEngine(dataWriterInitMessage, dataWriters, system, clock)
+    }
   }
 }
 
@@ -97,7 +104,7 @@ class DataWritersStatsEngine(dataWriterInitMessage: Init, dataWriters: Seq[Actor
       Future.sequence(responses).onComplete(_ => controller ! ControllerCommand.StatsEngineStopped)
     }
 
-  private def dispatch(message: DataWriterMessage): Unit = if (active.get) dataWriters.foreach(_ ! message)
+  protected def dispatch(message: DataWriterMessage): Unit = if (active.get) dataWriters.foreach(_ ! message)
 
   override def logUserStart(scenario: String, timestamp: Long): Unit = dispatch(UserStartMessage(scenario, timestamp))
 
@@ -144,6 +151,10 @@ class DataWritersStatsEngine(dataWriterInitMessage: Init, dataWriters: Seq[Actor
       )
     )
 
+  // counted in place rather than dispatched, data writers read the totals when they flush
+  override def logTlsHandshakeSuccess(resumed: Boolean): Unit =
+    if (active.get) dataWriterInitMessage.tlsHandshakes.record(resumed)
+
   override def logCrash(scenario: String, groups: List[String], requestName: String, error: String): Unit =
     dispatch(ErrorMessage(s"$requestName: $error ", clock.nowMillis))
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import java.util.concurrent.atomic.AtomicLong
+
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.core.stats.writer._
+
+private[stats] object EventRingBuffer {
+
+  private val UserStart: Byte = 1
+  private val UserEnd: Byte = 2
+  private val Response: Byte = 3
+  private val GroupEnd: Byte = 4
+  private val Error: Byte = 5
+
+  def roundToPowerOfTwo(size: Int): Int =
+    if (size <= 1) 1 else Integer.highestOneBit(size - 1) << 1
+}
+
+/**
+ * Single producer single consumer ring of load events, stored as primitive fields and [[NameRegistry]] ids.
+ * Producer methods must only be called from the owning thread and return false when the ring is full.
+ */
+private[stats] final class EventRingBuffer(capacity: Int, names: NameRegistry) {
+
+  import EventRingBuffer._
+
+  require(Integer.bitCount(capacity) == 1, s"capacity $capacity must be a power of 2")
+
+  private val mask = capacity - 1
+  private val kinds = new Array[Byte](capacity)
+  private val scenarios = new Array[Int](capacity)
+  // group ids for group ends, request ids for responses
+  private val paths = new Array[Int](capacity)
+  private val starts = new Array[Long](capacity)
+  private val ends = new Array[Long](capacity)
+  private val statuses = new Array[Boolean](capacity)
+  private val cumulatedResponseTimes = new Array[Int](capacity)
+  private val responseCodes = new Array[Option[String]](capacity)
+  private val messages = new Array[Option[String]](capacity)
+
+  private val published = new AtomicLong
+  private val consumed = new AtomicLong
+
+  // producer side
+  private var next = 0L
+  private var cachedConsumed = 0L
+
+  private def hasCapacity: Boolean =
+    next - cachedConsumed < capacity || {
+      cachedConsumed = consumed.get
+      next - cachedConsumed < capacity
+    }
+
+  private def publish(): Unit = {
+    next += 1
+    published.lazySet(next)
+  }
+
+  private def slot: Int = (next & mask).toInt
+
+  private def offerUser(kind: Byte, scenario: String, timestamp: Long): Boolean =
+    hasCapacity && {
+      val i = slot
+      kinds(i) = kind
+      scenarios(i) = names.scenarioId(scenario)
+      starts(i) = timestamp
+      publish()
+      true
+    }
+
+  def offerUserStart(scenario: String, timestamp: Long): Boolean = offerUser(UserStart, scenario, timestamp)
+
+  def offerUserEnd(scenario: String, timestamp: Long): Boolean = offerUser(UserEnd, scenario, timestamp)
+
+  def offerResponse(
+      scenario: String,
+      groupHierarchy: List[String],
+      name: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Boolean =
+    hasCapacity && {
+      val i = slot
+      kinds(i) = Response
+      scenarios(i) = names.scenarioId(scenario)
+      paths(i) = names.requestId(groupHierarchy, name)
+      starts(i) = startTimestamp
+      ends(i) = endTimestamp
+      statuses(i) = status == KO
+      responseCodes(i) = responseCode
+      messages(i) = message
+      publish()
+      true
+    }
+
+  def offerGroupEnd(
+      scenario: String,
+      groupHierarchy: List[String],
+      startTimestamp: Long,
+      endTimestamp: Long,
+      cumulatedResponseTime: Int,
+      status: Status
+  ): Boolean =
+    hasCapacity && {
+      val i = slot
+      kinds(i) = GroupEnd
+      scenarios(i) = names.scenarioId(scenario)
+      paths(i) = names.groupId(groupHierarchy)
+      starts(i) = startTimestamp
+      ends(i) = endTimestamp
+      cumulatedResponseTimes(i) = cumulatedResponseTime
+      statuses(i) = status == KO
+      publish()
+      true
+    }
+
+  def offerError(message: String, timestamp: Long): Boolean =
+    hasCapacity && {
+      val i = slot
+      kinds(i) = Error
+      // error messages are too diverse to be interned
+      messages(i) = Some(message)
+      starts(i) = timestamp
+      publish()
+      true
+    }
+
+  private def status(i: Int): Status = if (statuses(i)) KO else OK
+
+  /**
+   * Consumer side: turns the published events back into messages.
+   *
+   * @return the number of drained events
+   */
+  def drainTo(f: LoadEventMessage => Unit): Int = {
+    val from = consumed.get
+    val to = published.get
+    var sequence = from
+    while (sequence < to) {
+      val i = (sequence & mask).toInt
+      val message = kinds(i) match {
+        case UserStart => UserStartMessage(names.scenario(scenarios(i)), starts(i))
+        case UserEnd   => UserEndMessage(names.scenario(scenarios(i)), starts(i))
+        case Response =>
+          val requestPath = names.requestPath(paths(i))
+          ResponseMessage(
+            names.scenario(scenarios(i)),
+            requestPath.groupHierarchy,
+            requestPath.name,
+            starts(i),
+            ends(i),
+            status(i),
+            responseCodes(i),
+            messages(i)
+          )
+        case GroupEnd =>
+          GroupMessage(names.scenario(scenarios(i)), names.groupHierarchy(paths(i)), starts(i), ends(i), cumulatedResponseTimes(i), status(i))
+        case _ =>
+          ErrorMessage(messages(i).getOrElse(""), starts(i))
+      }
+      // release references so they can be collected
+      responseCodes(i) = null
+      messages(i) = null
+      f(message)
+      sequence += 1
+    }
+    consumed.lazySet(to)
+    (to - from).toInt
+  }
+}
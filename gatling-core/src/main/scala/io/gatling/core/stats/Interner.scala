@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Assigns stable int ids to values at first sight.
+ * Lookups of known values are lock-free, only new values take a lock.
+ */
+private[core] final class Interner[T <: AnyRef] {
+
+  private val ids = new ConcurrentHashMap[T, Integer]
+  @volatile private var values = new Array[AnyRef](64)
+  private var size = 0
+
+  def id(value: T): Int = {
+    val id = ids.get(value)
+    if (id != null) id else register(value)
+  }
+
+  private def register(value: T): Int = synchronized {
+    val existing = ids.get(value)
+    if (existing != null) {
+      existing
+    } else {
+      val id = size
+      if (id == values.length) {
+        values = java.util.Arrays.copyOf(values, id * 2)
+      }
+      values(id) = value
+      size += 1
+      // published after values so whoever gets the id sees the value
+      ids.put(value, id)
+      id
+    }
+  }
+
+  def value(id: Int): T = values(id).asInstanceOf[T]
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+final case class RequestPath(groupHierarchy: List[String], name: String)
+
+/**
+ * Assigns stable int ids to scenarios, group hierarchies and request paths at first sight.
+ * Shared by the stats engine and the DataWriters of a run through [[io.gatling.core.stats.writer.Init]],
+ * so they can key their data on ints and only compute what derives from a name once.
+ *
+ * Thread-safe, lookups of known names are lock-free.
+ */
+final class NameRegistry {
+
+  private val scenarios = new Interner[String]
+  private val groupHierarchies = new Interner[List[String]]
+  private val requestPaths = new Interner[RequestPath]
+
+  def scenarioId(scenario: String): Int = scenarios.id(scenario)
+
+  def scenario(id: Int): String = scenarios.value(id)
+
+  def groupId(groupHierarchy: List[String]): Int = groupHierarchies.id(groupHierarchy)
+
+  def groupHierarchy(id: Int): List[String] = groupHierarchies.value(id)
+
+  def requestId(groupHierarchy: List[String], name: String): Int = requestPaths.id(RequestPath(groupHierarchy, name))
+
+  def requestPath(id: Int): RequestPath = requestPaths.value(id)
+}
+
+/**
+ * Values computed once per [[NameRegistry]] id.
+ * Not thread-safe, meant to be used from a single DataWriter.
+ */
+final class IdIndexedCache[T <: AnyRef] {
+
+  private var values = new Array[AnyRef](64)
+
+  def getOrElseUpdate(id: Int, value: => T): T = {
+    if (id >= values.length) {
+      values = java.util.Arrays.copyOf(values, math.max(values.length * 2, id + 1))
+    }
+    val cached = values(id)
+    if (cached != null) {
+      cached.asInstanceOf[T]
+    } else {
+      val computed = value
+      values(id) = computed
+      computed
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.LongAdder
+
+import scala.collection.mutable
+import scala.concurrent.ExecutionContext
+
+import io.gatling.commons.stats.Status
+import io.gatling.commons.util.Clock
+import io.gatling.core.config.RingBufferConfiguration
+import io.gatling.core.session.GroupBlock
+import io.gatling.core.stats.writer._
+
+import akka.actor.{ ActorRef, ActorSystem, Cancellable }
+import com.typesafe.scalalogging.StrictLogging
+
+/**
+ * Instead of sending one message per event to every DataWriter, producer threads (typically event loops)
+ * write events into their own lock-free ring buffer, which get periodically drained and sent to the DataWriters in batches.
+ * When a ring buffer is full, its producer drains it right away, then the event is dispatched on its own,
+ * so that DataWriters still receive each thread's events in order. The other ring buffers are left to the periodic drain.
+ */
+class RingBufferStatsEngine(
+    dataWriterInitMessage: Init,
+    dataWriters: Seq[ActorRef],
+    system: ActorSystem,
+    clock: Clock,
+    configuration: RingBufferConfiguration
+) extends DataWritersStatsEngine(dataWriterInitMessage, dataWriters, system, clock)
+    with StrictLogging {
+
+  private val capacity = EventRingBuffer.roundToPowerOfTwo(configuration.size)
+  private val ringBuffers = new CopyOnWriteArrayList[EventRingBuffer]
+  private val threadRingBuffer = ThreadLocal.withInitial[EventRingBuffer] { () =>
+    val ringBuffer = new EventRingBuffer(capacity, dataWriterInitMessage.names)
+    ringBuffers.add(ringBuffer)
+    ringBuffer
+  }
+  private val overflows = new LongAdder
+  @volatile private var drainTask: Cancellable = _
+
+  override def start(): Unit = {
+    super.start()
+    implicit val dispatcher: ExecutionContext = system.dispatcher
+    drainTask = system.scheduler.scheduleWithFixedDelay(configuration.drainPeriod, configuration.drainPeriod)(() => drain())
+  }
+
+  // single consumer: the periodic drain and the producers draining their own ring buffer on overflow take turns
+  private def drain(): Unit = synchronized {
+    val batch = mutable.ArrayBuilder.make[LoadEventMessage]
+    ringBuffers.forEach(_.drainTo(batch += _))
+    dispatchBatch(batch)
+  }
+
+  private def drain(ringBuffer: EventRingBuffer): Unit = synchronized {
+    val batch = mutable.ArrayBuilder.make[LoadEventMessage]
+    ringBuffer.drainTo(batch += _)
+    dispatchBatch(batch)
+  }
+
+  private def dispatchBatch(batch: mutable.ArrayBuilder[LoadEventMessage]): Unit = {
+    val messages = batch.result()
+    if (messages.nonEmpty) {
+      dispatch(LoadEvents(messages))
+    }
+  }
+
+  override def stop(controller: ActorRef, exception: Option[Exception]): Unit = {
+    if (drainTask != null) {
+      drainTask.cancel()
+    }
+    // flush what's left before the DataWriters get stopped
+    drain()
+    val overflowCount = overflows.sum
+    if (overflowCount > 0) {
+      logger.info(s"Ring buffers were full and drained early $overflowCount times, consider increasing gatling.data.ringBuffer.size")
+    }
+    super.stop(controller, exception)
+  }
+
+  // no closures here, this is the hot path
+  // the older events still buffered must reach the DataWriters before the one that didn't fit, eg a user end after its user start
+  // only the current thread's ring buffer, so a producer doesn't pay for draining the other threads' ones
+  private def drainOnOverflow(ringBuffer: EventRingBuffer): Boolean = {
+    overflows.increment()
+    drain(ringBuffer)
+    true
+  }
+
+  override def logUserStart(scenario: String, timestamp: Long): Unit = {
+    val ringBuffer = threadRingBuffer.get
+    if (!ringBuffer.offerUserStart(scenario, timestamp) && drainOnOverflow(ringBuffer)) {
+      super.logUserStart(scenario, timestamp)
+    }
+  }
+
+  override def logUserEnd(userMessage: UserEndMessage): Unit = {
+    val ringBuffer = threadRingBuffer.get
+    if (!ringBuffer.offerUserEnd(userMessage.scenario, userMessage.timestamp) && drainOnOverflow(ringBuffer)) {
+      super.logUserEnd(userMessage)
+    }
+  }
+
+  override def logResponse(
+      scenario: String,
+      groups: List[String],
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit =
+    if (endTimestamp >= 0) {
+      val ringBuffer = threadRingBuffer.get
+      if (
+        !ringBuffer.offerResponse(scenario, groups, requestName, startTimestamp, endTimestamp, status, responseCode, message) &&
+        drainOnOverflow(ringBuffer)
+      ) {
+        super.logResponse(scenario, groups, requestName, startTimestamp, endTimestamp, status, responseCode, message)
+      }
+    }
+
+  override def logGroupEnd(
+      scenario: String,
+      groupBlock: GroupBlock,
+      exitTimestamp: Long
+  ): Unit = {
+    val ringBuffer = threadRingBuffer.get
+    if (
+      !ringBuffer.offerGroupEnd(
+        scenario,
+        groupBlock.groups,
+        groupBlock.startTimestamp,
+        exitTimestamp,
+        groupBlock.cumulatedResponseTime,
+        groupBlock.status
+      ) && drainOnOverflow(ringBuffer)
+    ) {
+      super.logGroupEnd(scenario, groupBlock, exitTimestamp)
+    }
+  }
+
+  override def logCrash(scenario: String, groups: List[String], requestName: String, error: String): Unit = {
+    val message = s"$requestName: $error "
+    val timestamp = clock.nowMillis
+    val ringBuffer = threadRingBuffer.get
+    if (!ringBuffer.offerError(message, timestamp) && drainOnOverflow(ringBuffer)) {
+      dispatch(ErrorMessage(message, timestamp))
+    }
+  }
+}
@@ -83,6 +83,11 @@ trait StatsEngine extends FrontLineStatsEngineExtensions {
 
   def logCrash(scenario: String, groups: List[String], requestName: String, error: String): Unit
 
+  /**
+   * @param resumed true if the handshake resumed a cached session, false if it was a full handshake
+   */
+  def logTlsHandshakeSuccess(resumed: Boolean): Unit = {}
+
   def reportUnbuildableRequest(scenario: String, groups: List[String], requestName: String, errorMessage: String): Unit =
     logCrash(scenario, groups, requestName, s"Failed to build request: $errorMessage")
 }
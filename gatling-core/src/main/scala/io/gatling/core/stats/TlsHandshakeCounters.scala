@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Counts of the successful TLS handshakes, as reported by the protocols.
+ * Shared by the stats engine, that updates them from any thread, and the data writers, that read them.
+ */
+final class TlsHandshakeCounters {
+
+  private val full = new LongAdder
+  private val resumed = new LongAdder
+
+  def record(resumed: Boolean): Unit =
+    if (resumed) this.resumed.increment() else full.increment()
+
+  def fullCount: Long = full.sum
+
+  def resumedCount: Long = resumed.sum
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+import java.{ util => ju }
+
+import io.gatling.commons.stats.{ KO, Status }
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.{ IdIndexedCache, NameRegistry }
+
+/**
+ * Writes records in the [[BinaryRecords]] layout.
+ * Not thread-safe, meant to be used from the LogFileDataWriter actor only.
+ */
+final class BinaryLogFileSerializer(writer: BufferedFileChannelWriter, names: NameRegistry) extends LogFileSerializer {
+
+  import BinaryRecords._
+
+  private var runStart = 0L
+  private val bounds = new RunBounds
+  private val stringIds = new ju.HashMap[String, Integer]
+  private val groupIds = new ju.HashMap[List[String], Integer]
+  // file dictionary ids by NameRegistry id, so names don't have to be hashed again once defined
+  private val scenarioFileIds = new IdIndexedCache[Integer]
+  private val groupFileIds = new IdIndexedCache[Integer]
+  // group and name file ids
+  private val requestFileIds = new IdIndexedCache[Array[Int]]
+
+  private def scenarioFileId(scenario: String): Int =
+    scenarioFileIds.getOrElseUpdate(names.scenarioId(scenario), internString(scenario))
+
+  private def groupFileId(groupHierarchy: List[String]): Int =
+    groupFileIds.getOrElseUpdate(names.groupId(groupHierarchy), internGroup(groupHierarchy))
+
+  private def requestFileIds(groupHierarchy: List[String], name: String): Array[Int] =
+    requestFileIds.getOrElseUpdate(names.requestId(groupHierarchy, name), Array(groupFileId(groupHierarchy), internString(name)))
+
+  private def internString(string: String): Int = {
+    val id = stringIds.get(string)
+    if (id != null) {
+      id.intValue
+    } else {
+      val newId = stringIds.size
+      stringIds.put(string, newId)
+      writer.writeByte(StringDefinitionTag)
+      writer.writeVarInt(newId)
+      writer.writeSizedString(string)
+      newId
+    }
+  }
+
+  private def internGroup(groupHierarchy: List[String]): Int =
+    if (groupHierarchy.isEmpty) {
+      NoGroupId
+    } else {
+      val id = groupIds.get(groupHierarchy)
+      if (id != null) {
+        id.intValue
+      } else {
+        // definitions of the group elements must be written before the group's own definition
+        val elementIds = groupHierarchy.map(internString)
+        val newId = groupIds.size + 1
+        groupIds.put(groupHierarchy, newId)
+        writer.writeByte(GroupDefinitionTag)
+        writer.writeVarInt(newId)
+        writer.writeVarInt(elementIds.size)
+        elementIds.foreach(writer.writeVarInt)
+        newId
+      }
+    }
+
+  private def writeTimestamp(timestamp: Long): Unit =
+    writer.writeZigZagLong(timestamp - runStart)
+
+  private def statusFlags(status: Status): Int =
+    if (status == KO) KoFlag else 0
+
+  override def serializeHeader(assertions: Seq[Assertion], runMessage: RunMessage): Unit = {
+    import runMessage._
+    runStart = start
+
+    writer.writeBytes(Magic)
+    writer.writeByte(RunTag)
+    writer.writeSizedString(simulationClassName)
+    writer.writeSizedString(simulationId)
+    writer.writeVarLong(start)
+    writer.writeSizedString(runDescription)
+    writer.writeSizedString(gatlingVersion)
+
+    assertions.foreach { assertion =>
+      import io.gatling.commons.stats.assertion.AssertionPicklers._
+      import boopickle.Default._
+
+      val byteBuffer = Pickle.intoBytes(assertion)
+      val bytes = new Array[Byte](byteBuffer.remaining)
+      byteBuffer.get(bytes)
+
+      writer.writeByte(AssertionTag)
+      writer.writeVarInt(bytes.length)
+      writer.writeBytes(bytes)
+    }
+  }
+
+  override def serialize(message: LoadEventMessage): Unit = {
+    bounds.update(message)
+    message match {
+      case UserStartMessage(scenario, timestamp) =>
+        val scenarioId = scenarioFileId(scenario)
+        writer.writeByte(UserStartTag)
+        writer.writeVarInt(scenarioId)
+        writeTimestamp(timestamp)
+
+      case UserEndMessage(scenario, timestamp) =>
+        val scenarioId = scenarioFileId(scenario)
+        writer.writeByte(UserEndTag)
+        writer.writeVarInt(scenarioId)
+        writeTimestamp(timestamp)
+
+      case response: ResponseMessage =>
+        import response._
+        val fileIds = requestFileIds(groupHierarchy, name)
+        writer.writeByte(RequestTag)
+        writer.writeVarInt(fileIds(0))
+        writer.writeVarInt(fileIds(1))
+        writeTimestamp(startTimestamp)
+        writer.writeZigZagLong(endTimestamp - startTimestamp)
+        response.message match {
+          case Some(m) =>
+            writer.writeByte((statusFlags(status) | MessageFlag).toByte)
+            writer.writeSizedString(m)
+          case _ =>
+            writer.writeByte(statusFlags(status).toByte)
+        }
+
+      case group: GroupMessage =>
+        import group._
+        val groupId = groupFileId(groupHierarchy)
+        writer.writeByte(GroupTag)
+        writer.writeVarInt(groupId)
+        writeTimestamp(startTimestamp)
+        writer.writeZigZagLong(endTimestamp - startTimestamp)
+        writer.writeVarInt(cumulatedResponseTime)
+        writer.writeByte(statusFlags(status).toByte)
+
+      case ErrorMessage(errorMessage, date) =>
+        writer.writeByte(ErrorTag)
+        writer.writeSizedString(errorMessage)
+        writeTimestamp(date)
+
+      case _ =>
+    }
+  }
+
+  override def serializeFooter(): Unit =
+    if (bounds.isDefined) {
+      writer.writeByte(BoundsTag)
+      writer.writeLong(bounds.start)
+      writer.writeLong(bounds.end)
+      writer.writeBytes(Magic)
+    }
+}
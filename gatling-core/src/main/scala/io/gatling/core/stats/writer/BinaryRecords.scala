@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+/**
+ * Layout of the binary simulation.log format.
+ *
+ * A file starts with [[Magic]] and is followed by records made of a one byte tag and their fields:
+ *  - integers are unsigned LEB128 varints
+ *  - timestamps are zigzag varints, relative to the run start of the RUN record that comes first
+ *  - strings are a varint byte length followed by UTF-8 bytes
+ *
+ * Scenario names, request names and group hierarchies are written once in definition records the first
+ * time they show up and are then referenced by id. Group id 0 means "no group".
+ *
+ * On clean stop, the file ends with a fixed size footer holding the absolute bounds of the run as big-endian longs,
+ * followed by [[Magic]] again so that readers can check it's there.
+ */
+object BinaryRecords {
+
+  // can't be mistaken for the first line of a text simulation.log
+  val Magic: Array[Byte] = Array[Byte](0, 'G'.toByte, 'L'.toByte, 'B'.toByte, 1)
+
+  // header records
+  val RunTag: Byte = 1
+  val AssertionTag: Byte = 2
+
+  // dictionary records
+  val StringDefinitionTag: Byte = 3
+  val GroupDefinitionTag: Byte = 4
+
+  // load event records
+  val UserStartTag: Byte = 5
+  val UserEndTag: Byte = 6
+  val RequestTag: Byte = 7
+  val GroupTag: Byte = 8
+  val ErrorTag: Byte = 9
+
+  // footer record
+  val BoundsTag: Byte = 10
+  val BoundsFooterLength: Int = 1 + 2 * java.lang.Long.BYTES + Magic.length
+
+  // status bits
+  val KoFlag: Int = 1
+  val MessageFlag: Int = 2
+
+  val NoGroupId: Int = 0
+}
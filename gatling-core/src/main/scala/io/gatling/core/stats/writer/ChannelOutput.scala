@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.ArrayBlockingQueue
+
+import scala.util.control.NonFatal
+
+import com.typesafe.scalalogging.StrictLogging
+
+/**
+ * Where [[BufferedFileChannelWriter]] hands its buffers over once they're full.
+ */
+sealed trait ChannelOutput extends AutoCloseable {
+
+  /**
+   * The buffer to fill first
+   */
+  def initialBuffer: ByteBuffer
+
+  /**
+   * @param full a flipped buffer whose content must be written
+   * @return an empty buffer to fill next
+   */
+  def write(full: ByteBuffer): ByteBuffer
+
+  /**
+   * Number of times the writer had to wait for the disk because all the buffers were full
+   */
+  def stalls: Long
+
+  def stallNanos: Long
+}
+
+/**
+ * Writes buffers on the caller thread, which gets blocked meanwhile.
+ */
+final class SyncChannelOutput(channel: FileChannel, buffer: ByteBuffer, fsync: FsyncPolicy, compression: LogFileCompression) extends ChannelOutput {
+
+  def this(channel: FileChannel, buffer: ByteBuffer, fsync: FsyncPolicy) =
+    this(channel, buffer, fsync, LogFileCompression.Uncompressed)
+
+  private val blockWriter = compression.newBlockWriter(channel)
+
+  override def initialBuffer: ByteBuffer = buffer
+
+  override def write(full: ByteBuffer): ByteBuffer = {
+    blockWriter.write(full)
+    if (fsync == FsyncPolicy.OnWrite) {
+      channel.force(false)
+    }
+    full.clear()
+    full
+  }
+
+  // every write is a stall here, they're not measured
+  override def stalls: Long = 0
+
+  override def stallNanos: Long = 0
+
+  override def close(): Unit =
+    try {
+      if (fsync != FsyncPolicy.Never) {
+        channel.force(true)
+      }
+    } finally {
+      channel.close()
+    }
+}
+
+object AsyncChannelOutput {
+  // signals the I/O thread to stop
+  private val Poison = ByteBuffer.allocate(0)
+}
+
+/**
+ * Writes buffers on a dedicated I/O thread while the caller fills the next free one,
+ * so the caller only gets blocked when all the buffers are waiting to be written.
+ */
+final class AsyncChannelOutput(
+    channel: FileChannel,
+    bufferSize: Int,
+    bufferCount: Int,
+    fsync: FsyncPolicy,
+    compression: LogFileCompression,
+    threadName: String
+) extends ChannelOutput
+    with StrictLogging {
+
+  import AsyncChannelOutput._
+
+  require(bufferCount >= 2, s"bufferCount $bufferCount must be at least 2")
+
+  private val freeBuffers = new ArrayBlockingQueue[ByteBuffer](bufferCount)
+  private val fullBuffers = new ArrayBlockingQueue[ByteBuffer](bufferCount + 1)
+  for (_ <- 1 until bufferCount) {
+    freeBuffers.add(ByteBuffer.allocateDirect(bufferSize))
+  }
+  override val initialBuffer: ByteBuffer = ByteBuffer.allocateDirect(bufferSize)
+
+  @volatile private var failure: Throwable = _
+  private var _stalls = 0L
+  private var _stallNanos = 0L
+
+  // only used by the I/O thread once started, so compression doesn't slow the caller down
+  private val blockWriter = compression.newBlockWriter(channel)
+
+  private val ioThread = new Thread(() => writeLoop(), threadName)
+  ioThread.setDaemon(true)
+  ioThread.start()
+
+  private def writeLoop(): Unit = {
+    var buffer = fullBuffers.take()
+    while (buffer ne Poison) {
+      try {
+        if (failure == null) {
+          blockWriter.write(buffer)
+          if (fsync == FsyncPolicy.OnWrite) {
+            channel.force(false)
+          }
+        }
+      } catch {
+        case NonFatal(e) =>
+          logger.error("Failed to write simulation.log", e)
+          failure = e
+      }
+      buffer.clear()
+      freeBuffers.put(buffer)
+      buffer = fullBuffers.take()
+    }
+  }
+
+  private def checkFailure(): Unit =
+    if (failure != null) {
+      throw new IOException("Failed to write simulation.log", failure)
+    }
+
+  override def write(full: ByteBuffer): ByteBuffer = {
+    checkFailure()
+    fullBuffers.put(full)
+    val free = freeBuffers.poll()
+    if (free != null) {
+      free
+    } else {
+      val start = System.nanoTime()
+      val awaited = freeBuffers.take()
+      _stalls += 1
+      _stallNanos += System.nanoTime() - start
+      awaited
+    }
+  }
+
+  override def stalls: Long = _stalls
+
+  override def stallNanos: Long = _stallNanos
+
+  override def close(): Unit =
+    try {
+      fullBuffers.put(Poison)
+      ioThread.join()
+      checkFailure()
+      if (fsync != FsyncPolicy.Never) {
+        channel.force(true)
+      }
+    } finally {
+      channel.close()
+    }
+}
@@ -23,6 +23,7 @@ import scala.collection.mutable
 import io.gatling.commons.stats.{ KO, OK }
 import io.gatling.commons.util.Clock
 import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.{ IdIndexedCache, NameRegistry, TlsHandshakeCounters }
 
 class UserCounters(val totalUserCount: Option[Long]) {
 
@@ -46,11 +47,13 @@ object RequestCounters {
 
 class RequestCounters(var successfulCount: Int, var failedCount: Int)
 
-class ConsoleData(val startUpTime: Long) extends DataWriterData {
+class ConsoleData(val startUpTime: Long, val names: NameRegistry, val tlsHandshakes: TlsHandshakeCounters) extends DataWriterData {
   var complete: Boolean = false
   val usersCounters: mutable.Map[String, UserCounters] = mutable.Map.empty
   val globalRequestCounters: RequestCounters = RequestCounters.empty
   val requestsCounters: mutable.Map[String, RequestCounters] = mutable.LinkedHashMap.empty
+  // same instances as in requestsCounters, looked up by request id
+  val requestsCountersById: IdIndexedCache[RequestCounters] = new IdIndexedCache
   val errorsCounters: mutable.Map[String, Int] = mutable.LinkedHashMap.empty
 }
 
@@ -62,7 +65,7 @@ class ConsoleDataWriter(clock: Clock, configuration: GatlingConfiguration) exten
 
     import init._
 
-    val data = new ConsoleData(clock.nowMillis)
+    val data = new ConsoleData(clock.nowMillis, names, tlsHandshakes)
 
     scenarios.foreach(scenario => data.usersCounters.put(scenario.name, new UserCounters(scenario.totalUserCount)))
 
@@ -76,7 +79,7 @@ class ConsoleDataWriter(clock: Clock, configuration: GatlingConfiguration) exten
 
     val runDuration = (clock.nowMillis - startUpTime) / 1000
 
-    val summary = ConsoleSummary(runDuration, usersCounters, globalRequestCounters, requestsCounters, errorsCounters, configuration, new Date)
+    val summary = ConsoleSummary(runDuration, usersCounters, globalRequestCounters, requestsCounters, errorsCounters, tlsHandshakes, configuration, new Date)
     complete = summary.complete
     println(summary.text)
   }
@@ -114,8 +117,10 @@ class ConsoleDataWriter(clock: Clock, configuration: GatlingConfiguration) exten
     import data._
     import response._
 
-    val requestPath = (groupHierarchy :+ name).mkString(" / ")
-    val requestCounters = requestsCounters.getOrElseUpdate(requestPath, RequestCounters.empty)
+    val requestCounters = requestsCountersById.getOrElseUpdate(
+      names.requestId(groupHierarchy, name),
+      requestsCounters.getOrElseUpdate((groupHierarchy :+ name).mkString(" / "), RequestCounters.empty)
+    )
 
     status match {
       case OK =>
@@ -27,6 +27,7 @@ import io.gatling.commons.shared.unstable.model.stats.ErrorStats
 import io.gatling.commons.util.Collections._
 import io.gatling.commons.util.StringHelper._
 import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.TlsHandshakeCounters
 
 object ConsoleSummary {
 
@@ -44,6 +45,7 @@ object ConsoleSummary {
       globalRequestCounters: RequestCounters,
       requestsCounters: mutable.Map[String, RequestCounters],
       errorsCounters: mutable.Map[String, Int],
+      tlsHandshakes: TlsHandshakeCounters,
       configuration: GatlingConfiguration,
       time: Date
   ): ConsoleSummary = {
@@ -123,6 +125,21 @@ object ConsoleSummary {
       sb
     }
 
+    def writeTlsHandshakes(sb: jl.StringBuilder): jl.StringBuilder = {
+      val fullCount = tlsHandshakes.fullCount
+      val resumedCount = tlsHandshakes.resumedCount
+      if (fullCount + resumedCount > 0) {
+        writeSubTitle(sb, "TLS Handshakes")
+          .append(Eol)
+          .append("> full: ")
+          .append(fullCount.toString.rightPad(6))
+          .append(" / resumed: ")
+          .append(resumedCount.toString.rightPad(6))
+          .append(Eol)
+      }
+      sb
+    }
+
     val sb = new jl.StringBuilder()
       .append(Eol)
       .append(NewBlock)
@@ -136,6 +153,7 @@ object ConsoleSummary {
     writeRequestsCounter(sb, "Global", globalRequestCounters).append(Eol)
     writeDetailedRequestsCounter(sb).append(Eol)
     writeErrors(sb).append(Eol)
+    writeTlsHandshakes(sb)
 
     usersCounters.foreach { case (scenarioName, usersStats) =>
       writeUsersCounters(sb, scenarioName, usersStats).append(Eol)
@@ -72,6 +72,10 @@ abstract class DataWriter[T <: DataWriterData] extends DataWriterFSM {
     case Event(message: LoadEventMessage, data: Any) =>
       onMessage(message, data.asInstanceOf[T])
       stay()
+
+    case Event(LoadEvents(messages), data: Any) =>
+      messages.foreach(onMessage(_, data.asInstanceOf[T]))
+      stay()
   }
 
   when(Terminated)(NullFunction)
@@ -21,6 +21,7 @@ import java.time.format.DateTimeFormatter
 
 import io.gatling.commons.stats.Status
 import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.stats.{ NameRegistry, TlsHandshakeCounters }
 
 final case class ShortScenarioDescription(name: String, totalUserCount: Option[Long])
 
@@ -39,10 +40,17 @@ final case class RunMessage(
 }
 
 sealed trait DataWriterMessage
-final case class Init(assertions: Seq[Assertion], runMessage: RunMessage, scenarios: Seq[ShortScenarioDescription]) extends DataWriterMessage
+final case class Init(
+    assertions: Seq[Assertion],
+    runMessage: RunMessage,
+    scenarios: Seq[ShortScenarioDescription],
+    names: NameRegistry,
+    tlsHandshakes: TlsHandshakeCounters
+) extends DataWriterMessage
 case object Flush extends DataWriterMessage
 final case class Crash(cause: String) extends DataWriterMessage
 case object Stop extends DataWriterMessage
+final case class LoadEvents(messages: Array[LoadEventMessage]) extends DataWriterMessage
 
 sealed trait LoadEventMessage extends DataWriterMessage
 
@@ -18,7 +18,7 @@ package io.gatling.core.stats.writer
 
 object DataWriterType {
 
-  private val AllTypes = Seq(Console, File, Graphite)
+  private val AllTypes = Seq(Console, File, Graphite, Metrics)
     .map(t => t.name -> t)
     .toMap
 
@@ -27,6 +27,7 @@ object DataWriterType {
   object Console extends DataWriterType("console")
   object File extends DataWriterType("file")
   object Graphite extends DataWriterType("graphite")
+  object Metrics extends DataWriterType("metrics")
 }
 
 sealed abstract class DataWriterType(val name: String)
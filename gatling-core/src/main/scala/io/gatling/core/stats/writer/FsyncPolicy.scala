@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+object FsyncPolicy {
+  def apply(name: String): FsyncPolicy = name match {
+    case Never.name   => Never
+    case OnClose.name => OnClose
+    case OnWrite.name => OnWrite
+    case _            => throw new IllegalArgumentException(s"Unsupported simulation.log fsync policy: '$name'")
+  }
+
+  /**
+   * Leave it to the OS, data might be lost if the machine crashes, even after the run completed
+   */
+  case object Never extends FsyncPolicy("never")
+
+  /**
+   * Force data to disk once when the run completes
+   */
+  case object OnClose extends FsyncPolicy("close")
+
+  /**
+   * Force data to disk every time a buffer gets written, so a machine crash can't lose more than a buffer
+   */
+  case object OnWrite extends FsyncPolicy("write")
+}
+
+sealed abstract class FsyncPolicy(val name: String)
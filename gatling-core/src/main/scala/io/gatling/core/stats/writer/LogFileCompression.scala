@@ -0,0 +1,187 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+import java.io.EOFException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{ Path, StandardOpenOption }
+
+import net.jpountz.lz4.LZ4Factory
+
+/**
+ * Block compression of the simulation.log content, whatever its [[LogFileFormat]].
+ *
+ * A compressed file starts with [[LogFileCompression.Magic]] and is followed by independent frames, one per writer buffer:
+ *  - the uncompressed length of the block as a big-endian int
+ *  - the compressed length of the block as a big-endian int
+ *  - the LZ4 compressed block
+ *
+ * Frames can be decompressed independently from one another, hence in parallel.
+ * A crashed run might leave a truncated last frame that readers must ignore.
+ */
+object LogFileCompression {
+
+  // can't be mistaken for the first line of a text simulation.log nor for a binary one
+  val Magic: Array[Byte] = Array[Byte](0, 'G'.toByte, 'L'.toByte, 'Z'.toByte, 1)
+
+  val FrameHeaderLength: Int = 2 * Integer.BYTES
+
+  def apply(name: String): LogFileCompression = name match {
+    case Uncompressed.name => Uncompressed
+    case Lz4.name          => Lz4
+    case _                 => throw new IllegalArgumentException(s"Unsupported simulation.log compression: '$name'")
+  }
+
+  /**
+   * Detects the compression of a simulation.log file from its first bytes.
+   */
+  def of(path: Path): LogFileCompression = {
+    val channel = FileChannel.open(path, StandardOpenOption.READ)
+    try {
+      of(channel)
+    } finally {
+      channel.close()
+    }
+  }
+
+  private[writer] def of(channel: FileChannel): LogFileCompression = {
+    val magic = ByteBuffer.allocate(Magic.length)
+    while (magic.hasRemaining && channel.read(magic, magic.position.toLong) >= 0) {}
+    if (magic.array.sameElements(Magic)) Lz4 else Uncompressed
+  }
+
+  case object Uncompressed extends LogFileCompression("none") {
+    override def newBlockWriter(channel: FileChannel): BlockWriter = new RawBlockWriter(channel)
+  }
+
+  case object Lz4 extends LogFileCompression("lz4") {
+    override def newBlockWriter(channel: FileChannel): BlockWriter = new Lz4BlockWriter(channel)
+  }
+
+  /**
+   * Writes blocks to a channel, possibly transforming them on the way.
+   * Not thread-safe, must only be used by the thread that writes to the channel.
+   */
+  sealed trait BlockWriter {
+
+    /**
+     * Writes the remaining content of the block and leaves it fully consumed.
+     */
+    def write(block: ByteBuffer): Unit
+  }
+
+  private def writeFully(channel: FileChannel, buffer: ByteBuffer): Unit =
+    while (buffer.hasRemaining) {
+      channel.write(buffer)
+    }
+
+  private final class RawBlockWriter(channel: FileChannel) extends BlockWriter {
+    override def write(block: ByteBuffer): Unit = writeFully(channel, block)
+  }
+
+  private final class Lz4BlockWriter(channel: FileChannel) extends BlockWriter {
+
+    private val compressor = LZ4Factory.fastestInstance.fastCompressor
+    // grown on demand, but blocks all have the writer buffer size in practice
+    private var frame = ByteBuffer.allocate(0)
+
+    writeFully(channel, ByteBuffer.wrap(Magic))
+
+    override def write(block: ByteBuffer): Unit =
+      if (block.hasRemaining) {
+        val length = block.remaining
+        val maxCompressedLength = compressor.maxCompressedLength(length)
+        if (frame.capacity < FrameHeaderLength + maxCompressedLength) {
+          frame = ByteBuffer.allocate(FrameHeaderLength + maxCompressedLength)
+        }
+        val compressedLength = compressor.compress(block, block.position, length, frame, FrameHeaderLength, maxCompressedLength)
+        block.position(block.limit)
+        frame.putInt(0, length).putInt(Integer.BYTES, compressedLength)
+        frame.limit(FrameHeaderLength + compressedLength).position(0)
+        writeFully(channel, frame)
+        frame.clear()
+      }
+  }
+
+  /**
+   * A compressed frame, as found in a file.
+   *
+   * @param position the position of the frame header in the file
+   * @param uncompressedLength the length of the block once decompressed
+   * @param compressedLength the length of the block in the file
+   */
+  final case class Frame(position: Long, uncompressedLength: Int, compressedLength: Int) {
+    def dataPosition: Long = position + FrameHeaderLength
+    def next: Long = dataPosition + compressedLength
+  }
+
+  /**
+   * Reads the header of the frame that starts at position, only if it's complete in the file.
+   */
+  def readFrame(channel: FileChannel, position: Long): Option[Frame] =
+    if (position + FrameHeaderLength > channel.size) {
+      None
+    } else {
+      val header = ByteBuffer.allocate(FrameHeaderLength)
+      readFully(channel, header, position)
+      val frame = Frame(position, header.getInt(0), header.getInt(Integer.BYTES))
+      if (frame.uncompressedLength < 0 || frame.compressedLength < 0 || frame.next > channel.size) None else Some(frame)
+    }
+
+  /**
+   * Lists the complete frames of a compressed file, without reading their content.
+   */
+  def readFrames(channel: FileChannel): Vector[Frame] = {
+    val frames = Vector.newBuilder[Frame]
+    var frame = readFrame(channel, Magic.length)
+    while (frame.isDefined) {
+      frames += frame.get
+      frame = readFrame(channel, frame.get.next)
+    }
+    frames.result()
+  }
+
+  /**
+   * Reads the compressed content of a frame. Safe to call concurrently on the same channel.
+   */
+  def readCompressed(channel: FileChannel, frame: Frame): Array[Byte] = {
+    val compressed = ByteBuffer.allocate(frame.compressedLength)
+    readFully(channel, compressed, frame.dataPosition)
+    compressed.array
+  }
+
+  /**
+   * Decompresses the content of a frame, thread-safe.
+   */
+  def decompress(compressed: Array[Byte], uncompressedLength: Int): Array[Byte] = {
+    val block = new Array[Byte](uncompressedLength)
+    LZ4Factory.fastestInstance.fastDecompressor.decompress(compressed, 0, block, 0, uncompressedLength)
+    block
+  }
+
+  private def readFully(channel: FileChannel, buffer: ByteBuffer, position: Long): Unit =
+    while (buffer.hasRemaining) {
+      if (channel.read(buffer, position + buffer.position) < 0) {
+        throw new EOFException(s"Unexpected end of file at position ${position + buffer.position}")
+      }
+    }
+}
+
+sealed abstract class LogFileCompression(val name: String) {
+  def newBlockWriter(channel: FileChannel): LogFileCompression.BlockWriter
+}
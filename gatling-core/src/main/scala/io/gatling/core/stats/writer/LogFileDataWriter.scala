@@ -19,8 +19,8 @@ package io.gatling.core.stats.writer
 import java.io.RandomAccessFile
 import java.nio.{ ByteBuffer, CharBuffer }
 import java.nio.channels.FileChannel
-import java.nio.charset.CharsetEncoder
-import java.nio.charset.StandardCharsets.US_ASCII
+import java.nio.charset.{ Charset, CharsetEncoder }
+import java.nio.charset.StandardCharsets.{ US_ASCII, UTF_8 }
 import java.util.Base64
 
 import io.gatling.commons.shared.unstable.util.PathHelper._
@@ -30,6 +30,7 @@ import io.gatling.commons.util.StringHelper._
 import io.gatling.commons.util.StringHelper.EolBytes
 import io.gatling.core.config.GatlingConfiguration
 import io.gatling.core.config.GatlingFiles.simulationLogDirectory
+import io.gatling.core.stats.{ IdIndexedCache, NameRegistry }
 import io.gatling.core.stats.message.MessageEvent
 import io.gatling.core.util.{ Integers, Longs }
 
@@ -41,30 +42,69 @@ object BufferedFileChannelWriter {
     val encoder = configuration.core.charset.newEncoder
     val simulationLog = simulationLogDirectory(runId, create = true, configuration) / "simulation.log"
     val channel = new RandomAccessFile(simulationLog.toFile, "rw").getChannel
-    val bb = ByteBuffer.allocate(configuration.data.file.bufferSize)
+    val fileConfiguration = configuration.data.file
+
+    val output =
+      if (fileConfiguration.writeBuffers > 1) {
+        new AsyncChannelOutput(
+          channel,
+          fileConfiguration.bufferSize,
+          fileConfiguration.writeBuffers,
+          fileConfiguration.fsync,
+          fileConfiguration.compression,
+          s"gatling-log-writer-$runId"
+        )
+      } else {
+        new SyncChannelOutput(channel, ByteBuffer.allocate(fileConfiguration.bufferSize), fileConfiguration.fsync, fileConfiguration.compression)
+      }
 
-    new BufferedFileChannelWriter(channel, encoder, bb)
+    new BufferedFileChannelWriter(encoder, output)
   }
 }
 
-final class BufferedFileChannelWriter(channel: FileChannel, encoder: CharsetEncoder, bb: ByteBuffer) extends AutoCloseable with StrictLogging {
+final class BufferedFileChannelWriter(encoder: CharsetEncoder, output: ChannelOutput) extends AutoCloseable with StrictLogging {
+
+  def this(channel: FileChannel, encoder: CharsetEncoder, bb: ByteBuffer) =
+    this(encoder, new SyncChannelOutput(channel, bb, FsyncPolicy.OnClose))
+
+  private var bb = output.initialBuffer
+
+  def charset: Charset = encoder.charset
 
   def flush(): Unit = {
     bb.flip()
-    while (bb.hasRemaining) {
-      channel.write(bb)
-    }
-    bb.clear()
+    bb = output.write(bb)
   }
 
+  def stalls: Long = output.stalls
+
+  def stallNanos: Long = output.stallNanos
+
   private def ensureCapacity(i: Int): Unit =
     if (bb.remaining < i) {
       flush()
     }
 
-  def writeBytes(bytes: Array[Byte]): Unit = {
-    ensureCapacity(bytes.length)
-    bb.put(bytes)
+  def writeBytes(bytes: Array[Byte]): Unit =
+    if (bytes.length > bb.capacity) {
+      // goes through the buffers so the output sees writes in order
+      var offset = 0
+      while (offset < bytes.length) {
+        if (!bb.hasRemaining) {
+          flush()
+        }
+        val length = math.min(bb.remaining, bytes.length - offset)
+        bb.put(bytes, offset, length)
+        offset += length
+      }
+    } else {
+      ensureCapacity(bytes.length)
+      bb.put(bytes)
+    }
+
+  def writeByte(b: Byte): Unit = {
+    ensureCapacity(1)
+    bb.put(b)
   }
 
   def writeString(string: String): Unit = {
@@ -93,12 +133,45 @@ final class BufferedFileChannelWriter(channel: FileChannel, encoder: CharsetEnco
     Integers.writePositiveIntString(i, stringSize, bb)
   }
 
+  def writeLong(l: Long): Unit = {
+    ensureCapacity(java.lang.Long.BYTES)
+    bb.putLong(l)
+  }
+
+  def writeVarLong(l: Long): Unit = {
+    ensureCapacity(10)
+
+    var value = l
+    while ((value & ~0x7FL) != 0) {
+      bb.put(((value & 0x7F) | 0x80).toByte)
+      value >>>= 7
+    }
+    bb.put(value.toByte)
+  }
+
+  def writeVarInt(i: Int): Unit =
+    writeVarLong(i & 0xFFFFFFFFL)
+
+  def writeZigZagLong(l: Long): Unit =
+    writeVarLong((l << 1) ^ (l >> 63))
+
+  def writeSizedString(string: String): Unit = {
+    val bytes = string.getBytes(UTF_8)
+    writeVarInt(bytes.length)
+    writeBytes(bytes)
+  }
+
   override def close(): Unit =
     try {
-      flush()
-      channel.force(true)
+      bb.flip()
+      if (bb.hasRemaining) {
+        bb = output.write(bb)
+      }
+      if (output.stalls > 0) {
+        logger.info(s"simulation.log writer had to wait ${output.stallNanos / 1000000} ms in total for the disk ${output.stalls} times, consider increasing gatling.data.file.writeBuffers or bufferSize")
+      }
     } finally {
-      channel.close()
+      output.close()
     }
 }
 
@@ -125,25 +198,16 @@ abstract class DataWriterMessageSerializer[T](writer: BufferedFileChannelWriter,
   def writeSeparator(): Unit =
     writer.writeBytes(SeparatorBytes)
 
-  def writeGroupSeparator(): Unit =
-    writer.writeBytes(GroupSeparatorBytes)
-
   def writeSpace(): Unit =
     writer.writeBytes(SpaceBytes)
 
   def writeEol(): Unit =
     writer.writeBytes(EolBytes)
 
-  def writeGroups(groupHierarchy: List[String]): Unit = {
-    var i = groupHierarchy.length
-    groupHierarchy.foreach { group =>
-      writer.writeString(group.replaceIf(_ == GroupSeparatorChar, ' '))
-      i -= 1
-      if (i > 0) {
-        writeGroupSeparator()
-      }
-    }
-  }
+  protected def encode(string: String): Array[Byte] = string.getBytes(writer.charset)
+
+  protected def encodeGroups(groupHierarchy: List[String]): Array[Byte] =
+    encode(groupHierarchy.map(_.replaceIf(_ == GroupSeparatorChar, ' ')).mkString(GroupSeparatorChar.toString))
 
   private val headerBytes = header.getBytes(US_ASCII)
 
@@ -180,11 +244,14 @@ class RunMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriter
   }
 }
 
-class UserStartMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[UserStartMessage](writer, UserRecordHeader.value) {
+class UserStartMessageSerializer(writer: BufferedFileChannelWriter, names: NameRegistry)
+    extends DataWriterMessageSerializer[UserStartMessage](writer, UserRecordHeader.value) {
+
+  private val scenarioBytes = new IdIndexedCache[Array[Byte]]
 
   override protected def serialize0(user: UserStartMessage): Unit = {
     import user._
-    writer.writeString(scenario)
+    writer.writeBytes(scenarioBytes.getOrElseUpdate(names.scenarioId(scenario), encode(scenario)))
     writeSeparator()
     writer.writeString(MessageEvent.Start.name)
     writeSeparator()
@@ -192,11 +259,14 @@ class UserStartMessageSerializer(writer: BufferedFileChannelWriter) extends Data
   }
 }
 
-class UserEndMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[UserEndMessage](writer, UserRecordHeader.value) {
+class UserEndMessageSerializer(writer: BufferedFileChannelWriter, names: NameRegistry)
+    extends DataWriterMessageSerializer[UserEndMessage](writer, UserRecordHeader.value) {
+
+  private val scenarioBytes = new IdIndexedCache[Array[Byte]]
 
   override protected def serialize0(user: UserEndMessage): Unit = {
     import user._
-    writer.writeString(scenario)
+    writer.writeBytes(scenarioBytes.getOrElseUpdate(names.scenarioId(scenario), encode(scenario)))
     writeSeparator()
     writer.writeString(MessageEvent.End.name)
     writeSeparator()
@@ -204,16 +274,20 @@ class UserEndMessageSerializer(writer: BufferedFileChannelWriter) extends DataWr
   }
 }
 
-class ResponseMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[ResponseMessage](writer, RequestRecordHeader.value) {
+class ResponseMessageSerializer(writer: BufferedFileChannelWriter, names: NameRegistry)
+    extends DataWriterMessageSerializer[ResponseMessage](writer, RequestRecordHeader.value) {
 
   import DataWriterMessageSerializer._
 
+  // groups, separator, name and separator
+  private val requestPathBytes = new IdIndexedCache[Array[Byte]]
+
+  private def encodeRequestPath(groupHierarchy: List[String], name: String): Array[Byte] =
+    encodeGroups(groupHierarchy) ++ SeparatorBytes ++ encode(name) ++ SeparatorBytes
+
   override protected def serialize0(response: ResponseMessage): Unit = {
     import response._
-    writeGroups(groupHierarchy)
-    writeSeparator()
-    writer.writeString(name)
-    writeSeparator()
+    writer.writeBytes(requestPathBytes.getOrElseUpdate(names.requestId(groupHierarchy, name), encodeRequestPath(groupHierarchy, name)))
     writer.writePositiveLong(startTimestamp)
     writeSeparator()
     writer.writePositiveLong(endTimestamp)
@@ -227,11 +301,14 @@ class ResponseMessageSerializer(writer: BufferedFileChannelWriter) extends DataW
   }
 }
 
-class GroupMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[GroupMessage](writer, GroupRecordHeader.value) {
+class GroupMessageSerializer(writer: BufferedFileChannelWriter, names: NameRegistry)
+    extends DataWriterMessageSerializer[GroupMessage](writer, GroupRecordHeader.value) {
+
+  private val groupBytes = new IdIndexedCache[Array[Byte]]
 
   override protected def serialize0(group: GroupMessage): Unit = {
     import group._
-    writeGroups(groupHierarchy)
+    writer.writeBytes(groupBytes.getOrElseUpdate(names.groupId(groupHierarchy), encodeGroups(groupHierarchy)))
     writeSeparator()
     writer.writePositiveLong(startTimestamp)
     writeSeparator()
@@ -258,6 +335,15 @@ class AssertionSerializer(writer: BufferedFileChannelWriter) extends DataWriterM
   }
 }
 
+class BoundsSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[RunBounds](writer, BoundsRecordHeader.value) {
+
+  override protected def serialize0(bounds: RunBounds): Unit = {
+    writer.writePositiveLong(bounds.start)
+    writeSeparator()
+    writer.writePositiveLong(bounds.end)
+  }
+}
+
 class ErrorMessageSerializer(writer: BufferedFileChannelWriter) extends DataWriterMessageSerializer[ErrorMessage](writer, ErrorRecordHeader.value) {
 
   override protected def serialize0(error: ErrorMessage): Unit = {
@@ -268,12 +354,86 @@ class ErrorMessageSerializer(writer: BufferedFileChannelWriter) extends DataWrit
   }
 }
 
+/**
+ * Tracks the time span covered by the load events written in a simulation.log,
+ * so it can be written as a footer and readers don't have to scan the whole file to learn it.
+ */
+final class RunBounds {
+
+  var start: Long = Long.MaxValue
+  var end: Long = Long.MinValue
+
+  def isDefined: Boolean = start != Long.MaxValue && end != Long.MinValue
+
+  def update(message: LoadEventMessage): Unit =
+    message match {
+      case UserStartMessage(_, timestamp) =>
+        start = math.min(start, timestamp)
+      case UserEndMessage(_, timestamp) =>
+        end = math.max(end, timestamp)
+      case response: ResponseMessage =>
+        start = math.min(start, response.startTimestamp)
+        end = math.max(end, response.endTimestamp)
+      case group: GroupMessage =>
+        start = math.min(start, group.startTimestamp)
+        end = math.max(end, group.endTimestamp)
+      case _ =>
+    }
+}
+
+trait LogFileSerializer {
+
+  def serializeHeader(assertions: Seq[Assertion], runMessage: RunMessage): Unit
+
+  def serialize(message: LoadEventMessage): Unit
+
+  def serializeFooter(): Unit
+}
+
+object LogFileSerializer {
+
+  def apply(writer: BufferedFileChannelWriter, format: LogFileFormat, names: NameRegistry): LogFileSerializer =
+    format match {
+      case LogFileFormat.Text   => new TextLogFileSerializer(writer, names)
+      case LogFileFormat.Binary => new BinaryLogFileSerializer(writer, names)
+    }
+}
+
+final class TextLogFileSerializer(writer: BufferedFileChannelWriter, names: NameRegistry) extends LogFileSerializer {
+
+  private val userStartMessageSerializer = new UserStartMessageSerializer(writer, names)
+  private val userEndMessageSerializer = new UserEndMessageSerializer(writer, names)
+  private val responseMessageSerializer = new ResponseMessageSerializer(writer, names)
+  private val groupMessageSerializer = new GroupMessageSerializer(writer, names)
+  private val errorMessageSerializer = new ErrorMessageSerializer(writer)
+  private val bounds = new RunBounds
+
+  override def serializeHeader(assertions: Seq[Assertion], runMessage: RunMessage): Unit = {
+    val assertionSerializer = new AssertionSerializer(writer)
+    assertions.foreach(assertion => assertionSerializer.serialize(assertion))
+    new RunMessageSerializer(writer).serialize(runMessage)
+  }
+
+  override def serialize(message: LoadEventMessage): Unit = {
+    bounds.update(message)
+    message match {
+      case user: UserStartMessage    => userStartMessageSerializer.serialize(user)
+      case user: UserEndMessage      => userEndMessageSerializer.serialize(user)
+      case group: GroupMessage       => groupMessageSerializer.serialize(group)
+      case response: ResponseMessage => responseMessageSerializer.serialize(response)
+      case error: ErrorMessage       => errorMessageSerializer.serialize(error)
+      case _                         =>
+    }
+  }
+
+  override def serializeFooter(): Unit =
+    if (bounds.isDefined) {
+      new BoundsSerializer(writer).serialize(bounds)
+    }
+}
+
 final class FileData(
-    val userStartMessageSerializer: UserStartMessageSerializer,
-    val userEndMessageSerializer: UserEndMessageSerializer,
-    val responseMessageSerializer: ResponseMessageSerializer,
-    val groupMessageSerializer: GroupMessageSerializer,
-    val errorMessageSerializer: ErrorMessageSerializer,
+    val serializer: LogFileSerializer,
     val writer: BufferedFileChannelWriter
 ) extends DataWriterData
 
@@ -284,34 +444,21 @@ class LogFileDataWriter(clock: Clock, configuration: GatlingConfiguration) exten
     import init._
 
     val writer = BufferedFileChannelWriter(runMessage.runId, configuration)
-    val assertionSerializer = new AssertionSerializer(writer)
-    assertions.foreach(assertion => assertionSerializer.serialize(assertion))
-    new RunMessageSerializer(writer).serialize(runMessage)
+    val serializer = LogFileSerializer(writer, configuration.data.file.format, names)
+    serializer.serializeHeader(assertions, runMessage)
 
-    new FileData(
-      new UserStartMessageSerializer(writer),
-      new UserEndMessageSerializer(writer),
-      new ResponseMessageSerializer(writer),
-      new GroupMessageSerializer(writer),
-      new ErrorMessageSerializer(writer),
-      writer
-    )
+    new FileData(serializer, writer)
   }
 
   override def onFlush(data: FileData): Unit = {}
 
   override def onMessage(message: LoadEventMessage, data: FileData): Unit =
-    message match {
-      case user: UserStartMessage    => data.userStartMessageSerializer.serialize(user)
-      case user: UserEndMessage      => data.userEndMessageSerializer.serialize(user)
-      case group: GroupMessage       => data.groupMessageSerializer.serialize(group)
-      case response: ResponseMessage => data.responseMessageSerializer.serialize(response)
-      case error: ErrorMessage       => data.errorMessageSerializer.serialize(error)
-      case _                         =>
-    }
+    data.serializer.serialize(message)
 
   override def onCrash(cause: String, data: FileData): Unit = {}
 
-  override def onStop(data: FileData): Unit =
+  override def onStop(data: FileData): Unit = {
+    data.serializer.serializeFooter()
     data.writer.close()
+  }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{ Path, StandardOpenOption }
+
+object LogFileFormat {
+  def apply(name: String): LogFileFormat = name match {
+    case Text.name   => Text
+    case Binary.name => Binary
+    case _           => throw new IllegalArgumentException(s"Unsupported simulation.log format: '$name'")
+  }
+
+  /**
+   * Detects the format of a simulation.log file from its first bytes, once decompressed if it is.
+   */
+  def of(path: Path): LogFileFormat = {
+    val channel = FileChannel.open(path, StandardOpenOption.READ)
+    try {
+      val magic = LogFileCompression.of(channel) match {
+        case LogFileCompression.Uncompressed =>
+          val buffer = ByteBuffer.allocate(BinaryRecords.Magic.length)
+          while (buffer.hasRemaining && channel.read(buffer) >= 0) {}
+          buffer.array
+
+        case LogFileCompression.Lz4 =>
+          LogFileCompression
+            .readFrame(channel, LogFileCompression.Magic.length)
+            .map(frame => LogFileCompression.decompress(LogFileCompression.readCompressed(channel, frame), frame.uncompressedLength))
+            .getOrElse(Array.emptyByteArray)
+            .take(BinaryRecords.Magic.length)
+      }
+      if (magic.sameElements(BinaryRecords.Magic)) Binary else Text
+    } finally {
+      channel.close()
+    }
+  }
+
+  case object Text extends LogFileFormat("text")
+  case object Binary extends LogFileFormat("binary")
+}
+
+sealed abstract class LogFileFormat(val name: String)
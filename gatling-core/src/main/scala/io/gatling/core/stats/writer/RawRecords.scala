@@ -23,6 +23,7 @@ object UserRecordHeader extends RecordHeader("USER")
 object GroupRecordHeader extends RecordHeader("GROUP")
 object ErrorRecordHeader extends RecordHeader("ERROR")
 object AssertionRecordHeader extends RecordHeader("ASSERTION")
+object BoundsRecordHeader extends RecordHeader("BOUNDS")
 
 sealed abstract class RawRecord(header: RecordHeader, recordLength: Int) {
   def unapply(array: Array[String]): Option[Array[String]] =
@@ -35,3 +36,4 @@ object RawUserRecord extends RawRecord(UserRecordHeader, 4)
 object RawGroupRecord extends RawRecord(GroupRecordHeader, 6)
 object RawErrorRecord extends RawRecord(ErrorRecordHeader, 3)
 object RawAssertionRecord extends RawRecord(AssertionRecordHeader, 2)
+object RawBoundsRecord extends RawRecord(BoundsRecordHeader, 3)
@@ -24,7 +24,7 @@ import io.gatling.core.controller.throttle.{ ThrottleStep, Throttling }
 import io.gatling.core.pause._
 import io.gatling.core.protocol.{ Protocol, ProtocolComponentsRegistries, Protocols }
 import io.gatling.core.scenario.Scenario
-import io.gatling.core.session.Expression
+import io.gatling.core.session.{ CompactAttributes, Expression }
 
 import com.softwaremill.quicklens._
 import com.typesafe.scalalogging.LazyLogging
@@ -106,6 +106,7 @@ final case class PopulationBuilder(
       entry,
       protocolComponentsRegistry.onStart,
       protocolComponentsRegistry.onExit,
+      if (coreComponents.configuration.core.compactSessionAttributes) CompactAttributes.Empty else Map.empty,
       injectionProfile,
       ctx,
       childrenScenarios
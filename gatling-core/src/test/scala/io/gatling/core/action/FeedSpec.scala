@@ -18,6 +18,8 @@ package io.gatling.core.action
 
 import io.gatling.AkkaSpec
 import io.gatling.commons.util.DefaultClock
+import io.gatling.core.controller.ControllerCommand.Crash
+import io.gatling.core.feeder.{ ConcurrentFeeder, InMemoryFeeder, Queue }
 import io.gatling.core.session._
 import io.gatling.core.stats.StatsEngine
 
@@ -40,4 +42,30 @@ class FeedSpec extends AkkaSpec with MockitoSugar {
     feedMessage.session shouldBe emptySession
     feedMessage.next shouldBe next
   }
+
+  "InlineFeed" should "put a record in the session and forward it to the next action" in {
+    val controller = TestProbe()
+    val next = new ActorDelegatingAction("next", self)
+    val feeder = InMemoryFeeder(Vector(Map("foo" -> "bar")), None, Queue)
+
+    val feed = new InlineFeed(feeder.asInstanceOf[ConcurrentFeeder[Any]], "feed", 1.expressionSuccess, controller.ref, mock[StatsEngine], clock, next)
+
+    feed ! emptySession
+
+    expectMsgType[Session].attributes shouldBe Map("foo" -> "bar")
+  }
+
+  it should "force the simulation termination once the feeder is empty" in {
+    val controller = TestProbe()
+    val next = new ActorDelegatingAction("next", self)
+    val feeder = InMemoryFeeder(Vector(Map("foo" -> "bar")), None, Queue)
+
+    val feed = new InlineFeed(feeder.asInstanceOf[ConcurrentFeeder[Any]], "feed", 1.expressionSuccess, controller.ref, mock[StatsEngine], clock, next)
+
+    feed ! emptySession
+    expectMsgType[Session]
+
+    feed ! emptySession
+    controller.expectMsgType[Crash]
+  }
 }
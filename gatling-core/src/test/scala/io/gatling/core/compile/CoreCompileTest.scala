@@ -42,6 +42,7 @@ class CoreCompileTest extends Simulation {
   feed(csv("foo.csv.zip").unzip)
   feed(csv("foo.csv").eager)
   feed(csv("foo.csv").batch)
+  feed(csv("foo.csv").packed.shuffle)
   feed(csv("foo.csv").unzip.batch.random)
   feed(csv("foo.csv").batch(500))
   feed(csv("foo.csv").batch(500).random)
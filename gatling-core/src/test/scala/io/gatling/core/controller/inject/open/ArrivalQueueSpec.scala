@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.inject.open
+
+import java.util.concurrent.{ ConcurrentLinkedQueue, TimeUnit }
+
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+
+import io.gatling.BaseSpec
+
+import io.netty.channel.{ DefaultEventLoop, DefaultEventLoopGroup, EventLoop }
+import org.scalatest.concurrent.Eventually
+
+class ArrivalQueueSpec extends BaseSpec with Eventually {
+
+  override implicit val patienceConfig: PatienceConfig = PatienceConfig(timeout = 5.seconds, interval = 10.millis)
+
+  private def withEventLoop(f: DefaultEventLoop => Unit): Unit = {
+    val eventLoop = new DefaultEventLoop
+    try {
+      f(eventLoop)
+    } finally {
+      eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+    }
+  }
+
+  private def offer(queue: ArrivalQueue, deadlines: Array[Long], start: EventLoop => Unit): Unit =
+    queue.offer(deadlines, Array.fill(deadlines.length)(start))
+
+  "ArrivalQueue" should "start users at their arrival time, in order" in withEventLoop { eventLoop =>
+    val startTimes = new ConcurrentLinkedQueue[Long]
+    val queue = new ArrivalQueue(eventLoop)
+
+    val now = System.nanoTime()
+    val deadlines = Array.tabulate(50)(i => now + 20.millis.toNanos + i * 1.milli.toNanos)
+    offer(queue, deadlines.take(25), _ => startTimes.add(System.nanoTime()))
+    offer(queue, deadlines.drop(25), _ => startTimes.add(System.nanoTime()))
+
+    eventually(startTimes.size shouldBe deadlines.length)
+    startTimes.asScala.zip(deadlines).foreach { case (startTime, deadline) =>
+      startTime should be >= deadline
+    }
+  }
+
+  it should "start late users right away" in withEventLoop { eventLoop =>
+    val started = new ConcurrentLinkedQueue[Int]
+    var i = 0
+    val queue = new ArrivalQueue(eventLoop)
+
+    val now = System.nanoTime()
+    offer(
+      queue,
+      Array(now - 10.millis.toNanos, now - 5.millis.toNanos, now + 1.hour.toNanos),
+      _ => {
+        i += 1
+        started.add(i)
+      }
+    )
+
+    eventually(started.asScala.toSeq shouldBe Seq(1, 2))
+    eventLoop.submit(() => queue.pending).get shouldBe 1
+  }
+
+  it should "merge arrivals of distinct workloads and re-arm its timer for earlier ones" in withEventLoop { eventLoop =>
+    val started = new ConcurrentLinkedQueue[String]
+    val queue = new ArrivalQueue(eventLoop)
+
+    val now = System.nanoTime()
+    offer(queue, Array(now + 200.millis.toNanos, now + 300.millis.toNanos), _ => started.add("parent"))
+    // a child scenario starting before the parent's queued arrivals
+    offer(queue, Array(now + 20.millis.toNanos, now + 250.millis.toNanos), _ => started.add("child"))
+
+    eventually(started.size shouldBe 1)
+    started.asScala.toSeq shouldBe Seq("child")
+    eventually(started.asScala.toSeq shouldBe Seq("child", "parent", "child", "parent"))
+  }
+
+  "Arrivals" should "spread the users of all the workloads round robin over the event loops" in {
+    val eventLoopGroup = new DefaultEventLoopGroup(2)
+    try {
+      val arrivals = new Arrivals(eventLoopGroup)
+      val started = new ConcurrentLinkedQueue[(String, EventLoop)]
+      val now = System.nanoTime()
+
+      // one user per workload and per batch, that would all land on the first event loop with per workload cursors
+      for (scenario <- Seq("a", "b", "c", "d")) {
+        arrivals.add(now, eventLoop => started.add(scenario -> eventLoop))
+      }
+      arrivals.flush()
+
+      eventually(started.size shouldBe 4)
+      val eventLoopsByScenario = started.asScala.toMap
+      eventLoopsByScenario("a") shouldBe eventLoopsByScenario("c")
+      eventLoopsByScenario("b") shouldBe eventLoopsByScenario("d")
+      eventLoopsByScenario("a") should not be eventLoopsByScenario("b")
+    } finally {
+      eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+    }
+  }
+}
@@ -44,18 +44,19 @@ object OpenInjectionProfileSpec {
     var count = 0
 
     val workload = new OpenWorkload(
-      scenario = new Scenario("foo", null, identity, _ => (), null, null, Nil),
+      scenario = new Scenario("foo", null, identity, _ => (), Map.empty, null, null, Nil),
       stream = UserStream(profile.steps),
       userIdGen = new AtomicLong,
       startTime = System.currentTimeMillis(),
       duration = profile.steps.foldLeft(Duration.Zero)((acc, step) => acc.plus(step.duration)),
       isEmpty = profile.steps.forall(_.users == 0),
       eventLoopGroup = null,
+      arrivals = null,
       statsEngine = null,
       clock = new FakeClock
     ) {
 
-      override protected def injectUser(delay: FiniteDuration): Unit =
+      override protected def injectUser(delayNanos: Long): Unit =
         count += 1
     }
 
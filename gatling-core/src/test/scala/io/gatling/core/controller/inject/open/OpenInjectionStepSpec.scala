@@ -66,6 +66,13 @@ class OpenInjectionStepSpec extends BaseSpec {
     rampScheduling shouldBe sorted
   }
 
+  it should "keep sub millisecond intervals" in {
+    val rampScheduling = scheduling(RampOpenInjection(4000, 1.second))
+
+    rampScheduling(1) shouldBe (250.microseconds)
+    rampScheduling.distinct.size shouldBe 4000
+  }
+
   "ConstantRateInjection" should "return the correct number of users" in {
     ConstantRateOpenInjection(1.0, 5.seconds).users shouldBe 5
     ConstantRateOpenInjection(0.4978, 100.seconds).users shouldBe 50
@@ -149,7 +156,7 @@ class OpenInjectionStepSpec extends BaseSpec {
   }
 
   it should "provide correct values" in {
-    heavisideScheduling(1) shouldBe (291.milliseconds)
+    heavisideScheduling(1).toMillis shouldBe 291
     heavisideScheduling shouldBe sorted
     heavisideScheduling.last shouldBe <(5.seconds)
   }
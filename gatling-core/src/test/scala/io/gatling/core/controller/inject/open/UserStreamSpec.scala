@@ -39,16 +39,16 @@ class UserStreamSpec extends BaseSpec {
     var cont = true
 
     var lastBatchTimeSinceStart = 0
-    var lastBatchMaxOffset = Duration.Zero
+    var lastBatchMaxOffset = 0L
 
     while (cont) {
       // batches are scheduled every 1 second
       lastBatchTimeSinceStart = count * (TickPeriod.toMillis.toInt + 5) // 5 ms scheduler drift on each iteration
 
-      val injection = userStream.withStream(TickPeriod * 2, lastBatchTimeSinceStart + startTime, startTime) { duration =>
+      val injection = userStream.withStream(TickPeriod * 2, lastBatchTimeSinceStart + startTime, startTime) { delay =>
         injectedUsers += 1
         // calls are sorted
-        lastBatchMaxOffset = duration
+        lastBatchMaxOffset = delay.nanoseconds.toMillis
       }
 
       count += 1
@@ -57,8 +57,8 @@ class UserStreamSpec extends BaseSpec {
 
     injectedUsers shouldBe expectedTotalUsers
 
-    val lastSchedulingOffset = lastBatchMaxOffset + lastBatchTimeSinceStart.millis
-    lastSchedulingOffset.toMillis shouldBe expectedDuration.toMillis +- (4.seconds).toMillis
+    val lastSchedulingOffset = lastBatchMaxOffset + lastBatchTimeSinceStart
+    lastSchedulingOffset shouldBe expectedDuration.toMillis +- (4.seconds).toMillis
   }
 
   it should "continue injecting after first batch" in {
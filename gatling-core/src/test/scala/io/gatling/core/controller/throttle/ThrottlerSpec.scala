@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.controller.throttle
+
+import java.util.concurrent.{ ConcurrentLinkedQueue, TimeUnit }
+
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+
+import io.gatling.AkkaSpec
+import io.gatling.core.config.{ ThrottleOverflowPolicy, ThrottlingConfiguration }
+
+import io.netty.channel.DefaultEventLoop
+import org.scalatest.concurrent.Eventually
+
+class ThrottlerSpec extends AkkaSpec with Eventually {
+
+  override implicit val patienceConfig: PatienceConfig = PatienceConfig(timeout = 5.seconds, interval = 10.millis)
+
+  private def withEventLoop(f: DefaultEventLoop => Unit): Unit = {
+    val eventLoop = new DefaultEventLoop
+    try {
+      f(eventLoop)
+    } finally {
+      eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync()
+    }
+  }
+
+  private def throttles(global: Option[Int], perScenario: (String, Int)*): Throttles =
+    Throttles(global.map(new Throttle(_)), perScenario.map { case (scenario, limit) => scenario -> new Throttle(limit) }.toMap)
+
+  private def waitForTasks(eventLoop: DefaultEventLoop): Unit =
+    eventLoop.submit((() => ()): Runnable).sync()
+
+  "Throttles" should "not take a global permit when the scenario has none left" in {
+    val ths = throttles(Some(2), "scn" -> 1)
+
+    ths.tryAcquire("scn") shouldBe true
+    ths.tryAcquire("scn") shouldBe false
+    ths.tryAcquire("other") shouldBe true
+    ths.tryAcquire("other") shouldBe false
+  }
+
+  "ThrottlerShards" should "hold back requests above the limit until the next refill" in withEventLoop { eventLoop =>
+    val throttler = new ThrottlerShards(system, new ThrottlingConfiguration(100, ThrottleOverflowPolicy.Stop))
+    val sent = new ConcurrentLinkedQueue[Int]
+    throttler.refill(throttles(Some(20)))
+
+    (1 to 30).foreach(i => throttler.throttle("scn", eventLoop, () => sent.add(i)))
+    waitForTasks(eventLoop)
+
+    eventually(sent.size shouldBe 20)
+    throttler.backlogDepth shouldBe 10
+
+    throttler.refill(throttles(Some(20)))
+    waitForTasks(eventLoop)
+
+    eventually(sent.size shouldBe 30)
+    throttler.backlogDepth shouldBe 0
+    sent.asScala.toSeq shouldBe (1 to 30)
+    throttler.maxBacklogDepth shouldBe 10
+  }
+
+  it should "not let new requests take the permits of a refilled window ahead of backlogged ones" in withEventLoop { eventLoop =>
+    val throttler = new ThrottlerShards(system, new ThrottlingConfiguration(100, ThrottleOverflowPolicy.Stop))
+    val sent = new ConcurrentLinkedQueue[Int]
+
+    // not started yet, held back
+    throttler.throttle("scn", eventLoop, () => sent.add(1))
+    waitForTasks(eventLoop)
+
+    // offered on the event loop before the drain scheduled by the refill gets a chance to run
+    eventLoop
+      .submit((() => {
+        throttler.refill(throttles(Some(1)))
+        throttler.throttle("scn", eventLoop, () => sent.add(2))
+      }): Runnable)
+      .sync()
+    waitForTasks(eventLoop)
+
+    sent.asScala.toSeq shouldBe Seq(1)
+    throttler.backlogDepth shouldBe 1
+  }
+
+  it should "not let a scenario out of permits hold back the other ones" in withEventLoop { eventLoop =>
+    val throttler = new ThrottlerShards(system, new ThrottlingConfiguration(100, ThrottleOverflowPolicy.Stop))
+    val sent = new ConcurrentLinkedQueue[String]
+
+    // not started yet, everything gets held back
+    (1 to 5).foreach(_ => throttler.throttle("a", eventLoop, () => sent.add("a")))
+    throttler.throttle("b", eventLoop, () => sent.add("b"))
+    waitForTasks(eventLoop)
+    throttler.backlogDepth shouldBe 6
+
+    throttler.refill(throttles(None, "a" -> 1, "b" -> 100))
+    waitForTasks(eventLoop)
+
+    eventually(sent.asScala.toSeq.sorted shouldBe Seq("a", "b"))
+    throttler.backlogDepth shouldBe 4
+  }
+
+  it should "send overflowing requests right away with the bypass policy" in withEventLoop { eventLoop =>
+    val throttler = new ThrottlerShards(system, new ThrottlingConfiguration(1, ThrottleOverflowPolicy.Bypass))
+    val sent = new ConcurrentLinkedQueue[Int]
+    throttler.refill(throttles(Some(1)))
+
+    (1 to 3).foreach(i => throttler.throttle("scn", eventLoop, () => sent.add(i)))
+    waitForTasks(eventLoop)
+
+    sent.asScala.toSeq shouldBe Seq(1, 3)
+    throttler.backlogDepth shouldBe 1
+    throttler.overflowCount shouldBe 1L
+    throttler.summary shouldBe "Throttler held back up to 0 requests, 1 requests overflowed backlogs of 1 requests per event loop"
+  }
+}
@@ -16,9 +16,10 @@
 
 package io.gatling.core.feeder
 
-import java.io.ByteArrayInputStream
+import java.io.{ ByteArrayInputStream, File }
 import java.nio.channels.{ Channels, ReadableByteChannel }
 import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
 
 import io.gatling.BaseSpec
 
@@ -90,4 +91,70 @@ class BatchedSeparatedValuesFeederSpec extends BaseSpec {
       Map("column1" -> "line5_1", "column2" -> "line5_2")
     )
   }
+
+  private def withFile[T](content: String)(f: File => T): T = {
+    val file = Files.createTempFile("batched", ".csv").toFile
+    try {
+      Files.write(file.toPath, content.getBytes(UTF_8))
+      f(file)
+    } finally {
+      file.delete()
+      SeparatedValuesIndex.indexFile(file).delete()
+    }
+  }
+
+  private val allRecords = (1 to 5).map(i => Map("column1" -> s"line${i}_1", "column2" -> s"line${i}_2"))
+
+  "SeparatedValuesIndex" should "index every non blank record, even with line feeds in quotes" in {
+    withFile("\uFEFFcolumn1,column2\r\n\r\nfoo,\"multi\nline\"\r\n\nbar,baz") { file =>
+      val index = SeparatedValuesIndex.open(file, ',', '"', UTF_8, persist = false)
+      try {
+        index.headers shouldBe Array("column1", "column2")
+        index.length shouldBe 2
+        index(0) shouldBe Map("column1" -> "foo", "column2" -> "multi\nline")
+        index(1) shouldBe Map("column1" -> "bar", "column2" -> "baz")
+      } finally {
+        index.close()
+      }
+    }
+  }
+
+  it should "persist the index and rebuild it when the file changes" in {
+    withFile(csvContent) { file =>
+      SeparatedValuesIndex.open(file, ',', '"', UTF_8, persist = true).close()
+      SeparatedValuesIndex.indexFile(file).exists shouldBe true
+
+      Files.write(file.toPath, (csvContent + "line6_1,line6_2\n").getBytes(UTF_8))
+      file.setLastModified(file.lastModified + 2000)
+      val index = SeparatedValuesIndex.open(file, ',', '"', UTF_8, persist = true)
+      try {
+        index.length shouldBe 6
+      } finally {
+        index.close()
+      }
+    }
+  }
+
+  "RandomIndexedSeparatedValuesFeeder" should "feed an infinite stream of records picked in the whole file" in {
+    withFile(csvContent) { file =>
+      val feeder = new RandomIndexedSeparatedValuesFeeder(SeparatedValuesIndex.open(file, ',', '"', UTF_8, persist = false))
+      try {
+        feeder.take(100).toSet shouldBe allRecords.toSet
+      } finally {
+        feeder.close()
+      }
+    }
+  }
+
+  "ShuffleIndexedSeparatedValuesFeeder" should "feed every record once" in {
+    withFile(csvContent) { file =>
+      val feeder = new ShuffleIndexedSeparatedValuesFeeder(SeparatedValuesIndex.open(file, ',', '"', UTF_8, persist = false))
+      try {
+        feeder.toVector.sortBy(_("column1")) shouldBe allRecords
+        feeder.hasNext shouldBe false
+      } finally {
+        feeder.close()
+      }
+    }
+  }
 }
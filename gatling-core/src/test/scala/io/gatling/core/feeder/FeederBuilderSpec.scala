@@ -78,6 +78,14 @@ class FeederBuilderSpec extends BaseSpec with FeederSupport {
     circularFeeder.next() shouldBe Map("1" -> "Test")
   }
 
+  it should "build concurrent feeders for all strategies" in {
+    val records = IndexedSeq(Map("1" -> "Test"), Map("2" -> "Test"))
+    records.queue.apply() shouldBe a[ConcurrentFeeder[_]]
+    records.random.apply() shouldBe a[ConcurrentFeeder[_]]
+    records.shuffle.apply() shouldBe a[ConcurrentFeeder[_]]
+    records.circular.apply() shouldBe a[ConcurrentFeeder[_]]
+  }
+
   "RecordSeqFeederBuilder" should "be able to have a record converted" in {
     val queuedFeeder = IndexedSeq(Map("1" -> "Test"), Map("2" -> "Test"))
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import io.gatling.BaseSpec
+
+class PackedRecordsSpec extends BaseSpec {
+
+  private def pack(headers: Array[String], rows: Seq[Array[String]]): PackedRecords = {
+    val builder = new PackedRecords.Builder(headers)
+    rows.foreach(builder.add)
+    builder.result()
+  }
+
+  "PackedRecords" should "return the records it was built with" in {
+    val records = pack(Array("foo", "bar"), Seq(Array("hello", "world"), Array("", "empty")))
+
+    records.length shouldBe 2
+    records(0) shouldBe Map("foo" -> "hello", "bar" -> "world")
+    records(1) shouldBe Map("foo" -> "", "bar" -> "empty")
+  }
+
+  it should "handle rows with missing or extra values like ArrayBasedMap" in {
+    val records = pack(Array("foo", "bar"), Seq(Array("hello"), Array("a", "b", "c")))
+
+    records(0) shouldBe Map("foo" -> "hello")
+    records(1) shouldBe Map("foo" -> "a", "bar" -> "b")
+  }
+
+  it should "preserve non ASCII values" in {
+    pack(Array("foo"), Seq(Array("héllo wörld ✓")))(0) shouldBe Map("foo" -> "héllo wörld ✓")
+  }
+
+  it should "span several chunks" in {
+    val size = 200000
+    val records = pack(Array("id", "value"), (0 until size).map(i => Array(i.toString, "value" + i)))
+
+    records.length shouldBe size
+    Seq(0, 65535, 65536, 131072, size - 1).foreach { i =>
+      records(i) shouldBe Map("id" -> i.toString, "value" -> ("value" + i))
+    }
+    an[IndexOutOfBoundsException] should be thrownBy records(size)
+  }
+
+  "InMemoryFeeder" should "feed packed records with a conversion" in {
+    val records = pack(Array("id"), (0 until 10).map(i => Array(i.toString)))
+    val conversion: Record[String] => Record[Any] = _.map { case (key, value) => key -> value.toInt }
+
+    InMemoryFeeder(records, Some(conversion), Queue).toList shouldBe (0 until 10).map(i => Map("id" -> i))
+    InMemoryFeeder(records, Some(conversion), Shuffle).toList.sortBy(_("id").asInstanceOf[Int]) shouldBe (0 until 10).map(i => Map("id" -> i))
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.feeder
+
+import java.io.StringReader
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+import java.util.concurrent.ForkJoinPool
+
+import scala.jdk.CollectionConverters._
+import scala.util.Using
+
+import io.gatling.BaseSpec
+
+import org.simpleflatmapper.lightningcsv.CsvParser
+
+class ParallelSeparatedValuesParserSpec extends BaseSpec {
+
+  // chunks ending with a line feed might yield an extra blank row, which feeders skip anyway
+  private def nonBlank(rows: Iterator[Array[String]]): List[Seq[String]] =
+    rows.map(_.toSeq).filterNot(_ == Seq("")).toList
+
+  private def parallelRows(content: String, chunkSize: Int): List[Seq[String]] = {
+    val file = Files.createTempFile("parallel", ".csv")
+    try {
+      Files.write(file, content.getBytes(UTF_8))
+      val pool = new ForkJoinPool(4)
+      try {
+        Using.resource(FileChannel.open(file)) { channel =>
+          nonBlank(ParallelSeparatedValuesParser.rows(channel, ',', '"', UTF_8, pool, chunkSize).asScala)
+        }
+      } finally {
+        pool.shutdown()
+      }
+    } finally {
+      Files.delete(file)
+    }
+  }
+
+  private def sequentialRows(content: String): List[Seq[String]] =
+    nonBlank(CsvParser.separator(',').quote('"').iterator(new StringReader(content)).asScala)
+
+  "ParallelSeparatedValuesParser" should "return the same rows as the sequential parser, in order" in {
+    val content = "id,value\n" + (0 until 1000).map(i => s"$i,value$i").mkString("\n")
+
+    parallelRows(content, chunkSize = 64) shouldBe sequentialRows(content)
+  }
+
+  it should "not split records on line feeds inside quotes" in {
+    val content = "id,value\n" + (0 until 200).map(i => s"""$i,"multi\nline, ""quoted""\nvalue $i"""").mkString("\r\n") + "\r\n"
+
+    Seq(1, 7, 32, 1024).foreach { chunkSize =>
+      parallelRows(content, chunkSize) shouldBe sequentialRows(content)
+    }
+  }
+
+  it should "skip the UTF-8 BOM and keep non ASCII characters" in {
+    val content = "\uFEFFfoo,bar\nhéllo,wörld\n"
+
+    parallelRows(content, chunkSize = 4) shouldBe List(Seq("foo", "bar"), Seq("héllo", "wörld"))
+  }
+
+  it should "handle empty files" in {
+    parallelRows("", chunkSize = 4) shouldBe Nil
+  }
+}
@@ -46,6 +46,11 @@ class SeparatedValuesFeederSpec extends BaseSpec with FeederSupport {
     data shouldBe Array(Map("id" -> "id", "payload" -> """{"key1": "value1", "key2": "value3"}"""))
   }
 
+  it should "load the same records when packed" in {
+    val data = csv("sample2.csv").packed.readRecords
+    data shouldBe Array(Map("foo" -> "hello", "bar" -> "world"))
+  }
+
   "tsv" should "handle file without quote char" in {
     val data = tsv("sample1.tsv").readRecords
     data shouldBe Array(Map("foo" -> "hello", "bar" -> "world"))
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.session
+
+import java.util.Random
+
+import io.gatling.BaseSpec
+
+class CompactAttributesSpec extends BaseSpec {
+
+  "CompactAttributes" should "behave like a Map" in {
+    val attributes = CompactAttributes.Empty.updated("foo", 1).updated("bar", "baz")
+
+    attributes.size shouldBe 2
+    attributes("foo") shouldBe 1
+    attributes.get("bar") shouldBe Some("baz")
+    attributes.get("qix") shouldBe None
+    attributes shouldBe Map("foo" -> 1, "bar" -> "baz")
+    a[NoSuchElementException] shouldBe thrownBy(attributes("qix"))
+  }
+
+  it should "not alter the original instance when updated" in {
+    val original = CompactAttributes(Seq("foo" -> 1, "bar" -> 2))
+    original.updated("foo", 3).removed("bar").updated("baz", 4)
+
+    original shouldBe Map("foo" -> 1, "bar" -> 2)
+  }
+
+  it should "return the same instance when nothing changes" in {
+    val value = new Object
+    val attributes = CompactAttributes.Empty.updated("foo", value)
+
+    attributes.updated("foo", value) should be theSameInstanceAs attributes
+    attributes.removed("bar") should be theSameInstanceAs attributes
+    attributes.filter(_ => true) should be theSameInstanceAs attributes
+  }
+
+  it should "replace a value with an equal value of another type" in {
+    CompactAttributes.Empty.updated("foo", 1).updated("foo", 1L)("foo") shouldBe a[java.lang.Long]
+  }
+
+  it should "stay compact when filtered or concatenated" in {
+    val attributes = CompactAttributes(Seq("foo" -> 1, "bar" -> 2)) ++ Seq("baz" -> 3)
+
+    attributes shouldBe a[CompactAttributes]
+    attributes.filter { case (key, _) => key.startsWith("b") } shouldBe a[CompactAttributes]
+    attributes.filter { case (key, _) => key.startsWith("b") } shouldBe Map("bar" -> 2, "baz" -> 3)
+  }
+
+  it should "match a HashMap under random updates and removals" in {
+    val random = new Random(0L)
+    var expected = Map.empty[String, Any]
+    var actual = CompactAttributes.Empty
+    // half of the keys also get written through their slot
+    val slots = Array.tabulate(50)(i => AttributeSlot("randomKey" + i))
+
+    for (i <- 0 until 20000) {
+      // few keys so that tables grow, entries collide and get removed from the middle of probe sequences
+      val k = random.nextInt(100)
+      val key = "randomKey" + k
+      random.nextInt(3) match {
+        case 0 =>
+          expected -= key
+          actual = actual.removed(key)
+        case 1 if k < slots.length =>
+          expected += key -> i
+          actual = actual.updatedSlot(slots(k), i)
+        case _ =>
+          expected += key -> i
+          actual = actual.updated(key, i)
+      }
+      actual.size shouldBe expected.size
+      actual.get(key) shouldBe expected.get(key)
+      if (k < slots.length) {
+        actual.valueOrElse(slots(k), "undefined") shouldBe expected.getOrElse(key, "undefined")
+      }
+    }
+
+    actual shouldBe expected
+    actual.iterator.toList.sortBy(_._1) shouldBe expected.toList.sortBy(_._1)
+  }
+
+  it should "resolve slots and names alike" in {
+    val slot = AttributeSlot("slotted")
+    val attributes = CompactAttributes.Empty.updatedSlot(slot, 1).updated("dynamic", 2).updated("nullValue", null)
+
+    attributes.valueOrElse(slot, "undefined") shouldBe 1
+    attributes("slotted") shouldBe 1
+    attributes("dynamic") shouldBe 2
+    attributes.get("nullValue") shouldBe Some(null)
+    attributes.valueOrElse(AttributeSlot("undefinedSlot"), "undefined") shouldBe "undefined"
+    attributes shouldBe Map("slotted" -> 1, "dynamic" -> 2, "nullValue" -> null)
+    attributes.removed("slotted") shouldBe Map("dynamic" -> 2, "nullValue" -> null)
+  }
+
+  it should "keep a single entry for attributes written both by name and through their slot" in {
+    val slot = AttributeSlot("mixed")
+    val byName = CompactAttributes.Empty.updated("mixed", 1)
+
+    byName.valueOrElse(slot, "undefined") shouldBe 1
+    byName.updatedSlot(slot, 2) shouldBe Map("mixed" -> 2)
+    byName.updatedSlot(slot, 2).updated("mixed", 3) shouldBe Map("mixed" -> 3)
+    byName.updatedSlot(slot, 2).removed("mixed") shouldBe empty
+  }
+
+  it should "set batches of attributes through their slots" in {
+    val slot = AttributeSlot("usedSlot")
+
+    CompactAttributes.Empty.updatedSlot(slot, 1).concatSlots(Array(AttributeSlot("otherUsedSlot")), Array("2"), 1) shouldBe Map(
+      "usedSlot" -> 1,
+      "otherUsedSlot" -> "2"
+    )
+  }
+
+  "Session" should "keep compact attributes through its updates" in {
+    val session = Session("Scenario", 0, CompactAttributes.Empty, Session.NothingOnExit, null)
+      .set("foo", 1)
+      .setAll("bar" -> 2, SessionPrivateAttributes.PrivateAttributePrefix + "baz" -> 3)
+      .remove("foo")
+
+    session.attributes shouldBe a[CompactAttributes]
+    session.reset.attributes shouldBe a[CompactAttributes]
+    session.reset.attributes shouldBe Map(SessionPrivateAttributes.PrivateAttributePrefix + "baz" -> 3)
+  }
+}
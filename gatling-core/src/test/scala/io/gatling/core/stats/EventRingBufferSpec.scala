@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import scala.collection.mutable
+
+import io.gatling.BaseSpec
+import io.gatling.commons.stats.{ KO, OK }
+import io.gatling.core.stats.writer._
+
+class EventRingBufferSpec extends BaseSpec {
+
+  private def newRingBuffer(capacity: Int) = new EventRingBuffer(capacity, new NameRegistry)
+
+  private def drain(ringBuffer: EventRingBuffer): List[LoadEventMessage] = {
+    val messages = mutable.ListBuffer.empty[LoadEventMessage]
+    ringBuffer.drainTo(messages += _)
+    messages.toList
+  }
+
+  "EventRingBuffer" should "restore events in order from their primitive form" in {
+    val ringBuffer = newRingBuffer(8)
+
+    ringBuffer.offerUserStart("scn", 1) shouldBe true
+    ringBuffer.offerResponse("scn", List("root", "child"), "req", 2, 5, KO, Some("500"), Some("boom")) shouldBe true
+    ringBuffer.offerGroupEnd("scn", List("root"), 2, 6, 3, OK) shouldBe true
+    ringBuffer.offerError("crash", 7) shouldBe true
+    ringBuffer.offerUserEnd("scn", 8) shouldBe true
+
+    drain(ringBuffer) shouldBe List(
+      UserStartMessage("scn", 1),
+      ResponseMessage("scn", List("root", "child"), "req", 2, 5, KO, Some("500"), Some("boom")),
+      GroupMessage("scn", List("root"), 2, 6, 3, OK),
+      ErrorMessage("crash", 7),
+      UserEndMessage("scn", 8)
+    )
+    drain(ringBuffer) shouldBe empty
+  }
+
+  it should "reject events when full and accept them again once drained" in {
+    val ringBuffer = newRingBuffer(2)
+
+    ringBuffer.offerUserStart("scn", 1) shouldBe true
+    ringBuffer.offerUserStart("scn", 2) shouldBe true
+    ringBuffer.offerUserStart("scn", 3) shouldBe false
+
+    drain(ringBuffer).size shouldBe 2
+    ringBuffer.offerUserStart("scn", 4) shouldBe true
+    drain(ringBuffer) shouldBe List(UserStartMessage("scn", 4))
+  }
+
+  it should "hand events over from a producer thread to a consumer thread" in {
+    val ringBuffer = newRingBuffer(16)
+    val count = 100000
+
+    val producer = new Thread(() =>
+      for (i <- 0 until count) {
+        while (!ringBuffer.offerUserStart("scn", i)) {
+          Thread.`yield`()
+        }
+      }
+    )
+    producer.start()
+
+    val timestamps = mutable.ArrayBuffer.empty[Long]
+    while (timestamps.size < count) {
+      ringBuffer.drainTo {
+        case UserStartMessage(_, timestamp) => timestamps += timestamp
+        case _                              =>
+      }
+    }
+    producer.join()
+
+    timestamps shouldBe (0L until count.toLong)
+  }
+
+  "roundToPowerOfTwo" should "round sizes up" in {
+    EventRingBuffer.roundToPowerOfTwo(1) shouldBe 1
+    EventRingBuffer.roundToPowerOfTwo(1000) shouldBe 1024
+    EventRingBuffer.roundToPowerOfTwo(1024) shouldBe 1024
+  }
+}
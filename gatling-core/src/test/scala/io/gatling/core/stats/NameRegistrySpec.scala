@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import java.util.concurrent.{ Callable, Executors }
+
+import scala.jdk.CollectionConverters._
+
+import io.gatling.BaseSpec
+
+class NameRegistrySpec extends BaseSpec {
+
+  "NameRegistry" should "assign stable ids at first sight" in {
+    val names = new NameRegistry
+
+    val scenarioId = names.scenarioId("scn")
+    names.scenarioId("other") should not be scenarioId
+    names.scenarioId("scn") shouldBe scenarioId
+    names.scenario(scenarioId) shouldBe "scn"
+
+    val requestId = names.requestId(List("root", "child"), "req")
+    names.requestId(List("root"), "req") should not be requestId
+    names.requestId(List("root", "child"), "req") shouldBe requestId
+    names.requestPath(requestId) shouldBe RequestPath(List("root", "child"), "req")
+
+    names.groupHierarchy(names.groupId(List("root"))) shouldBe List("root")
+  }
+
+  it should "give the same id to the same name registered concurrently" in {
+    val names = new NameRegistry
+    val pool = Executors.newFixedThreadPool(4)
+    try {
+      val tasks = (0 until 4).map(_ => (() => (0 until 1000).map(i => names.scenarioId(s"scn$i"))): Callable[IndexedSeq[Int]])
+      val ids = pool.invokeAll(tasks.asJava).asScala.map(_.get)
+      ids.distinct should have size 1
+      ids.head.distinct should have size 1000
+      ids.head.map(names.scenario) shouldBe (0 until 1000).map(i => s"scn$i")
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  "IdIndexedCache" should "compute values once per id" in {
+    val cache = new IdIndexedCache[String]
+    var computations = 0
+    def value(id: Int): String = cache.getOrElseUpdate(id, { computations += 1; id.toString })
+
+    value(1000) shouldBe "1000"
+    value(1000) shouldBe "1000"
+    value(3) shouldBe "3"
+    computations shouldBe 2
+  }
+}
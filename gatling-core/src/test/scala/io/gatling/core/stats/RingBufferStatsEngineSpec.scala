@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats
+
+import scala.concurrent.duration._
+
+import io.gatling.AkkaSpec
+import io.gatling.commons.stats.OK
+import io.gatling.commons.util.DefaultClock
+import io.gatling.core.config.RingBufferConfiguration
+import io.gatling.core.stats.writer._
+
+import akka.actor.ActorRef
+import akka.testkit.{ TestActor, TestProbe }
+
+class RingBufferStatsEngineSpec extends AkkaSpec {
+
+  "RingBufferStatsEngine" should "send buffered events in batches, in order when ring buffers overflow, and flush them before stopping the DataWriters" in {
+    val dataWriter = TestProbe()
+    dataWriter.setAutoPilot((sender: ActorRef, message: Any) => {
+      message match {
+        case _: Init | Stop => sender ! true
+        case _              =>
+      }
+      TestActor.KeepRunning
+    })
+
+    val init = Init(Nil, RunMessage("Simulation", "run", 0, "", "3.5.0"), Nil, new NameRegistry, new TlsHandshakeCounters)
+    val engine = new RingBufferStatsEngine(init, Seq(dataWriter.ref), system, new DefaultClock, new RingBufferConfiguration(true, 2, 1.hour))
+    engine.start()
+    dataWriter.expectMsg(init)
+
+    // buffered in another thread's ring buffer
+    val otherThread = new Thread(() => engine.logResponse("scn", Nil, "otherReq", 1, 2, OK, None, None))
+    otherThread.start()
+    otherThread.join()
+
+    engine.logResponse("scn", Nil, "req1", 1, 2, OK, None, None)
+    engine.logResponse("scn", Nil, "req2", 1, 2, OK, None, None)
+    // ring buffer is full, its buffered events must be sent first, but not the other thread's ones
+    engine.logResponse("scn", Nil, "req3", 1, 2, OK, None, None)
+    dataWriter.expectMsgType[LoadEvents].messages.toList shouldBe List(
+      ResponseMessage("scn", Nil, "req1", 1, 2, OK, None, None),
+      ResponseMessage("scn", Nil, "req2", 1, 2, OK, None, None)
+    )
+    dataWriter.expectMsg(ResponseMessage("scn", Nil, "req3", 1, 2, OK, None, None))
+
+    engine.logResponse("scn", Nil, "req4", 1, 2, OK, None, None)
+    engine.stop(self, None)
+    dataWriter.expectMsgType[LoadEvents].messages.toList shouldBe List(
+      ResponseMessage("scn", Nil, "otherReq", 1, 2, OK, None, None),
+      ResponseMessage("scn", Nil, "req4", 1, 2, OK, None, None)
+    )
+    dataWriter.expectMsg(Stop)
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.core.stats.writer
+
+import java.nio.{ ByteBuffer, MappedByteBuffer }
+import java.nio.channels.{ FileChannel, FileLock, ReadableByteChannel, WritableByteChannel }
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path, StandardOpenOption }
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import scala.jdk.CollectionConverters._
+
+import io.gatling.BaseSpec
+
+object BufferedFileChannelWriterSpec {
+
+  /**
+   * Delegates to a real channel, but takes its time to write and records the calls to force.
+   */
+  private final class SlowFileChannel(delegate: FileChannel, writeDelayMillis: Long) extends FileChannel {
+
+    val forces = new ConcurrentLinkedQueue[java.lang.Boolean]
+
+    override def write(src: ByteBuffer): Int = {
+      Thread.sleep(writeDelayMillis)
+      delegate.write(src)
+    }
+    override def write(srcs: Array[ByteBuffer], offset: Int, length: Int): Long = {
+      Thread.sleep(writeDelayMillis)
+      delegate.write(srcs, offset, length)
+    }
+    override def force(metaData: Boolean): Unit = {
+      forces.add(metaData)
+      delegate.force(metaData)
+    }
+
+    override def read(dst: ByteBuffer): Int = delegate.read(dst)
+    override def read(dsts: Array[ByteBuffer], offset: Int, length: Int): Long = delegate.read(dsts, offset, length)
+    override def position(): Long = delegate.position()
+    override def position(newPosition: Long): FileChannel = { delegate.position(newPosition); this }
+    override def size(): Long = delegate.size()
+    override def truncate(size: Long): FileChannel = { delegate.truncate(size); this }
+    override def transferTo(position: Long, count: Long, target: WritableByteChannel): Long = delegate.transferTo(position, count, target)
+    override def transferFrom(src: ReadableByteChannel, position: Long, count: Long): Long = delegate.transferFrom(src, position, count)
+    override def read(dst: ByteBuffer, position: Long): Int = delegate.read(dst, position)
+    override def write(src: ByteBuffer, position: Long): Int = delegate.write(src, position)
+    override def map(mode: FileChannel.MapMode, position: Long, size: Long): MappedByteBuffer = delegate.map(mode, position, size)
+    override def lock(position: Long, size: Long, shared: Boolean): FileLock = delegate.lock(position, size, shared)
+    override def tryLock(position: Long, size: Long, shared: Boolean): FileLock = delegate.tryLock(position, size, shared)
+    override protected def implCloseChannel(): Unit = delegate.close()
+  }
+}
+
+class BufferedFileChannelWriterSpec extends BaseSpec {
+
+  import BufferedFileChannelWriterSpec._
+
+  private def withFile(f: (Path, FileChannel) => Any): Unit = {
+    val path = Files.createTempFile("simulation", ".log")
+    try {
+      f(path, FileChannel.open(path, StandardOpenOption.WRITE))
+    } finally {
+      Files.delete(path)
+    }
+  }
+
+  private def writeLines(writer: BufferedFileChannelWriter): String = {
+    val expected = new StringBuilder
+    for (i <- 0 until 1000) {
+      val line = s"line $i\n"
+      writer.writeString(line)
+      expected.append(line)
+    }
+    // larger than a buffer
+    val bigLine = "x" * 100 + "\n"
+    writer.writeBytes(bigLine.getBytes(UTF_8))
+    expected.append(bigLine)
+    writer.close()
+    expected.toString
+  }
+
+  "BufferedFileChannelWriter" should "write buffers in order when they're written on the caller thread" in {
+    withFile { (path, channel) =>
+      val expected = writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, new SyncChannelOutput(channel, ByteBuffer.allocate(32), FsyncPolicy.OnWrite)))
+      new String(Files.readAllBytes(path), UTF_8) shouldBe expected
+      channel.isOpen shouldBe false
+    }
+  }
+
+  it should "write buffers in order when they're written by a dedicated thread" in {
+    withFile { (path, channel) =>
+      val output = new AsyncChannelOutput(channel, 32, 3, FsyncPolicy.Never, LogFileCompression.Uncompressed, "test-log-writer")
+      val expected = writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, output))
+      new String(Files.readAllBytes(path), UTF_8) shouldBe expected
+      channel.isOpen shouldBe false
+    }
+  }
+
+  it should "block the caller when all the buffers are waiting to be written" in {
+    withFile { (path, channel) =>
+      val slowChannel = new SlowFileChannel(channel, 1)
+      val output = new AsyncChannelOutput(slowChannel, 32, 2, FsyncPolicy.Never, LogFileCompression.Uncompressed, "test-log-writer")
+      val expected = writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, output))
+      new String(Files.readAllBytes(path), UTF_8) shouldBe expected
+      output.stalls should be > 0L
+      output.stallNanos should be > 0L
+      slowChannel.forces shouldBe empty
+    }
+  }
+
+  it should "force every write to disk with the write fsync policy" in {
+    withFile { (_, channel) =>
+      val slowChannel = new SlowFileChannel(channel, 0)
+      writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, new AsyncChannelOutput(slowChannel, 32, 3, FsyncPolicy.OnWrite, LogFileCompression.Uncompressed, "test-log-writer")))
+      val forces = slowChannel.forces.asScala.toList.map(_.booleanValue)
+      // one per buffer, then once with the metadata on close
+      forces.size should be > 1
+      forces.init.forall(metaData => !metaData) shouldBe true
+      forces.last shouldBe true
+    }
+  }
+
+  it should "only force to disk on close with the close fsync policy" in {
+    withFile { (_, channel) =>
+      val slowChannel = new SlowFileChannel(channel, 0)
+      writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, new SyncChannelOutput(slowChannel, ByteBuffer.allocate(32), FsyncPolicy.OnClose)))
+      slowChannel.forces.asScala.toList.map(_.booleanValue) shouldBe List(true)
+    }
+  }
+
+  it should "write lz4 compressed frames that decompress to the written content" in {
+    withFile { (path, channel) =>
+      val output = new AsyncChannelOutput(channel, 32, 3, FsyncPolicy.Never, LogFileCompression.Lz4, "test-log-writer")
+      val expected = writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, output))
+
+      LogFileCompression.of(path) shouldBe LogFileCompression.Lz4
+      val readChannel = FileChannel.open(path, StandardOpenOption.READ)
+      try {
+        val frames = LogFileCompression.readFrames(readChannel)
+        frames.size should be > 1
+        frames.last.next shouldBe readChannel.size
+        val content = frames.map(frame => new String(LogFileCompression.decompress(LogFileCompression.readCompressed(readChannel, frame), frame.uncompressedLength), UTF_8))
+        content.mkString shouldBe expected
+      } finally {
+        readChannel.close()
+      }
+    }
+  }
+
+  it should "ignore a truncated last frame" in {
+    withFile { (path, channel) =>
+      writeLines(new BufferedFileChannelWriter(UTF_8.newEncoder, new SyncChannelOutput(channel, ByteBuffer.allocate(32), FsyncPolicy.Never, LogFileCompression.Lz4)))
+      val truncatedChannel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ)
+      try {
+        val frames = LogFileCompression.readFrames(truncatedChannel)
+        truncatedChannel.truncate(truncatedChannel.size - 1)
+        LogFileCompression.readFrames(truncatedChannel) shouldBe frames.init
+      } finally {
+        truncatedChannel.close()
+      }
+    }
+  }
+
+  "LogFileCompression" should "be parsed from its name" in {
+    LogFileCompression("none") shouldBe LogFileCompression.Uncompressed
+    LogFileCompression("lz4") shouldBe LogFileCompression.Lz4
+    an[IllegalArgumentException] should be thrownBy LogFileCompression("zip")
+  }
+
+  "FsyncPolicy" should "be parsed from its name" in {
+    FsyncPolicy("never") shouldBe FsyncPolicy.Never
+    FsyncPolicy("close") shouldBe FsyncPolicy.OnClose
+    FsyncPolicy("write") shouldBe FsyncPolicy.OnWrite
+    an[IllegalArgumentException] should be thrownBy FsyncPolicy("sometimes")
+  }
+}
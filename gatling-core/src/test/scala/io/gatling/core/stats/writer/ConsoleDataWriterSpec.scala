@@ -23,6 +23,7 @@ import scala.collection.mutable
 import io.gatling.BaseSpec
 import io.gatling.commons.util.StringHelper.Eol
 import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.TlsHandshakeCounters
 
 class ConsoleDataWriterSpec extends BaseSpec {
 
@@ -42,7 +43,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
 
     val counters = new UserCounters(Some(11))
 
-    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, configuration, time)
+    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, new TlsHandshakeCounters, configuration, time)
     summary.complete shouldBe false
     progressBar(summary) shouldBe "[                                                                          ]  0%"
   }
@@ -52,7 +53,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
     val counters = new UserCounters(Some(11))
     for (_ <- 1 to 11) counters.userStart()
 
-    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, configuration, time)
+    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, new TlsHandshakeCounters, configuration, time)
     summary.complete shouldBe false
     progressBar(summary) shouldBe "[--------------------------------------------------------------------------]  0%"
   }
@@ -63,7 +64,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
     for (_ <- 1 to 11) counters.userStart()
     for (_ <- 1 to 11) counters.userDone()
 
-    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, configuration, time)
+    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, new TlsHandshakeCounters, configuration, time)
     summary.complete shouldBe true
     progressBar(summary) shouldBe "[##########################################################################]100%"
   }
@@ -74,7 +75,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
     for (_ <- 1 to 11) counters.userStart()
     for (_ <- 1 to 10) counters.userDone()
 
-    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, configuration, time)
+    val summary = ConsoleSummary(10000, mutable.Map("request1" -> counters), RequestCounters.empty, mutable.Map.empty, mutable.Map.empty, new TlsHandshakeCounters, configuration, time)
     summary.complete shouldBe false
     progressBar(summary) shouldBe "[###################################################################-------] 90%"
   }
@@ -88,6 +89,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
       new RequestCounters(20, 0),
       requestCounters,
       mutable.Map.empty,
+      new TlsHandshakeCounters,
       configuration,
       time
     )
@@ -108,6 +110,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
       new RequestCounters(0, 20),
       requestCounters,
       errorsCounters1,
+      new TlsHandshakeCounters,
       configuration,
       time
     )
@@ -131,6 +134,7 @@ class ConsoleDataWriterSpec extends BaseSpec {
       new RequestCounters(0, 123456),
       requestCounters,
       errorsCounters,
+      new TlsHandshakeCounters,
       configuration,
       time
     )
@@ -142,4 +146,26 @@ class ConsoleDataWriterSpec extends BaseSpec {
                         |do eiusmod tempor incididunt ut labore et dolore magna aliqua....""".stripMargin
     all(output.linesIterator.map(_.length).toSet) shouldBe <=(80)
   }
+
+  it should "display TLS handshakes once there are some" in {
+    val tlsHandshakes = new TlsHandshakeCounters
+    for (_ <- 1 to 3) tlsHandshakes.record(resumed = false)
+    for (_ <- 1 to 42) tlsHandshakes.record(resumed = true)
+
+    val summary = ConsoleSummary(
+      10000,
+      mutable.Map("request1" -> new UserCounters(Some(11))),
+      new RequestCounters(45, 0),
+      mutable.Map.empty,
+      mutable.Map.empty,
+      tlsHandshakes,
+      configuration,
+      time
+    )
+
+    val summaryLines = lines(summary)
+    val subTitle = summaryLines.indexOf("---- TLS Handshakes ------------------------------------------------------------")
+    subTitle should be > 0
+    summaryLines(subTitle + 1) shouldBe "> full: 3      / resumed: 42    "
+  }
 }
@@ -16,7 +16,14 @@
 
 package io.gatling.core.stats.writer
 
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+
 import io.gatling.BaseSpec
+import io.gatling.commons.stats.{ KO, OK }
+import io.gatling.core.stats.NameRegistry
 
 class DataWriterMessageSerializerSpec extends BaseSpec {
 
@@ -29,4 +36,29 @@ class DataWriterMessageSerializerSpec extends BaseSpec {
       s"${Separator}tabs $Separator are${Separator}not $Separator$Separator allowed$Separator"
     ) shouldBe " tabs   are not    allowed "
   }
+
+  "TextLogFileSerializer" should "write the same records whether names are encoded for the first time or cached" in {
+    val path = Files.createTempFile("simulation", ".log")
+    try {
+      val writer = new BufferedFileChannelWriter(new RandomAccessFile(path.toFile, "rw").getChannel, UTF_8.newEncoder, ByteBuffer.allocate(64))
+      val serializer = new TextLogFileSerializer(writer, new NameRegistry)
+      for (_ <- 1 to 2) {
+        serializer.serialize(UserStartMessage("scn", 1))
+        serializer.serialize(ResponseMessage("scn", List("root", "child,with comma"), "req", 2, 5, KO, None, Some("boom\tboom")))
+        serializer.serialize(GroupMessage("scn", List("root"), 2, 6, 3, OK))
+        serializer.serialize(UserEndMessage("scn", 7))
+      }
+      writer.close()
+
+      val records = Seq(
+        "USER\tscn\tSTART\t1",
+        "REQUEST\troot,child with comma\treq\t2\t5\tKO\tboom boom",
+        "GROUP\troot\t2\t6\t3\tOK",
+        "USER\tscn\tEND\t7"
+      )
+      new String(Files.readAllBytes(path), UTF_8).split("\r?\n").toSeq shouldBe records ++ records
+    } finally {
+      Files.delete(path)
+    }
+  }
 }
@@ -21,6 +21,7 @@ import scala.collection.mutable
 import io.gatling.commons.util.Clock
 import io.gatling.commons.util.Collections._
 import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.{ IdIndexedCache, NameRegistry }
 import io.gatling.core.stats.message.ResponseTimings
 import io.gatling.core.stats.writer._
 import io.gatling.core.util.NameGen
@@ -34,8 +35,13 @@ final case class GraphiteData(
     metricsSender: ActorRef,
     requestsByPath: mutable.Map[GraphitePath, RequestMetricsBuffer],
     usersByScenario: mutable.Map[GraphitePath, UserBreakdownBuffer],
-    format: GraphitePathPattern
-) extends DataWriterData
+    format: GraphitePathPattern,
+    names: NameRegistry
+) extends DataWriterData {
+  // same buffers as above, looked up by id instead of computing paths for every message
+  val requestsById: IdIndexedCache[RequestMetricsBuffer] = new IdIndexedCache
+  val usersByScenarioId: IdIndexedCache[UserBreakdownBuffer] = new IdIndexedCache
+}
 
 private[gatling] class GraphiteDataWriter(clock: Clock, configuration: GatlingConfiguration) extends DataWriter[GraphiteData] with NameGen {
 
@@ -58,7 +64,7 @@ private[gatling] class GraphiteDataWriter(clock: Clock, configuration: GatlingCo
 
     startTimerAtFixedRate(flushTimerName, Flush, configuration.data.graphite.writePeriod)
 
-    GraphiteData(metricsSender, requestsByPath, usersByScenario, pattern)
+    GraphiteData(metricsSender, requestsByPath, usersByScenario, pattern, names)
   }
 
   def onFlush(data: GraphiteData): Unit = {
@@ -74,7 +80,7 @@ private[gatling] class GraphiteDataWriter(clock: Clock, configuration: GatlingCo
 
   private def onUserMessage(scenario: String, isStart: Boolean, data: GraphiteData): Unit = {
     import data._
-    usersByScenario(format.usersPath(scenario)).record(isStart)
+    usersByScenarioId.getOrElseUpdate(names.scenarioId(scenario), usersByScenario(format.usersPath(scenario))).record(isStart)
     usersByScenario(format.allUsersPath).record(isStart)
   }
 
@@ -83,7 +89,12 @@ private[gatling] class GraphiteDataWriter(clock: Clock, configuration: GatlingCo
     import response._
     val responseTime = ResponseTimings.responseTime(startTimestamp, endTimestamp)
     if (!configuration.data.graphite.light) {
-      requestsByPath.getOrElseUpdate(format.responsePath(name, groupHierarchy), newResponseMetricsBuffer).add(status, responseTime)
+      requestsById
+        .getOrElseUpdate(
+          names.requestId(groupHierarchy, name),
+          requestsByPath.getOrElseUpdate(format.responsePath(name, groupHierarchy), newResponseMetricsBuffer)
+        )
+        .add(status, responseTime)
     }
     requestsByPath.getOrElseUpdate(format.allResponsesPath, newResponseMetricsBuffer).add(status, responseTime)
   }
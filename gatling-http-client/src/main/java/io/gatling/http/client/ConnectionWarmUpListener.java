@@ -0,0 +1,30 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client;
+
+public interface ConnectionWarmUpListener {
+
+  /**
+   * The connection is open, its TLS handshake and ALPN negotiation are complete, and it's idle in the pool.
+   *
+   * @param connectNanos   the time it took to establish the TCP connection, after name resolution
+   * @param handshakeNanos the time it took to complete the TLS handshake and ALPN negotiation, 0 for clear connections
+   */
+  void onConnectionReady(long connectNanos, long handshakeNanos);
+
+  void onThrowable(Throwable e);
+}
@@ -26,6 +26,11 @@ public interface HttpClient extends AutoCloseable {
 
   void sendHttp2Requests(Pair<Request, HttpListener>[] requestsAndListeners, long clientId, EventLoop eventLoop, SslContext sslContext, SslContext alpnSslContext);
 
+  /**
+   * Opens a connection to the request's remote and offers it to the pool, ready for requests with the same key, but without sending the request.
+   */
+  void warmUpConnection(Request request, long clientId, EventLoop eventLoop, SslContext sslContext, SslContext alpnSslContext, ConnectionWarmUpListener listener);
+
   boolean isClosed();
 
   void flushClientIdChannels(long clientId, EventLoop eventLoop);
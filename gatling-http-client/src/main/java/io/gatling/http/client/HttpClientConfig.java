@@ -46,8 +46,12 @@ public class HttpClientConfig {
 
   private long channelPoolIdleCleanerPeriod = 1_000;
 
+  private int maxConnectionsPerRemote;
+
   private Consumer<Channel> additionalChannelInitializer;
 
+  private TlsHandshakeListener tlsHandshakeListener;
+
   private boolean tcpNoDelay;
 
   private boolean soKeepAlive;
@@ -128,6 +132,15 @@ public class HttpClientConfig {
     return channelPoolIdleCleanerPeriod;
   }
 
+  public HttpClientConfig setMaxConnectionsPerRemote(int maxConnectionsPerRemote) {
+    this.maxConnectionsPerRemote = maxConnectionsPerRemote;
+    return this;
+  }
+
+  public int getMaxConnectionsPerRemote() {
+    return maxConnectionsPerRemote;
+  }
+
   public HttpClientConfig setAdditionalChannelInitializer(Consumer<Channel> additionalChannelInitializer) {
     this.additionalChannelInitializer = additionalChannelInitializer;
     return this;
@@ -137,6 +150,15 @@ public class HttpClientConfig {
     return additionalChannelInitializer;
   }
 
+  public HttpClientConfig setTlsHandshakeListener(TlsHandshakeListener tlsHandshakeListener) {
+    this.tlsHandshakeListener = tlsHandshakeListener;
+    return this;
+  }
+
+  public TlsHandshakeListener getTlsHandshakeListener() {
+    return tlsHandshakeListener;
+  }
+
   public boolean isTcpNoDelay() {
     return tcpNoDelay;
   }
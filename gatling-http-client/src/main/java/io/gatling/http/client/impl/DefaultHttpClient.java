@@ -18,13 +18,17 @@ package io.gatling.http.client.impl;
 
 import com.aayushatharva.brotli4j.Brotli4jLoader;
 import io.gatling.http.client.HttpClient;
+import io.gatling.http.client.ConnectionWarmUpListener;
 import io.gatling.http.client.HttpClientConfig;
 import io.gatling.http.client.HttpListener;
 import io.gatling.http.client.Request;
+import io.gatling.http.client.TlsHandshakeListener;
 import io.gatling.http.client.body.is.InputStreamRequestBody;
 import io.gatling.http.client.impl.br.BrotliDecoder;
 import io.gatling.http.client.pool.ChannelPool;
 import io.gatling.http.client.pool.ChannelPoolKey;
+import io.gatling.http.client.pool.ChannelWaiter;
+import io.gatling.http.client.pool.ConnectionLimits;
 import io.gatling.http.client.pool.RemoteKey;
 import io.gatling.http.client.proxy.ProxyServer;
 import io.gatling.http.client.proxy.SockProxyServer;
@@ -42,7 +46,9 @@ import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
 import io.netty.handler.codec.http2.*;
 import io.netty.handler.ssl.ApplicationProtocolNames;
@@ -136,6 +142,7 @@ public class DefaultHttpClient implements HttpClient {
     private final Bootstrap http2Bootstrap;
     private final Bootstrap wsBootstrap;
     private final ChannelPool channelPool;
+    private final RequestTimeoutWheel requestTimeoutWheel;
 
     private void addHttpHandlers(Channel channel) {
       channel.pipeline()
@@ -163,7 +170,8 @@ public class DefaultHttpClient implements HttpClient {
     }
 
     private EventLoopResources(EventLoop eventLoop) {
-      channelPool = new ChannelPool();
+      channelPool = new ChannelPool(connectionLimits, eventLoop);
+      requestTimeoutWheel = new RequestTimeoutWheel(eventLoop);
       long channelPoolIdleCleanerPeriod = config.getChannelPoolIdleCleanerPeriod();
       long idleTimeoutNanos = config.getChannelPoolIdleTimeout() * 1_000_000;
       eventLoop.scheduleWithFixedDelay(
@@ -237,12 +245,15 @@ public class DefaultHttpClient implements HttpClient {
 
   private final AtomicBoolean closed = new AtomicBoolean();
   private final HttpClientConfig config;
+  // shared by the channel pools of all the event loops
+  private final ConnectionLimits connectionLimits;
   private final EventExecutor channelGroupEventExecutor;
   private final ChannelGroup channelGroup;
   private final FastThreadLocal<EventLoopResources> eventLoopResources = new FastThreadLocal<>();
 
   public DefaultHttpClient(HttpClientConfig config) {
     this.config = config;
+    connectionLimits = new ConnectionLimits(config.getMaxConnectionsPerRemote());
     channelGroupEventExecutor = new DefaultEventExecutor();
     channelGroup = new DefaultChannelGroup(channelGroupEventExecutor);
   }
@@ -315,6 +326,39 @@ public class DefaultHttpClient implements HttpClient {
     }
   }
 
+  @Override
+  public void warmUpConnection(Request request, long clientId, EventLoop eventLoop, SslContext sslContext, SslContext alpnSslContext, ConnectionWarmUpListener listener) {
+    if (isClosed()) {
+      return;
+    }
+
+    if (sslContext == null) {
+      sslContext = config.getDefaultSslContext();
+      alpnSslContext = config.getDefaultAlpnSslContext();
+    }
+
+    HttpTx tx = buildTx(request, clientId, new HttpListener() {
+      @Override
+      public void onHttpResponse(HttpResponseStatus status, HttpHeaders headers) {
+      }
+
+      @Override
+      public void onHttpResponseBodyChunk(ByteBuf chunk, boolean last) {
+      }
+
+      @Override
+      public void onThrowable(Throwable e) {
+        listener.onThrowable(e);
+      }
+    }, sslContext, alpnSslContext);
+
+    if (eventLoop.inEventLoop()) {
+      warmUpTx(tx, eventLoop, listener);
+    } else if (!eventLoop.isShutdown()) {
+      eventLoop.execute(() -> warmUpTx(tx, eventLoop, listener));
+    }
+  }
+
   //////////////////// EVERYTHING BELOW ONLY HAPPENS IN SAME EVENTLOOP //////////////////
 
   private EventLoopResources eventLoopResources(EventLoop eventLoop) {
@@ -379,7 +423,7 @@ public class DefaultHttpClient implements HttpClient {
     }
 
     // start timeout
-    tx.requestTimeout.start(eventLoop);
+    tx.requestTimeout.start(resources.requestTimeoutWheel);
 
     if (pooledChannel != null && tx.channelState != HttpTx.ChannelState.RETRY) {
       sendTxWithChannel(tx, pooledChannel);
@@ -425,7 +469,7 @@ public class DefaultHttpClient implements HttpClient {
 
     // start timeouts
     for (HttpTx t : txs) {
-      t.requestTimeout.start(eventLoop);
+      t.requestTimeout.start(resources.requestTimeoutWheel);
     }
 
     ProxyServer proxyServer = request.getProxyServer();
@@ -535,43 +579,85 @@ public class DefaultHttpClient implements HttpClient {
                                     List<InetSocketAddress> addresses,
                                     boolean logProxyAddress) {
     tx.channelState = HttpTx.ChannelState.NEW;
-    openNewChannel(tx.request, logProxyAddress, eventLoop, resources, addresses, tx.listener, tx.requestTimeout)
-      .addListener((Future<Channel> whenNewChannel) -> {
-        if (whenNewChannel.isSuccess()) {
-          Channel channel = whenNewChannel.getNow();
+    // WebSockets never go back to the pool, so they don't take part in connection limits
+    boolean counted = !tx.request.getUri().isWebSocket();
+    if (counted && !resources.channelPool.tryReserve(tx.key)) {
+      LOGGER.debug("Connection limit reached for {}, waiting for a connection", tx.request.getUri());
+      resources.channelPool.await(tx.key, new ChannelWaiter() {
+        @Override
+        public boolean isCancelled() {
+          return tx.requestTimeout.isDone();
+        }
+
+        @Override
+        public void onAvailable(Channel channel) {
           if (tx.requestTimeout.isDone()) {
-            channel.close();
-            return;
+            // timed out while the channel was being handed over
+            if (channel != null) {
+              resources.channelPool.offer(channel);
+            } else {
+              resources.channelPool.cancelReservation(tx.key);
+            }
+          } else if (channel != null) {
+            tx.channelState = HttpTx.ChannelState.POOLED;
+            sendTxWithChannel(tx, channel);
+          } else {
+            sendTxWithNewReservedChannel(tx, resources, eventLoop, addresses, logProxyAddress, true);
           }
+        }
+      });
+      return;
+    }
+    sendTxWithNewReservedChannel(tx, resources, eventLoop, addresses, logProxyAddress, counted);
+  }
 
-          channelGroup.add(channel);
-          resources.channelPool.register(channel, tx.key);
+  private void sendTxWithNewReservedChannel(HttpTx tx,
+                                            EventLoopResources resources,
+                                            EventLoop eventLoop,
+                                            List<InetSocketAddress> addresses,
+                                            boolean logProxyAddress,
+                                            boolean counted) {
+    openNewChannel(tx.request, logProxyAddress, eventLoop, resources, addresses, tx.listener, tx.requestTimeout)
+      .addListener((Future<Channel> whenNewChannel) -> {
+        if (!whenNewChannel.isSuccess()) {
+          if (counted) {
+            resources.channelPool.cancelReservation(tx.key);
+          }
+          return;
+        }
+        Channel channel = whenNewChannel.getNow();
+        resources.channelPool.register(channel, tx.key, counted);
+        if (tx.requestTimeout.isDone()) {
+          channel.close();
+          return;
+        }
 
-          if (tx.request.getUri().isSecured()) {
-            LOGGER.debug("Installing SslHandler for {}", tx.request.getUri());
-            installSslHandler(tx, channel).addListener(f -> {
-              if (tx.requestTimeout.isDone() || !f.isSuccess()) {
-                channel.close();
-                return;
-              }
+        channelGroup.add(channel);
 
-              if (tx.request.isAlpnRequired()) {
-                LOGGER.debug("Installing Http2Handler for {}", tx.request.getUri());
-                installHttp2Handler(tx, channel, resources.channelPool).addListener(f2 -> {
-                  if (tx.requestTimeout.isDone() || !f2.isSuccess()) {
-                    channel.close();
-                    return;
-                  }
-                  sendTxWithChannel(tx, channel);
-                });
+        if (tx.request.getUri().isSecured()) {
+          LOGGER.debug("Installing SslHandler for {}", tx.request.getUri());
+          installSslHandler(tx, channel).addListener(f -> {
+            if (tx.requestTimeout.isDone() || !f.isSuccess()) {
+              channel.close();
+              return;
+            }
 
-              } else {
+            if (tx.request.isAlpnRequired()) {
+              LOGGER.debug("Installing Http2Handler for {}", tx.request.getUri());
+              installHttp2Handler(tx, channel, resources.channelPool).addListener(f2 -> {
+                if (tx.requestTimeout.isDone() || !f2.isSuccess()) {
+                  channel.close();
+                  return;
+                }
                 sendTxWithChannel(tx, channel);
-              }
-            });
-          } else {
-            sendTxWithChannel(tx, channel);
-          }
+              });
+
+            } else {
+              sendTxWithChannel(tx, channel);
+            }
+          });
+        } else {
+          sendTxWithChannel(tx, channel);
         }
       });
   }
@@ -582,17 +668,25 @@ public class DefaultHttpClient implements HttpClient {
                                           List<InetSocketAddress> addresses,
                                           boolean logProxyAddress) {
     HttpTx tx = txs.get(0);
+    if (!resources.channelPool.tryReserve(tx.key)) {
+      // connection limit reached, each request waits on its own
+      for (HttpTx t : txs) {
+        sendTxWithNewChannel(t, resources, eventLoop, addresses, logProxyAddress);
+      }
+      return;
+    }
+
     openNewChannel(tx.request, logProxyAddress, eventLoop, resources, addresses, tx.listener, tx.requestTimeout)
       .addListener((Future<Channel> whenNewChannel) -> {
         if (whenNewChannel.isSuccess()) {
           Channel channel = whenNewChannel.getNow();
+          resources.channelPool.register(channel, tx.key, true);
           if (tx.requestTimeout.isDone()) {
             channel.close();
             return;
           }
 
           channelGroup.add(channel);
-          resources.channelPool.register(channel, tx.key);
 
           LOGGER.debug("Installing SslHandler for {}", tx.request.getUri());
           installSslHandler(tx, channel).addListener(f -> {
@@ -609,10 +703,87 @@ public class DefaultHttpClient implements HttpClient {
               sendHttp2TxsWithChannel(txs, channel);
             });
           });
+        } else {
+          resources.channelPool.cancelReservation(tx.key);
         }
       });
   }
 
+  private void warmUpTx(HttpTx tx, EventLoop eventLoop, ConnectionWarmUpListener listener) {
+
+    EventLoopResources resources = eventLoopResources(eventLoop);
+    Request request = tx.request;
+    RequestTimeout requestTimeout = tx.requestTimeout;
+
+    if (!resources.channelPool.tryReserve(tx.key)) {
+      listener.onThrowable(new IllegalStateException("Connection limit reached for " + request.getUri().getBaseUrl()));
+      return;
+    }
+
+    requestTimeout.start(resources.requestTimeoutWheel);
+
+    InetSocketAddress unresolvedRemoteAddressThroughTunnelling = unresolvedRemoteAddressThroughTunnelling(request.getProxyServer(), request.getUri());
+    boolean logProxyAddress = unresolvedRemoteAddressThroughTunnelling != null;
+
+    resolveRemoteAddresses(request, eventLoop, unresolvedRemoteAddressThroughTunnelling, tx.listener, requestTimeout)
+      .addListener((Future<List<InetSocketAddress>> whenRemoteAddresses) -> {
+        if (requestTimeout.isDone() || !whenRemoteAddresses.isSuccess()) {
+          resources.channelPool.cancelReservation(tx.key);
+          return;
+        }
+
+        long connectStart = System.nanoTime();
+        openNewChannel(request, logProxyAddress, eventLoop, resources, whenRemoteAddresses.getNow(), tx.listener, requestTimeout)
+          .addListener((Future<Channel> whenNewChannel) -> {
+            if (!whenNewChannel.isSuccess()) {
+              resources.channelPool.cancelReservation(tx.key);
+              return;
+            }
+            Channel channel = whenNewChannel.getNow();
+            resources.channelPool.register(channel, tx.key, true);
+            if (requestTimeout.isDone()) {
+              channel.close();
+              return;
+            }
+
+            channelGroup.add(channel);
+            long connectNanos = System.nanoTime() - connectStart;
+
+            if (!request.getUri().isSecured()) {
+              offerWarmedUpChannel(tx, channel, connectNanos, 0, listener, resources);
+              return;
+            }
+
+            long handshakeStart = System.nanoTime();
+            installSslHandler(tx, channel).addListener(f -> {
+              if (requestTimeout.isDone() || !f.isSuccess()) {
+                channel.close();
+                return;
+              }
+
+              if (request.isAlpnRequired()) {
+                installHttp2Handler(tx, channel, resources.channelPool).addListener(f2 -> {
+                  if (requestTimeout.isDone() || !f2.isSuccess()) {
+                    channel.close();
+                    return;
+                  }
+                  offerWarmedUpChannel(tx, channel, connectNanos, System.nanoTime() - handshakeStart, listener, resources);
+                });
+              } else {
+                offerWarmedUpChannel(tx, channel, connectNanos, System.nanoTime() - handshakeStart, listener, resources);
+              }
+            });
+          });
+      });
+  }
+
+  private void offerWarmedUpChannel(HttpTx tx, Channel channel, long connectNanos, long handshakeNanos, ConnectionWarmUpListener listener, EventLoopResources resources) {
+    tx.requestTimeout.cancel();
+    // HTTP/2 channels were already offered once ALPN completed, with a stream in flight that will never come, so this releases it
+    resources.channelPool.offer(channel);
+    listener.onConnectionReady(connectNanos, handshakeNanos);
+  }
+
   private Bootstrap bootstrap(Request request, EventLoopResources resources) {
     Uri uri = request.getUri();
     ProxyServer proxyServer = request.getProxyServer();
@@ -756,6 +927,8 @@ public class DefaultHttpClient implements HttpClient {
 
       ChannelPipeline pipeline = channel.pipeline();
       String after = pipeline.get(PROXY_HANDLER) != null ? PROXY_HANDLER : PINNED_HANDLER;
+      // the handshake starts as soon as the handler is added to the active channel
+      long handshakeStart = System.currentTimeMillis();
       pipeline.addAfter(after, SSL_HANDLER, sslHandler);
 
       return sslHandler.handshakeFuture().addListener(f -> {
@@ -768,6 +941,11 @@ public class DefaultHttpClient implements HttpClient {
             LOGGER.debug("TLS handshake successful: protocol={} cipher suite={}", sslHandler.engine().getSession().getProtocol(), sslHandler.engine().getSession().getCipherSuite());
           }
 
+          TlsHandshakeListener tlsHandshakeListener = config.getTlsHandshakeListener();
+          if (tlsHandshakeListener != null) {
+            tlsHandshakeListener.onTlsHandshakeSuccess(SslHandlers.isResumed(sslHandler.engine(), handshakeStart));
+          }
+
           //[fl]
           //
           //[fl]
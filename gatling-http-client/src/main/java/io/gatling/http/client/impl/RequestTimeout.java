@@ -18,10 +18,8 @@ package io.gatling.http.client.impl;
 
 import io.gatling.http.client.HttpListener;
 import io.netty.channel.Channel;
-import io.netty.channel.EventLoop;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public interface RequestTimeout {
@@ -30,7 +28,7 @@ public interface RequestTimeout {
     return timeout > 0 ? new DefaultRequestTimeout(timeout, listener) : NoopRequestTimeout.INSTANCE;
   }
 
-  void start(EventLoop eventLoop);
+  void start(RequestTimeoutWheel wheel);
 
   boolean isDone();
 
@@ -43,7 +41,14 @@ public interface RequestTimeout {
     private final HttpListener listener;
     private Channel channel;
     private InetSocketAddress remoteAddress;
-    private ScheduledFuture<?> f;
+    private RequestTimeoutWheel wheel;
+
+    // wheel state
+    boolean done;
+    long deadline;
+    int bucket;
+    DefaultRequestTimeout prev;
+    DefaultRequestTimeout next;
 
     private DefaultRequestTimeout(long timeout, HttpListener listener) {
       this.timeout = timeout;
@@ -51,11 +56,20 @@ public interface RequestTimeout {
     }
 
     @Override
-    public void start(EventLoop eventLoop) {
-      f = eventLoop.schedule(this::execute, timeout, TimeUnit.MILLISECONDS);
+    public void start(RequestTimeoutWheel wheel) {
+      if (this.wheel != null && !done) {
+        // retried without being cancelled first: the original deadline still applies
+        this.wheel.remove(this);
+      } else {
+        deadline = wheel.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      }
+      this.wheel = wheel;
+      done = false;
+      wheel.add(this);
     }
 
-    private void execute() {
+    // called by the wheel, once unlinked and done
+    void expire() {
       listener.onThrowable(new RequestTimeoutException(timeout, remoteAddress));
       if (channel != null) {
         channel.close();
@@ -63,11 +77,14 @@ public interface RequestTimeout {
     }
 
     public boolean isDone() {
-      return f.isDone();
+      return done;
     }
 
     public void cancel() {
-      f.cancel(true);
+      if (!done && wheel != null) {
+        done = true;
+        wheel.remove(this);
+      }
     }
 
     public void setChannel(Channel channel) {
@@ -85,7 +102,7 @@ public interface RequestTimeout {
     }
 
     @Override
-    public void start(EventLoop eventLoop) {
+    public void start(RequestTimeoutWheel wheel) {
     }
 
     @Override
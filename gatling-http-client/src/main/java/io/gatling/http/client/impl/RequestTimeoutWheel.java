@@ -0,0 +1,153 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.impl;
+
+import io.netty.channel.EventLoop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Coarse-grained hashed timer wheel for the request timeouts of an event loop.
+ * <p>
+ * Timeouts are doubly-linked into the bucket of their deadline's tick, so adding and removing one doesn't allocate anything,
+ * unlike scheduling and cancelling a task per request on the event loop. A single tick task runs while timeouts are pending.
+ * Timeouts expire up to one tick late.
+ * <p>
+ * Not thread-safe, must only be used from its event loop.
+ */
+public final class RequestTimeoutWheel {
+
+  static final long DEFAULT_TICK_MILLIS = 10;
+  private static final int WHEEL_SIZE = 1024;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  private final EventLoop eventLoop;
+  private final long tickNanos;
+  private final LongSupplier nanoClock;
+  // System.nanoTime can be negative
+  private final long origin;
+  private final RequestTimeout.DefaultRequestTimeout[] buckets = new RequestTimeout.DefaultRequestTimeout[WHEEL_SIZE];
+  private final Runnable tickTask = this::tick;
+  private int size;
+  private boolean ticking;
+  // index of the last tick whose bucket was expired
+  private long lastTick;
+
+  public RequestTimeoutWheel(EventLoop eventLoop) {
+    this(eventLoop, DEFAULT_TICK_MILLIS);
+  }
+
+  RequestTimeoutWheel(EventLoop eventLoop, long tickMillis) {
+    this(eventLoop, tickMillis, System::nanoTime);
+  }
+
+  /**
+   * @param nanoClock the source of the deadlines and of the current time when ticking, so tests can control it
+   */
+  RequestTimeoutWheel(EventLoop eventLoop, long tickMillis, LongSupplier nanoClock) {
+    this.eventLoop = eventLoop;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.nanoClock = nanoClock;
+    origin = nanoClock.getAsLong();
+  }
+
+  long nanoTime() {
+    return nanoClock.getAsLong();
+  }
+
+  private long tickOf(long nanoTime) {
+    return (nanoTime - origin) / tickNanos;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  void add(RequestTimeout.DefaultRequestTimeout timeout) {
+    long now = nanoClock.getAsLong();
+    if (!ticking) {
+      ticking = true;
+      lastTick = tickOf(now) - 1;
+      eventLoop.schedule(tickTask, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // a bucket is expired once its tick is over
+    int bucket = (int) (Math.max(tickOf(timeout.deadline), lastTick + 1) & MASK);
+    RequestTimeout.DefaultRequestTimeout head = buckets[bucket];
+    timeout.bucket = bucket;
+    timeout.prev = null;
+    timeout.next = head;
+    if (head != null) {
+      head.prev = timeout;
+    }
+    buckets[bucket] = timeout;
+    size++;
+  }
+
+  void remove(RequestTimeout.DefaultRequestTimeout timeout) {
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      buckets[timeout.bucket] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    size--;
+  }
+
+  // package-private so tests can tick on a controlled clock
+  void tick() {
+    long now = nanoClock.getAsLong();
+    long currentTick = tickOf(now);
+
+    // unlink all the expired timeouts first, as expiring one can close a channel and cancel others
+    RequestTimeout.DefaultRequestTimeout expired = null;
+    // no need to go around the wheel more than once when ticks were delayed
+    long from = Math.max(lastTick + 1, currentTick - WHEEL_SIZE);
+    for (long t = from; t < currentTick; t++) {
+      RequestTimeout.DefaultRequestTimeout timeout = buckets[(int) (t & MASK)];
+      while (timeout != null) {
+        RequestTimeout.DefaultRequestTimeout next = timeout.next;
+        if (timeout.deadline <= now) {
+          remove(timeout);
+          timeout.done = true;
+          timeout.next = expired;
+          expired = timeout;
+        }
+        timeout = next;
+      }
+    }
+    lastTick = currentTick - 1;
+
+    while (expired != null) {
+      RequestTimeout.DefaultRequestTimeout next = expired.next;
+      expired.next = null;
+      expired.expire();
+      expired = next;
+    }
+
+    if (size > 0) {
+      eventLoop.schedule(tickTask, tickNanos - (now - origin) % tickNanos, TimeUnit.NANOSECONDS);
+    } else {
+      ticking = false;
+    }
+  }
+}
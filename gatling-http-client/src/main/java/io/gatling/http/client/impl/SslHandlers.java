@@ -20,6 +20,7 @@ import io.gatling.http.client.HttpClientConfig;
 import io.gatling.http.client.uri.Uri;
 import io.gatling.http.client.ssl.Tls;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 
@@ -50,6 +51,19 @@ public class SslHandlers {
     return createSslHandler(sslContext, peerHost, peerPort, allocator, config);
   }
 
+  /**
+   * Resumed sessions keep the creation time of the full handshake that established them.
+   * OpenSSL only has a second precision, so with it, a session resumed within the second it was created counts as a full handshake.
+   *
+   * @param engine               the engine of a successful handshake
+   * @param handshakeStartMillis when the handshake started
+   * @return true if the handshake resumed a cached session
+   */
+  public static boolean isResumed(SSLEngine engine, long handshakeStartMillis) {
+    long threshold = engine instanceof ReferenceCountedOpenSslEngine ? handshakeStartMillis / 1000 * 1000 : handshakeStartMillis;
+    return engine.getSession().getCreationTime() < threshold;
+  }
+
   private static SslHandler createSslHandler(SslContext sslContext, String peerHost, int peerPort, ByteBufAllocator allocator, HttpClientConfig config) {
 
     SSLEngine sslEngine = config.isEnableSni() ?
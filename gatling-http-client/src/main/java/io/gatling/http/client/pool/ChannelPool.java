@@ -18,34 +18,64 @@ package io.gatling.http.client.pool;
 
 import io.gatling.http.client.impl.DefaultHttpClient;
 import io.netty.channel.Channel;
-import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 import static io.gatling.http.client.util.Assertions.assertNotNull;
 
+/**
+ * The channels of an event loop. Connections are sharded per event loop and a pool is only ever used from its event loop's thread,
+ * so it doesn't need any locking, apart from the connection counts it shares with the other event loops' pools.
+ * <p>
+ * Idle channels are linked in a list ordered by the time they became idle, so closing the expired ones doesn't visit the other ones.
+ * <p>
+ * In shared mode, the number of connections per remote can be limited over all the event loops, see {@link ConnectionLimits}:
+ * requests then wait for a channel of their event loop to be offered back, or for a connection slot to be released on any event loop.
+ * While other event loops wait for a slot, channels offered back without a local waiter are closed instead of idling, so that they release theirs.
+ */
 public class ChannelPool {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ChannelPool.class);
 
-  private static final AttributeKey<ChannelPoolKey> CHANNEL_POOL_KEY_ATTRIBUTE_KEY = AttributeKey.valueOf("poolKey");
-  private static final AttributeKey<Long> CHANNEL_POOL_TIMESTAMP_ATTRIBUTE_KEY = AttributeKey.valueOf("poolTimestamp");
-  private static final AttributeKey<Integer> CHANNEL_POOL_STREAM_COUNT_ATTRIBUTE_KEY = AttributeKey.valueOf("poolStreamCount");
+  public static final long SHARED_CLIENT_ID = -1;
+
+  private static final AttributeKey<PooledChannel> POOLED_CHANNEL_ATTRIBUTE_KEY = AttributeKey.valueOf("pooledChannel");
   static final int INITIAL_CLIENT_MAP_SIZE = 1000;
   static final int INITIAL_KEY_PER_CLIENT_MAP_SIZE = 2;
   static final int INITIAL_CHANNEL_QUEUE_SIZE = 2;
 
-  private final Map<Long, Map<RemoteKey, Queue<Channel>>> channels = new HashMap<>(INITIAL_CLIENT_MAP_SIZE);
+  private final ConnectionLimits connectionLimits;
+  private final Executor eventLoop;
+  private final Map<Long, Map<RemoteKey, RemoteChannels>> channels = new HashMap<>(INITIAL_CLIENT_MAP_SIZE);
   private final CoalescingChannelPool coalescingChannelPool = new CoalescingChannelPool();
 
-  private Queue<Channel> remoteChannels(ChannelPoolKey key) {
+  // idle channels, oldest first
+  private PooledChannel idleHead;
+  private PooledChannel idleTail;
+  private int idleCount;
+
+  public ChannelPool() {
+    this(new ConnectionLimits(0), Runnable::run);
+  }
+
+  /**
+   * @param connectionLimits the connection counts per remote in shared mode, shared with the pools of the other event loops
+   * @param eventLoop the event loop this pool is used from
+   */
+  public ChannelPool(ConnectionLimits connectionLimits, Executor eventLoop) {
+    this.connectionLimits = connectionLimits;
+    this.eventLoop = eventLoop;
+  }
+
+  private RemoteChannels remoteChannels(ChannelPoolKey key) {
     return channels
       .computeIfAbsent(key.clientId, k -> new HashMap<>(INITIAL_KEY_PER_CLIENT_MAP_SIZE))
-      .computeIfAbsent(key.remoteKey, k -> new  ArrayDeque<>(INITIAL_CHANNEL_QUEUE_SIZE));
+      .computeIfAbsent(key.remoteKey, k -> new RemoteChannels());
   }
 
   private static boolean isHttp1(Channel channel) {
@@ -56,38 +86,72 @@ public class ChannelPool {
     return !isHttp1(channel);
   }
 
-  private void incrementStreamCount(Channel channel) {
-    Attribute<Integer> streamCountAttr = channel.attr(CHANNEL_POOL_STREAM_COUNT_ATTRIBUTE_KEY);
-    streamCountAttr.set(streamCountAttr.get() + 1);
+  private void idle(PooledChannel channel) {
+    channel.idle = true;
+    channel.idleSince = System.nanoTime();
+    channel.idlePrev = idleTail;
+    channel.idleNext = null;
+    if (idleTail == null) {
+      idleHead = channel;
+    } else {
+      idleTail.idleNext = channel;
+    }
+    idleTail = channel;
+    idleCount++;
   }
 
-  public Channel poll(ChannelPoolKey key) {
-    Queue<Channel> channels = remoteChannels(key);
+  private void unidle(PooledChannel channel) {
+    if (!channel.idle) {
+      return;
+    }
+    if (channel.idlePrev == null) {
+      idleHead = channel.idleNext;
+    } else {
+      channel.idlePrev.idleNext = channel.idleNext;
+    }
+    if (channel.idleNext == null) {
+      idleTail = channel.idlePrev;
+    } else {
+      channel.idleNext.idlePrev = channel.idlePrev;
+    }
+    channel.idle = false;
+    channel.idlePrev = null;
+    channel.idleNext = null;
+    idleCount--;
+  }
 
-    while (true) {
-      Channel channel = channels.peek();
+  private void incrementStreamCount(PooledChannel channel) {
+    if (channel.streamCount++ == 0) {
+      unidle(channel);
+    }
+  }
 
-      if (channel == null) {
-        return null;
-      }
+  public Channel poll(ChannelPoolKey key) {
+    RemoteChannels remote = remoteChannels(key);
 
-      if (!channel.isActive()) {
-        channels.remove();
-      } else if (isHttp1(channel)) {
-        channels.remove();
-        return channel;
-      } else {
+    PooledChannel channel;
+    while ((channel = remote.http2.peek()) != null) {
+      if (channel.channel.isActive()) {
         incrementStreamCount(channel);
-        return channel;
+        return channel.channel;
+      }
+      remote.http2.remove();
+    }
+
+    while ((channel = remote.pollHttp1()) != null) {
+      unidle(channel);
+      if (channel.channel.isActive()) {
+        return channel.channel;
       }
     }
+    return null;
   }
 
   public Channel pollCoalescedChannel(long clientId, String domain, List<InetSocketAddress> addresses) {
     Channel channel = coalescingChannelPool.getCoalescedChannel(clientId, domain, addresses);
     if (channel != null) {
       LOGGER.debug("Retrieving channel from coalescing pool for domain {}", domain);
-      incrementStreamCount(channel);
+      incrementStreamCount(channel.attr(POOLED_CHANNEL_ATTRIBUTE_KEY).get());
     }
     return channel;
   }
@@ -97,72 +161,189 @@ public class ChannelPool {
     coalescingChannelPool.addEntry(key.clientId, ipAndPort, subjectAlternativeNames, channel);
   }
 
-  public void register(Channel channel, ChannelPoolKey key) {
-    channel.attr(CHANNEL_POOL_KEY_ATTRIBUTE_KEY).set(key);
+  private boolean isLimited(ChannelPoolKey key) {
+    return connectionLimits.isEnabled() && key.clientId == SHARED_CLIENT_ID;
+  }
+
+  private ConnectionLimits.Limit limit(ChannelPoolKey key, RemoteChannels remote) {
+    if (remote.limit == null) {
+      remote.limit = connectionLimits.limit(key.remoteKey);
+      remote.wakeUp = () -> eventLoop.execute(() -> {
+        remote.waitingForSlot = false;
+        if (!serveWaiters(remote)) {
+          // this pool's waiters gave up in the meantime, the slot goes to the next waiting pool
+          remote.limit.wakeUpNext();
+        }
+      });
+    }
+    return remote.limit;
+  }
+
+  /**
+   * Hands slots over to this event loop's waiters, registering for a wake up if some are left without one.
+   *
+   * @return true if any waiter was served or is still waiting
+   */
+  private boolean serveWaiters(RemoteChannels remote) {
+    boolean served = false;
+    ChannelWaiter waiter;
+    while ((waiter = remote.pollWaiter()) != null) {
+      if (remote.limit.tryAcquire()) {
+        served = true;
+        waiter.onAvailable(null);
+      } else {
+        remote.pushBackWaiter(waiter);
+        if (remote.waitingForSlot) {
+          return true;
+        }
+        // registered before trying again, so that a slot released in between can't go unnoticed
+        remote.waitingForSlot = true;
+        remote.limit.addWaitingPool(remote.wakeUp);
+      }
+    }
+    return served;
+  }
+
+  /**
+   * Reserves a connection slot before opening a new channel.
+   * Must be balanced with either registering the new channel as counted, or cancelling the reservation.
+   *
+   * @param key the key of the channel to open
+   * @return false if the remote's connection limit is reached, in which case the caller should await
+   */
+  public boolean tryReserve(ChannelPoolKey key) {
+    if (!isLimited(key)) {
+      return true;
+    }
+    RemoteChannels remote = remoteChannels(key);
+    return limit(key, remote).tryAcquire();
+  }
+
+  public void cancelReservation(ChannelPoolKey key) {
+    if (isLimited(key)) {
+      releaseSlot(remoteChannels(key));
+    }
+  }
+
+  private void releaseSlot(RemoteChannels remote) {
+    ChannelWaiter waiter = remote.pollWaiter();
+    if (waiter != null) {
+      // the slot goes to the waiter
+      waiter.onAvailable(null);
+    } else {
+      remote.limit.release();
+    }
+  }
+
+  /**
+   * Waits for a channel to be offered back, or for a connection slot, after {@link #tryReserve} failed.
+   */
+  public void await(ChannelPoolKey key, ChannelWaiter waiter) {
+    RemoteChannels remote = remoteChannels(key);
+    limit(key, remote);
+    remote.addWaiter(waiter);
+    serveWaiters(remote);
   }
 
-  private void touch(Channel channel) {
-    channel.attr(CHANNEL_POOL_TIMESTAMP_ATTRIBUTE_KEY).set(System.nanoTime());
+  /**
+   * @param counted whether the channel holds a connection slot reserved with {@link #tryReserve}
+   */
+  public void register(Channel channel, ChannelPoolKey key, boolean counted) {
+    PooledChannel pooledChannel = new PooledChannel(channel, key, remoteChannels(key), counted && isLimited(key));
+    channel.attr(POOLED_CHANNEL_ATTRIBUTE_KEY).set(pooledChannel);
+    channel.closeFuture().addListener(f -> {
+      remove(pooledChannel);
+      if (pooledChannel.counted) {
+        releaseSlot(pooledChannel.remote);
+      }
+    });
   }
 
   public void offer(Channel channel) {
-    ChannelPoolKey key = channel.attr(CHANNEL_POOL_KEY_ATTRIBUTE_KEY).get();
-    assertNotNull(key, "Channel doesn't have a key");
+    PooledChannel pooledChannel = channel.attr(POOLED_CHANNEL_ATTRIBUTE_KEY).get();
+    assertNotNull(pooledChannel, "Channel doesn't have a key");
+    RemoteChannels remote = pooledChannel.remote;
 
     if (isHttp1(channel)) {
-      remoteChannels(key).offer(channel);
-      touch(channel);
-    } else {
-      Attribute<Integer> streamCountAttr = channel.attr(CHANNEL_POOL_STREAM_COUNT_ATTRIBUTE_KEY);
-      Integer currentStreamCount = streamCountAttr.get();
-      if (currentStreamCount == null) {
-        remoteChannels(key).offer(channel);
-        streamCountAttr.set(1);
+      ChannelWaiter waiter = remote.pollWaiter();
+      if (waiter != null) {
+        // let the current response complete before reusing the channel
+        channel.eventLoop().execute(() -> waiter.onAvailable(channel));
+      } else if (isWantedElsewhere(pooledChannel)) {
+        channel.close();
       } else {
-        streamCountAttr.set(currentStreamCount - 1);
-        if (currentStreamCount == 1) {
-          // so new value is 0
-          touch(channel);
-        }
+        remote.offerHttp1(pooledChannel);
+        idle(pooledChannel);
+      }
+    } else if (pooledChannel.streamCount < 0) {
+      remote.http2.offer(pooledChannel);
+      pooledChannel.streamCount = 1;
+      // multiplexed, so all the waiters can share it
+      ChannelWaiter waiter;
+      while ((waiter = remote.pollWaiter()) != null) {
+        pooledChannel.streamCount++;
+        ChannelWaiter w = waiter;
+        channel.eventLoop().execute(() -> w.onAvailable(channel));
+      }
+    } else if (--pooledChannel.streamCount == 0) {
+      if (isWantedElsewhere(pooledChannel)) {
+        channel.close();
+      } else {
+        idle(pooledChannel);
       }
     }
   }
 
+  // whether the channel's slot would serve requests waiting on other event loops better than idling here
+  private static boolean isWantedElsewhere(PooledChannel channel) {
+    return channel.counted && channel.remote.limit.hasWaitingPools();
+  }
+
+  private void remove(PooledChannel channel) {
+    unidle(channel);
+    channel.remote.removeHttp1(channel);
+    if (channel.streamCount >= 0) {
+      channel.remote.http2.remove(channel);
+      coalescingChannelPool.deleteIdleEntry(channel.key.clientId, channel.channel);
+    }
+  }
+
   public void closeIdleChannels(long idleTimeoutNanos) {
     long now = System.nanoTime();
-    for (Map.Entry<Long, Map<RemoteKey, Queue<Channel>>> clientEntry : channels.entrySet()) {
-      for (Map.Entry<RemoteKey, Queue<Channel>> entry : clientEntry.getValue().entrySet()) {
-        Queue<Channel> deque = entry.getValue();
-        for (Channel channel : deque) {
-          if (now - channel.attr(CHANNEL_POOL_TIMESTAMP_ATTRIBUTE_KEY).get() > idleTimeoutNanos) {
-            Integer currentStreamCount = channel.attr(CHANNEL_POOL_STREAM_COUNT_ATTRIBUTE_KEY).get();
-            if (currentStreamCount == null || currentStreamCount == 0) {
-              // HTTP/1.1 or unused
-              channel.close();
-              deque.remove(channel);
-              if (isHttp2(channel)) {
-                coalescingChannelPool.deleteIdleEntry(clientEntry.getKey(), channel);
-              }
-            }
-          }
-        }
-      }
+    PooledChannel channel;
+    while ((channel = idleHead) != null && now - channel.idleSince > idleTimeoutNanos) {
+      remove(channel);
+      channel.channel.close();
     }
   }
 
   public void flushClientIdChannelPoolPartitions(long clientId) {
-    Map<RemoteKey, Queue<Channel>> clientChannel = channels.get(clientId);
-    if (clientChannel != null) {
-      clientChannel.entrySet().stream().flatMap(e -> e.getValue().stream()).forEach(Channel::close);
-      channels.remove(clientId);
+    Map<RemoteKey, RemoteChannels> clientChannels = channels.remove(clientId);
+    if (clientChannels != null) {
+      for (RemoteChannels remote : clientChannels.values()) {
+        PooledChannel channel;
+        while ((channel = remote.pollHttp1()) != null) {
+          unidle(channel);
+          channel.channel.close();
+        }
+        while ((channel = remote.http2.poll()) != null) {
+          unidle(channel);
+          channel.channel.close();
+        }
+      }
       coalescingChannelPool.deleteClientEntries(clientId);
     }
   }
 
+  int idleCount() {
+    return idleCount;
+  }
+
   @Override
   public String toString() {
     return "ChannelPool{" +
       "channels=" + channels +
+      ", idleCount=" + idleCount +
       ", coalescingChannelPool=" + coalescingChannelPool +
       '}';
   }
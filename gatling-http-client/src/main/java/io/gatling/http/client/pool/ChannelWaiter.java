@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.pool;
+
+import io.netty.channel.Channel;
+
+/**
+ * A request waiting for a connection to a remote whose connection limit is reached.
+ */
+public interface ChannelWaiter {
+
+  /**
+   * @return true if the waiter gave up, typically because its request timed out, so it must be skipped
+   */
+  boolean isCancelled();
+
+  /**
+   * @param channel an idle pooled channel handed over to the waiter,
+   *                or null if a connection slot was reserved for the waiter so it can open a new one
+   */
+  void onAvailable(Channel channel);
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.pool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The number of shared connections per remote, counted over the channel pools of all the event loops,
+ * so that a limit holds whatever the number of event loops.
+ * <p>
+ * Waiters stay in their own event loop's pool. A pool whose waiters can't get a slot registers a wake up task for the remote,
+ * run when a slot is released on any event loop, that retries from its own event loop.
+ */
+public final class ConnectionLimits {
+
+  private final int maxConnectionsPerRemote;
+  private final ConcurrentHashMap<RemoteKey, Limit> limits = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxConnectionsPerRemote the maximum number of shared connections per remote, 0 meaning unlimited
+   */
+  public ConnectionLimits(int maxConnectionsPerRemote) {
+    this.maxConnectionsPerRemote = maxConnectionsPerRemote;
+  }
+
+  boolean isEnabled() {
+    return maxConnectionsPerRemote > 0;
+  }
+
+  Limit limit(RemoteKey remoteKey) {
+    return limits.computeIfAbsent(remoteKey, k -> new Limit());
+  }
+
+  final class Limit {
+
+    // connections open or being opened, on all the event loops
+    private final AtomicInteger open = new AtomicInteger();
+    // wake up tasks of the pools with waiters
+    private final Queue<Runnable> waitingPools = new ConcurrentLinkedQueue<>();
+
+    boolean tryAcquire() {
+      for (;;) {
+        int current = open.get();
+        if (current >= maxConnectionsPerRemote) {
+          return false;
+        }
+        if (open.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release() {
+      open.decrementAndGet();
+      wakeUpNext();
+    }
+
+    void wakeUpNext() {
+      Runnable wakeUp = waitingPools.poll();
+      if (wakeUp != null) {
+        wakeUp.run();
+      }
+    }
+
+    void addWaitingPool(Runnable wakeUp) {
+      waitingPools.offer(wakeUp);
+    }
+
+    boolean hasWaitingPools() {
+      return !waitingPools.isEmpty();
+    }
+
+    int open() {
+      return open.get();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.pool;
+
+import io.netty.channel.Channel;
+
+/**
+ * The pool's state of a registered channel, linked into the pool's structures so they don't need any lookup.
+ */
+final class PooledChannel {
+
+  final Channel channel;
+  final ChannelPoolKey key;
+  final RemoteChannels remote;
+  // whether the channel holds one of its remote's connection slots
+  final boolean counted;
+
+  // HTTP/2 only: -1 until first offered, then the number of streams in flight
+  int streamCount = -1;
+
+  // links in the pool's list of idle channels, ordered by idleSince
+  boolean idle;
+  long idleSince;
+  PooledChannel idlePrev;
+  PooledChannel idleNext;
+
+  // links in the remote's list of idle HTTP/1 channels
+  boolean queued;
+  PooledChannel queuePrev;
+  PooledChannel queueNext;
+
+  PooledChannel(Channel channel, ChannelPoolKey key, RemoteChannels remote, boolean counted) {
+    this.channel = channel;
+    this.key = key;
+    this.remote = remote;
+    this.counted = counted;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.pool;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+
+/**
+ * The channels of a given client to a given remote.
+ */
+final class RemoteChannels {
+
+  // idle HTTP/1 channels, oldest first
+  private PooledChannel head;
+  private PooledChannel tail;
+  private int idleHttp1Count;
+
+  // HTTP/2 channels, whether they're idle or not, as they're multiplexed
+  final Queue<PooledChannel> http2 = new ArrayDeque<>(ChannelPool.INITIAL_CHANNEL_QUEUE_SIZE);
+
+  // only set in shared mode with a connection limit, shared with the pools of the other event loops
+  ConnectionLimits.Limit limit;
+  // run from any event loop when a slot gets released while this remote's waiters are registered
+  Runnable wakeUp;
+  boolean waitingForSlot;
+
+  // lazily created as only shared mode with a connection limit has waiters
+  private Deque<ChannelWaiter> waiters;
+
+  void offerHttp1(PooledChannel channel) {
+    channel.queued = true;
+    channel.queuePrev = tail;
+    channel.queueNext = null;
+    if (tail == null) {
+      head = channel;
+    } else {
+      tail.queueNext = channel;
+    }
+    tail = channel;
+    idleHttp1Count++;
+  }
+
+  PooledChannel pollHttp1() {
+    PooledChannel channel = head;
+    if (channel != null) {
+      removeHttp1(channel);
+    }
+    return channel;
+  }
+
+  void removeHttp1(PooledChannel channel) {
+    if (!channel.queued) {
+      return;
+    }
+    if (channel.queuePrev == null) {
+      head = channel.queueNext;
+    } else {
+      channel.queuePrev.queueNext = channel.queueNext;
+    }
+    if (channel.queueNext == null) {
+      tail = channel.queuePrev;
+    } else {
+      channel.queueNext.queuePrev = channel.queuePrev;
+    }
+    channel.queued = false;
+    channel.queuePrev = null;
+    channel.queueNext = null;
+    idleHttp1Count--;
+  }
+
+  int idleHttp1Count() {
+    return idleHttp1Count;
+  }
+
+  void addWaiter(ChannelWaiter waiter) {
+    if (waiters == null) {
+      waiters = new ArrayDeque<>();
+    }
+    waiters.offer(waiter);
+  }
+
+  // puts back a waiter that couldn't be served, ahead of the other ones
+  void pushBackWaiter(ChannelWaiter waiter) {
+    waiters.offerFirst(waiter);
+  }
+
+  ChannelWaiter pollWaiter() {
+    if (waiters != null) {
+      ChannelWaiter waiter;
+      while ((waiter = waiters.poll()) != null) {
+        if (!waiter.isCancelled()) {
+          return waiter;
+        }
+      }
+    }
+    return null;
+  }
+
+  int waiterCount() {
+    return waiters == null ? 0 : waiters.size();
+  }
+
+  @Override
+  public String toString() {
+    return "RemoteChannels{" +
+      "idleHttp1=" + idleHttp1Count +
+      ", http2=" + http2.size() +
+      ", open=" + (limit == null ? 0 : limit.open()) +
+      ", waiters=" + waiterCount() +
+      '}';
+  }
+}
@@ -59,6 +59,13 @@ public class GatlingHttpClient implements AutoCloseable {
   }
 
   public void execute(Request request, long clientId, boolean shared, HttpListener listener) {
+    execute(request, clientId, shared, sslContext, listener);
+  }
+
+  /**
+   * @param sslContext null to use the config's default one
+   */
+  public void execute(Request request, long clientId, boolean shared, SslContext sslContext, HttpListener listener) {
     if (request.getNameResolver() == null) {
       // hack: patch request with name resolver
       request = new RequestBuilder(request, request.getUri())
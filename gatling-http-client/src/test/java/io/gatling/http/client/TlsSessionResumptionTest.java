@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.gatling.http.client;
+
+import io.gatling.http.client.test.HttpTest;
+import io.gatling.http.client.test.TestServer;
+import io.gatling.http.client.test.listener.TestListener;
+import io.gatling.http.client.uri.Uri;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TlsSessionResumptionTest extends HttpTest {
+
+  private static TestServer server;
+
+  @BeforeAll
+  static void start() throws Throwable {
+    server = new TestServer();
+    server.start();
+  }
+
+  @AfterAll
+  static void stop() throws Throwable {
+    server.close();
+  }
+
+  @Test
+  void resumesSessionsOfTheDefaultSslContextWithJdk() throws Throwable {
+    testResumption(SslProvider.JDK);
+  }
+
+  @Test
+  void resumesSessionsOfTheDefaultSslContextWithOpenSsl() throws Throwable {
+    assumeTrue(OpenSsl.isAvailable(), "OpenSSL isn't available");
+    testResumption(SslProvider.OPENSSL);
+  }
+
+  private void testResumption(SslProvider provider) throws Throwable {
+    AtomicInteger full = new AtomicInteger();
+    AtomicInteger resumed = new AtomicInteger();
+
+    HttpClientConfig config = new HttpClientConfig()
+      // sessions are cached per peer host and port, which engines only know with SNI
+      .setEnableSni(true)
+      .setDefaultSslContext(SslContextBuilder.forClient().sslProvider(provider).trustManager(InsecureTrustManagerFactory.INSTANCE).build())
+      .setTlsHandshakeListener(r -> (r ? resumed : full).incrementAndGet());
+
+    withClient(config).run(client ->
+      withServer(server).run(server -> {
+        Request request = client.newRequestBuilder(HttpMethod.GET, Uri.create(server.getHttpsUrl() + "/foo")).build();
+
+        // 2 virtual users, so 2 connections, both using the default SslContext, as with the shared resumption policy
+        server.enqueueOk();
+        client.test(request, 1, null, new TestListener.NoopTestListener()).get(TIMEOUT_SECONDS, SECONDS);
+        assertEquals(1, full.get());
+        assertEquals(0, resumed.get());
+
+        // OpenSSL session creation times are in seconds, so a session resumed within the second it was created counts as a full handshake
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 50);
+
+        server.enqueueOk();
+        client.test(request, 2, null, new TestListener.NoopTestListener()).get(TIMEOUT_SECONDS, SECONDS);
+        assertEquals(1, full.get());
+        assertEquals(1, resumed.get());
+      }));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.impl;
+
+import io.gatling.http.client.HttpListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimeoutWheelTest {
+
+  private final EventLoop eventLoop = new DefaultEventLoop();
+  private final RequestTimeoutWheel wheel = new RequestTimeoutWheel(eventLoop, 5);
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final RequestTimeoutWheel manualWheel = new RequestTimeoutWheel(eventLoop, 5, nanoTime::get);
+  private final List<Integer> timedOut = Collections.synchronizedList(new ArrayList<>());
+
+  @AfterEach
+  void shutdown() {
+    eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+
+  private RequestTimeout timeout(long timeoutMillis, int id) {
+    return RequestTimeout.requestTimeout(timeoutMillis, new HttpListener() {
+      @Override
+      public void onHttpResponse(HttpResponseStatus status, HttpHeaders headers) {
+      }
+
+      @Override
+      public void onHttpResponseBodyChunk(ByteBuf chunk, boolean last) {
+      }
+
+      @Override
+      public void onThrowable(Throwable e) {
+        assertTrue(e instanceof RequestTimeoutException);
+        timedOut.add(id);
+      }
+    });
+  }
+
+  private <T> T onEventLoop(Callable<T> task) throws Exception {
+    return eventLoop.submit(task).get();
+  }
+
+  // moves manualWheel's clock forward then ticks, so expiring doesn't depend on the scheduled ticks' timing
+  private void advance(long millis) throws Exception {
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    onEventLoop(() -> {
+      manualWheel.tick();
+      return null;
+    });
+  }
+
+  @Test
+  void expiresTimeoutsInDeadlineOrder() throws Exception {
+    List<RequestTimeout> timeouts = onEventLoop(() -> {
+      List<RequestTimeout> list = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        RequestTimeout timeout = timeout(100 - i * 20, i);
+        timeout.start(wheel);
+        list.add(timeout);
+      }
+      return list;
+    });
+
+    Thread.sleep(300);
+
+    assertEquals(Arrays.asList(4, 3, 2, 1, 0), new ArrayList<>(timedOut));
+    for (RequestTimeout timeout : timeouts) {
+      assertTrue(timeout.isDone());
+    }
+    assertEquals(0, (int) onEventLoop(wheel::size));
+  }
+
+  @Test
+  void doesNotExpireCancelledTimeouts() throws Exception {
+    onEventLoop(() -> {
+      for (int i = 0; i < 100; i++) {
+        RequestTimeout timeout = timeout(50, i);
+        timeout.start(wheel);
+        if (i % 2 == 0) {
+          timeout.cancel();
+          assertTrue(timeout.isDone());
+        }
+      }
+      return null;
+    });
+
+    assertEquals(50, (int) onEventLoop(wheel::size));
+    Thread.sleep(200);
+
+    assertEquals(50, timedOut.size());
+    assertTrue(timedOut.stream().allMatch(id -> id % 2 == 1));
+    assertEquals(0, (int) onEventLoop(wheel::size));
+  }
+
+  @Test
+  void keepsTheOriginalDeadlineOnRetry() throws Exception {
+    RequestTimeout timeout = onEventLoop(() -> {
+      RequestTimeout t = timeout(100, 0);
+      t.start(manualWheel);
+      return t;
+    });
+
+    advance(60);
+    onEventLoop(() -> {
+      timeout.start(manualWheel);
+      return null;
+    });
+    assertEquals(1, (int) onEventLoop(manualWheel::size));
+
+    advance(35);
+    assertTrue(timedOut.isEmpty());
+
+    // past the original deadline, before the one a restart would have set
+    advance(10);
+    assertEquals(Arrays.asList(0), new ArrayList<>(timedOut));
+    assertTrue(timeout.isDone());
+  }
+
+  @Test
+  void restartsCancelledTimeoutsWithANewDeadline() throws Exception {
+    RequestTimeout timeout = onEventLoop(() -> {
+      RequestTimeout t = timeout(100, 0);
+      t.start(manualWheel);
+      t.cancel();
+      return t;
+    });
+
+    advance(60);
+    onEventLoop(() -> {
+      timeout.start(manualWheel);
+      return null;
+    });
+
+    // past the original deadline, before the new one
+    advance(50);
+    assertTrue(timedOut.isEmpty());
+
+    advance(55);
+    assertEquals(Arrays.asList(0), new ArrayList<>(timedOut));
+  }
+
+  @Test
+  void expiresTimeoutsLongerThanAWheelRevolution() throws Exception {
+    // 1024 buckets of 1ms
+    RequestTimeoutWheel fineWheel = new RequestTimeoutWheel(eventLoop, 1);
+    onEventLoop(() -> {
+      timeout(1500, 0).start(fineWheel);
+      timeout(10, 1).start(fineWheel);
+      return null;
+    });
+
+    Thread.sleep(1200);
+    assertEquals(Arrays.asList(1), new ArrayList<>(timedOut));
+
+    Thread.sleep(800);
+    assertEquals(Arrays.asList(1, 0), new ArrayList<>(timedOut));
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.client.pool;
+
+import io.gatling.http.client.impl.DefaultHttpClient;
+import io.gatling.http.client.uri.Uri;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelPoolTest {
+
+  private static final RemoteKey REMOTE_KEY = RemoteKey.newKey(Uri.create("http://localhost:8080/"), null, null);
+  private static final ChannelPoolKey SHARED_KEY = new ChannelPoolKey(ChannelPool.SHARED_CLIENT_ID, REMOTE_KEY);
+
+  private static EmbeddedChannel http1Channel() {
+    EmbeddedChannel channel = new EmbeddedChannel();
+    channel.pipeline().addLast(DefaultHttpClient.APP_HTTP_HANDLER, new ChannelInboundHandlerAdapter());
+    return channel;
+  }
+
+  private static final class RecordingWaiter implements ChannelWaiter {
+
+    private final List<Channel> channels = new ArrayList<>();
+    private int slots;
+    private boolean cancelled;
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public void onAvailable(Channel channel) {
+      if (channel == null) {
+        slots++;
+      } else {
+        channels.add(channel);
+      }
+    }
+  }
+
+  @Test
+  void pollsHttp1ChannelsInOfferOrder() {
+    ChannelPool pool = new ChannelPool();
+    ChannelPoolKey key = new ChannelPoolKey(1, REMOTE_KEY);
+    EmbeddedChannel channel1 = http1Channel();
+    EmbeddedChannel channel2 = http1Channel();
+    pool.register(channel1, key, true);
+    pool.register(channel2, key, true);
+
+    pool.offer(channel1);
+    pool.offer(channel2);
+    assertEquals(2, pool.idleCount());
+
+    assertSame(channel1, pool.poll(key));
+    assertEquals(1, pool.idleCount());
+    assertSame(channel2, pool.poll(key));
+    assertNull(pool.poll(key));
+    assertEquals(0, pool.idleCount());
+  }
+
+  @Test
+  void skipsChannelsClosedWhileIdle() {
+    ChannelPool pool = new ChannelPool();
+    ChannelPoolKey key = new ChannelPoolKey(1, REMOTE_KEY);
+    EmbeddedChannel channel1 = http1Channel();
+    EmbeddedChannel channel2 = http1Channel();
+    pool.register(channel1, key, true);
+    pool.register(channel2, key, true);
+    pool.offer(channel1);
+    pool.offer(channel2);
+
+    channel1.close();
+
+    assertEquals(1, pool.idleCount());
+    assertSame(channel2, pool.poll(key));
+  }
+
+  @Test
+  void closesOnlyExpiredIdleChannels() throws InterruptedException {
+    ChannelPool pool = new ChannelPool();
+    ChannelPoolKey key = new ChannelPoolKey(1, REMOTE_KEY);
+    EmbeddedChannel expired = http1Channel();
+    EmbeddedChannel fresh = http1Channel();
+    EmbeddedChannel inUse = http1Channel();
+    pool.register(expired, key, true);
+    pool.register(fresh, key, true);
+    pool.register(inUse, key, true);
+
+    pool.offer(expired);
+    Thread.sleep(200);
+    pool.offer(fresh);
+
+    pool.closeIdleChannels(TimeUnit.MILLISECONDS.toNanos(100));
+
+    assertFalse(expired.isOpen());
+    assertTrue(fresh.isOpen());
+    assertTrue(inUse.isOpen());
+    assertEquals(1, pool.idleCount());
+    assertSame(fresh, pool.poll(key));
+  }
+
+  @Test
+  void tracksIdleHttp2ChannelsByStreamCount() {
+    ChannelPool pool = new ChannelPool();
+    ChannelPoolKey key = new ChannelPoolKey(1, REMOTE_KEY);
+    EmbeddedChannel channel = new EmbeddedChannel();
+    pool.register(channel, key, true);
+
+    // first offer when ALPN completes, with the first stream in flight
+    pool.offer(channel);
+    assertEquals(0, pool.idleCount());
+    assertSame(channel, pool.poll(key));
+
+    pool.offer(channel);
+    assertEquals(0, pool.idleCount());
+    pool.offer(channel);
+    assertEquals(1, pool.idleCount());
+
+    assertSame(channel, pool.poll(key));
+    assertEquals(0, pool.idleCount());
+    pool.closeIdleChannels(-1);
+    assertTrue(channel.isOpen());
+
+    pool.offer(channel);
+    pool.closeIdleChannels(-1);
+    assertFalse(channel.isOpen());
+    assertNull(pool.poll(key));
+  }
+
+  @Test
+  void limitsSharedConnectionsPerRemote() {
+    ChannelPool pool = new ChannelPool(new ConnectionLimits(2), Runnable::run);
+    ChannelPoolKey userKey = new ChannelPoolKey(1, REMOTE_KEY);
+
+    assertTrue(pool.tryReserve(SHARED_KEY));
+    assertTrue(pool.tryReserve(SHARED_KEY));
+    assertFalse(pool.tryReserve(SHARED_KEY));
+
+    // only shared connections are limited
+    assertTrue(pool.tryReserve(userKey));
+    assertTrue(pool.tryReserve(userKey));
+    assertTrue(pool.tryReserve(userKey));
+
+    pool.cancelReservation(SHARED_KEY);
+    assertTrue(pool.tryReserve(SHARED_KEY));
+  }
+
+  @Test
+  void handsOfferedChannelsOverToWaiters() {
+    ChannelPool pool = new ChannelPool(new ConnectionLimits(1), Runnable::run);
+    EmbeddedChannel channel = http1Channel();
+    assertTrue(pool.tryReserve(SHARED_KEY));
+    pool.register(channel, SHARED_KEY, true);
+
+    assertFalse(pool.tryReserve(SHARED_KEY));
+    RecordingWaiter cancelled = new RecordingWaiter();
+    cancelled.cancelled = true;
+    RecordingWaiter waiter = new RecordingWaiter();
+    pool.await(SHARED_KEY, cancelled);
+    pool.await(SHARED_KEY, waiter);
+
+    pool.offer(channel);
+    channel.runPendingTasks();
+
+    assertTrue(cancelled.channels.isEmpty());
+    assertEquals(1, waiter.channels.size());
+    assertSame(channel, waiter.channels.get(0));
+    // handed over, not pooled
+    assertEquals(0, pool.idleCount());
+    assertNull(pool.poll(SHARED_KEY));
+  }
+
+  @Test
+  void handsSlotsOfClosedChannelsOverToWaiters() {
+    ChannelPool pool = new ChannelPool(new ConnectionLimits(1), Runnable::run);
+    EmbeddedChannel channel = http1Channel();
+    assertTrue(pool.tryReserve(SHARED_KEY));
+    pool.register(channel, SHARED_KEY, true);
+
+    RecordingWaiter waiter = new RecordingWaiter();
+    assertFalse(pool.tryReserve(SHARED_KEY));
+    pool.await(SHARED_KEY, waiter);
+
+    channel.close();
+
+    assertEquals(1, waiter.slots);
+    // the slot now belongs to the waiter
+    assertFalse(pool.tryReserve(SHARED_KEY));
+    pool.cancelReservation(SHARED_KEY);
+    assertTrue(pool.tryReserve(SHARED_KEY));
+  }
+
+  @Test
+  void limitsSharedConnectionsPerRemoteOverAllEventLoops() {
+    ConnectionLimits limits = new ConnectionLimits(1);
+    ChannelPool pool1 = new ChannelPool(limits, Runnable::run);
+    ChannelPool pool2 = new ChannelPool(limits, Runnable::run);
+
+    assertTrue(pool1.tryReserve(SHARED_KEY));
+    assertFalse(pool2.tryReserve(SHARED_KEY));
+    RecordingWaiter waiter = new RecordingWaiter();
+    pool2.await(SHARED_KEY, waiter);
+    assertEquals(0, waiter.slots);
+
+    pool1.cancelReservation(SHARED_KEY);
+
+    assertEquals(1, waiter.slots);
+    // the slot now belongs to the other event loop's waiter
+    assertFalse(pool1.tryReserve(SHARED_KEY));
+    pool2.cancelReservation(SHARED_KEY);
+    assertTrue(pool1.tryReserve(SHARED_KEY));
+  }
+
+  @Test
+  void closesOfferedChannelsWantedByOtherEventLoops() {
+    ConnectionLimits limits = new ConnectionLimits(1);
+    ChannelPool pool1 = new ChannelPool(limits, Runnable::run);
+    ChannelPool pool2 = new ChannelPool(limits, Runnable::run);
+    EmbeddedChannel channel = http1Channel();
+    assertTrue(pool1.tryReserve(SHARED_KEY));
+    pool1.register(channel, SHARED_KEY, true);
+
+    RecordingWaiter waiter = new RecordingWaiter();
+    assertFalse(pool2.tryReserve(SHARED_KEY));
+    pool2.await(SHARED_KEY, waiter);
+
+    pool1.offer(channel);
+
+    assertFalse(channel.isOpen());
+    assertEquals(0, pool1.idleCount());
+    assertEquals(1, waiter.slots);
+  }
+
+  @Test
+  void keepsOfferedChannelsIdleWhenNoOtherEventLoopWaits() {
+    ConnectionLimits limits = new ConnectionLimits(1);
+    ChannelPool pool1 = new ChannelPool(limits, Runnable::run);
+    EmbeddedChannel channel = http1Channel();
+    assertTrue(pool1.tryReserve(SHARED_KEY));
+    pool1.register(channel, SHARED_KEY, true);
+
+    pool1.offer(channel);
+
+    assertTrue(channel.isOpen());
+    assertEquals(1, pool1.idleCount());
+  }
+}
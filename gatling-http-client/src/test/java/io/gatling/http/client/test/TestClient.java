@@ -20,6 +20,7 @@ import io.gatling.http.client.HttpClientConfig;
 import io.gatling.http.client.GatlingHttpClient;
 import io.gatling.http.client.Request;
 import io.gatling.http.client.test.listener.TestListener;
+import io.netty.handler.ssl.SslContext;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -33,4 +34,9 @@ public class TestClient extends GatlingHttpClient {
     super.execute(request, affinity, true, listener);
     return listener.getResult();
   }
+
+  public CompletableFuture<Void> test(Request request, long clientId, SslContext sslContext, TestListener listener) {
+    super.execute(request, clientId, false, sslContext, listener);
+    return listener.getResult();
+  }
 }
@@ -46,7 +46,11 @@ private[http] object SslContextSupport extends StrictLogging {
     }
 
   def setSslContexts(httpProtocol: HttpProtocol, httpEngine: HttpEngine): Session => Session =
-    if (httpProtocol.enginePart.shareConnections) {
+    if (
+      httpProtocol.enginePart.shareConnections ||
+      (httpEngine.sharesSslSessions && httpProtocol.enginePart.perUserKeyManagerFactory.isEmpty)
+    ) {
+      // no per user contexts, so the client's default ones and their session cache get used
       Session.Identity
     } else { session =>
       {
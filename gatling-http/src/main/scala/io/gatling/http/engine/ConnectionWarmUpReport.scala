@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.gatling.http.engine
+
+import java.io.PrintStream
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{ Files, Path }
+
+import scala.collection.mutable
+import scala.util.Using
+
+import io.gatling.commons.util.Throwables._
+
+import org.HdrHistogram.{ Histogram, HistogramLogWriter }
+
+/**
+ * Collects the latencies of the connections opened before the run, so they can be reported on their own instead of in the run's stats.
+ * Callbacks come from all the event loops.
+ */
+private[engine] final class ConnectionWarmUpReport(startMillis: Long) {
+
+  private val connect = ConnectionWarmUpReport.newHistogram(ConnectionWarmUpReport.ConnectTag, startMillis)
+  private val handshake = ConnectionWarmUpReport.newHistogram(ConnectionWarmUpReport.HandshakeTag, startMillis)
+  private val errors = mutable.LinkedHashMap.empty[String, Int]
+
+  def onConnectionReady(connectNanos: Long, handshakeNanos: Long): Unit = synchronized {
+    connect.recordValue(connectNanos)
+    if (handshakeNanos > 0) {
+      handshake.recordValue(handshakeNanos)
+    }
+  }
+
+  def onFailure(e: Throwable): Unit = synchronized {
+    val message = e.rootMessage
+    errors.update(message, errors.getOrElse(message, 0) + 1)
+  }
+
+  def summary(expected: Int): String = synchronized {
+    val connects = connect.getTotalCount
+    val failures = errors.values.sum
+    val sb = new StringBuilder
+    sb.append(s"Pre-warmed $connects/$expected connections")
+    if (failures > 0) {
+      sb.append(s", $failures failed")
+    }
+    val pending = expected - connects - failures
+    if (pending > 0) {
+      sb.append(s", $pending still pending")
+    }
+    ConnectionWarmUpReport.appendStats(sb, "TCP connect", connect)
+    ConnectionWarmUpReport.appendStats(sb, "TLS handshake", handshake)
+    errors.foreach { case (message, count) => sb.append(s"\n  error: $message ($count)") }
+    sb.toString
+  }
+
+  /**
+   * Writes the latency distributions in the HdrHistogram log format, in nanoseconds, with one histogram tagged per phase,
+   * so they can be analyzed with the HdrHistogram tools.
+   */
+  def writeHistogramLog(path: Path, endMillis: Long): Unit = synchronized {
+    Using.resource(new PrintStream(Files.newOutputStream(path), false, UTF_8.name)) { out =>
+      val writer = new HistogramLogWriter(out)
+      writer.setBaseTime(startMillis)
+      writer.outputLogFormatVersion()
+      writer.outputStartTime(startMillis)
+      writer.outputLegend()
+      for (histogram <- List(connect, handshake) if histogram.getTotalCount > 0) {
+        histogram.setEndTimeStamp(endMillis)
+        writer.outputIntervalHistogram(histogram)
+      }
+    }
+  }
+}
+
+private[engine] object ConnectionWarmUpReport {
+
+  val ConnectTag = "connect"
+  val HandshakeTag = "handshake"
+
+  private def newHistogram(tag: String, startMillis: Long): Histogram = {
+    // auto resizing, so any latency can be recorded
+    val histogram = new Histogram(3)
+    histogram.setTag(tag)
+    histogram.setStartTimeStamp(startMillis)
+    histogram
+  }
+
+  private def millis(nanos: Long): String = f"${nanos / 1000000.0}%.1f"
+
+  private def appendStats(sb: StringBuilder, name: String, histogram: Histogram): Unit =
+    if (histogram.getTotalCount > 0) {
+      val p50 = millis(histogram.getValueAtPercentile(50))
+      val p95 = millis(histogram.getValueAtPercentile(95))
+      val p99 = millis(histogram.getValueAtPercentile(99))
+      sb.append(s"\n$name (ms): min=${millis(histogram.getMinValue)} p50=$p50 p95=$p95 p99=$p99 max=${millis(histogram.getMaxValue)}")
+    }
+}
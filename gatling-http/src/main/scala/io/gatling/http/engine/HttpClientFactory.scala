@@ -18,6 +18,7 @@ package io.gatling.http.engine
 
 import io.gatling.commons.shared.unstable.util.SystemProps._
 import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.StatsEngine
 import io.gatling.http.client.{ HttpClient, HttpClientConfig }
 import io.gatling.http.client.impl.DefaultHttpClient
 import io.gatling.http.util._
@@ -26,6 +27,7 @@ import com.typesafe.scalalogging.StrictLogging
 
 private[gatling] final class HttpClientFactory(
     sslContextsFactory: SslContextsFactory,
+    statsEngine: StatsEngine,
     // [fl]
     configuration: GatlingConfiguration
 ) extends StrictLogging {
@@ -46,12 +48,14 @@ private[gatling] final class HttpClientFactory(
       .setDefaultCharset(configuration.core.charset)
       .setEnableHostnameVerification(httpConfig.enableHostnameVerification)
       .setChannelPoolIdleTimeout(httpConfig.pooledConnectionIdleTimeout.toMillis)
+      .setMaxConnectionsPerRemote(httpConfig.maxConnectionsPerRemote)
       .setConnectTimeout(socketConfig.connectTimeout.toMillis)
       .setTcpNoDelay(socketConfig.tcpNoDelay)
       .setSoKeepAlive(socketConfig.soKeepAlive)
       .setSoReuseAddress(socketConfig.soReuseAddress)
       .setHandshakeTimeout(sslConfig.handshakeTimeout.toMillis)
       .setEnableSni(sslConfig.enableSni)
+      .setTlsHandshakeListener(resumed => statsEngine.logTlsHandshakeSuccess(resumed))
       .setUseNativeTransport(nettyConfig.useNativeTransport)
       .setThreadPoolName("gatling-http")
     //[fl]
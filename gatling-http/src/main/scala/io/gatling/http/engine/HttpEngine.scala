@@ -17,23 +17,29 @@
 package io.gatling.http.engine
 
 import java.net.InetSocketAddress
+import java.time.{ Instant, ZoneOffset }
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.{ CountDownLatch, TimeUnit }
 import javax.net.ssl.KeyManagerFactory
 
 import scala.concurrent.{ Await, Promise }
 import scala.concurrent.duration._
 import scala.util.control.NonFatal
 
+import io.gatling.commons.shared.unstable.util.PathHelper._
 import io.gatling.commons.util.Clock
 import io.gatling.commons.util.Throwables._
 import io.gatling.core.CoreComponents
-import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.config.{ GatlingConfiguration, GatlingFiles, SslSessionResumption }
 import io.gatling.core.session._
-import io.gatling.http.client.{ HttpClient, HttpListener, Request, RequestBuilder }
+import io.gatling.http.client.{ ConnectionWarmUpListener, HttpClient, HttpListener, Request, RequestBuilder }
+import io.gatling.http.client.pool.ChannelPool
 import io.gatling.http.client.resolver._
 import io.gatling.http.client.uri.Uri
 import io.gatling.http.client.util.Pair
-import io.gatling.http.protocol.HttpComponents
+import io.gatling.http.protocol.{ HttpComponents, HttpProtocol, Remote }
 import io.gatling.http.request.builder.Http
+import io.gatling.http.resolver.{ AliasesAwareNameResolver, ShufflingNameResolver }
 import io.gatling.http.util.{ SslContexts, SslContextsFactory }
 import io.gatling.netty.util.Transports
 
@@ -45,9 +51,12 @@ import io.netty.handler.ssl.SslContext
 import io.netty.resolver.dns._
 
 object HttpEngine {
+
+  private val WarmUpTimestampFormat = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC)
+
   def apply(coreComponents: CoreComponents): HttpEngine = {
     val sslContextsFactory = new SslContextsFactory(coreComponents.configuration.ssl)
-    val httpClient = new HttpClientFactory(sslContextsFactory, coreComponents.configuration).newClient
+    val httpClient = new HttpClientFactory(sslContextsFactory, coreComponents.statsEngine, coreComponents.configuration).newClient
     new HttpEngine(sslContextsFactory, httpClient, coreComponents.eventLoopGroup, coreComponents.clock, coreComponents.configuration)
   }
 }
@@ -137,6 +146,104 @@ class HttpEngine(
       logger.debug("Warm up done")
     }
 
+  /**
+   * Opens connections to the protocol's remotes, spread across the event loops, so they're ready in the shared pool when the virtual users start.
+   * Blocks the protocol initialization, hence the start of the run, until they're all ready or failed, for up to requestTimeout + 1 second.
+   * Their latencies are logged as a summary, and their distributions are written to an HdrHistogram log in the results directory.
+   */
+  def preWarmConnections(httpProtocol: HttpProtocol): Unit = {
+    import httpProtocol.enginePart._
+
+    if (preWarmedConnections > 0) {
+      val urls = if (preWarmedUrls.nonEmpty) preWarmedUrls else httpProtocol.baseUrls
+      if (!shareConnections) {
+        logger.warn("Can't pre-warm connections without shareConnections, as virtual users would otherwise open their own connections")
+      } else if (urls.isEmpty) {
+        logger.warn("Can't pre-warm connections without urls nor baseUrls")
+      } else {
+        val uris = urls.map(url => Uri.create(url)).distinctBy(_.getBaseUrl)
+        val expected = uris.size * preWarmedConnections
+        val report = new ConnectionWarmUpReport(clock.nowMillis)
+        val latch = new CountDownLatch(expected)
+        val staticVirtualHost = virtualHost match {
+          case Some(StaticValueExpression(value)) => Some(value)
+          case Some(_) =>
+            logger.warn("Pre-warmed connections ignore dynamic virtualHost, so requests might not use them")
+            None
+          case _ => None
+        }
+        logger.info(s"Pre-warming $preWarmedConnections connections to ${uris.map(_.getBaseUrl).mkString(", ")}")
+
+        for {
+          uri <- uris
+          _ <- 0 until preWarmedConnections
+        } {
+          val eventLoop = eventLoopGroup.next()
+          httpClient.warmUpConnection(
+            preWarmRequest(uri, staticVirtualHost, httpProtocol, eventLoop),
+            ChannelPool.SHARED_CLIENT_ID,
+            eventLoop,
+            null,
+            null,
+            new ConnectionWarmUpListener {
+              override def onConnectionReady(connectNanos: Long, handshakeNanos: Long): Unit = {
+                report.onConnectionReady(connectNanos, handshakeNanos)
+                latch.countDown()
+              }
+
+              override def onThrowable(e: Throwable): Unit = {
+                report.onFailure(e)
+                latch.countDown()
+              }
+            }
+          )
+        }
+
+        latch.await(configuration.http.requestTimeout.toMillis + 1000, TimeUnit.MILLISECONDS)
+        logger.info(report.summary(expected))
+        writeConnectionWarmUpHistograms(report)
+      }
+    }
+  }
+
+  private def writeConnectionWarmUpHistograms(report: ConnectionWarmUpReport): Unit = {
+    val endMillis = clock.nowMillis
+    val directory = GatlingFiles.resultsDirectory(configuration)
+    val path = directory / s"connection-warm-up-${HttpEngine.WarmUpTimestampFormat.format(Instant.ofEpochMilli(endMillis))}.hlog"
+    try {
+      directory.mkdirs()
+      report.writeHistogramLog(path, endMillis)
+      logger.info(s"Pre-warmed connection latency histograms written to $path")
+    } catch {
+      case NonFatal(e) => logger.warn(s"Failed to write pre-warmed connection latency histograms to $path: ${e.rootMessage}")
+    }
+  }
+
+  private def preWarmRequest(uri: Uri, virtualHost: Option[String], httpProtocol: HttpProtocol, eventLoop: EventLoop): Request = {
+    val nameResolver = AliasesAwareNameResolver(httpProtocol.dnsPart.hostNameAliases, new ShufflingNameResolver(newJavaDnsNameResolver, eventLoop))
+    val requestBuilder = new RequestBuilder(HttpMethod.GET, uri, nameResolver)
+      .setRequestTimeout(configuration.http.requestTimeout.toMillis)
+      .setDefaultCharset(configuration.core.charset)
+
+    httpProtocol.proxyPart.proxy.foreach { proxy =>
+      if (!httpProtocol.proxyPart.proxyExceptions.contains(uri.getHost)) {
+        requestBuilder.setProxyServer(proxy)
+      }
+    }
+
+    virtualHost.foreach(requestBuilder.setVirtualHost)
+
+    if (httpProtocol.enginePart.enableHttp2) {
+      val http2PriorKnowledge = httpProtocol.enginePart.http2PriorKnowledge.get(Remote(uri))
+      requestBuilder
+        .setHttp2Enabled(true)
+        .setAlpnRequired(http2PriorKnowledge.forall(_ == true))
+        .setHttp2PriorKnowledge(http2PriorKnowledge.contains(true))
+    }
+
+    requestBuilder.build
+  }
+
   def executeRequest(
       clientRequest: Request,
       clientId: Long,
@@ -147,7 +254,7 @@ class HttpEngine(
       alpnSslContext: SslContext
   ): Unit =
     if (!httpClient.isClosed) {
-      httpClient.sendRequest(clientRequest, if (shared) -1 else clientId, eventLoop, listener, sslContext, alpnSslContext)
+      httpClient.sendRequest(clientRequest, if (shared) ChannelPool.SHARED_CLIENT_ID else clientId, eventLoop, listener, sslContext, alpnSslContext)
     }
 
   def executeHttp2Requests(
@@ -159,7 +266,7 @@ class HttpEngine(
       alpnSslContext: SslContext
   ): Unit =
     if (!httpClient.isClosed) {
-      httpClient.sendHttp2Requests(requestsAndListeners.toArray, if (shared) -1 else clientId, eventLoop, sslContext, alpnSslContext)
+      httpClient.sendHttp2Requests(requestsAndListeners.toArray, if (shared) ChannelPool.SHARED_CLIENT_ID else clientId, eventLoop, sslContext, alpnSslContext)
     }
 
   // [fl]
@@ -194,6 +301,13 @@ class HttpEngine(
   def newSslContexts(http2Enabled: Boolean, perUserKeyManagerFactory: Option[KeyManagerFactory]): SslContexts =
     sslContextsFactory.newSslContexts(http2Enabled, perUserKeyManagerFactory)
 
+  /**
+   * @return true if virtual users that don't have their own key manager should use the client's default SslContexts,
+   *         so they all resume TLS sessions from a single cache
+   */
+  def sharesSslSessions: Boolean =
+    configuration.ssl.sessionResumption == SslSessionResumption.Shared
+
   def flushClientIdChannels(clientId: Long, eventLoop: EventLoop): Unit =
     if (!httpClient.isClosed) {
       httpClient.flushClientIdChannels(clientId, eventLoop)
@@ -152,6 +152,7 @@ class HttpTxExecutor(
           case Some(th) if tx.request.requestConfig.throttled =>
             th.throttle(
               tx.session.scenario,
+              tx.session.eventLoop,
               () => httpEngine.executeRequest(clientRequest, clientId, shared, tx.session.eventLoop, listener, sslContext, alpnSslContext)
             )
           case _ =>
@@ -183,6 +184,7 @@ class HttpTxExecutor(
         case Some(th) if txs.head.request.requestConfig.throttled =>
           th.throttle(
             headTx.session.scenario,
+            headTx.session.eventLoop,
             () => httpEngine.executeHttp2Requests(requestsAndListeners, clientId, shared, headTx.session.eventLoop, sslContext, alpnSslContext)
           )
         case _ =>
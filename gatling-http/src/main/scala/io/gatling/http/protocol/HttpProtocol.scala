@@ -63,6 +63,7 @@ object HttpProtocol extends StrictLogging {
         )
 
         httpEngine.warmUp(httpComponents)
+        httpEngine.preWarmConnections(httpProtocol)
         httpComponents
       }
     }
@@ -74,6 +75,8 @@ object HttpProtocol extends StrictLogging {
       warmUpUrl = configuration.http.warmUpUrl,
       enginePart = HttpProtocolEnginePart(
         shareConnections = false,
+        preWarmedConnections = 0,
+        preWarmedUrls = Nil,
         maxConnectionsPerHost = 6,
         virtualHost = None,
         localIpV4Addresses = Nil,
@@ -146,6 +149,8 @@ final case class HttpProtocol(
 
 final case class HttpProtocolEnginePart(
     shareConnections: Boolean,
+    preWarmedConnections: Int,
+    preWarmedUrls: List[String],
     maxConnectionsPerHost: Int,
     virtualHost: Option[Expression[String]],
     localIpV4Addresses: List[InetAddress],
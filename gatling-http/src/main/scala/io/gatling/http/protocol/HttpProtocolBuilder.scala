@@ -57,6 +57,14 @@ final case class HttpProtocolBuilder(protocol: HttpProtocol, useOpenSsl: Boolean
 
   // enginePart
   def shareConnections: HttpProtocolBuilder = disableAutoReferer.modify(_.protocol.enginePart.shareConnections).setTo(true)
+  def preWarmConnections(perRemote: Int, urls: String*): HttpProtocolBuilder = {
+    require(perRemote >= 0, "perRemote can't be negative")
+    this
+      .modify(_.protocol.enginePart.preWarmedConnections)
+      .setTo(perRemote)
+      .modify(_.protocol.enginePart.preWarmedUrls)
+      .setTo(urls.toList)
+  }
   def virtualHost(virtualHost: Expression[String]): HttpProtocolBuilder = this.modify(_.protocol.enginePart.virtualHost).setTo(Some(virtualHost))
   def localAddress(address: String): HttpProtocolBuilder = localAddresses(address :: Nil)
   def localAddresses(addresses: String*): HttpProtocolBuilder = localAddresses(addresses.toList)
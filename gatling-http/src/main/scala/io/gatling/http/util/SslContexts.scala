@@ -129,6 +129,15 @@ private[gatling] class SslContextsFactory(sslConfig: SslConfiguration) extends S
       val jdkSslContext = SSLContext.getInstance("TLS")
       jdkSslContext.init(kmf.map(_.getKeyManagers).orNull, tmf.map(_.getTrustManagers).orNull, DefaultSslSecureRandom)
 
+      // sessions are cached per peer host and port, which requires SNI so that engines know their peer
+      val sessionContext = jdkSslContext.getClientSessionContext
+      if (sslConfig.sessionCacheSize > 0) {
+        sessionContext.setSessionCacheSize(sslConfig.sessionCacheSize)
+      }
+      if (sslConfig.sessionTimeout > Duration.Zero) {
+        sessionContext.setSessionTimeout(sslSessionTimeoutSeconds.toInt)
+      }
+
       val sslContext = newJdkSslContext(jdkSslContext, null)
       val alpnSslContext =
         if (http2Enabled) {
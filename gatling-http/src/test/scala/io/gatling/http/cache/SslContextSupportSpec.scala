@@ -0,0 +1,61 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.cache
+
+import javax.net.ssl.KeyManagerFactory
+
+import io.gatling.BaseSpec
+import io.gatling.core.EmptySession
+import io.gatling.core.config.GatlingConfiguration
+import io.gatling.http.engine.HttpEngine
+import io.gatling.http.protocol.HttpProtocol
+import io.gatling.http.util.SslContexts
+
+import com.softwaremill.quicklens._
+import org.mockito.ArgumentMatchers.{ any, anyBoolean }
+import org.mockito.Mockito.when
+
+class SslContextSupportSpec extends BaseSpec with EmptySession {
+
+  private val httpProtocol = HttpProtocol(GatlingConfiguration.loadForTest())
+
+  private def httpEngine(sharesSslSessions: Boolean): HttpEngine = {
+    val engine = mock[HttpEngine]
+    when(engine.sharesSslSessions).thenReturn(sharesSslSessions)
+    when(engine.newSslContexts(anyBoolean(), any[Option[KeyManagerFactory]])).thenReturn(new SslContexts(null, None))
+    engine
+  }
+
+  "setSslContexts" should "give every virtual user its own SslContexts by default" in {
+    val session = SslContextSupport.setSslContexts(httpProtocol, httpEngine(sharesSslSessions = false))(emptySession)
+
+    SslContextSupport.sslContexts(session) shouldBe defined
+  }
+
+  it should "use the default SslContexts when TLS sessions are shared" in {
+    val session = SslContextSupport.setSslContexts(httpProtocol, httpEngine(sharesSslSessions = true))(emptySession)
+
+    SslContextSupport.sslContexts(session) shouldBe empty
+  }
+
+  it should "still give its own SslContexts to a virtual user with its own key manager when TLS sessions are shared" in {
+    val perUserKeyManagerProtocol = httpProtocol.modify(_.enginePart.perUserKeyManagerFactory).setTo(Some(_ => null))
+    val session = SslContextSupport.setSslContexts(perUserKeyManagerProtocol, httpEngine(sharesSslSessions = true))(emptySession)
+
+    SslContextSupport.sslContexts(session) shouldBe defined
+  }
+}
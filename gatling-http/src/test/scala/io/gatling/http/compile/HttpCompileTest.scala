@@ -82,6 +82,8 @@ class HttpCompileTest extends Simulation {
     .inferHtmlResources(white = WhiteList(".*\\.html"))
     .maxConnectionsPerHost(6)
     .shareConnections
+    .preWarmConnections(10)
+    .preWarmConnections(10, "https://gatling.io", "https://foo.com")
     .perUserNameResolution
     .localAddress("192.168.1.100")
     .localAddresses(List("192.168.1.100", "192.168.1.101"))
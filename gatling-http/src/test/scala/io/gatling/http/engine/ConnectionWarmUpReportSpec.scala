@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.http.engine
+
+import java.io.FileInputStream
+import java.net.ConnectException
+import java.nio.file.Files
+
+import scala.util.Using
+
+import io.gatling.BaseSpec
+
+import org.HdrHistogram.{ Histogram, HistogramLogReader }
+
+class ConnectionWarmUpReportSpec extends BaseSpec {
+
+  private val Millis = 1000000L
+
+  "ConnectionWarmUpReport" should "report connect and handshake latencies separately" in {
+    val report = new ConnectionWarmUpReport(0)
+    (1 to 100).foreach(i => report.onConnectionReady(i * Millis / 10, i * Millis))
+
+    val summary = report.summary(100)
+
+    summary should startWith("Pre-warmed 100/100 connections")
+    summary should include("TCP connect (ms): min=0.1 p50=5.0 p95=9.5 p99=9.9 max=10.0")
+    summary should include("TLS handshake (ms): min=1.0 p50=50.0 p95=95.0 p99=99.0 max=100.0")
+  }
+
+  it should "skip handshakes of clear connections and count failures" in {
+    val report = new ConnectionWarmUpReport(0)
+    report.onConnectionReady(2 * Millis, 0)
+    report.onFailure(new ConnectException("Connection refused"))
+    report.onFailure(new ConnectException("Connection refused"))
+
+    val summary = report.summary(4)
+
+    summary should startWith("Pre-warmed 1/4 connections, 2 failed, 1 still pending")
+    summary should include("TCP connect (ms)")
+    summary should not include "TLS handshake"
+    summary should include("ConnectException: Connection refused (2)")
+  }
+
+  it should "write the latency histograms as an HdrHistogram log tagged per phase" in {
+    val report = new ConnectionWarmUpReport(1000)
+    (1 to 100).foreach(i => report.onConnectionReady(i * Millis / 10, i * Millis))
+    val path = Files.createTempFile("connection-warm-up", ".hlog")
+
+    try {
+      report.writeHistogramLog(path, 3000)
+
+      val histograms = Using.resource(new FileInputStream(path.toFile)) { is =>
+        val reader = new HistogramLogReader(is)
+        Iterator.continually(reader.nextIntervalHistogram()).takeWhile(_ != null).map(_.asInstanceOf[Histogram]).toList
+      }
+
+      histograms.map(_.getTag) shouldBe List(ConnectionWarmUpReport.ConnectTag, ConnectionWarmUpReport.HandshakeTag)
+      histograms.map(_.getTotalCount) shouldBe List(100, 100)
+      histograms.head.getValueAtPercentile(50) shouldBe 5 * Millis +- Millis / 100
+      histograms(1).getMaxValue shouldBe 100 * Millis +- Millis / 10
+    } finally {
+      Files.delete(path)
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.gatling.http.engine
+
+import io.gatling.BaseSpec
+import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.StatsEngine
+import io.gatling.http.util.SslContextsFactory
+
+import io.netty.util.ReferenceCountUtil
+import org.mockito.Mockito._
+
+class HttpClientFactorySpec extends BaseSpec {
+
+  private val configuration = GatlingConfiguration.loadForTest()
+
+  "newClientConfig" should "report TLS handshakes to the stats engine" in {
+    val statsEngine = mock[StatsEngine]
+    val config = new HttpClientFactory(new SslContextsFactory(configuration.ssl), statsEngine, configuration).newClientConfig()
+
+    try {
+      config.getTlsHandshakeListener.onTlsHandshakeSuccess(false)
+      config.getTlsHandshakeListener.onTlsHandshakeSuccess(true)
+      config.getTlsHandshakeListener.onTlsHandshakeSuccess(true)
+
+      verify(statsEngine).logTlsHandshakeSuccess(false)
+      verify(statsEngine, times(2)).logTlsHandshakeSuccess(true)
+    } finally {
+      ReferenceCountUtil.release(config.getDefaultSslContext)
+      ReferenceCountUtil.release(config.getDefaultAlpnSslContext)
+    }
+  }
+}
@@ -18,10 +18,13 @@ package io.gatling.jdbc
 
 import io.gatling.core.config.GatlingConfiguration
 import io.gatling.core.feeder.{ FeederBuilderBase, InMemoryFeederSource, SourceFeederBuilder }
-import io.gatling.jdbc.feeder.JdbcFeederSource
+import io.gatling.jdbc.feeder.{ JdbcFeederSource, JdbcStreamingFeederBuilder }
 
 object Predef {
 
   def jdbcFeeder(url: String, username: String, password: String, sql: String)(implicit configuration: GatlingConfiguration): FeederBuilderBase[Any] =
     SourceFeederBuilder(InMemoryFeederSource(JdbcFeederSource(url, username, password, sql)), configuration)
+
+  def jdbcStreamingFeeder(url: String, username: String, password: String, sql: String): JdbcStreamingFeederBuilder =
+    JdbcStreamingFeederBuilder(url, username, password, sql)
 }
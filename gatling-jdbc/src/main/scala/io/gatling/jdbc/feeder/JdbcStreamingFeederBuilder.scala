@@ -0,0 +1,195 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.jdbc.feeder
+
+import java.sql.{ Connection, DriverManager, PreparedStatement, ResultSet }
+import java.sql.ResultSet.{ CONCUR_READ_ONLY, TYPE_FORWARD_ONLY }
+
+import io.gatling.core.feeder.{ Feeder, FeederBuilder, PrefetchingFeeder, Record }
+
+object JdbcStreamingFeederBuilder {
+
+  val DefaultFetchSize: Int = 1000
+
+  def apply(url: String, username: String, password: String, sql: String): JdbcStreamingFeederBuilder =
+    new JdbcStreamingFeederBuilder(url, username, password, sql, DefaultFetchSize, circularKeyColumn = None)
+
+  private[feeder] def computeRecord(resultSet: ResultSet, columnLabels: Array[String]): Record[Any] = {
+    var record = Map.empty[String, Any]
+    var i = 0
+    while (i < columnLabels.length) {
+      record = record.updated(columnLabels(i), resultSet.getObject(i + 1))
+      i += 1
+    }
+    record
+  }
+
+  private[feeder] def columnLabels(resultSet: ResultSet): Array[String] = {
+    val metadata = resultSet.getMetaData
+    Array.tabulate(metadata.getColumnCount)(i => metadata.getColumnLabel(i + 1))
+  }
+}
+
+/**
+ * Feeds the result of a query without loading it in memory first: records are fetched by pages of fetchSize rows
+ * from a background thread that stays up to 2 pages ahead.
+ *
+ * In queue mode, the default, the query is run once with a forward only cursor and the feeder ends with its last row.
+ * In circular mode, pages are queried with keyset pagination on a unique and sortable column, and the feeder starts over from the first page after the last one,
+ * so no cursor is kept open during the whole run.
+ */
+final case class JdbcStreamingFeederBuilder(
+    url: String,
+    username: String,
+    password: String,
+    sql: String,
+    fetchSize: Int,
+    circularKeyColumn: Option[String]
+) extends FeederBuilder {
+
+  def fetchSize(fetchSize: Int): JdbcStreamingFeederBuilder = {
+    require(fetchSize > 0, s"fetchSize $fetchSize must be strictly positive")
+    copy(fetchSize = fetchSize)
+  }
+
+  def queue: JdbcStreamingFeederBuilder = copy(circularKeyColumn = None)
+
+  /**
+   * @param keyColumn a column with unique values that can be sorted, eg the primary key, used for paginating the query
+   */
+  def circular(keyColumn: String): JdbcStreamingFeederBuilder = copy(circularKeyColumn = Some(keyColumn))
+
+  override def apply(): Feeder[Any] = {
+    val source = circularKeyColumn match {
+      case Some(keyColumn) => new KeysetJdbcSource(url, username, password, sql, fetchSize, keyColumn)
+      case _               => new CursorJdbcSource(url, username, password, sql, fetchSize)
+    }
+    new PrefetchingFeeder("jdbc", fetchSize * 2, source)
+  }
+}
+
+/**
+ * Reads the whole result set with a forward only cursor.
+ */
+private final class CursorJdbcSource(url: String, username: String, password: String, sql: String, fetchSize: Int) extends PrefetchingFeeder.Source[Any] {
+
+  private var connection: Connection = _
+  private var statement: PreparedStatement = _
+  private var resultSet: ResultSet = _
+  private var columnLabels: Array[String] = _
+
+  private def open(): Unit = {
+    connection = DriverManager.getConnection(url, username, password)
+    // some drivers, eg PostgreSQL, only stream the result set inside a transaction
+    connection.setAutoCommit(false)
+    statement = connection.prepareStatement(sql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)
+    statement.setFetchSize(fetchSize)
+    resultSet = statement.executeQuery()
+    columnLabels = JdbcStreamingFeederBuilder.columnLabels(resultSet)
+  }
+
+  override def fetch(push: Record[Any] => Unit): Boolean = {
+    if (resultSet == null) {
+      open()
+    }
+    var rows = 0
+    var hasMore = true
+    while (hasMore && rows < fetchSize) {
+      hasMore = resultSet.next()
+      if (hasMore) {
+        push(JdbcStreamingFeederBuilder.computeRecord(resultSet, columnLabels))
+        rows += 1
+      }
+    }
+    hasMore
+  }
+
+  override def close(): Unit =
+    if (connection != null) {
+      // closing the connection closes its statements and result sets
+      connection.close()
+    }
+}
+
+/**
+ * Queries one page at a time, starting after the key of the last row of the previous page, and wraps around after the last page.
+ */
+private final class KeysetJdbcSource(url: String, username: String, password: String, sql: String, fetchSize: Int, keyColumn: String)
+    extends PrefetchingFeeder.Source[Any] {
+
+  private var connection: Connection = _
+  private var firstPage: PreparedStatement = _
+  private var nextPage: PreparedStatement = _
+  private var lastKey: Option[AnyRef] = None
+
+  private def open(): Unit = {
+    connection = DriverManager.getConnection(url, username, password)
+    firstPage = prepare(s"SELECT * FROM ($sql) gatling_feeder ORDER BY gatling_feeder.$keyColumn")
+    nextPage = prepare(s"SELECT * FROM ($sql) gatling_feeder WHERE gatling_feeder.$keyColumn > ? ORDER BY gatling_feeder.$keyColumn")
+  }
+
+  private def prepare(pageSql: String): PreparedStatement = {
+    val statement = connection.prepareStatement(pageSql, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)
+    statement.setMaxRows(fetchSize)
+    statement.setFetchSize(fetchSize)
+    statement
+  }
+
+  // number of rows of the page
+  private def fetchPage(push: Record[Any] => Unit): Int = {
+    val statement = lastKey match {
+      case Some(key) =>
+        nextPage.setObject(1, key)
+        nextPage
+      case _ => firstPage
+    }
+
+    val resultSet = statement.executeQuery()
+    try {
+      val columnLabels = JdbcStreamingFeederBuilder.columnLabels(resultSet)
+      var rows = 0
+      while (resultSet.next()) {
+        push(JdbcStreamingFeederBuilder.computeRecord(resultSet, columnLabels))
+        lastKey = Some(resultSet.getObject(keyColumn))
+        rows += 1
+      }
+      rows
+    } finally {
+      resultSet.close()
+    }
+  }
+
+  override def fetch(push: Record[Any] => Unit): Boolean = {
+    if (connection == null) {
+      open()
+    }
+    val startedOver = lastKey.isEmpty
+    val rows = fetchPage(push)
+    if (rows < fetchSize) {
+      // last page, start over next time, unless the result is empty
+      lastKey = None
+      !(startedOver && rows == 0)
+    } else {
+      true
+    }
+  }
+
+  override def close(): Unit =
+    if (connection != null) {
+      connection.close()
+    }
+}
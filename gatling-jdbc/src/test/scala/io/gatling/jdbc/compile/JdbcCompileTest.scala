@@ -33,4 +33,8 @@ and id not in (select usr_id from usr_role where role_id='ROLE_ADMIN')
 and (select count(*) from usr_account where usr_id=id) >=2"""
   )
 
+  private val streamingData = jdbcStreamingFeeder("jdbc:postgresql:gatling", "gatling", "gatling", "select id, login from usr")
+    .fetchSize(500)
+    .circular("id")
+
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.jdbc.feeder
+
+import io.gatling.BaseSpec
+import io.gatling.core.feeder.CloseableFeeder
+import io.gatling.jdbc.JdbcSpec
+
+class JdbcStreamingFeederBuilderSpec extends BaseSpec with JdbcSpec {
+
+  private val Foo = Map("USER_ID" -> 1, "FIRST_NAME" -> "Foo", "LAST_NAME" -> "Bar")
+  private val Toto = Map("USER_ID" -> 2, "FIRST_NAME" -> "Toto", "LAST_NAME" -> "Titi")
+
+  // USER_ID is a TINYINT
+  private def records(feeder: Iterator[Map[String, Any]], n: Int): List[Map[String, Any]] =
+    feeder
+      .take(n)
+      .map(_.map {
+        case (key, number: Number) => key -> number.intValue
+        case entry                 => entry
+      })
+      .toList
+
+  "JdbcStreamingFeederBuilder" should "stream the whole result set once in queue mode" in withDatabase("streamingQueue", "feeder.sql") { url =>
+    Seq(1, 2, 1000).foreach { fetchSize =>
+      val feeder = JdbcStreamingFeederBuilder(url, Username, Password, "SELECT * FROM CUSTOMERS ORDER BY USER_ID").fetchSize(fetchSize).apply()
+      records(feeder, 3) shouldBe List(Foo, Toto)
+      feeder.hasNext shouldBe false
+    }
+  }
+
+  it should "start over after the last page in circular mode" in withDatabase("streamingCircular", "feeder.sql") { url =>
+    Seq(1, 2, 1000).foreach { fetchSize =>
+      val feeder = JdbcStreamingFeederBuilder(url, Username, Password, "SELECT * FROM CUSTOMERS").fetchSize(fetchSize).circular("USER_ID").apply()
+      try {
+        records(feeder, 5) shouldBe List(Foo, Toto, Foo, Toto, Foo)
+      } finally {
+        feeder.asInstanceOf[CloseableFeeder[Any]].close()
+      }
+    }
+  }
+
+  it should "end when the circular result is empty" in withDatabase("streamingEmpty", "feeder.sql") { url =>
+    val feeder = JdbcStreamingFeederBuilder(url, Username, Password, "SELECT * FROM CUSTOMERS WHERE USER_ID > 2").circular("USER_ID").apply()
+    feeder.hasNext shouldBe false
+  }
+
+  it should "fail feeding on invalid queries" in withDatabase("streamingInvalid", "feeder.sql") { url =>
+    val feeder = JdbcStreamingFeederBuilder(url, Username, Password, "SELECT * FROM UNKNOWN").apply()
+    an[IllegalStateException] should be thrownBy feeder.hasNext
+  }
+}
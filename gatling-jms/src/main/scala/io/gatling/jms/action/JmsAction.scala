@@ -63,7 +63,7 @@ abstract class JmsAction(
       jmsType.foreach(message.setJMSType)
 
       throttler match {
-        case Some(th) => th.throttle(session.scenario, () => around(producer.send(message)))
+        case Some(th) => th.throttle(session.scenario, session.eventLoop, () => around(producer.send(message)))
         case _        => around(producer.send(message))
       }
     }
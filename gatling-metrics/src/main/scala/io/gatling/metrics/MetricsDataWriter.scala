@@ -0,0 +1,182 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import scala.collection.mutable
+
+import io.gatling.commons.stats.{ KO, OK, Status }
+import io.gatling.commons.util.Clock
+import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.stats.{ IdIndexedCache, NameRegistry, RequestPath }
+import io.gatling.core.stats.message.ResponseTimings
+import io.gatling.core.stats.writer._
+
+private[metrics] final class RequestMetrics(slotCount: Int) {
+
+  val ok = new RollingHistogram(slotCount)
+  val ko = new RollingHistogram(slotCount)
+  var okTotal = 0L
+  var koTotal = 0L
+
+  def record(status: Status, responseTime: Long): Unit =
+    status match {
+      case OK =>
+        okTotal += 1
+        ok.record(responseTime)
+      case KO =>
+        koTotal += 1
+        ko.record(responseTime)
+    }
+
+  def rotate(): Unit = {
+    ok.rotate()
+    ko.rotate()
+  }
+
+  def snapshot(path: RequestPath, percentiles: Seq[Double]): RequestMetricsSnapshot =
+    RequestMetricsSnapshot(
+      path.groupHierarchy,
+      path.name,
+      okTotal,
+      koTotal,
+      WindowStats(ok.window, percentiles),
+      WindowStats(ko.window, percentiles)
+    )
+}
+
+private[metrics] final class UsersMetrics(totalUserEstimate: Long) {
+
+  private var started = 0L
+  private var done = 0L
+
+  def record(isStart: Boolean): Unit =
+    if (isStart) {
+      started += 1
+    } else {
+      done += 1
+    }
+
+  def snapshot(scenario: String): UsersSnapshot =
+    UsersSnapshot(scenario, active = started - done, waiting = (totalUserEstimate - started).max(0L), done = done)
+}
+
+final case class MetricsData(
+    server: MetricsServer,
+    requestsByPath: mutable.LinkedHashMap[RequestPath, RequestMetrics],
+    allRequests: RequestMetrics,
+    usersByScenario: mutable.LinkedHashMap[String, UsersMetrics],
+    runMessage: RunMessage,
+    names: NameRegistry
+) extends DataWriterData {
+  // same buffers as above, looked up by id instead of hashing names for every message
+  val requestsById: IdIndexedCache[RequestMetrics] = new IdIndexedCache
+  val usersByScenarioId: IdIndexedCache[UsersMetrics] = new IdIndexedCache
+}
+
+/**
+ * Exposes live metrics over HTTP so they can be scraped without going through a Graphite relay.
+ *
+ * Response times are recorded into rolling HdrHistograms, one slot per write period, and every flush publishes an
+ * immutable [[MetricsSnapshot]] that the embedded endpoint serves as Prometheus text on /metrics and as JSON on /metrics.json.
+ */
+private[gatling] class MetricsDataWriter(clock: Clock, configuration: GatlingConfiguration) extends DataWriter[MetricsData] {
+
+  private val flushTimerName = "flushTimer"
+
+  private val slotCount = (configuration.data.metrics.window.toMillis / configuration.data.metrics.writePeriod.toMillis).toInt.max(1)
+
+  private val percentiles = {
+    import configuration.charting.indicators._
+    Seq(percentile1, percentile2, percentile3, percentile4)
+  }
+
+  // written by this actor on flush, read by the endpoint's event loop
+  @volatile private var currentSnapshot: MetricsSnapshot = _
+
+  def onInit(init: Init): MetricsData = {
+    import init._
+
+    currentSnapshot = MetricsSnapshot.empty(runMessage.simulationId, runMessage.runId)
+
+    val usersByScenario = mutable.LinkedHashMap.empty[String, UsersMetrics]
+    scenarios.foreach(scenario => usersByScenario += scenario.name -> new UsersMetrics(scenario.totalUserCount.getOrElse(0L)))
+
+    val server = MetricsServer(
+      configuration.data.metrics.bindAddress,
+      configuration.data.metrics.port,
+      configuration.netty.useNativeTransport,
+      () => currentSnapshot
+    )
+
+    startTimerAtFixedRate(flushTimerName, Flush, configuration.data.metrics.writePeriod)
+
+    MetricsData(server, mutable.LinkedHashMap.empty, new RequestMetrics(slotCount), usersByScenario, runMessage, names)
+  }
+
+  def onFlush(data: MetricsData): Unit = {
+    import data._
+
+    currentSnapshot = MetricsSnapshot(
+      runMessage.simulationId,
+      runMessage.runId,
+      clock.nowMillis,
+      configuration.data.metrics.window.toSeconds,
+      usersByScenario.map { case (scenario, users) => users.snapshot(scenario) }.toSeq,
+      allRequests.snapshot(RequestPath(Nil, "allRequests"), percentiles),
+      requestsByPath.map { case (path, request) => request.snapshot(path, percentiles) }.toSeq
+    )
+
+    allRequests.rotate()
+    requestsByPath.foreach { case (_, request) => request.rotate() }
+  }
+
+  private def onUserMessage(scenario: String, isStart: Boolean, data: MetricsData): Unit = {
+    import data._
+    usersByScenarioId.getOrElseUpdate(names.scenarioId(scenario), usersByScenario.getOrElseUpdate(scenario, new UsersMetrics(0L))).record(isStart)
+  }
+
+  private def onResponseMessage(response: ResponseMessage, data: MetricsData): Unit = {
+    import data._
+    import response._
+    val responseTime = ResponseTimings.responseTime(startTimestamp, endTimestamp)
+    requestsById
+      .getOrElseUpdate(
+        names.requestId(groupHierarchy, name),
+        requestsByPath.getOrElseUpdate(RequestPath(groupHierarchy, name), new RequestMetrics(slotCount))
+      )
+      .record(status, responseTime)
+    allRequests.record(status, responseTime)
+  }
+
+  override def onMessage(message: LoadEventMessage, data: MetricsData): Unit = message match {
+    case UserStartMessage(scenario, _) => onUserMessage(scenario, isStart = true, data)
+    case UserEndMessage(scenario, _)   => onUserMessage(scenario, isStart = false, data)
+    case response: ResponseMessage     => onResponseMessage(response, data)
+    case _                             =>
+  }
+
+  override def onCrash(cause: String, data: MetricsData): Unit = {
+    cancelTimer(flushTimerName)
+    data.server.stop()
+  }
+
+  def onStop(data: MetricsData): Unit = {
+    cancelTimer(flushTimerName)
+    onFlush(data)
+    data.server.stop()
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import java.net.InetSocketAddress
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.concurrent.TimeUnit
+
+import scala.util.control.NonFatal
+
+import io.gatling.netty.util.Transports
+
+import com.typesafe.scalalogging.StrictLogging
+import io.netty.bootstrap.ServerBootstrap
+import io.netty.buffer.Unpooled
+import io.netty.channel._
+import io.netty.handler.codec.http._
+
+private[metrics] object MetricsServer extends StrictLogging {
+
+  val PrometheusPath = "/metrics"
+  val JsonPath = "/metrics.json"
+
+  private val PrometheusContentType = "text/plain; version=0.0.4; charset=utf-8"
+  private val JsonContentType = "application/json; charset=utf-8"
+  private val MaxRequestLength = 8192
+
+  def apply(bindAddress: String, port: Int, useNativeTransport: Boolean, snapshot: () => MetricsSnapshot): MetricsServer = {
+    // a single thread is plenty for a handful of scrapers, and keeps the endpoint away from the load generation event loops
+    val eventLoopGroup = Transports.newEventLoopGroup(useNativeTransport, 1, "gatling-metrics")
+    val handler = new MetricsHandler(snapshot)
+
+    try {
+      val channel = new ServerBootstrap()
+        .channelFactory(Transports.newServerSocketChannelFactory(useNativeTransport))
+        .group(eventLoopGroup)
+        .childHandler(new ChannelInitializer[Channel] {
+          override def initChannel(ch: Channel): Unit =
+            ch.pipeline
+              .addLast("codec", new HttpServerCodec)
+              .addLast("aggregator", new HttpObjectAggregator(MaxRequestLength))
+              .addLast("handler", handler)
+        })
+        .bind(new InetSocketAddress(bindAddress, port))
+        .sync()
+        .channel
+
+      logger.info(s"Metrics endpoint listening on ${channel.localAddress}")
+      new MetricsServer(eventLoopGroup, channel)
+    } catch {
+      case NonFatal(e) =>
+        eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS)
+        throw e
+    }
+  }
+
+  @ChannelHandler.Sharable
+  private final class MetricsHandler(snapshot: () => MetricsSnapshot) extends SimpleChannelInboundHandler[FullHttpRequest] {
+
+    override def channelRead0(ctx: ChannelHandlerContext, request: FullHttpRequest): Unit = {
+      val response =
+        if (request.method != HttpMethod.GET && request.method != HttpMethod.HEAD) {
+          emptyResponse(HttpResponseStatus.METHOD_NOT_ALLOWED)
+        } else {
+          new QueryStringDecoder(request.uri).path match {
+            case PrometheusPath => contentResponse(snapshot().toPrometheus, PrometheusContentType, request.method == HttpMethod.HEAD)
+            case JsonPath       => contentResponse(snapshot().toJson, JsonContentType, request.method == HttpMethod.HEAD)
+            case _              => emptyResponse(HttpResponseStatus.NOT_FOUND)
+          }
+        }
+
+      val keepAlive = HttpUtil.isKeepAlive(request)
+      HttpUtil.setKeepAlive(response, keepAlive)
+      val future = ctx.writeAndFlush(response)
+      if (!keepAlive) {
+        future.addListener(ChannelFutureListener.CLOSE)
+      }
+    }
+
+    override def exceptionCaught(ctx: ChannelHandlerContext, cause: Throwable): Unit = {
+      logger.debug("Metrics endpoint connection crashed", cause)
+      ctx.close()
+    }
+
+    private def emptyResponse(status: HttpResponseStatus): FullHttpResponse = {
+      val response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER)
+      HttpUtil.setContentLength(response, 0)
+      response
+    }
+
+    private def contentResponse(content: String, contentType: String, isHead: Boolean): FullHttpResponse = {
+      val bytes = content.getBytes(UTF_8)
+      val body = if (isHead) Unpooled.EMPTY_BUFFER else Unpooled.wrappedBuffer(bytes)
+      val response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, body)
+      response.headers.set(HttpHeaderNames.CONTENT_TYPE, contentType)
+      HttpUtil.setContentLength(response, bytes.length)
+      response
+    }
+  }
+}
+
+private[metrics] final class MetricsServer(eventLoopGroup: EventLoopGroup, channel: Channel) {
+
+  def port: Int = channel.localAddress.asInstanceOf[InetSocketAddress].getPort
+
+  def stop(): Unit = {
+    channel.close().awaitUninterruptibly()
+    eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS)
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import scala.collection.immutable.ListMap
+
+import io.gatling.core.json.Json
+
+import org.HdrHistogram.AbstractHistogram
+
+private[metrics] object WindowStats {
+
+  def apply(histogram: AbstractHistogram, percentiles: Seq[Double]): Option[WindowStats] =
+    if (histogram.getTotalCount > 0) {
+      Some(
+        WindowStats(
+          count = histogram.getTotalCount,
+          min = histogram.getMinValue,
+          max = histogram.getMaxValue,
+          mean = histogram.getMean,
+          percentiles = percentiles.map(p => p -> histogram.getValueAtPercentile(p))
+        )
+      )
+    } else {
+      None
+    }
+}
+
+private[metrics] final case class WindowStats(count: Long, min: Long, max: Long, mean: Double, percentiles: Seq[(Double, Long)])
+
+private[metrics] final case class RequestMetricsSnapshot(
+    groupHierarchy: List[String],
+    name: String,
+    okTotal: Long,
+    koTotal: Long,
+    ok: Option[WindowStats],
+    ko: Option[WindowStats]
+)
+
+private[metrics] final case class UsersSnapshot(scenario: String, active: Long, waiting: Long, done: Long)
+
+private[metrics] object MetricsSnapshot {
+
+  def empty(simulationId: String, runId: String): MetricsSnapshot =
+    MetricsSnapshot(simulationId, runId, 0L, 0L, Nil, RequestMetricsSnapshot(Nil, "allRequests", 0L, 0L, None, None), Nil)
+
+  private def escapeLabelValue(value: String): String =
+    value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")
+
+  // decimal math, so 99.9 gives 0.999 and not 0.9990000000000001
+  private def quantileLabelValue(percentile: Double): String =
+    (BigDecimal(percentile) / 100).bigDecimal.stripTrailingZeros.toPlainString
+}
+
+/**
+ * Immutable view of the metrics as of the last DataWriter flush.
+ * Built on the DataWriter and only read from the HTTP endpoint's event loop, so both sides never share mutable histograms.
+ */
+private[metrics] final case class MetricsSnapshot(
+    simulationId: String,
+    runId: String,
+    timestamp: Long,
+    windowSeconds: Long,
+    users: Seq[UsersSnapshot],
+    allRequests: RequestMetricsSnapshot,
+    requests: Seq[RequestMetricsSnapshot]
+) {
+
+  import MetricsSnapshot._
+
+  private val simulationLabel = s"""simulation="${escapeLabelValue(simulationId)}""""
+
+  // allRequests samples don't have any group nor request label so they can't clash with an actual request
+  private def requestLabels(request: RequestMetricsSnapshot, isAllRequests: Boolean): String =
+    if (isAllRequests) {
+      simulationLabel
+    } else {
+      val group = escapeLabelValue(request.groupHierarchy.mkString(" / "))
+      val name = escapeLabelValue(request.name)
+      s"""$simulationLabel,group="$group",request="$name""""
+    }
+
+  private def allRequestsWithScope: Seq[(RequestMetricsSnapshot, Boolean)] =
+    (allRequests -> true) +: requests.map(_ -> false)
+
+  /**
+   * @return the metrics in the Prometheus text exposition format, version 0.0.4
+   */
+  def toPrometheus: String = {
+    val sb = new java.lang.StringBuilder(1024)
+
+    def family(name: String, metricType: String, help: String): Unit =
+      sb.append("# HELP ").append(name).append(' ').append(help).append('\n').append("# TYPE ").append(name).append(' ').append(metricType).append('\n')
+
+    def sample(name: String, labels: String, value: String): Unit =
+      sb.append(name).append('{').append(labels).append("} ").append(value).append('\n')
+
+    family("gatling_users", "gauge", "Virtual users per scenario and state")
+    users.foreach { u =>
+      val labels = s"""$simulationLabel,scenario="${escapeLabelValue(u.scenario)}""""
+      sample("gatling_users", labels + """,state="active"""", u.active.toString)
+      sample("gatling_users", labels + """,state="waiting"""", u.waiting.toString)
+      sample("gatling_users", labels + """,state="done"""", u.done.toString)
+    }
+
+    family("gatling_responses_total", "counter", "Responses received since the start of the run")
+    allRequestsWithScope.foreach { case (request, isAllRequests) =>
+      val labels = requestLabels(request, isAllRequests)
+      sample("gatling_responses_total", labels + """,status="ok"""", request.okTotal.toString)
+      sample("gatling_responses_total", labels + """,status="ko"""", request.koTotal.toString)
+    }
+
+    def windowFamily(name: String, metricType: String, help: String)(f: (String, WindowStats) => Unit): Unit = {
+      family(name, metricType, help)
+      allRequestsWithScope.foreach { case (request, isAllRequests) =>
+        val labels = requestLabels(request, isAllRequests)
+        request.ok.foreach(f(labels + """,status="ok"""", _))
+        request.ko.foreach(f(labels + """,status="ko"""", _))
+      }
+    }
+
+    windowFamily("gatling_window_responses", "gauge", s"Responses received over the last $windowSeconds seconds") { (labels, stats) =>
+      sample("gatling_window_responses", labels, stats.count.toString)
+    }
+
+    windowFamily("gatling_response_time_ms", "summary", s"Response times over the last $windowSeconds seconds, in milliseconds") { (labels, stats) =>
+      sample("gatling_response_time_ms", labels + """,quantile="0"""", stats.min.toString)
+      stats.percentiles.foreach { case (percentile, value) =>
+        sample("gatling_response_time_ms", labels + s""",quantile="${quantileLabelValue(percentile)}"""", value.toString)
+      }
+      sample("gatling_response_time_ms", labels + """,quantile="1"""", stats.max.toString)
+      sample("gatling_response_time_ms_sum", labels, (stats.mean * stats.count).toString)
+      sample("gatling_response_time_ms_count", labels, stats.count.toString)
+    }
+
+    windowFamily("gatling_response_time_mean_ms", "gauge", s"Mean response time over the last $windowSeconds seconds, in milliseconds") { (labels, stats) =>
+      sample("gatling_response_time_mean_ms", labels, stats.mean.toString)
+    }
+
+    sb.toString
+  }
+
+  private def windowStatsToJson(stats: Option[WindowStats]): Any =
+    stats match {
+      case Some(s) =>
+        ListMap(
+          "count" -> s.count,
+          "min" -> s.min,
+          "max" -> s.max,
+          "mean" -> s.mean,
+          "percentiles" -> ListMap(s.percentiles.map { case (percentile, value) => percentile.toString -> value }: _*)
+        )
+      case _ => null
+    }
+
+  private def requestToJson(request: RequestMetricsSnapshot): ListMap[String, Any] =
+    ListMap(
+      "group" -> request.groupHierarchy,
+      "name" -> request.name,
+      "okTotal" -> request.okTotal,
+      "koTotal" -> request.koTotal,
+      "ok" -> windowStatsToJson(request.ok),
+      "ko" -> windowStatsToJson(request.ko)
+    )
+
+  def toJson: String =
+    Json.stringify(
+      ListMap(
+        "simulation" -> simulationId,
+        "run" -> runId,
+        "timestamp" -> timestamp,
+        "window" -> windowSeconds,
+        "users" -> users.map(u => ListMap("scenario" -> u.scenario, "active" -> u.active, "waiting" -> u.waiting, "done" -> u.done)),
+        "allRequests" -> requestToJson(allRequests),
+        "requests" -> requests.map(requestToJson)
+      ),
+      isRootObject = true
+    )
+}
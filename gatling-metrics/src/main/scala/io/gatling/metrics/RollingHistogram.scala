@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import org.HdrHistogram.{ AbstractHistogram, IntCountsHistogram }
+
+/**
+ * A response time histogram over a sliding window made of a fixed number of slots.
+ * Values are always recorded into the current slot, and rotating drops the oldest one,
+ * so the window covers the last `slotCount` rotation periods.
+ *
+ * Not thread safe, meant to only be used from the DataWriter.
+ */
+private[metrics] final class RollingHistogram(slotCount: Int) {
+
+  require(slotCount > 0, "slotCount must be strictly positive")
+
+  private val slots: Array[AbstractHistogram] = Array.fill(slotCount)(new IntCountsHistogram(2))
+  private var current = 0
+
+  def record(value: Long): Unit =
+    slots(current).recordValue(value.max(0L))
+
+  def rotate(): Unit = {
+    current = (current + 1) % slots.length
+    slots(current).reset()
+  }
+
+  def window: AbstractHistogram = {
+    val merged = new IntCountsHistogram(2)
+    slots.foreach(merged.add)
+    merged
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import java.net.{ HttpURLConnection, URL }
+import java.nio.charset.StandardCharsets.UTF_8
+
+import scala.io.Source
+import scala.util.Using
+
+import io.gatling.BaseSpec
+
+class MetricsServerSpec extends BaseSpec {
+
+  private val snapshot = MetricsSnapshot(
+    simulationId = "my-simulation",
+    runId = "my-simulation-20210101000000000",
+    timestamp = 1000L,
+    windowSeconds = 60L,
+    users = Seq(UsersSnapshot("my \"scenario\"", active = 2, waiting = 3, done = 5)),
+    allRequests = RequestMetricsSnapshot(Nil, "allRequests", 3L, 1L, Some(WindowStats(3L, 10L, 30L, 20.0, Seq(50.0 -> 20L, 99.9 -> 30L))), None),
+    requests = Seq(
+      RequestMetricsSnapshot(List("root", "child"), "request", 3L, 1L, Some(WindowStats(3L, 10L, 30L, 20.0, Seq(50.0 -> 20L))), None)
+    )
+  )
+
+  private def withServer(f: MetricsServer => Unit): Unit = {
+    val server = MetricsServer("127.0.0.1", 0, useNativeTransport = false, () => snapshot)
+    try {
+      f(server)
+    } finally {
+      server.stop()
+    }
+  }
+
+  private def get(server: MetricsServer, path: String): (Int, String, String) = {
+    val connection = new URL(s"http://127.0.0.1:${server.port}$path").openConnection().asInstanceOf[HttpURLConnection]
+    try {
+      val status = connection.getResponseCode
+      val body = if (status == 200) Using.resource(Source.fromInputStream(connection.getInputStream, UTF_8.name))(_.mkString) else ""
+      (status, connection.getContentType, body)
+    } finally {
+      connection.disconnect()
+    }
+  }
+
+  "MetricsServer" should "expose metrics in the Prometheus text format" in withServer { server =>
+    val (status, contentType, body) = get(server, MetricsServer.PrometheusPath)
+
+    status shouldBe 200
+    contentType should startWith("text/plain; version=0.0.4")
+    body should include("# TYPE gatling_responses_total counter")
+    body should include("""gatling_users{simulation="my-simulation",scenario="my \"scenario\"",state="active"} 2""")
+    body should include("""gatling_responses_total{simulation="my-simulation",status="ok"} 3""")
+    body should include("""gatling_responses_total{simulation="my-simulation",group="root / child",request="request",status="ko"} 1""")
+    body should include("""gatling_response_time_ms{simulation="my-simulation",group="root / child",request="request",status="ok",quantile="0.5"} 20""")
+    body should include("""gatling_response_time_ms{simulation="my-simulation",status="ok",quantile="1"} 30""")
+    body should include("# TYPE gatling_response_time_ms summary")
+    body should include("""gatling_response_time_ms{simulation="my-simulation",status="ok",quantile="0.999"} 30""")
+    body should include("""gatling_response_time_ms_sum{simulation="my-simulation",status="ok"} 60.0""")
+    body should include("""gatling_response_time_ms_count{simulation="my-simulation",status="ok"} 3""")
+    body should not include "status=\"ko\",quantile"
+  }
+
+  it should "expose metrics as JSON" in withServer { server =>
+    val (status, contentType, body) = get(server, MetricsServer.JsonPath)
+
+    status shouldBe 200
+    contentType should startWith("application/json")
+    body should include(""""simulation":"my-simulation"""")
+    body should include(""""users":[{"scenario":"my \"scenario\"","active":2,"waiting":3,"done":5}]""")
+    body should include(""""group":["root","child"],"name":"request","okTotal":3,"koTotal":1""")
+    body should include(""""percentiles":{"50.0":20}""")
+    body should include(""""ko":null""")
+  }
+
+  it should "reply 404 on unknown paths" in withServer { server =>
+    get(server, "/foo")._1 shouldBe 404
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011-2021 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.gatling.metrics
+
+import io.gatling.BaseSpec
+
+class RollingHistogramSpec extends BaseSpec {
+
+  "RollingHistogram" should "be empty when nothing was recorded" in {
+    new RollingHistogram(3).window.getTotalCount shouldBe 0L
+  }
+
+  it should "merge all the slots of the window" in {
+    val histogram = new RollingHistogram(3)
+    histogram.record(10)
+    histogram.rotate()
+    histogram.record(20)
+    histogram.rotate()
+    histogram.record(30)
+
+    val window = histogram.window
+    window.getTotalCount shouldBe 3L
+    window.getMinValue shouldBe 10L
+    window.getMaxValue shouldBe 30L
+  }
+
+  it should "drop the oldest slot when rotating past the window" in {
+    val histogram = new RollingHistogram(2)
+    histogram.record(10)
+    histogram.rotate()
+    histogram.record(20)
+    histogram.rotate()
+
+    val window = histogram.window
+    window.getTotalCount shouldBe 1L
+    window.getMinValue shouldBe 20L
+  }
+
+  it should "clamp negative values" in {
+    val histogram = new RollingHistogram(1)
+    histogram.record(-5)
+
+    histogram.window.getMaxValue shouldBe 0L
+  }
+}
@@ -21,11 +21,14 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollDatagramChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
@@ -54,4 +57,11 @@ public final class Transports {
   public static ChannelFactory<? extends DatagramChannel> newDatagramChannelFactory(boolean useNativeTransport) {
     return useNativeTransport && Epoll.isAvailable() ? EPOLL_DATAGRAM_CHANNEL_FACTORY : NIO_DATAGRAM_CHANNEL_FACTORY;
   }
+
+  private static final ChannelFactory<? extends ServerSocketChannel> EPOLL_SERVER_SOCKET_CHANNEL_FACTORY = EpollServerSocketChannel::new;
+  private static final ChannelFactory<? extends ServerSocketChannel> NIO_SERVER_SOCKET_CHANNEL_FACTORY = NioServerSocketChannel::new;
+
+  public static ChannelFactory<? extends ServerSocketChannel> newServerSocketChannelFactory(boolean useNativeTransport) {
+    return useNativeTransport && Epoll.isAvailable() ? EPOLL_SERVER_SOCKET_CHANNEL_FACTORY : NIO_SERVER_SOCKET_CHANNEL_FACTORY;
+  }
 }
@@ -16,7 +16,7 @@
 
 package io.gatling.redis.feeder
 
-import io.gatling.core.feeder.{ Feeder, FeederBuilder }
+import io.gatling.core.feeder.{ Feeder, FeederBuilder, PrefetchingFeeder, Record }
 
 import com.redis.{ RedisClient, RedisClientPool }
 
@@ -28,30 +28,85 @@ import com.redis.{ RedisClient, RedisClientPool }
  */
 object RedisFeederBuilder {
 
-  // Function for executing Redis command
-  private type RedisCommand = (RedisClient, String) => Option[String]
+  val DefaultBatchSize: Int = 100
 
-  private val LPOP: RedisCommand = (redisClient, key) => redisClient.lpop(key)
+  /**
+   * @param single executes the Redis command for one value
+   * @param batchScript Lua script executing the Redis command for up to ARGV[1] values in a single round trip
+   */
+  final class RedisCommand private[feeder] (private[feeder] val single: (RedisClient, String) => Option[String], batchScript: String) {
+    private[feeder] def batch(redisClient: RedisClient, key: String, count: Int): List[String] =
+      redisClient.evalMultiBulk[String](batchScript, List(key), List(count)).getOrElse(Nil).flatten
+  }
+
+  private def popScript(command: String): String =
+    s"""local values = {}
+       |for i = 1, tonumber(ARGV[1]) do
+       |  local value = redis.call('$command', KEYS[1])
+       |  if not value then break end
+       |  values[i] = value
+       |end
+       |return values""".stripMargin
+
+  private val LPOP = new RedisCommand((redisClient, key) => redisClient.lpop(key), popScript("LPOP"))
 
-  private val SPOP: RedisCommand = (redisClient, key) => redisClient.spop(key)
+  private val SPOP = new RedisCommand((redisClient, key) => redisClient.spop(key), popScript("SPOP"))
 
-  private val SRANDMEMBER: RedisCommand = (redisClient, key) => redisClient.srandmember(key)
+  // a negative count allows the same member several times, like successive SRANDMEMBER calls
+  private val SRANDMEMBER =
+    new RedisCommand((redisClient, key) => redisClient.srandmember(key), "return redis.call('SRANDMEMBER', KEYS[1], -tonumber(ARGV[1]))")
 
   def apply(clientPool: RedisClientPool, key: String): RedisFeederBuilder =
-    new RedisFeederBuilder(clientPool, key, RedisFeederBuilder.LPOP)
+    new RedisFeederBuilder(clientPool, key, RedisFeederBuilder.LPOP, batchSize = 0)
 }
 
-final case class RedisFeederBuilder(clientPool: RedisClientPool, key: String, command: RedisFeederBuilder.RedisCommand) extends FeederBuilder {
+final case class RedisFeederBuilder(clientPool: RedisClientPool, key: String, command: RedisFeederBuilder.RedisCommand, batchSize: Int)
+    extends FeederBuilder {
   def LPOP: RedisFeederBuilder = copy(command = RedisFeederBuilder.LPOP)
   def SPOP: RedisFeederBuilder = copy(command = RedisFeederBuilder.SPOP)
   def SRANDMEMBER: RedisFeederBuilder = copy(command = RedisFeederBuilder.SRANDMEMBER)
 
-  override def apply(): Feeder[Any] = {
-    def next: Option[Map[String, String]] = clientPool.withClient { client =>
-      val value = command(client, key)
-      value.map(value => Map(key -> value))
+  /**
+   * Fetch values by batches of batchSize in a single round trip, from a background thread that keeps up to 2 batches ahead,
+   * so that feeding doesn't wait on Redis.
+   *
+   * With LPOP and SPOP, values fetched ahead are removed from Redis: the ones that were never fed when the run stops are lost,
+   * up to 3 * batchSize + 2 of them (the 2 batches queued ahead, the one being queued and the one about to be fed).
+   */
+  def batch: RedisFeederBuilder = batch(RedisFeederBuilder.DefaultBatchSize)
+  def batch(batchSize: Int): RedisFeederBuilder = {
+    require(batchSize > 0, s"batchSize $batchSize must be strictly positive")
+    copy(batchSize = batchSize)
+  }
+
+  override def apply(): Feeder[Any] =
+    if (batchSize > 0) {
+      new PrefetchingFeeder(s"redis-$key", batchSize * 2, new RedisBatchSource(clientPool, key, command.batch, batchSize))
+    } else {
+      def next: Option[Map[String, String]] = clientPool.withClient { client =>
+        val value = command.single(client, key)
+        value.map(value => Map(key -> value))
+      }
+
+      Iterator.continually(next).takeWhile(_.isDefined).map(_.get)
     }
+}
 
-    Iterator.continually(next).takeWhile(_.isDefined).map(_.get)
+/**
+ * Fetches batches of values, ending once Redis returns none.
+ */
+private final class RedisBatchSource(
+    clientPool: RedisClientPool,
+    key: String,
+    fetchBatch: (RedisClient, String, Int) => List[String],
+    batchSize: Int
+) extends PrefetchingFeeder.Source[String] {
+
+  override def fetch(push: Record[String] => Unit): Boolean = {
+    val values = clientPool.withClient(fetchBatch(_, key, batchSize))
+    values.foreach(value => push(Map(key -> value)))
+    values.nonEmpty
   }
+
+  override def close(): Unit = {}
 }
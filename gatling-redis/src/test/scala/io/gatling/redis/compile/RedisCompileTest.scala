@@ -26,6 +26,7 @@ class RedisCompileTest extends Simulation {
   private val redisPool = new RedisClientPool("localhost", 6379)
 
   redisFeeder(???, "key")
+  redisFeeder(redisPool, "key").SPOP.batch(500)
 
   after {
     redisPool.close()
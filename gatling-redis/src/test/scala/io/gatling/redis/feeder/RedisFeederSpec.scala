@@ -17,10 +17,11 @@
 package io.gatling.redis.feeder
 
 import io.gatling.BaseSpec
-import io.gatling.core.feeder.Record
+import io.gatling.core.feeder.{ CloseableFeeder, Record }
 import io.gatling.redis.Predef._
 
 import com.redis._
+import org.mockito.ArgumentMatchers
 import org.mockito.ArgumentMatchers._
 import org.mockito.Mockito._
 
@@ -69,4 +70,39 @@ class RedisFeederSpec extends BaseSpec {
       feeder.next() shouldBe Map(KEY -> "v3")
     }
   }
+
+  it should "fetch batches of values with lpop in the background" in {
+    new MockContext {
+      when(client.evalMultiBulk[String](anyString(), any(), any())(any(), any()))
+        .thenReturn(Some(List(Some("v1"), Some("v2"))), Some(List(Some("v3"))), Some(Nil))
+
+      val feeder = redisFeeder(clientPool, KEY).batch(2).apply()
+
+      feeder.toList shouldBe valsLst(KEY, "v1", "v2", "v3")
+      // until a batch comes back empty
+      verify(client, times(3)).evalMultiBulk[String](contains("LPOP"), ArgumentMatchers.eq(List(KEY)), ArgumentMatchers.eq(List(2)))(any(), any())
+    }
+  }
+
+  it should "fetch batches of values with srandmember in the background" in {
+    new MockContext {
+      when(client.evalMultiBulk[String](contains("SRANDMEMBER"), any(), any())(any(), any()))
+        .thenReturn(Some(List(Some("v1"), Some("v1"), Some("v2"))))
+
+      val feeder = redisFeeder(clientPool, KEY).SRANDMEMBER.batch(3).apply()
+
+      feeder.take(5).toList shouldBe valsLst(KEY, "v1", "v1", "v2", "v1", "v1")
+      feeder.asInstanceOf[CloseableFeeder[Any]].close()
+    }
+  }
+
+  it should "fail feeding when fetching fails" in {
+    new MockContext {
+      when(client.evalMultiBulk[String](anyString(), any(), any())(any(), any())).thenThrow(new RuntimeException("Connection refused"))
+
+      val feeder = redisFeeder(clientPool, KEY).batch.apply()
+
+      an[IllegalStateException] should be thrownBy feeder.hasNext
+    }
+  }
 }
@@ -70,6 +70,7 @@ object Dependencies {
   private val quicklens                      = "com.softwaremill.quicklens"          %% "quicklens"                       % "1.6.1"
   private val fastUuid                       = "com.eatthepath"                       % "fast-uuid"                       % "0.1"
   private val pebble                         = "io.pebbletemplates"                   % "pebble"                          % "3.1.4"
+  private val lz4                            = "org.lz4"                              % "lz4-java"                        % "1.7.1"
 
   // Test dependencies
   private val scalaTest                      = "org.scalatest"                       %% "scalatest"                       % "3.2.3"             % Test
@@ -132,7 +133,8 @@ object Dependencies {
       scalaParserCombinators,
       scopt,
       nettyHandler,
-      quicklens
+      quicklens,
+      lz4
     ) ++
       parserDeps ++ testDeps
 
@@ -158,7 +160,7 @@ object Dependencies {
     jettyProxy
   ) ++ loggingDeps
 
-  val httpDependencies = Seq(saxon) ++ testDeps
+  val httpDependencies = Seq(saxon, hdrHistogram) ++ testDeps
 
   val jmsDependencies = Seq(jmsApi, fastUuid, activemqBroker) ++ testDeps
 
@@ -166,10 +168,12 @@ object Dependencies {
 
   val mqttDependencies = Seq(nettyHandler, nettyMqtt, nettyEpoll)
 
-  val chartsDependencies = tdigest +: testDeps
+  val chartsDependencies = Seq(tdigest, hdrHistogram) ++ testDeps
 
   val graphiteDependencies = hdrHistogram +: testDeps
 
+  val metricsDependencies = Seq(netty, nettyEpoll, hdrHistogram) ++ testDeps
+
   val benchmarkDependencies = Seq(jmh)
 
   def compilerDependencies(scalaVersion: String) =
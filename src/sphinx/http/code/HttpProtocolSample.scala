@@ -71,6 +71,16 @@ class HttpProtocolSample extends Simulation {
     //#maxConnectionsPerHost
   }
 
+  {
+    //#preWarmConnections
+    // open 50 connections to the baseUrl before the virtual users start
+    val httpProtocol = http
+      .baseUrl("https://gatling.io")
+      .shareConnections
+      .preWarmConnections(50)
+    //#preWarmConnections
+  }
+
   {
     val httpProtocol = http
     //#silentUri
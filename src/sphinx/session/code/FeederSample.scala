@@ -73,6 +73,12 @@ class FeederSample {
     //#batch
   }
 
+  {
+    //#packed
+    val csvFeeder = csv("foo.csv").packed.random
+    //#packed
+  }
+
   {
     //#unzip
     val csvFeeder = csv("foo.csv.zip").unzip
@@ -101,6 +107,17 @@ class FeederSample {
     //#jdbc-feeder
   }
 
+  {
+    import io.gatling.jdbc.Predef._
+
+    //#jdbc-streaming-feeder
+    // fetch pages of 500 rows in the background, feeding every row once
+    jdbcStreamingFeeder("databaseUrl", "username", "password", "SELECT * FROM users").fetchSize(500)
+    // page on the id column, and start over after the last row
+    jdbcStreamingFeeder("databaseUrl", "username", "password", "SELECT * FROM users").circular("id")
+    //#jdbc-streaming-feeder
+  }
+
   {
     //#sitemap-feeder
     // beware: you need to import the http module
@@ -150,6 +167,21 @@ class FeederSample {
     //#redis-SRANDMEMBER
   }
 
+  {
+    import io.gatling.redis.Predef._
+
+    import com.redis._
+
+    val redisPool = new RedisClientPool("localhost", 6379)
+
+    //#redis-batch
+    // fetch values by batches of 100 in the background
+    val feeder = redisFeeder(redisPool, "foo").batch
+    // tune batch size
+    val feeder2 = redisFeeder(redisPool, "foo").SPOP.batch(500)
+    //#redis-batch
+  }
+
   {
     //#redis-1million
     import java.io.{ File, PrintWriter }